@@ -0,0 +1,247 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * <p>Parallel processing of independent files.</p>
+ *
+ * <p>Files are processed on a work-stealing {@link ForkJoinPool}. Each
+ * worker thread owns a parser, a command buffer, and an interpreter, and
+ * reuses them for every file that it processes. The number of files that
+ * have been submitted but not yet completed is bounded, and so the set of
+ * input files is consumed lazily and memory use does not depend on the
+ * number of files.</p>
+ */
+
+public final class JVGMBatch
+{
+  private static final Logger LOG = LoggerFactory.getLogger(JVGMBatch.class);
+
+  private final int threads;
+  private final int in_flight;
+  private final boolean gzip;
+  private final Optional<JVGMPresetStore> store;
+  private final Object merge_lock;
+
+  /**
+   * Construct a batch processor.
+   *
+   * @param in_threads   The number of worker threads
+   * @param in_in_flight The maximum number of files that may be submitted
+   *                     but not yet completed
+   * @param in_gzip      {@code true} if all files must be treated as
+   *                     compressed
+   */
+
+  public JVGMBatch(
+    final int in_threads,
+    final int in_in_flight,
+    final boolean in_gzip)
+  {
+    this(in_threads, in_in_flight, in_gzip, Optional.empty());
+  }
+
+  /**
+   * Construct a batch processor.
+   *
+   * @param in_threads   The number of worker threads
+   * @param in_in_flight The maximum number of files that may be submitted
+   *                     but not yet completed
+   * @param in_gzip      {@code true} if all files must be treated as
+   *                     compressed
+   * @param in_store     The store to which changed presets are appended,
+   *                     if any
+   */
+
+  public JVGMBatch(
+    final int in_threads,
+    final int in_in_flight,
+    final boolean in_gzip,
+    final Optional<JVGMPresetStore> in_store)
+  {
+    if (in_threads < 1) {
+      throw new IllegalArgumentException(
+        "Thread count must be positive (received " + in_threads + ")");
+    }
+    if (in_in_flight < 1) {
+      throw new IllegalArgumentException(
+        "In-flight limit must be positive (received " + in_in_flight + ")");
+    }
+
+    this.threads = in_threads;
+    this.in_flight = in_in_flight;
+    this.gzip = in_gzip;
+    this.store = Objects.requireNonNull(in_store, "store");
+    this.merge_lock = new Object();
+  }
+
+  /**
+   * Process all of the given files. The receiver is called once for each
+   * file, from the worker thread that processed the file, and so must be
+   * thread-safe.
+   *
+   * @param files    The files
+   * @param receiver A receiver of per-file results
+   *
+   * @return A summary of the results
+   *
+   * @throws InterruptedException If the calling thread is interrupted
+   */
+
+  public JVGMBatchSummary run(
+    final Iterator<Path> files,
+    final Consumer<JVGMBatchFileResult> receiver)
+    throws InterruptedException
+  {
+    Objects.requireNonNull(files, "files");
+    Objects.requireNonNull(receiver, "receiver");
+
+    final JVGMBatchSummary summary = new JVGMBatchSummary();
+    this.execute(
+      files,
+      file -> {
+        final JVGMBatchFileResult result =
+          JVGMBatchWorkerThread.current().process(file, this.gzip, this.store);
+        receiver.accept(result);
+        summary.add(result);
+      },
+      failed -> {
+        summary.add(failed);
+        receiver.accept(failed);
+      });
+    return summary;
+  }
+
+  /**
+   * Profile the commands of all of the given files. Each file is profiled
+   * separately on a worker thread and the profile is then merged into the
+   * given corpus profile. The receiver is called once for each file, from
+   * the worker thread that processed the file, and so must be thread-safe.
+   * A file's profile is merged only after the receiver has accepted it, so
+   * a file that is recorded as failed never contributes to the corpus
+   * profile.
+   *
+   * @param files    The files
+   * @param total    The corpus profile
+   * @param receiver A receiver of per-file results and profiles
+   *
+   * @return A summary of the results
+   *
+   * @throws InterruptedException If the calling thread is interrupted
+   */
+
+  public JVGMBatchSummary stats(
+    final Iterator<Path> files,
+    final JVGMStats total,
+    final BiConsumer<JVGMBatchFileResult, JVGMStats> receiver)
+    throws InterruptedException
+  {
+    Objects.requireNonNull(files, "files");
+    Objects.requireNonNull(total, "total");
+    Objects.requireNonNull(receiver, "receiver");
+
+    final JVGMBatchSummary summary = new JVGMBatchSummary();
+    this.execute(
+      files,
+      file -> {
+        final JVGMStats stats = new JVGMStats();
+        final JVGMBatchFileResult result =
+          JVGMBatchWorkerThread.current().stats(file, this.gzip, stats);
+        receiver.accept(result, stats);
+        synchronized (this.merge_lock) {
+          total.merge(stats);
+        }
+        summary.add(result);
+      },
+      failed -> {
+        summary.add(failed);
+        receiver.accept(failed, new JVGMStats());
+      });
+    return summary;
+  }
+
+  private void execute(
+    final Iterator<Path> files,
+    final Consumer<Path> job,
+    final Consumer<JVGMBatchFileResult> failed)
+    throws InterruptedException
+  {
+    final Semaphore permits = new Semaphore(this.in_flight);
+    final ForkJoinPool pool =
+      new ForkJoinPool(this.threads, JVGMBatchWorkerThread::new, null, true);
+
+    try {
+      while (files.hasNext()) {
+        final Path file = files.next();
+        permits.acquire();
+        pool.execute(() -> runJob(permits, job, failed, file));
+      }
+      permits.acquire(this.in_flight);
+      permits.release(this.in_flight);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Run a job for a single file. A job that raises an exception is
+   * recorded as a failed result for that file, so that the file still
+   * appears in the summary.
+   */
+
+  private static void runJob(
+    final Semaphore permits,
+    final Consumer<Path> job,
+    final Consumer<JVGMBatchFileResult> failed,
+    final Path file)
+  {
+    try {
+      job.accept(file);
+    } catch (final RuntimeException e) {
+      LOG.error("{}: ", file, e);
+      recordFailure(failed, file, e);
+    } finally {
+      permits.release();
+    }
+  }
+
+  private static void recordFailure(
+    final Consumer<JVGMBatchFileResult> failed,
+    final Path file,
+    final RuntimeException e)
+  {
+    try {
+      failed.accept(new JVGMBatchFileResult(
+        file, false, 0L, 0L, 0L, 0L, List.of(String.valueOf(e.getMessage()))));
+    } catch (final RuntimeException ex) {
+      LOG.error("{}: ", file, ex);
+    }
+  }
+}
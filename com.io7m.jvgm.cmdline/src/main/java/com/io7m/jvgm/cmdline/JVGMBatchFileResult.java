@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The result of processing a single file in a batch.
+ */
+
+public final class JVGMBatchFileResult
+{
+  private final Path path;
+  private final boolean succeeded;
+  private final long samples;
+  private final long commands;
+  private final long register_writes;
+  private final long preset_changes;
+  private final List<String> errors;
+
+  JVGMBatchFileResult(
+    final Path in_path,
+    final boolean in_succeeded,
+    final long in_samples,
+    final long in_commands,
+    final long in_register_writes,
+    final long in_preset_changes,
+    final List<String> in_errors)
+  {
+    this.path = Objects.requireNonNull(in_path, "path");
+    this.succeeded = in_succeeded;
+    this.samples = in_samples;
+    this.commands = in_commands;
+    this.register_writes = in_register_writes;
+    this.preset_changes = in_preset_changes;
+    this.errors = List.copyOf(Objects.requireNonNull(in_errors, "errors"));
+  }
+
+  /**
+   * @return The file
+   */
+
+  public Path path()
+  {
+    return this.path;
+  }
+
+  /**
+   * @return {@code true} iff the file was processed without errors
+   */
+
+  public boolean succeeded()
+  {
+    return this.succeeded;
+  }
+
+  /**
+   * @return The total number of samples declared in the file header
+   */
+
+  public long samples()
+  {
+    return this.samples;
+  }
+
+  /**
+   * @return The number of commands parsed
+   */
+
+  public long commands()
+  {
+    return this.commands;
+  }
+
+  /**
+   * @return The number of YM2612 register writes interpreted
+   */
+
+  public long registerWrites()
+  {
+    return this.register_writes;
+  }
+
+  /**
+   * @return The number of times that a channel preset changed
+   */
+
+  public long presetChanges()
+  {
+    return this.preset_changes;
+  }
+
+  /**
+   * @return The errors encountered whilst processing the file
+   */
+
+  public List<String> errors()
+  {
+    return this.errors;
+  }
+}
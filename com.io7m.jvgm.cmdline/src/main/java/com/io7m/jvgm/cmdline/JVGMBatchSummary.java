@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The aggregated results of a batch. Only the results of failed files are
+ * retained; successful files contribute to the totals.
+ */
+
+public final class JVGMBatchSummary
+{
+  private final List<JVGMBatchFileResult> failures;
+  private long files;
+  private long samples;
+  private long commands;
+  private long register_writes;
+  private long preset_changes;
+
+  JVGMBatchSummary()
+  {
+    this.failures = new ArrayList<>();
+  }
+
+  synchronized void add(
+    final JVGMBatchFileResult result)
+  {
+    ++this.files;
+    this.samples += result.samples();
+    this.commands += result.commands();
+    this.register_writes += result.registerWrites();
+    this.preset_changes += result.presetChanges();
+    if (!result.succeeded()) {
+      this.failures.add(result);
+    }
+  }
+
+  /**
+   * @return The number of files processed
+   */
+
+  public synchronized long files()
+  {
+    return this.files;
+  }
+
+  /**
+   * @return The number of files that failed
+   */
+
+  public synchronized long failed()
+  {
+    return (long) this.failures.size();
+  }
+
+  /**
+   * @return The total number of samples declared by all files
+   */
+
+  public synchronized long samples()
+  {
+    return this.samples;
+  }
+
+  /**
+   * @return The total number of commands parsed
+   */
+
+  public synchronized long commands()
+  {
+    return this.commands;
+  }
+
+  /**
+   * @return The total number of YM2612 register writes interpreted
+   */
+
+  public synchronized long registerWrites()
+  {
+    return this.register_writes;
+  }
+
+  /**
+   * @return The total number of channel preset changes
+   */
+
+  public synchronized long presetChanges()
+  {
+    return this.preset_changes;
+  }
+
+  /**
+   * @return The results of the files that failed
+   */
+
+  public synchronized List<JVGMBatchFileResult> failures()
+  {
+    return List.copyOf(this.failures);
+  }
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import com.io7m.jvgm.core.VGMCommandType;
+import com.io7m.jvgm.core.VGMHeader;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612CallbackMode;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612Callbacks;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612Interpreter;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612PackedSnapshot;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612ParameterGroup;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612State;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612TimeStep;
+import com.io7m.jvgm.parser.api.VGMCommandBuffer;
+import com.io7m.jvgm.parser.api.VGMParseError;
+import com.io7m.jvgm.parser.api.VGMParserBodyType;
+import com.io7m.jvgm.parser.api.VGMParserHeaderType;
+import com.io7m.jvgm.parser.vanilla.VGMParserVanilla;
+import io.vavr.Tuple2;
+import io.vavr.collection.Seq;
+import io.vavr.control.Validation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The per-thread state of a batch worker. A worker owns a parser provider,
+ * a command buffer, and an interpreter, and reuses all of them for every
+ * file that it processes.
+ */
+
+final class JVGMBatchWorker
+{
+  private final VGMParserVanilla parsers;
+  private final VGMCommandBuffer commands;
+  private final VGMYM2612Interpreter interpreter;
+  private final VGMYM2612PackedSnapshot current;
+  private final VGMYM2612PackedSnapshot previous;
+  private final boolean[] seen;
+  private long preset_changes;
+  private JVGMPresetStore store;
+  private int source;
+
+  JVGMBatchWorker()
+  {
+    this.parsers = new VGMParserVanilla();
+    this.commands = new VGMCommandBuffer(4096);
+    this.current = new VGMYM2612PackedSnapshot();
+    this.previous = new VGMYM2612PackedSnapshot();
+    this.seen = new boolean[VGMYM2612State.CHANNELS];
+    this.interpreter =
+      new VGMYM2612Interpreter(
+        VGMYM2612Callbacks.builder()
+          .setMode(VGMYM2612CallbackMode.PER_TIME_STEP)
+          .setOnTimeStep((inter, step) -> this.onTimeStep(step))
+          .build());
+  }
+
+  private static List<String> errorMessages(
+    final Seq<VGMParseError> errors)
+  {
+    final List<String> messages = new ArrayList<>(errors.size());
+    errors.forEach(error -> messages.add(String.format(
+      "0x%s: %s",
+      Long.toUnsignedString(error.offset(), 16),
+      error.message())));
+    return messages;
+  }
+
+  private void onTimeStep(
+    final VGMYM2612TimeStep step)
+  {
+    if (step.isPresetChanged()) {
+      this.countPresets();
+    }
+  }
+
+  private void countPresets()
+  {
+    for (int index = 0; index < VGMYM2612State.CHANNELS; ++index) {
+      final int groups = this.interpreter.dirtyGroups(index);
+      this.interpreter.acknowledge(index);
+      if ((groups & VGMYM2612ParameterGroup.PRESET_MASK) == 0) {
+        continue;
+      }
+
+      this.interpreter.channel(index).snapshotInto(this.current);
+      if (!this.seen[index] || !this.current.channelEquals(index, this.previous)) {
+        this.previous.copyChannelFrom(index, this.current);
+        this.seen[index] = true;
+        ++this.preset_changes;
+        if (this.store != null) {
+          this.storePreset(index);
+        }
+      }
+    }
+  }
+
+  private void storePreset(
+    final int index)
+  {
+    try {
+      this.store.add(this.source, index, this.interpreter.time(), this.current);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void reset()
+  {
+    this.store = null;
+    this.interpreter.flushTimeStep();
+    this.interpreter.reset();
+    this.interpreter.state().clear();
+    this.interpreter.markAllDirty();
+    Arrays.fill(this.seen, false);
+    this.preset_changes = 0L;
+  }
+
+  /**
+   * Process a single file. Errors are reported in the result rather than
+   * raised.
+   *
+   * @param path   The file
+   * @param gzip   {@code true} if the file must be treated as compressed
+   * @param stores The store to which changed presets are appended, if any
+   *
+   * @return The result of processing the file
+   */
+
+  JVGMBatchFileResult process(
+    final Path path,
+    final boolean gzip,
+    final Optional<JVGMPresetStore> stores)
+  {
+    Objects.requireNonNull(path, "path");
+    Objects.requireNonNull(stores, "stores");
+
+    this.reset();
+
+    long samples = 0L;
+    long command_count = 0L;
+    long writes = 0L;
+
+    try (InputStream file = JVGMInputStreams.open(path, gzip)) {
+      if (stores.isPresent()) {
+        this.store = stores.get();
+        this.source = this.store.source(path.toString());
+      }
+
+      try (VGMParserHeaderType parser = this.parsers.open(path, file)) {
+        final Validation<Seq<VGMParseError>, Tuple2<VGMParserBodyType, VGMHeader>> result =
+          parser.parse();
+        if (!result.isValid()) {
+          return new JVGMBatchFileResult(
+            path, false, 0L, 0L, 0L, 0L, errorMessages(result.getError()));
+        }
+
+        final VGMParserBodyType body_parser = result.get()._1;
+        samples = result.get()._2.sampleCount();
+
+        while (true) {
+          final Validation<Seq<VGMParseError>, Integer> body_result =
+            body_parser.parseBatch(this.commands);
+
+          final int count = this.commands.size();
+          command_count += (long) count;
+          writes += this.interpret(count);
+
+          if (!body_result.isValid()) {
+            return new JVGMBatchFileResult(
+              path,
+              false,
+              samples,
+              command_count,
+              writes,
+              this.preset_changes,
+              errorMessages(body_result.getError()));
+          }
+
+          if (count == 0) {
+            this.interpreter.flushTimeStep();
+            this.countPresets();
+            return new JVGMBatchFileResult(
+              path,
+              true,
+              samples,
+              command_count,
+              writes,
+              this.preset_changes,
+              List.of());
+          }
+        }
+      }
+    } catch (final IOException | RuntimeException e) {
+      return new JVGMBatchFileResult(
+        path,
+        false,
+        samples,
+        command_count,
+        writes,
+        this.preset_changes,
+        List.of(String.valueOf(e.getMessage())));
+    }
+  }
+
+  /**
+   * Parse a single file and accumulate a profile of its commands. Errors are
+   * reported in the result rather than raised; the profile holds every
+   * command parsed before the error.
+   *
+   * @param path  The file
+   * @param gzip  {@code true} if the file must be treated as compressed
+   * @param stats The profile
+   *
+   * @return The result of parsing the file
+   */
+
+  JVGMBatchFileResult stats(
+    final Path path,
+    final boolean gzip,
+    final JVGMStats stats)
+  {
+    Objects.requireNonNull(path, "path");
+    Objects.requireNonNull(stats, "stats");
+
+    stats.addFile();
+
+    long samples = 0L;
+    long command_count = 0L;
+
+    try (InputStream file = JVGMInputStreams.open(path, gzip)) {
+      try (VGMParserHeaderType parser = this.parsers.open(path, file)) {
+        final Validation<Seq<VGMParseError>, Tuple2<VGMParserBodyType, VGMHeader>> result =
+          parser.parse();
+        if (!result.isValid()) {
+          return new JVGMBatchFileResult(
+            path, false, 0L, 0L, 0L, 0L, errorMessages(result.getError()));
+        }
+
+        final VGMParserBodyType body_parser = result.get()._1;
+        samples = result.get()._2.sampleCount();
+
+        while (true) {
+          final Validation<Seq<VGMParseError>, Integer> body_result =
+            body_parser.parseBatch(this.commands);
+
+          final int count = this.commands.size();
+          command_count += (long) count;
+          stats.add(this.commands);
+
+          if (!body_result.isValid()) {
+            return new JVGMBatchFileResult(
+              path,
+              false,
+              samples,
+              command_count,
+              ym2612Writes(stats),
+              0L,
+              errorMessages(body_result.getError()));
+          }
+
+          if (count == 0) {
+            return new JVGMBatchFileResult(
+              path,
+              true,
+              samples,
+              command_count,
+              ym2612Writes(stats),
+              0L,
+              List.of());
+          }
+        }
+      }
+    } catch (final IOException | RuntimeException e) {
+      return new JVGMBatchFileResult(
+        path,
+        false,
+        samples,
+        command_count,
+        ym2612Writes(stats),
+        0L,
+        List.of(String.valueOf(e.getMessage())));
+    }
+  }
+
+  private static long ym2612Writes(
+    final JVGMStats stats)
+  {
+    return stats.commands(VGMCommandType.Type.YM2612_WRITE_PORT_0)
+      + stats.commands(VGMCommandType.Type.YM2612_WRITE_PORT_1);
+  }
+
+  /**
+   * Parse a single file and encode its commands with the given dump writer.
+   * The writer is flushed, but the underlying channel is not closed. Errors
+   * are reported in the result rather than raised.
+   *
+   * @param path   The file
+   * @param gzip   {@code true} if the file must be treated as compressed
+   * @param writer The dump writer
+   *
+   * @return The result of parsing the file
+   */
+
+  JVGMBatchFileResult dump(
+    final Path path,
+    final boolean gzip,
+    final JVGMDumpWriter writer)
+  {
+    Objects.requireNonNull(path, "path");
+    Objects.requireNonNull(writer, "writer");
+
+    long samples = 0L;
+    long command_count = 0L;
+
+    try (InputStream file = JVGMInputStreams.open(path, gzip)) {
+      try (VGMParserHeaderType parser = this.parsers.open(path, file)) {
+        final Validation<Seq<VGMParseError>, Tuple2<VGMParserBodyType, VGMHeader>> result =
+          parser.parse();
+        if (!result.isValid()) {
+          return new JVGMBatchFileResult(
+            path, false, 0L, 0L, 0L, 0L, errorMessages(result.getError()));
+        }
+
+        final VGMParserBodyType body_parser = result.get()._1;
+        samples = result.get()._2.sampleCount();
+
+        while (true) {
+          final Validation<Seq<VGMParseError>, Integer> body_result =
+            body_parser.parseBatch(this.commands);
+
+          final int count = this.commands.size();
+          command_count += (long) count;
+          writer.write(this.commands);
+
+          if (!body_result.isValid()) {
+            writer.flush();
+            return new JVGMBatchFileResult(
+              path,
+              false,
+              samples,
+              command_count,
+              0L,
+              0L,
+              errorMessages(body_result.getError()));
+          }
+
+          if (count == 0) {
+            writer.flush();
+            return new JVGMBatchFileResult(
+              path, true, samples, command_count, 0L, 0L, List.of());
+          }
+        }
+      }
+    } catch (final IOException | RuntimeException e) {
+      return new JVGMBatchFileResult(
+        path,
+        false,
+        samples,
+        command_count,
+        0L,
+        0L,
+        List.of(String.valueOf(e.getMessage())));
+    }
+  }
+
+  private long interpret(
+    final int count)
+  {
+    long writes = 0L;
+    for (int index = 0; index < count; ++index) {
+      switch (this.commands.opcode(index)) {
+        case 0x52: {
+          this.interpreter.writeRegisterPort0(
+            this.commands.register(index),
+            this.commands.value(index));
+          ++writes;
+          break;
+        }
+        case 0x53: {
+          this.interpreter.writeRegisterPort1(
+            this.commands.register(index),
+            this.commands.value(index));
+          ++writes;
+          break;
+        }
+        default: {
+          this.interpreter.advance(this.commands.waitSamples(index));
+          break;
+        }
+      }
+    }
+    return writes;
+  }
+}
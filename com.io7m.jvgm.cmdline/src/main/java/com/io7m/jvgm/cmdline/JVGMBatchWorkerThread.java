@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * A fork/join worker thread that owns a batch worker for its lifetime.
+ */
+
+final class JVGMBatchWorkerThread extends ForkJoinWorkerThread
+{
+  private final JVGMBatchWorker worker;
+
+  JVGMBatchWorkerThread(
+    final ForkJoinPool in_pool)
+  {
+    super(in_pool);
+    this.worker = new JVGMBatchWorker();
+  }
+
+  /**
+   * @return The worker owned by the current thread
+   *
+   * @throws IllegalStateException If the current thread is not a batch
+   *                               worker thread
+   */
+
+  static JVGMBatchWorker current()
+  {
+    final Thread thread = Thread.currentThread();
+    if (thread instanceof JVGMBatchWorkerThread) {
+      return ((JVGMBatchWorkerThread) thread).worker;
+    }
+    throw new IllegalStateException(
+      "Current thread is not a batch worker: " + thread.getName());
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.io7m.jvgm.cmdline.JVGMCommandType.Status.FAILURE;
+import static com.io7m.jvgm.cmdline.JVGMCommandType.Status.SUCCESS;
+
+/**
+ * A command for processing many VGM files in parallel.
+ */
+
+@Parameters(
+  commandNames = "batch",
+  commandDescription = "Parse and interpret many VGM files in parallel")
+public final class JVGMCommandBatch extends JVGMCommandRoot
+{
+  private static final Logger LOG = LoggerFactory.getLogger(JVGMCommandBatch.class);
+
+  @Parameter(
+    names = "--file",
+    required = false,
+    description = "An input file (may be specified multiple times)")
+  private List<Path> files = new ArrayList<>();
+
+  @Parameter(
+    names = "--list",
+    required = false,
+    description = "A text file containing one input file per line")
+  private Path list;
+
+  @Parameter(
+    names = "--directory",
+    required = false,
+    description = "A directory that will be searched recursively for *.vgm and *.vgz files")
+  private Path directory;
+
+  @Parameter(
+    names = "--gzip",
+    required = false,
+    description = "The inputs are gzip compressed (compressed input is detected automatically)")
+  private boolean gzip;
+
+  @Parameter(
+    names = "--threads",
+    required = false,
+    description = "The number of worker threads (defaults to the number of processors)")
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  @Parameter(
+    names = "--max-in-flight",
+    required = false,
+    description = "The maximum number of files queued or in progress at any one time (defaults to four per thread)")
+  private int max_in_flight;
+
+  @Parameter(
+    names = "--results",
+    required = false,
+    description = "A file to which tab-separated per-file results will be written")
+  private Path results;
+
+  @Parameter(
+    names = "--store",
+    required = false,
+    description = "A preset store to which changed YM2612 presets will be appended")
+  private Path store_file;
+
+  private static final class ResultWriter
+  {
+    private final Writer writer;
+    private IOException failure;
+
+    ResultWriter(
+      final Writer in_writer)
+    {
+      this.writer = in_writer;
+    }
+
+    synchronized void write(
+      final JVGMBatchFileResult result)
+    {
+      if (this.failure != null) {
+        return;
+      }
+
+      try {
+        this.writer.append(result.path().toString())
+          .append('\t')
+          .append(result.succeeded() ? "ok" : "failed")
+          .append('\t')
+          .append(Long.toString(result.samples()))
+          .append('\t')
+          .append(Long.toString(result.commands()))
+          .append('\t')
+          .append(Long.toString(result.registerWrites()))
+          .append('\t')
+          .append(Long.toString(result.presetChanges()))
+          .append(System.lineSeparator());
+      } catch (final IOException e) {
+        this.failure = e;
+      }
+    }
+
+    synchronized void checkFailure()
+      throws IOException
+    {
+      if (this.failure != null) {
+        throw this.failure;
+      }
+    }
+  }
+
+  /**
+   * Construct a command.
+   */
+
+  public JVGMCommandBatch()
+  {
+
+  }
+
+  @Override
+  public Status execute()
+    throws Exception
+  {
+    super.execute();
+
+    if (this.list == null && this.directory == null && this.files.isEmpty()) {
+      LOG.error("At least one of --file, --list, or --directory is required");
+      return FAILURE;
+    }
+
+    if (this.store_file == null) {
+      return this.runBatch(Optional.empty());
+    }
+
+    try (JVGMPresetStore store = JVGMPresetStore.open(this.store_file)) {
+      final Status status = this.runBatch(Optional.of(store));
+      LOG.info(
+        "store: presets {} sources {} occurrences {}",
+        Integer.valueOf(store.presetCount()),
+        Integer.valueOf(store.sourceCount()),
+        Long.valueOf(store.occurrenceCount()));
+      return status;
+    }
+  }
+
+  private Status runBatch(
+    final Optional<JVGMPresetStore> store)
+    throws IOException, InterruptedException
+  {
+    final int in_flight =
+      this.max_in_flight > 0 ? this.max_in_flight : this.threads * 4;
+    final JVGMBatch batch =
+      new JVGMBatch(this.threads, in_flight, this.gzip, store);
+
+    final long time_then = System.nanoTime();
+    final JVGMBatchSummary summary;
+    try (Stream<Path> inputs = JVGMInputFiles.stream(this.files, this.list, this.directory)) {
+      if (this.results != null) {
+        try (BufferedWriter writer = Files.newBufferedWriter(this.results)) {
+          final ResultWriter results_writer = new ResultWriter(writer);
+          summary = batch.run(inputs.iterator(), results_writer::write);
+          results_writer.checkFailure();
+        }
+      } else {
+        summary = batch.run(inputs.iterator(), result -> {
+          // Results are only summarized
+        });
+      }
+    }
+    final long time_now = System.nanoTime();
+
+    for (final JVGMBatchFileResult failure : summary.failures()) {
+      for (final String error : failure.errors()) {
+        LOG.error("{}: {}", failure.path(), error);
+      }
+    }
+
+    LOG.info(
+      "files {} failed {} commands {} register writes {} preset changes {} time {}ms",
+      Long.valueOf(summary.files()),
+      Long.valueOf(summary.failed()),
+      Long.valueOf(summary.commands()),
+      Long.valueOf(summary.registerWrites()),
+      Long.valueOf(summary.presetChanges()),
+      Long.valueOf((time_now - time_then) / 1_000_000L));
+
+    return summary.failed() == 0L ? SUCCESS : FAILURE;
+  }
+}
@@ -18,35 +18,28 @@ package com.io7m.jvgm.cmdline;
 
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
-import com.io7m.jvgm.core.VGMCommandType;
-import com.io7m.jvgm.core.VGMHeader;
-import com.io7m.jvgm.parser.api.VGMParseError;
-import com.io7m.jvgm.parser.api.VGMParserBodyType;
-import com.io7m.jvgm.parser.api.VGMParserHeaderType;
-import com.io7m.jvgm.parser.vanilla.VGMParserVanilla;
-import io.vavr.Tuple2;
-import io.vavr.collection.Seq;
-import io.vavr.control.Validation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
-import java.util.zip.GZIPInputStream;
 
 import static com.io7m.jvgm.cmdline.JVGMCommandType.Status.FAILURE;
 import static com.io7m.jvgm.cmdline.JVGMCommandType.Status.SUCCESS;
-import static com.io7m.jvgm.core.VGMCommandType.Type.EOF;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
 
 /**
- * A command for dumping VGM files as plain text.
+ * A command for dumping the commands of VGM files as text or binary
+ * records.
  */
 
 @Parameters(
   commandNames = "dump",
-  commandDescription = "Dump the given file as plain text")
+  commandDescription = "Dump the commands of the given file as text or binary records")
 public final class JVGMCommandDump extends JVGMCommandRoot
 {
   private static final Logger LOG = LoggerFactory.getLogger(JVGMCommandDump.class);
@@ -60,9 +53,21 @@ public final class JVGMCommandDump extends JVGMCommandRoot
   @Parameter(
     names = "--gzip",
     required = false,
-    description = "The input is gzip compressed")
+    description = "The input is gzip compressed (compressed input is detected automatically)")
   private boolean gzip;
 
+  @Parameter(
+    names = "--format",
+    required = false,
+    description = "The output format")
+  private JVGMDumpFormat format = JVGMDumpFormat.TEXT;
+
+  @Parameter(
+    names = "--output",
+    required = false,
+    description = "The output file (defaults to standard output)")
+  private Path file_output;
+
   /**
    * Construct a command.
    */
@@ -78,59 +83,27 @@ public final class JVGMCommandDump extends JVGMCommandRoot
   {
     super.execute();
 
-    final VGMParserVanilla parsers = new VGMParserVanilla();
-
-    boolean failed = false;
-
-    try (InputStream file = this.openStream()) {
-      try (VGMParserHeaderType parser = parsers.open(this.file_input, file)) {
-        final Validation<Seq<VGMParseError>, Tuple2<VGMParserBodyType, VGMHeader>> result = parser.parse();
-        if (!result.isValid()) {
-          final Seq<VGMParseError> errors = result.getError();
-          errors.forEach(
-            error -> LOG.error(
-              "parse error: 0x{}: {}",
-              Long.toUnsignedString(error.offset(), 16),
-              error.message()));
-          return FAILURE;
-        }
-
-        final Tuple2<VGMParserBodyType, VGMHeader> header_and_body = result.get();
-        final VGMParserBodyType body_parser = header_and_body._1;
-        final VGMHeader header = header_and_body._2;
-
-        LOG.debug("header: {}", header);
-
-        while (true) {
-          final Validation<Seq<VGMParseError>, VGMCommandType> body_result = body_parser.parse();
-          if (!body_result.isValid()) {
-            final Seq<VGMParseError> errors = body_result.getError();
-            errors.forEach(
-              error -> LOG.error(
-                "parse error: 0x{}: {}",
-                Long.toUnsignedString(error.offset(), 16),
-                error.message()));
-            failed = true;
-            continue;
-          }
-
-          final VGMCommandType command = body_result.get();
-          System.out.println(command.toString());
-
-          if (command.type() == EOF) {
-            return failed ? FAILURE : SUCCESS;
-          }
-        }
+    if (this.file_output != null) {
+      try (FileChannel channel = FileChannel.open(
+        this.file_output, CREATE, TRUNCATE_EXISTING, WRITE)) {
+        return this.dump(channel);
       }
     }
+
+    return this.dump(Channels.newChannel(System.out));
   }
 
-  private InputStream openStream()
-    throws IOException
+  private Status dump(
+    final WritableByteChannel channel)
   {
-    if (this.gzip) {
-      return new GZIPInputStream(Files.newInputStream(this.file_input));
+    final JVGMDumpWriter writer =
+      new JVGMDumpWriter(this.format, channel, JVGMDumpWriter.DEFAULT_BUFFER_SIZE);
+    final JVGMBatchFileResult result =
+      new JVGMBatchWorker().dump(this.file_input, this.gzip, writer);
+
+    for (final String error : result.errors()) {
+      LOG.error("{}: {}", result.path(), error);
     }
-    return Files.newInputStream(this.file_input);
+    return result.succeeded() ? SUCCESS : FAILURE;
   }
 }
@@ -18,38 +18,43 @@ package com.io7m.jvgm.cmdline;
 
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
-import com.io7m.jvgm.core.VGMCommandType;
-import com.io7m.jvgm.core.VGMCommandYM2612WritePort0;
-import com.io7m.jvgm.core.VGMCommandYM2612WritePort1;
+import com.io7m.jvgm.core.VGMDataBanks;
 import com.io7m.jvgm.core.VGMHeader;
+import com.io7m.jvgm.interpreter.ym2413.VGMYM2413Callbacks;
+import com.io7m.jvgm.interpreter.ym2413.VGMYM2413ChannelSnapshot;
+import com.io7m.jvgm.interpreter.ym2413.VGMYM2413Instruments;
+import com.io7m.jvgm.interpreter.ym2413.VGMYM2413Interpreter;
+import com.io7m.jvgm.interpreter.ym2413.VGMYM2413OperatorSnapshot;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612CallbackMode;
 import com.io7m.jvgm.interpreter.ym2612.VGMYM2612Callbacks;
 import com.io7m.jvgm.interpreter.ym2612.VGMYM2612ChannelSnapshot;
 import com.io7m.jvgm.interpreter.ym2612.VGMYM2612Interpreter;
 import com.io7m.jvgm.interpreter.ym2612.VGMYM2612OperatorSnapshot;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612PackedSnapshot;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612ParameterGroup;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612State;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612TimeStep;
+import com.io7m.jvgm.parser.api.VGMCommandBuffer;
 import com.io7m.jvgm.parser.api.VGMParseError;
 import com.io7m.jvgm.parser.api.VGMParserBodyType;
 import com.io7m.jvgm.parser.api.VGMParserHeaderType;
+import com.io7m.jvgm.parser.api.VGMYM2612DACStream;
 import com.io7m.jvgm.parser.vanilla.VGMParserVanilla;
 import io.vavr.Tuple2;
 import io.vavr.collection.Seq;
 import io.vavr.control.Validation;
-import org.apache.commons.lang3.mutable.MutableBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
-import java.util.zip.GZIPInputStream;
 
 import static com.io7m.jvgm.cmdline.JVGMCommandType.Status.FAILURE;
 import static com.io7m.jvgm.cmdline.JVGMCommandType.Status.SUCCESS;
-import static com.io7m.jvgm.core.VGMCommandType.Type.EOF;
 
 /**
  * A command for interpreting VGM files.
@@ -71,15 +76,21 @@ public final class JVGMCommandInterpret extends JVGMCommandRoot
   @Parameter(
     names = "--gzip",
     required = false,
-    description = "The input is gzip compressed")
+    description = "The input is gzip compressed (compressed input is detected automatically)")
   private boolean gzip;
 
   @Parameter(
     names = "--output",
-    required = true,
+    required = false,
     description = "The output directory")
   private Path output_directory;
 
+  @Parameter(
+    names = "--store",
+    required = false,
+    description = "A preset store to which YM2612 presets are appended instead of the output directory")
+  private Path store_file;
+
   /**
    * Construct a command.
    */
@@ -90,125 +101,276 @@ public final class JVGMCommandInterpret extends JVGMCommandRoot
   }
 
   // CHECKSTYLE:OFF
-  private static boolean doCommand(
+  private static void doCommand(
     final VGMYM2612Interpreter interpreter,
-    final VGMCommandType command)
+    final VGMYM2413Interpreter interpreter_opll,
+    final VGMCommandBuffer commands,
+    final int index)
   {
-    switch (command.type()) {
-      case EOF: {
-        return true;
+    switch (commands.opcode(index)) {
+      case 0x51: {
+        interpreter_opll.writeRegister(
+          commands.register(index),
+          commands.value(index));
+        break;
       }
-
-      case YM2612_WRITE_PORT_0: {
-        final VGMCommandYM2612WritePort0 cmd = (VGMCommandYM2612WritePort0) command;
+      case 0x52: {
         interpreter.writeRegisterPort0(
-          (byte) (cmd.register() & 0xff),
-          (byte) (cmd.value() & 0xff));
+          commands.register(index),
+          commands.value(index));
         break;
       }
-      case YM2612_WRITE_PORT_1: {
-        final VGMCommandYM2612WritePort1 cmd = (VGMCommandYM2612WritePort1) command;
+      case 0x53: {
         interpreter.writeRegisterPort1(
-          (byte) (cmd.register() & 0xff),
-          (byte) (cmd.value() & 0xff));
+          commands.register(index),
+          commands.value(index));
         break;
       }
-
-      case GAME_GEAR_PSG_STEREO_WRITE:
-      case PSG_WRITE:
-      case YM2413_WRITE:
-      case YM2612_SEEK_PCM:
-      case WAIT_LONG:
-      case END_OF_SOUND_DATA:
-      case DATA_BLOCK:
-      case WAIT_735:
-      case WAIT_882:
-      case WAIT_SHORT_0:
-      case WAIT_SHORT_1:
-      case WAIT_SHORT_2:
-      case WAIT_SHORT_3:
-      case WAIT_SHORT_4:
-      case WAIT_SHORT_5:
-      case WAIT_SHORT_6:
-      case WAIT_SHORT_7:
-      case WAIT_SHORT_8:
-      case WAIT_SHORT_9:
-      case WAIT_SHORT_A:
-      case WAIT_SHORT_B:
-      case WAIT_SHORT_C:
-      case WAIT_SHORT_D:
-      case WAIT_SHORT_E:
-      case WAIT_SHORT_F:
-      case YM2612_PCM_WRITE_WAIT_0:
-      case YM2612_PCM_WRITE_WAIT_1:
-      case YM2612_PCM_WRITE_WAIT_2:
-      case YM2612_PCM_WRITE_WAIT_3:
-      case YM2612_PCM_WRITE_WAIT_4:
-      case YM2612_PCM_WRITE_WAIT_5:
-      case YM2612_PCM_WRITE_WAIT_6:
-      case YM2612_PCM_WRITE_WAIT_7:
-      case YM2612_PCM_WRITE_WAIT_8:
-      case YM2612_PCM_WRITE_WAIT_9:
-      case YM2612_PCM_WRITE_WAIT_A:
-      case YM2612_PCM_WRITE_WAIT_B:
-      case YM2612_PCM_WRITE_WAIT_C:
-      case YM2612_PCM_WRITE_WAIT_D:
-      case YM2612_PCM_WRITE_WAIT_E:
-      case YM2612_PCM_WRITE_WAIT_F: {
+      default: {
+        interpreter.advance(commands.waitSamples(index));
         break;
       }
     }
+  }
+
+  /**
+   * Consume a run of DAC commands, writing only the final DAC value to the
+   * interpreter.
+   *
+   * @return The number of commands consumed
+   */
 
-    return command.type() == EOF;
+  private static int doDAC(
+    final VGMYM2612Interpreter interpreter,
+    final VGMYM2612DACStream dac,
+    final VGMDataBanks banks,
+    final VGMCommandBuffer commands,
+    final int index)
+  {
+    final int consumed = dac.collect(commands, index, banks);
+    if (dac.writes() > 0) {
+      interpreter.writeRegisterPort0(0x2a, dac.value());
+    }
+    interpreter.advance(dac.size());
+    return consumed;
   }
 
-  private static final class ChannelState
+  private static final class PresetState
   {
-    private int count;
-    private VGMYM2612ChannelSnapshot snapshot;
+    private final VGMYM2612PackedSnapshot current;
+    private final VGMYM2612PackedSnapshot previous;
+    private final int[] counts;
+    private final JVGMPresetStore store;
+    private final int source;
+
+    PresetState(
+      final JVGMPresetStore in_store,
+      final int in_source)
+    {
+      this.current = new VGMYM2612PackedSnapshot();
+      this.previous = new VGMYM2612PackedSnapshot();
+      this.counts = new int[VGMYM2612State.CHANNELS];
+      this.store = in_store;
+      this.source = in_source;
+    }
+  }
 
-    ChannelState()
+  private static final class OPLLPresetState
+  {
+    private final VGMYM2413ChannelSnapshot[] previous;
+    private final int[] counts;
+
+    OPLLPresetState()
     {
+      this.previous = new VGMYM2413ChannelSnapshot[VGMYM2413Interpreter.CHANNELS];
+      this.counts = new int[VGMYM2413Interpreter.CHANNELS];
+    }
+  }
+
+  private void dumpPresetOPLL(
+    final OPLLPresetState preset_state,
+    final VGMYM2413Interpreter interpreter)
+  {
+    if (this.output_directory == null) {
+      return;
+    }
+
+    /*
+     * Writes to the user patch affect every channel that selects it, so only
+     * channels that have actually been played are dumped.
+     */
+
+    int dirty = interpreter.dirtyChannels() & interpreter.keyedChannels();
+    while (dirty != 0) {
+      final int index = Integer.numberOfTrailingZeros(dirty);
+      dirty &= dirty - 1;
+      interpreter.acknowledge(index);
+
+      final VGMYM2413ChannelSnapshot snapshot = interpreter.channel(index).snapshot();
+      final int count = preset_state.counts[index];
+      if (count > 0 && snapshot.equals(preset_state.previous[index])) {
+        continue;
+      }
+
+      preset_state.previous[index] = snapshot;
+      preset_state.counts[index] = count + 1;
+
+      final String name =
+        String.format(
+          "opll-ch%02d-%04d.txt",
+          Integer.valueOf(index),
+          Integer.valueOf(count + 1));
 
+      final Path path = this.output_directory.resolve(name);
+      LOG.debug("created snapshot: {}", path);
+
+      try {
+        Files.createDirectories(this.output_directory);
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+          dumpChannelOPLL(writer, snapshot);
+        } catch (final IOException e) {
+          LOG.error("i/o error: {}: ", path, e);
+        }
+      } catch (final IOException e) {
+        LOG.error("i/o error: {}: ", this.output_directory, e);
+      }
     }
   }
 
+  private static void dumpField(
+    final BufferedWriter writer,
+    final String indent,
+    final String name,
+    final String value)
+    throws IOException
+  {
+    writer.append(indent)
+      .append("[")
+      .append(name)
+      .append(" ")
+      .append(value)
+      .append("]")
+      .append(System.lineSeparator());
+  }
+
+  private static void dumpOperatorOPLL(
+    final BufferedWriter writer,
+    final String name,
+    final VGMYM2413OperatorSnapshot operator)
+    throws IOException
+  {
+    final String separator = System.lineSeparator();
+
+    writer.append("  [").append(name).append(separator);
+    writer.append("    [envelope").append(separator);
+    dumpField(writer, "      ", "attack-rate", Integer.toUnsignedString(operator.envelopeAttackRate()));
+    dumpField(writer, "      ", "decay-rate", Integer.toUnsignedString(operator.envelopeDecayRate()));
+    dumpField(writer, "      ", "sustain-level", Integer.toUnsignedString(operator.envelopeSustainLevel()));
+    dumpField(writer, "      ", "release-rate", Integer.toUnsignedString(operator.envelopeReleaseRate()));
+    dumpField(writer, "      ", "sustained", Boolean.toString(operator.sustained()));
+    writer.append("    ]").append(separator);
+    dumpField(writer, "    ", "multiply", Integer.toUnsignedString(operator.pitchMultiply()));
+    dumpField(writer, "    ", "total-level", Integer.toUnsignedString(operator.totalLevel()));
+    dumpField(writer, "    ", "key-scale-level", Integer.toUnsignedString(operator.keyScaleLevel()));
+    dumpField(writer, "    ", "key-scale-rate", Boolean.toString(operator.keyScaleRate()));
+    dumpField(writer, "    ", "amplitude-modulation", Boolean.toString(operator.amplitudeModulation()));
+    dumpField(writer, "    ", "vibrato", Boolean.toString(operator.vibrato()));
+    dumpField(writer, "    ", "rectified", Boolean.toString(operator.rectified()));
+    writer.append("  ]").append(separator);
+  }
+
+  private static void dumpChannelOPLL(
+    final BufferedWriter writer,
+    final VGMYM2413ChannelSnapshot channel)
+    throws IOException
+  {
+    final String separator = System.lineSeparator();
+
+    writer.append("[channel").append(separator);
+    dumpField(writer, "  ", "index", Integer.toUnsignedString(channel.index()));
+    dumpField(writer, "  ", "instrument", Integer.toUnsignedString(channel.instrument()));
+    dumpField(writer, "  ", "instrument-name", "\"" + VGMYM2413Instruments.name(channel.instrument()) + "\"");
+    dumpField(writer, "  ", "volume-inverse", Integer.toUnsignedString(channel.volume()));
+    dumpField(writer, "  ", "feedback", Integer.toUnsignedString(channel.feedback()));
+    dumpOperatorOPLL(writer, "modulator", channel.modulator());
+    dumpOperatorOPLL(writer, "carrier", channel.carrier());
+    writer.append("]").append(separator);
+    writer.append(separator);
+  }
+
   private void dumpPreset(
-    final Map<Integer, ChannelState> channel_states,
+    final PresetState preset_state,
     final VGMYM2612Interpreter interpreter)
   {
     LOG.debug("channels might need snapshots");
 
-    for (int index = 0; index < 6; ++index) {
-      final ChannelState channel_state = channel_states.get(Integer.valueOf(index));
-      final VGMYM2612ChannelSnapshot new_snapshot = interpreter.channel(index).snapshot();
-      if (!Objects.equals(new_snapshot, channel_state.snapshot)) {
-        channel_state.snapshot = new_snapshot;
-        ++channel_state.count;
-
-        final String name =
-          String.format(
-            "ch%02d-%04d.txt",
-            Integer.valueOf(index),
-            Integer.valueOf(channel_state.count));
-
-        final Path path = this.output_directory.resolve(name);
-        LOG.debug("created snapshot: {}", path);
-
-        try {
-          Files.createDirectories(this.output_directory);
-          try (BufferedWriter writer = Files.newBufferedWriter(path)) {
-            dumpChannel(writer, new_snapshot);
-          } catch (final IOException e) {
-            LOG.error("i/o error: {}: ", path, e);
-          }
-        } catch (final IOException e) {
-          LOG.error("i/o error: {}: ", this.output_directory, e);
+    final VGMYM2612PackedSnapshot current = preset_state.current;
+    final VGMYM2612PackedSnapshot previous = preset_state.previous;
+
+    for (int index = 0; index < VGMYM2612State.CHANNELS; ++index) {
+      final int groups = interpreter.dirtyGroups(index);
+      interpreter.acknowledge(index);
+      if ((groups & VGMYM2612ParameterGroup.PRESET_MASK) == 0) {
+        continue;
+      }
+
+      interpreter.channel(index).snapshotInto(current);
+      final int count = preset_state.counts[index];
+      if (count == 0 || !current.channelEquals(index, previous)) {
+        previous.copyChannelFrom(index, current);
+        preset_state.counts[index] = count + 1;
+
+        if (preset_state.store != null) {
+          storePreset(preset_state, interpreter, index);
+        } else {
+          this.writePreset(index, count + 1, current.toChannelSnapshot(index));
         }
       }
     }
   }
 
+  private static void storePreset(
+    final PresetState preset_state,
+    final VGMYM2612Interpreter interpreter,
+    final int index)
+  {
+    try {
+      preset_state.store.add(
+        preset_state.source,
+        index,
+        interpreter.time(),
+        preset_state.current);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void writePreset(
+    final int index,
+    final int number,
+    final VGMYM2612ChannelSnapshot snapshot)
+  {
+    final String name =
+      String.format(
+        "ch%02d-%04d.txt",
+        Integer.valueOf(index),
+        Integer.valueOf(number));
+
+    final Path path = this.output_directory.resolve(name);
+    LOG.debug("created snapshot: {}", path);
+
+    try {
+      Files.createDirectories(this.output_directory);
+      try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+        dumpChannel(writer, snapshot);
+      } catch (final IOException e) {
+        LOG.error("i/o error: {}: ", path, e);
+      }
+    } catch (final IOException e) {
+      LOG.error("i/o error: {}: ", this.output_directory, e);
+    }
+  }
+
   private static void dumpChannel(
     final BufferedWriter writer,
     final VGMYM2612ChannelSnapshot channel)
@@ -305,29 +467,54 @@ public final class JVGMCommandInterpret extends JVGMCommandRoot
   {
     super.execute();
 
-    final VGMParserVanilla parsers = new VGMParserVanilla();
+    if (this.output_directory == null && this.store_file == null) {
+      LOG.error("At least one of --output or --store is required");
+      return FAILURE;
+    }
 
-    boolean failed = false;
+    if (this.store_file == null) {
+      return this.interpret(new PresetState(null, 0));
+    }
 
-    final MutableBoolean changed = new MutableBoolean(false);
-    final Map<Integer, ChannelState> channel_states = new HashMap<>(6);
-    for (int index = 0; index < 6; ++index) {
-      channel_states.put(Integer.valueOf(index), new ChannelState());
+    try (JVGMPresetStore store = JVGMPresetStore.open(this.store_file)) {
+      final Status status =
+        this.interpret(new PresetState(store, store.source(this.file_input.toString())));
+      LOG.info(
+        "store: presets {} sources {} occurrences {}",
+        Integer.valueOf(store.presetCount()),
+        Integer.valueOf(store.sourceCount()),
+        Long.valueOf(store.occurrenceCount()));
+      return status;
     }
+  }
+
+  private Status interpret(
+    final PresetState preset_state)
+    throws Exception
+  {
+    final VGMParserVanilla parsers = new VGMParserVanilla();
+
+    boolean failed = false;
 
     final VGMYM2612Interpreter interpreter =
       new VGMYM2612Interpreter(
         VGMYM2612Callbacks.builder()
-          .setOnInstructionReceived(
-            (inter, preset_changed) ->
-              this.maybeDumpPreset(
-                channel_states,
-                changed,
-                inter,
-                preset_changed))
+          .setMode(VGMYM2612CallbackMode.PER_TIME_STEP)
+          .setOnTimeStep(
+            (inter, step) -> this.maybeDumpPreset(preset_state, inter, step))
           .build());
 
-    try (InputStream file = this.openStream()) {
+    /*
+     * The YM2413 interpreter has no time steps of its own, and so the OPLL
+     * presets are dumped whenever a command advances time, from the channels
+     * that the interpreter has marked as changed.
+     */
+
+    final OPLLPresetState preset_state_opll = new OPLLPresetState();
+    final VGMYM2413Interpreter interpreter_opll =
+      new VGMYM2413Interpreter(VGMYM2413Callbacks.builder().build());
+
+    try (InputStream file = JVGMInputStreams.open(this.file_input, this.gzip)) {
       try (VGMParserHeaderType parser = parsers.open(this.file_input, file)) {
         final Validation<Seq<VGMParseError>, Tuple2<VGMParserBodyType, VGMHeader>> result = parser.parse();
         if (!result.isValid()) {
@@ -346,8 +533,11 @@ public final class JVGMCommandInterpret extends JVGMCommandRoot
 
         LOG.debug("header: {}", header);
 
+        final VGMCommandBuffer commands = new VGMCommandBuffer(4096);
+        final VGMYM2612DACStream dac = new VGMYM2612DACStream(4096);
         while (true) {
-          final Validation<Seq<VGMParseError>, VGMCommandType> body_result = body_parser.parse();
+          final Validation<Seq<VGMParseError>, Integer> body_result =
+            body_parser.parseBatch(commands);
           if (!body_result.isValid()) {
             final Seq<VGMParseError> errors = body_result.getError();
             errors.forEach(
@@ -356,39 +546,43 @@ public final class JVGMCommandInterpret extends JVGMCommandRoot
                 Long.toUnsignedString(error.offset(), 16),
                 error.message()));
             failed = true;
-            continue;
           }
 
-          if (doCommand(interpreter, body_result.get())) {
-            this.dumpPreset(channel_states, interpreter);
+          final int count = commands.size();
+          if (count == 0 && body_result.isValid()) {
+            interpreter.flushTimeStep();
+            this.dumpPreset(preset_state, interpreter);
+            this.dumpPresetOPLL(preset_state_opll, interpreter_opll);
             return failed ? FAILURE : SUCCESS;
           }
+
+          int index = 0;
+          while (index < count) {
+            if (VGMYM2612DACStream.isDACCommand(commands.opcode(index))) {
+              index += doDAC(
+                interpreter, dac, body_parser.dataBanks(), commands, index);
+              this.dumpPresetOPLL(preset_state_opll, interpreter_opll);
+            } else {
+              doCommand(interpreter, interpreter_opll, commands, index);
+              if (commands.waitSamples(index) > 0L) {
+                this.dumpPresetOPLL(preset_state_opll, interpreter_opll);
+              }
+              ++index;
+            }
+          }
         }
       }
     }
   }
 
   private void maybeDumpPreset(
-    final Map<Integer, ChannelState> previous_channels,
-    final MutableBoolean changed,
+    final PresetState preset_state,
     final VGMYM2612Interpreter inter,
-    final boolean preset_changed)
+    final VGMYM2612TimeStep step)
   {
-    if (preset_changed) {
-      if (!changed.booleanValue()) {
-        this.dumpPreset(previous_channels, inter);
-      }
+    if (step.isPresetChanged()) {
+      this.dumpPreset(preset_state, inter);
     }
-    changed.setValue(preset_changed);
   }
   // CHECKSTYLE:ON
-
-  private InputStream openStream()
-    throws IOException
-  {
-    if (this.gzip) {
-      return new GZIPInputStream(Files.newInputStream(this.file_input));
-    }
-    return Files.newInputStream(this.file_input);
-  }
 }
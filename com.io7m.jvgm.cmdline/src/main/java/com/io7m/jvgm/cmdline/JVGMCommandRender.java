@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import com.io7m.jvgm.parser.api.VGMParseError;
+import io.vavr.collection.Seq;
+import io.vavr.control.Validation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+
+import static com.io7m.jvgm.cmdline.JVGMCommandType.Status.FAILURE;
+import static com.io7m.jvgm.cmdline.JVGMCommandType.Status.SUCCESS;
+
+/**
+ * A command for rendering VGM files to WAV files.
+ */
+
+@Parameters(
+  commandNames = "render",
+  commandDescription = "Render the given VGM file to a WAV file")
+public final class JVGMCommandRender extends JVGMCommandRoot
+{
+  private static final Logger LOG = LoggerFactory.getLogger(JVGMCommandRender.class);
+
+  @Parameter(
+    names = "--file",
+    required = true,
+    description = "The input file")
+  private Path file_input;
+
+  @Parameter(
+    names = "--gzip",
+    required = false,
+    description = "The input is gzip compressed (compressed input is detected automatically)")
+  private boolean gzip;
+
+  @Parameter(
+    names = "--output",
+    required = true,
+    description = "The output WAV file")
+  private Path file_output;
+
+  @Parameter(
+    names = "--sample-rate",
+    required = false,
+    description = "The output sample rate in Hz")
+  private int sample_rate = 44100;
+
+  @Parameter(
+    names = "--loops",
+    required = false,
+    description = "The number of times that the looped section of the track is played")
+  private int loops = 1;
+
+  @Parameter(
+    names = "--fade",
+    required = false,
+    description = "The length in seconds of the fade at the end of the track")
+  private double fade;
+
+  /**
+   * Construct a command.
+   */
+
+  public JVGMCommandRender()
+  {
+
+  }
+
+  @Override
+  public Status execute()
+    throws Exception
+  {
+    super.execute();
+
+    final JVGMRender render =
+      new JVGMRender(this.sample_rate, this.loops, this.fade);
+
+    final long time_then = System.nanoTime();
+    final Validation<Seq<VGMParseError>, Long> result =
+      render.render(this.file_input, this.gzip, this.file_output);
+    final long time_now = System.nanoTime();
+
+    if (!result.isValid()) {
+      result.getError().forEach(
+        error -> LOG.error(
+          "parse error: 0x{}: {}",
+          Long.toUnsignedString(error.offset(), 16),
+          error.message()));
+      return FAILURE;
+    }
+
+    LOG.info(
+      "frames {} time {}ms",
+      result.get(),
+      Long.valueOf((time_now - time_then) / 1_000_000L));
+    return SUCCESS;
+  }
+}
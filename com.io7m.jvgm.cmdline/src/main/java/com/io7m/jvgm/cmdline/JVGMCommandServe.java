@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+
+import static com.io7m.jvgm.cmdline.JVGMCommandType.Status.SUCCESS;
+
+/**
+ * A command for running a persistent server that accepts jobs from local
+ * clients.
+ */
+
+@Parameters(
+  commandNames = "serve",
+  commandDescription = "Run a server that accepts dump, interpret, and render jobs from local clients")
+public final class JVGMCommandServe extends JVGMCommandRoot
+{
+  private static final Logger LOG = LoggerFactory.getLogger(JVGMCommandServe.class);
+
+  @Parameter(
+    names = "--address",
+    required = false,
+    description = "The loopback address to which the server will bind")
+  private String address = "127.0.0.1";
+
+  @Parameter(
+    names = "--root",
+    required = true,
+    description = "The directory that contains every file that clients may access")
+  private Path root;
+
+  @Parameter(
+    names = "--port",
+    required = false,
+    description = "The port to which the server will bind")
+  private int port = 60500;
+
+  @Parameter(
+    names = "--threads",
+    required = false,
+    description = "The number of worker threads (defaults to the number of processors)")
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  @Parameter(
+    names = "--max-in-flight",
+    required = false,
+    description = "The maximum number of jobs per connection in progress at any one time (defaults to four per thread)")
+  private int max_in_flight;
+
+  /**
+   * Construct a command.
+   */
+
+  public JVGMCommandServe()
+  {
+
+  }
+
+  @Override
+  public Status execute()
+    throws Exception
+  {
+    super.execute();
+
+    final int in_flight =
+      this.max_in_flight > 0 ? this.max_in_flight : this.threads * 4;
+
+    try (JVGMServer server =
+           new JVGMServer(
+             new InetSocketAddress(this.address, this.port),
+             this.root,
+             this.threads,
+             in_flight)) {
+      LOG.info("listening on {} (root {})", server.address(), server.root());
+      server.run();
+    }
+    return SUCCESS;
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+/**
+ * The output formats of the {@code dump} command.
+ */
+
+public enum JVGMDumpFormat
+{
+  /**
+   * One line per command: the hexadecimal offset of the command, the name
+   * of the command type, and the operands of the command, if any.
+   */
+
+  TEXT,
+
+  /**
+   * Comma-separated values with a header row and the columns
+   * {@code offset,opcode,type,register,value,samples}. Columns that do not
+   * apply to a command are empty.
+   */
+
+  CSV,
+
+  /**
+   * One JSON object per line. Fields that do not apply to a command are
+   * omitted.
+   */
+
+  JSONL,
+
+  /**
+   * <p>Fixed-width 16 byte little-endian records with no header:</p>
+   *
+   * <ul>
+   * <li>{@code [0, 3]}: The unsigned offset of the command</li>
+   * <li>{@code [4]}: The opcode</li>
+   * <li>{@code [5]}: The register, or the data type of a data block</li>
+   * <li>{@code [6, 7]}: Reserved (zero)</li>
+   * <li>{@code [8, 11]}: The unsigned written value, the data block size,
+   * or the PCM seek offset</li>
+   * <li>{@code [12, 15]}: The unsigned number of samples waited</li>
+   * </ul>
+   */
+
+  BINARY
+}
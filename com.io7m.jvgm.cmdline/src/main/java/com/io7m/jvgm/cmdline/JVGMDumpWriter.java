@@ -0,0 +1,386 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import com.io7m.jvgm.core.VGMCommandType;
+import com.io7m.jvgm.parser.api.VGMCommandBuffer;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * <p>A writer of packed commands.</p>
+ *
+ * <p>Commands are encoded directly from a {@link VGMCommandBuffer} into a
+ * large direct buffer as ASCII or binary, and the buffer is written to the
+ * underlying channel only when it fills or when the writer is flushed.
+ * Encoding a command does not allocate.</p>
+ *
+ * <p>Writers are not thread-safe.</p>
+ */
+
+public final class JVGMDumpWriter implements Flushable
+{
+  /**
+   * The default size of the output buffer.
+   */
+
+  public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+  private static final int RECORD_MAXIMUM = 256;
+
+  private static final int KIND_NONE = 0;
+  private static final int KIND_VALUE = 1;
+  private static final int KIND_REGISTER_VALUE = 2;
+  private static final int KIND_WAIT = 3;
+  private static final int KIND_DATA_BLOCK = 4;
+  private static final int KIND_SEEK = 5;
+
+  private static final byte[][] NAMES = names();
+  private static final int[] KINDS = kinds();
+  private static final byte[] HEX =
+    "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] CSV_HEADER =
+    ascii("offset,opcode,type,register,value,samples\n");
+  private static final byte[] JSON_OFFSET = ascii("{\"offset\":");
+  private static final byte[] JSON_OPCODE = ascii(",\"opcode\":");
+  private static final byte[] JSON_TYPE = ascii(",\"type\":\"");
+  private static final byte[] JSON_REGISTER = ascii(",\"register\":");
+  private static final byte[] JSON_VALUE = ascii(",\"value\":");
+  private static final byte[] JSON_SAMPLES = ascii(",\"samples\":");
+  private static final byte[] JSON_END = ascii("}\n");
+
+  private final JVGMDumpFormat format;
+  private final WritableByteChannel channel;
+  private final ByteBuffer buffer;
+  private final byte[] digits;
+
+  /**
+   * Construct a writer.
+   *
+   * @param in_format  The output format
+   * @param in_channel The underlying channel
+   * @param in_size    The size of the output buffer
+   */
+
+  public JVGMDumpWriter(
+    final JVGMDumpFormat in_format,
+    final WritableByteChannel in_channel,
+    final int in_size)
+  {
+    this.format = Objects.requireNonNull(in_format, "format");
+    this.channel = Objects.requireNonNull(in_channel, "channel");
+
+    if (in_size < RECORD_MAXIMUM) {
+      throw new IllegalArgumentException(String.format(
+        "Buffer size must be at least %d (received %d)",
+        Integer.valueOf(RECORD_MAXIMUM),
+        Integer.valueOf(in_size)));
+    }
+
+    this.buffer = ByteBuffer.allocateDirect(in_size);
+    this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+    this.digits = new byte[20];
+
+    if (in_format == JVGMDumpFormat.CSV) {
+      this.buffer.put(CSV_HEADER);
+    }
+  }
+
+  private static byte[] ascii(
+    final String text)
+  {
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static byte[][] names()
+  {
+    final byte[][] table = new byte[256][];
+    for (int opcode = 0; opcode < 256; ++opcode) {
+      table[opcode] = ascii("UNKNOWN");
+    }
+    for (final VGMCommandType.Type type : VGMCommandType.Type.values()) {
+      table[type.tag()] = ascii(type.name());
+    }
+    return table;
+  }
+
+  private static int[] kinds()
+  {
+    final int[] table = new int[256];
+    table[0x4f] = KIND_VALUE;
+    table[0x50] = KIND_VALUE;
+    table[0x51] = KIND_REGISTER_VALUE;
+    table[0x52] = KIND_REGISTER_VALUE;
+    table[0x53] = KIND_REGISTER_VALUE;
+    table[0x61] = KIND_WAIT;
+    table[0x62] = KIND_WAIT;
+    table[0x63] = KIND_WAIT;
+    for (int index = 0; index < 16; ++index) {
+      table[0x70 + index] = KIND_WAIT;
+      table[0x80 + index] = KIND_WAIT;
+    }
+    table[0x67] = KIND_DATA_BLOCK;
+    table[0xe0] = KIND_SEEK;
+    return table;
+  }
+
+  /**
+   * Encode all of the commands in the given buffer.
+   *
+   * @param commands The commands
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void write(
+    final VGMCommandBuffer commands)
+    throws IOException
+  {
+    Objects.requireNonNull(commands, "commands");
+
+    final int size = commands.size();
+    for (int index = 0; index < size; ++index) {
+      if (this.buffer.remaining() < RECORD_MAXIMUM) {
+        this.drain();
+      }
+
+      final int opcode = commands.opcode(index);
+      final long operands = commands.operands(index);
+      final long offset = commands.offset(index);
+
+      final int kind = KINDS[opcode];
+      int register = 0;
+      long value = 0L;
+      long samples = 0L;
+      switch (kind) {
+        case KIND_VALUE:
+          value = operands & 0xffL;
+          break;
+        case KIND_REGISTER_VALUE:
+          register = (int) ((operands >>> 8) & 0xffL);
+          value = operands & 0xffL;
+          break;
+        case KIND_WAIT:
+          samples = operands;
+          break;
+        case KIND_DATA_BLOCK:
+          register = (int) ((operands >>> 32) & 0xffL);
+          value = operands & 0xffff_ffffL;
+          break;
+        case KIND_SEEK:
+          value = operands;
+          break;
+        default:
+          break;
+      }
+
+      switch (this.format) {
+        case TEXT:
+          this.text(offset, opcode, kind, register, value, samples);
+          break;
+        case CSV:
+          this.csv(offset, opcode, kind, register, value, samples);
+          break;
+        case JSONL:
+          this.json(offset, opcode, kind, register, value, samples);
+          break;
+        case BINARY:
+          this.binary(offset, opcode, register, value, samples);
+          break;
+      }
+    }
+  }
+
+  private void text(
+    final long offset,
+    final int opcode,
+    final int kind,
+    final int register,
+    final long value,
+    final long samples)
+  {
+    this.putHex(offset, 8);
+    this.buffer.put((byte) ' ');
+    this.buffer.put(NAMES[opcode]);
+
+    switch (kind) {
+      case KIND_VALUE:
+        this.putPrefixedHex(value, 2);
+        break;
+      case KIND_REGISTER_VALUE:
+        this.putPrefixedHex(register, 2);
+        this.putPrefixedHex(value, 2);
+        break;
+      case KIND_WAIT:
+        this.buffer.put((byte) ' ');
+        this.putDecimal(samples);
+        break;
+      case KIND_DATA_BLOCK:
+        this.putPrefixedHex(register, 2);
+        this.buffer.put((byte) ' ');
+        this.putDecimal(value);
+        break;
+      case KIND_SEEK:
+        this.putPrefixedHex(value, 1);
+        break;
+      default:
+        break;
+    }
+    this.buffer.put((byte) '\n');
+  }
+
+  private void csv(
+    final long offset,
+    final int opcode,
+    final int kind,
+    final int register,
+    final long value,
+    final long samples)
+  {
+    this.putDecimal(offset);
+    this.buffer.put((byte) ',');
+    this.putDecimal(opcode);
+    this.buffer.put((byte) ',');
+    this.buffer.put(NAMES[opcode]);
+    this.buffer.put((byte) ',');
+    if (kind == KIND_REGISTER_VALUE || kind == KIND_DATA_BLOCK) {
+      this.putDecimal(register);
+    }
+    this.buffer.put((byte) ',');
+    if (kind != KIND_NONE && kind != KIND_WAIT) {
+      this.putDecimal(value);
+    }
+    this.buffer.put((byte) ',');
+    if (kind == KIND_WAIT) {
+      this.putDecimal(samples);
+    }
+    this.buffer.put((byte) '\n');
+  }
+
+  private void json(
+    final long offset,
+    final int opcode,
+    final int kind,
+    final int register,
+    final long value,
+    final long samples)
+  {
+    this.buffer.put(JSON_OFFSET);
+    this.putDecimal(offset);
+    this.buffer.put(JSON_OPCODE);
+    this.putDecimal(opcode);
+    this.buffer.put(JSON_TYPE);
+    this.buffer.put(NAMES[opcode]);
+    this.buffer.put((byte) '"');
+    if (kind == KIND_REGISTER_VALUE || kind == KIND_DATA_BLOCK) {
+      this.buffer.put(JSON_REGISTER);
+      this.putDecimal(register);
+    }
+    if (kind != KIND_NONE && kind != KIND_WAIT) {
+      this.buffer.put(JSON_VALUE);
+      this.putDecimal(value);
+    }
+    if (kind == KIND_WAIT) {
+      this.buffer.put(JSON_SAMPLES);
+      this.putDecimal(samples);
+    }
+    this.buffer.put(JSON_END);
+  }
+
+  private void binary(
+    final long offset,
+    final int opcode,
+    final int register,
+    final long value,
+    final long samples)
+  {
+    this.buffer.putInt((int) offset);
+    this.buffer.put((byte) opcode);
+    this.buffer.put((byte) register);
+    this.buffer.putShort((short) 0);
+    this.buffer.putInt((int) value);
+    this.buffer.putInt((int) samples);
+  }
+
+  private void putPrefixedHex(
+    final long value,
+    final int minimum)
+  {
+    this.buffer.put((byte) ' ');
+    this.buffer.put((byte) '0');
+    this.buffer.put((byte) 'x');
+    this.putHex(value, minimum);
+  }
+
+  private void putHex(
+    final long value,
+    final int minimum)
+  {
+    final int significant = (67 - Long.numberOfLeadingZeros(value)) / 4;
+    final int count = Math.max(minimum, significant);
+    for (int shift = (count - 1) * 4; shift >= 0; shift -= 4) {
+      this.buffer.put(HEX[(int) ((value >>> shift) & 0xfL)]);
+    }
+  }
+
+  private void putDecimal(
+    final long value)
+  {
+    int count = 0;
+    long remaining = value;
+    do {
+      this.digits[count] = (byte) ('0' + (int) (remaining % 10L));
+      remaining /= 10L;
+      ++count;
+    } while (remaining != 0L);
+
+    while (count > 0) {
+      --count;
+      this.buffer.put(this.digits[count]);
+    }
+  }
+
+  private void drain()
+    throws IOException
+  {
+    this.buffer.flip();
+    while (this.buffer.hasRemaining()) {
+      this.channel.write(this.buffer);
+    }
+    this.buffer.clear();
+  }
+
+  /**
+   * Write all buffered output to the underlying channel. The channel is not
+   * closed.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Override
+  public void flush()
+    throws IOException
+  {
+    this.drain();
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * <p>An input stream that inflates gzip data on a dedicated thread.</p>
+ *
+ * <p>The inflating thread fills buffers taken from a bounded ring of
+ * buffers, and hands each full buffer to the reading thread. Inflation
+ * therefore overlaps with whatever the reading thread does with the data,
+ * and the amount of inflated data held in memory is bounded by the size of
+ * the ring.</p>
+ *
+ * <p>The buffers are heap buffers: {@link GZIPInputStream} inflates into
+ * arrays, and so heap buffers avoid a copy that direct buffers would
+ * require.</p>
+ */
+
+public final class JVGMInflatingInputStream extends InputStream
+{
+  private static final AtomicInteger THREAD_IDS = new AtomicInteger(0);
+  private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+  private final InputStream source;
+  private final BlockingQueue<ByteBuffer> free;
+  private final BlockingQueue<ByteBuffer> full;
+  private final Thread thread;
+  private volatile IOException failure;
+  private volatile boolean closed;
+  private ByteBuffer current;
+  private boolean ended;
+
+  /**
+   * Construct a stream. The inflating thread is started immediately.
+   *
+   * @param in_source      The compressed source stream
+   * @param in_buffers     The number of buffers in the ring
+   * @param in_buffer_size The size of each buffer in bytes
+   */
+
+  public JVGMInflatingInputStream(
+    final InputStream in_source,
+    final int in_buffers,
+    final int in_buffer_size)
+  {
+    this.source = Objects.requireNonNull(in_source, "Source");
+
+    if (in_buffers < 2) {
+      throw new IllegalArgumentException(
+        "At least two buffers are required (received " + in_buffers + ")");
+    }
+    if (in_buffer_size <= 0) {
+      throw new IllegalArgumentException(
+        "Buffer size must be positive (received " + in_buffer_size + ")");
+    }
+
+    this.free = new ArrayBlockingQueue<>(in_buffers);
+    /*
+     * The full queue has room for every buffer plus the end marker, so
+     * neither queue can ever refuse an element.
+     */
+
+    this.full = new ArrayBlockingQueue<>(in_buffers + 1);
+    for (int index = 0; index < in_buffers; ++index) {
+      this.free.add(ByteBuffer.allocate(in_buffer_size));
+    }
+
+    this.thread = new Thread(
+      this::inflate,
+      "com.io7m.jvgm.cmdline.inflate-" + THREAD_IDS.incrementAndGet());
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Construct a stream with a ring of four 64KiB buffers.
+   *
+   * @param in_source The compressed source stream
+   */
+
+  public JVGMInflatingInputStream(
+    final InputStream in_source)
+  {
+    this(in_source, 4, 65536);
+  }
+
+  private void inflate()
+  {
+    try (GZIPInputStream gzip = new GZIPInputStream(this.source, 65536)) {
+      while (!this.closed) {
+        final ByteBuffer buffer = this.free.take();
+        buffer.clear();
+        final byte[] array = buffer.array();
+        while (buffer.hasRemaining()) {
+          final int r = gzip.read(array, buffer.position(), buffer.remaining());
+          if (r == -1) {
+            break;
+          }
+          buffer.position(buffer.position() + r);
+        }
+        buffer.flip();
+
+        if (buffer.hasRemaining()) {
+          this.full.put(buffer);
+        }
+        if (buffer.limit() < buffer.capacity()) {
+          break;
+        }
+      }
+    } catch (final IOException e) {
+      this.failure = e;
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      this.full.add(END);
+    }
+  }
+
+  private boolean fill()
+    throws IOException
+  {
+    if (this.ended) {
+      return false;
+    }
+
+    if (this.current != null) {
+      if (this.current.hasRemaining()) {
+        return true;
+      }
+      this.free.add(this.current);
+      this.current = null;
+    }
+
+    final ByteBuffer next;
+    try {
+      next = this.full.take();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      final InterruptedIOException ex = new InterruptedIOException(
+        "Interrupted waiting for inflated data from " + this.thread.getName());
+      ex.initCause(e);
+      throw ex;
+    }
+
+    if (next == END) {
+      this.ended = true;
+      final IOException e = this.failure;
+      if (e != null) {
+        throw new IOException(e.getMessage(), e);
+      }
+      return false;
+    }
+
+    this.current = next;
+    return true;
+  }
+
+  @Override
+  public int read()
+    throws IOException
+  {
+    final ByteBuffer buffer = this.current;
+    if (buffer != null && buffer.hasRemaining()) {
+      return (int) buffer.get() & 0xff;
+    }
+    if (!this.fill()) {
+      return -1;
+    }
+    return (int) this.current.get() & 0xff;
+  }
+
+  @Override
+  public int read(
+    final byte[] data,
+    final int offset,
+    final int length)
+    throws IOException
+  {
+    Objects.checkFromIndexSize(offset, length, data.length);
+    if (length == 0) {
+      return 0;
+    }
+    if (!this.fill()) {
+      return -1;
+    }
+
+    final int count = Math.min(length, this.current.remaining());
+    this.current.get(data, offset, count);
+    return count;
+  }
+
+  @Override
+  public int available()
+  {
+    final ByteBuffer buffer = this.current;
+    if (buffer == null) {
+      return 0;
+    }
+    return buffer.remaining();
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    this.closed = true;
+    this.ended = true;
+    this.thread.interrupt();
+    this.source.close();
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Functions to enumerate the input files of commands that process many
+ * files.
+ */
+
+final class JVGMInputFiles
+{
+  private JVGMInputFiles()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  private static boolean isVGM(
+    final Path path)
+  {
+    final Path name = path.getFileName();
+    if (name == null) {
+      return false;
+    }
+    final String text = name.toString().toLowerCase(Locale.ROOT);
+    return text.endsWith(".vgm") || text.endsWith(".vgz");
+  }
+
+  private static Path listEntry(
+    final String line)
+  {
+    return Paths.get(line);
+  }
+
+  /**
+   * Enumerate input files lazily.
+   *
+   * @param files     Explicitly named files
+   * @param list      A text file containing one input file per line, if any
+   * @param directory A directory that will be searched recursively for
+   *                  {@code *.vgm} and {@code *.vgz} files, if any
+   *
+   * @return A stream of input files
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static Stream<Path> stream(
+    final List<Path> files,
+    final Path list,
+    final Path directory)
+    throws IOException
+  {
+    Stream<Path> stream = Objects.requireNonNull(files, "files").stream();
+
+    if (list != null) {
+      stream = Stream.concat(
+        stream,
+        Files.lines(list)
+          .map(String::trim)
+          .filter(line -> !line.isEmpty())
+          .map(JVGMInputFiles::listEntry));
+    }
+
+    if (directory != null) {
+      stream = Stream.concat(
+        stream,
+        Files.walk(directory)
+          .filter(path -> Files.isRegularFile(path) && isVGM(path)));
+    }
+    return stream;
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Functions to open input files.
+ */
+
+public final class JVGMInputStreams
+{
+  private JVGMInputStreams()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @param stream A stream that supports marks
+   *
+   * @return {@code true} iff the stream begins with the gzip magic number
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static boolean isGzip(
+    final InputStream stream)
+    throws IOException
+  {
+    stream.mark(2);
+    final int b0 = stream.read();
+    final int b1 = stream.read();
+    stream.reset();
+    return b0 == 0x1f && b1 == 0x8b;
+  }
+
+  /**
+   * @param path A file
+   *
+   * @return {@code true} iff the file begins with the gzip magic number
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static boolean isGzip(
+    final Path path)
+    throws IOException
+  {
+    try (InputStream stream = Files.newInputStream(path)) {
+      return stream.read() == 0x1f && stream.read() == 0x8b;
+    }
+  }
+
+  /**
+   * Open the given file. Compressed ({@code .vgz}) files are detected
+   * automatically and inflated on a separate thread.
+   *
+   * @param path       The file
+   * @param force_gzip {@code true} if the file must be treated as compressed
+   *
+   * @return An input stream
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static InputStream open(
+    final Path path,
+    final boolean force_gzip)
+    throws IOException
+  {
+    final InputStream stream =
+      new BufferedInputStream(Files.newInputStream(path), 65536);
+
+    try {
+      if (force_gzip || isGzip(stream)) {
+        return new JVGMInflatingInputStream(stream);
+      }
+      return stream;
+    } catch (final IOException e) {
+      stream.close();
+      throw e;
+    }
+  }
+}
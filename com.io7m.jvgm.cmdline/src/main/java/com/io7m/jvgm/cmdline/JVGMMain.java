@@ -45,17 +45,29 @@ public final class JVGMMain implements Runnable
       Objects.requireNonNull(in_args, "Command line arguments");
 
     final JVGMCommandRoot r = new JVGMCommandRoot();
+    final JVGMCommandBatch cmd_batch = new JVGMCommandBatch();
     final JVGMCommandDump cmd_dump = new JVGMCommandDump();
     final JVGMCommandInterpret cmd_interpret = new JVGMCommandInterpret();
+    final JVGMCommandRender cmd_render = new JVGMCommandRender();
+    final JVGMCommandServe cmd_serve = new JVGMCommandServe();
+    final JVGMCommandStats cmd_stats = new JVGMCommandStats();
 
     this.commands = new HashMap<>(8);
+    this.commands.put("batch", cmd_batch);
     this.commands.put("dump", cmd_dump);
     this.commands.put("interpret", cmd_interpret);
+    this.commands.put("render", cmd_render);
+    this.commands.put("serve", cmd_serve);
+    this.commands.put("stats", cmd_stats);
 
     this.commander = new JCommander(r);
     this.commander.setProgramName("jvgm");
+    this.commander.addCommand("batch", cmd_batch);
     this.commander.addCommand("dump", cmd_dump);
     this.commander.addCommand("interpret", cmd_interpret);
+    this.commander.addCommand("render", cmd_render);
+    this.commander.addCommand("serve", cmd_serve);
+    this.commander.addCommand("stats", cmd_stats);
   }
 
   /**
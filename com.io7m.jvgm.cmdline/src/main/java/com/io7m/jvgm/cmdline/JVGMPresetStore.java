@@ -0,0 +1,485 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612PackedSnapshot;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * <p>An append-only, content-addressed store of YM2612 channel presets.</p>
+ *
+ * <p>A store is a single file that is written through a single
+ * {@link FileChannel}. The file consists of a header followed by a sequence
+ * of records of three kinds: <i>source</i> records that name an input file,
+ * <i>preset</i> records that hold the packed words of a channel (see
+ * {@link VGMYM2612PackedSnapshot}), and <i>occurrence</i> records that state
+ * that a preset was observed on a channel of a source at a given sample time.
+ * Sources and presets are identified by the order in which they appear in the
+ * file. Presets are indexed by content, using the fingerprint of
+ * {@link VGMYM2612PackedSnapshot}, and so a preset that is observed any
+ * number of times, in any number of files, is stored exactly once.</p>
+ *
+ * <p>Source and preset records are written to the file before they are
+ * added to the index, and so the index never refers to a record that has
+ * not been written. Occurrence records are buffered.</p>
+ *
+ * <p>Opening an existing store reads it in order to rebuild the index, and
+ * discards any incomplete record left at the end of the file by an
+ * interrupted write. All methods are thread-safe.</p>
+ */
+
+public final class JVGMPresetStore implements Closeable
+{
+  private static final Logger LOG = LoggerFactory.getLogger(JVGMPresetStore.class);
+
+  private static final long MAGIC = 0x4a56_474d_5052_5354L;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 16;
+  private static final int WORDS = VGMYM2612PackedSnapshot.WORDS_PER_CHANNEL;
+  private static final byte RECORD_SOURCE = 1;
+  private static final byte RECORD_PRESET = 2;
+  private static final byte RECORD_OCCURRENCE = 3;
+  private static final int SOURCE_HEADER_SIZE = 1 + 4;
+  private static final int PRESET_SIZE = 1 + (WORDS * 8);
+  private static final int OCCURRENCE_SIZE = 1 + 4 + 4 + 4 + 8;
+  private static final int BUFFER_SIZE = 65536;
+
+  private final FileChannel file;
+  private final ByteBuffer buffer;
+  private final Map<String, Integer> sources;
+  private final long[] scratch;
+  private long[] presets;
+  private int[] slots;
+  private int preset_count;
+  private long occurrences;
+  private long occurrences_written;
+
+  private JVGMPresetStore(
+    final FileChannel in_channel)
+  {
+    this.file = Objects.requireNonNull(in_channel, "channel");
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    this.sources = new HashMap<>(64);
+    this.scratch = new long[WORDS];
+    this.presets = new long[WORDS * 256];
+    this.slots = new int[512];
+  }
+
+  /**
+   * Open a store, creating it if it does not exist.
+   *
+   * @param path The file
+   *
+   * @return A store
+   *
+   * @throws IOException On I/O errors, or if the file is not a store
+   */
+
+  public static JVGMPresetStore open(
+    final Path path)
+    throws IOException
+  {
+    Objects.requireNonNull(path, "path");
+
+    final FileChannel channel = FileChannel.open(path, CREATE, READ, WRITE);
+    try {
+      final JVGMPresetStore store = new JVGMPresetStore(channel);
+      store.load(path);
+      return store;
+    } catch (final IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private synchronized void load(
+    final Path path)
+    throws IOException
+  {
+    final long size = this.file.size();
+    if (size == 0L) {
+      this.buffer.putLong(MAGIC);
+      this.buffer.putInt(VERSION);
+      this.buffer.putInt(0);
+      this.writeOut();
+      return;
+    }
+
+    this.buffer.limit(0);
+    if (!this.fill(HEADER_SIZE) || this.buffer.getLong() != MAGIC) {
+      throw new IOException(path + ": not a preset store");
+    }
+    final int version = this.buffer.getInt();
+    if (version != VERSION) {
+      throw new IOException(
+        String.format("%s: unsupported preset store version %d", path, Integer.valueOf(version)));
+    }
+    this.buffer.getInt();
+
+    long valid = HEADER_SIZE;
+    while (this.fill(1)) {
+      final int record = this.loadRecord(path, valid);
+      if (record < 0) {
+        break;
+      }
+      valid += (long) record;
+    }
+
+    if (valid != size) {
+      LOG.warn("{}: discarding {} bytes of incomplete record", path, Long.valueOf(size - valid));
+      this.file.truncate(valid);
+    }
+    this.file.position(valid);
+    this.buffer.clear();
+  }
+
+  /**
+   * Load the record at the current buffer position.
+   *
+   * @return The size of the record, or {@code -1} if the record is incomplete
+   */
+
+  private int loadRecord(
+    final Path path,
+    final long offset)
+    throws IOException
+  {
+    final byte type = this.buffer.get(this.buffer.position());
+    switch (type) {
+      case RECORD_SOURCE: {
+        if (!this.fill(SOURCE_HEADER_SIZE)) {
+          return -1;
+        }
+        final int length = this.buffer.getInt(this.buffer.position() + 1);
+        if (length < 0 || length > BUFFER_SIZE - SOURCE_HEADER_SIZE) {
+          throw new IOException(String.format(
+            "%s: 0x%x: invalid source name length %d",
+            path,
+            Long.valueOf(offset),
+            Integer.valueOf(length)));
+        }
+        if (!this.fill(SOURCE_HEADER_SIZE + length)) {
+          return -1;
+        }
+        this.buffer.position(this.buffer.position() + SOURCE_HEADER_SIZE);
+        final ByteBuffer name = this.buffer.slice();
+        name.limit(length);
+        this.buffer.position(this.buffer.position() + length);
+        this.sources.putIfAbsent(
+          StandardCharsets.UTF_8.decode(name).toString(),
+          Integer.valueOf(this.sources.size()));
+        return SOURCE_HEADER_SIZE + length;
+      }
+      case RECORD_PRESET: {
+        if (!this.fill(PRESET_SIZE)) {
+          return -1;
+        }
+        this.buffer.get();
+        for (int index = 0; index < WORDS; ++index) {
+          this.scratch[index] = this.buffer.getLong();
+        }
+        this.insert(this.scratch);
+        return PRESET_SIZE;
+      }
+      case RECORD_OCCURRENCE: {
+        if (!this.fill(OCCURRENCE_SIZE)) {
+          return -1;
+        }
+        this.buffer.position(this.buffer.position() + OCCURRENCE_SIZE);
+        ++this.occurrences;
+        ++this.occurrences_written;
+        return OCCURRENCE_SIZE;
+      }
+      default: {
+        throw new IOException(String.format(
+          "%s: 0x%x: unrecognized record type %d",
+          path,
+          Long.valueOf(offset),
+          Integer.valueOf(type)));
+      }
+    }
+  }
+
+  /**
+   * Read from the channel until at least {@code count} bytes are available
+   * in the buffer.
+   *
+   * @return {@code false} if the end of the file was reached first
+   */
+
+  private boolean fill(
+    final int count)
+    throws IOException
+  {
+    if (this.buffer.remaining() >= count) {
+      return true;
+    }
+
+    this.buffer.compact();
+    try {
+      while (this.buffer.position() < count) {
+        if (this.file.read(this.buffer) < 0) {
+          return false;
+        }
+      }
+      return true;
+    } finally {
+      this.buffer.flip();
+    }
+  }
+
+  /**
+   * Write the buffered records to the channel. If the write fails, the
+   * buffered records are discarded, the file is truncated to the size that
+   * it had before the write, and the occurrence count is restored to the
+   * number of occurrences that were written successfully.
+   */
+
+  private void writeOut()
+    throws IOException
+  {
+    final long start = this.file.position();
+    this.buffer.flip();
+    try {
+      while (this.buffer.hasRemaining()) {
+        this.file.write(this.buffer);
+      }
+    } catch (final IOException e) {
+      this.occurrences = this.occurrences_written;
+      try {
+        this.file.truncate(start);
+        this.file.position(start);
+      } catch (final IOException ex) {
+        e.addSuppressed(ex);
+      }
+      throw e;
+    } finally {
+      this.buffer.clear();
+    }
+    this.occurrences_written = this.occurrences;
+  }
+
+  private void reserve(
+    final int count)
+    throws IOException
+  {
+    if (this.buffer.remaining() < count) {
+      this.writeOut();
+    }
+  }
+
+  private int find(
+    final long[] words,
+    final long hash)
+  {
+    final int mask = this.slots.length - 1;
+    int slot = (int) hash & mask;
+    while (true) {
+      final int entry = this.slots[slot];
+      if (entry == 0) {
+        return -1;
+      }
+      final int offset = (entry - 1) * WORDS;
+      if (Arrays.equals(words, 0, WORDS, this.presets, offset, offset + WORDS)) {
+        return entry - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private int insert(
+    final long[] words)
+  {
+    final int id = this.preset_count;
+    if ((id + 1) * WORDS > this.presets.length) {
+      this.presets = Arrays.copyOf(this.presets, this.presets.length * 2);
+    }
+    System.arraycopy(words, 0, this.presets, id * WORDS, WORDS);
+    ++this.preset_count;
+
+    if (this.preset_count * 2 > this.slots.length) {
+      this.slots = new int[this.slots.length * 2];
+      for (int index = 0; index < this.preset_count; ++index) {
+        this.place(index);
+      }
+    } else {
+      this.place(id);
+    }
+    return id;
+  }
+
+  private void place(
+    final int id)
+  {
+    final int mask = this.slots.length - 1;
+    int slot =
+      (int) VGMYM2612PackedSnapshot.fingerprintOf(this.presets, id * WORDS) & mask;
+    while (this.slots[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    this.slots[slot] = id + 1;
+  }
+
+  /**
+   * Retrieve the identifier of a source, adding the source to the store if
+   * it has not been seen before.
+   *
+   * @param name The name of the source (typically a file name)
+   *
+   * @return The source identifier
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public synchronized int source(
+    final String name)
+    throws IOException
+  {
+    Objects.requireNonNull(name, "name");
+
+    final Integer existing = this.sources.get(name);
+    if (existing != null) {
+      return existing.intValue();
+    }
+
+    final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > BUFFER_SIZE - SOURCE_HEADER_SIZE) {
+      throw new IllegalArgumentException("Source name is too long: " + name);
+    }
+
+    this.reserve(SOURCE_HEADER_SIZE + bytes.length);
+    this.buffer.put(RECORD_SOURCE);
+    this.buffer.putInt(bytes.length);
+    this.buffer.put(bytes);
+    this.writeOut();
+
+    final int id = this.sources.size();
+    this.sources.put(name, Integer.valueOf(id));
+    return id;
+  }
+
+  /**
+   * Record that the given channel of a snapshot was observed. The preset is
+   * only written if an identical preset is not already in the store.
+   *
+   * @param source   The source identifier
+   * @param channel  The channel index
+   * @param time     The time in samples
+   * @param snapshot The snapshot
+   *
+   * @return The preset identifier
+   *
+   * @throws IOException On I/O errors
+   * @see #source(String)
+   */
+
+  public synchronized int add(
+    final int source,
+    final int channel,
+    final long time,
+    final VGMYM2612PackedSnapshot snapshot)
+    throws IOException
+  {
+    Objects.requireNonNull(snapshot, "snapshot");
+
+    if (source < 0 || source >= this.sources.size()) {
+      throw new IllegalArgumentException("Unrecognized source: " + source);
+    }
+    if (channel < 0 || channel >= VGMYM2612State.CHANNELS) {
+      throw new IllegalArgumentException("Invalid channel index: " + channel);
+    }
+
+    for (int index = 0; index < WORDS; ++index) {
+      this.scratch[index] = snapshot.channelWord(channel, index);
+    }
+
+    int id = this.find(this.scratch, snapshot.fingerprint(channel));
+    if (id < 0) {
+      this.reserve(PRESET_SIZE);
+      this.buffer.put(RECORD_PRESET);
+      for (int index = 0; index < WORDS; ++index) {
+        this.buffer.putLong(this.scratch[index]);
+      }
+      this.writeOut();
+      id = this.insert(this.scratch);
+    }
+
+    this.reserve(OCCURRENCE_SIZE);
+    this.buffer.put(RECORD_OCCURRENCE);
+    this.buffer.putInt(id);
+    this.buffer.putInt(source);
+    this.buffer.putInt(channel);
+    this.buffer.putLong(time);
+    ++this.occurrences;
+    return id;
+  }
+
+  /**
+   * @return The number of distinct presets in the store
+   */
+
+  public synchronized int presetCount()
+  {
+    return this.preset_count;
+  }
+
+  /**
+   * @return The number of sources in the store
+   */
+
+  public synchronized int sourceCount()
+  {
+    return this.sources.size();
+  }
+
+  /**
+   * @return The number of preset occurrences in the store
+   */
+
+  public synchronized long occurrenceCount()
+  {
+    return this.occurrences;
+  }
+
+  @Override
+  public synchronized void close()
+    throws IOException
+  {
+    try {
+      this.writeOut();
+    } finally {
+      this.file.close();
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import com.io7m.jvgm.core.VGMHeader;
+import com.io7m.jvgm.parser.api.VGMParseError;
+import com.io7m.jvgm.parser.api.VGMParserBodyType;
+import com.io7m.jvgm.parser.api.VGMParserHeaderType;
+import com.io7m.jvgm.parser.vanilla.VGMParserVanillaMapped;
+import io.vavr.Tuple2;
+import io.vavr.collection.Seq;
+import io.vavr.control.Validation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * <p>Rendering of VGM files to 16-bit stereo WAV files.</p>
+ *
+ * <p>The YM2612 and SN76489 are rendered if the header declares a clock for
+ * them, and their outputs are summed. Output is produced in fixed-size
+ * chunks and written as it is produced, and so memory use does not depend
+ * on the length of the track.</p>
+ *
+ * <p>A track with a loop point is rendered with the looped section played
+ * {@code loops} times in total. If a fade is requested, the track is
+ * rendered for the length of the fade beyond the final loop, and the
+ * volume falls linearly to silence over that time. A track without a loop
+ * point is rendered once, and a fade is applied to the end of the track.</p>
+ */
+
+public final class JVGMRender
+{
+  private final int sample_rate;
+  private final int loops;
+  private final double fade;
+
+  /**
+   * Construct a renderer.
+   *
+   * @param in_sample_rate The output sample rate in Hz
+   * @param in_loops       The number of times that the looped section of a
+   *                       track is played
+   * @param in_fade        The length of the fade in seconds
+   */
+
+  public JVGMRender(
+    final int in_sample_rate,
+    final int in_loops,
+    final double in_fade)
+  {
+    if (in_sample_rate <= 0) {
+      throw new IllegalArgumentException(
+        "Sample rate must be positive (received " + in_sample_rate + ")");
+    }
+    if (in_loops < 1) {
+      throw new IllegalArgumentException(
+        "Loop count must be positive (received " + in_loops + ")");
+    }
+    if (!(in_fade >= 0.0) || Double.isInfinite(in_fade)) {
+      throw new IllegalArgumentException(
+        "Fade must be a non-negative number of seconds (received " + in_fade + ")");
+    }
+
+    this.sample_rate = in_sample_rate;
+    this.loops = in_loops;
+    this.fade = in_fade;
+  }
+
+  /**
+   * Render the given file.
+   *
+   * @param input  The input file
+   * @param gzip   {@code true} if the input must be treated as compressed
+   * @param output The output WAV file
+   *
+   * @return The number of frames written, or a list of parse errors
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public Validation<Seq<VGMParseError>, Long> render(
+    final Path input,
+    final boolean gzip,
+    final Path output)
+    throws IOException
+  {
+    return this.render(input, gzip, output, new OpenOption[0]);
+  }
+
+  /**
+   * Render the given file.
+   *
+   * @param input   The input file
+   * @param gzip    {@code true} if the input must be treated as compressed
+   * @param output  The output WAV file
+   * @param options Options used when opening the output file, in addition
+   *                to those that create, truncate, and write it
+   *
+   * @return The number of frames written, or a list of parse errors
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public Validation<Seq<VGMParseError>, Long> render(
+    final Path input,
+    final boolean gzip,
+    final Path output,
+    final OpenOption... options)
+    throws IOException
+  {
+    Objects.requireNonNull(input, "input");
+    Objects.requireNonNull(output, "output");
+    Objects.requireNonNull(options, "options");
+
+    try (VGMParserHeaderType parser = openParser(input, gzip)) {
+      final Validation<Seq<VGMParseError>, Tuple2<VGMParserBodyType, VGMHeader>> result =
+        parser.parse();
+      if (!result.isValid()) {
+        return Validation.invalid(result.getError());
+      }
+
+      final VGMParserBodyType body = result.get()._1;
+      final VGMHeader header = result.get()._2;
+      final long fade_frames = Math.round(this.fade * (double) this.sample_rate);
+
+      try (JVGMWAVWriter writer = new JVGMWAVWriter(output, this.sample_rate, 1 << 18, options)) {
+        return new JVGMRenderSession(
+          header, writer, this.sample_rate, this.loops, fade_frames)
+          .run(body);
+      }
+    }
+  }
+
+  /**
+   * Open a seekable parser for the given file. Uncompressed input is
+   * memory-mapped, and so it is read on demand rather than loaded. Compressed
+   * input cannot be mapped, and is inflated into memory so that the
+   * renderer can seek back to the loop point.
+   */
+
+  private static VGMParserHeaderType openParser(
+    final Path input,
+    final boolean gzip)
+    throws IOException
+  {
+    final VGMParserVanillaMapped parsers = new VGMParserVanillaMapped();
+    if (gzip || JVGMInputStreams.isGzip(input)) {
+      try (InputStream file = JVGMInputStreams.open(input, true)) {
+        return parsers.open(input, file);
+      }
+    }
+    return parsers.openMapped(input);
+  }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import com.io7m.jvgm.core.VGMHeader;
+import com.io7m.jvgm.interpreter.sn76489.VGMSN76489Configuration;
+import com.io7m.jvgm.interpreter.sn76489.VGMSN76489Synthesizer;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612Interpreter;
+import com.io7m.jvgm.parser.api.VGMCheckpointIndex;
+import com.io7m.jvgm.parser.api.VGMCommandBuffer;
+import com.io7m.jvgm.parser.api.VGMParseError;
+import com.io7m.jvgm.parser.api.VGMParserBodyType;
+import com.io7m.jvgm.parser.api.VGMParserBodyVisitorType;
+import com.io7m.jvgm.parser.api.VGMParserSeekableBodyType;
+import com.io7m.jvgm.parser.api.VGMYM2612DACStream;
+import com.io7m.jvgm.synth.ym2612.VGMYM2612Synthesizer;
+import io.vavr.collection.Seq;
+import io.vavr.control.Validation;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.OptionalLong;
+
+/**
+ * The state of a single rendering of a file.
+ *
+ * @see JVGMRender
+ */
+
+final class JVGMRenderSession
+{
+  private static final int CHUNK_FRAMES = 4096;
+  private static final long VGM_RATE = VGMYM2612Interpreter.VGM_SAMPLE_RATE;
+  private static final int CLOCK_MASK = 0x3fff_ffff;
+
+  /*
+   * Jumping to the loop point continues with the chip state as it is, in
+   * the same way as a hardware player, rather than restoring the register
+   * state recorded at the loop point.
+   */
+
+  private static final VGMParserBodyVisitorType JUMP =
+    new VGMParserBodyVisitorType()
+    {
+    };
+
+  private final JVGMWAVWriter writer;
+  private final int sample_rate;
+  private final VGMYM2612Synthesizer fm;
+  private final VGMSN76489Synthesizer psg;
+  private final boolean looping;
+  private final long total_frames;
+  private final long fade_start;
+  private final long fade_frames;
+  private final short[] fm_output;
+  private final short[] psg_output;
+  private final short[] mix_output;
+  private final byte[] dac_frames;
+  private final VGMCommandBuffer commands;
+  private final VGMYM2612DACStream dac;
+  private long vgm_time;
+  private long frames;
+
+  JVGMRenderSession(
+    final VGMHeader header,
+    final JVGMWAVWriter in_writer,
+    final int in_sample_rate,
+    final int loops,
+    final long in_fade_frames)
+  {
+    Objects.requireNonNull(header, "header");
+    this.writer = Objects.requireNonNull(in_writer, "writer");
+    this.sample_rate = in_sample_rate;
+
+    final int fm_clock = clock(header.chipYM2612Clock());
+    this.fm = fm_clock > 0 ? new VGMYM2612Synthesizer(fm_clock, in_sample_rate) : null;
+    final int psg_clock = clock(header.chipSN76489Clock());
+    this.psg = psg_clock > 0 ? new VGMSN76489Synthesizer(psgConfiguration(header, psg_clock), in_sample_rate) : null;
+
+    final long loop_samples = header.loopSampleCount().orElse(0L);
+    this.looping = loop_samples > 0L && header.loopOffset().isPresent();
+
+    if (this.looping) {
+      final long end = header.sampleCount() + ((long) (loops - 1) * loop_samples);
+      this.fade_start = this.frameAt(end);
+      this.total_frames = this.fade_start + in_fade_frames;
+    } else {
+      this.total_frames = this.frameAt(header.sampleCount());
+      this.fade_start = Math.max(0L, this.total_frames - in_fade_frames);
+    }
+    this.fade_frames = this.total_frames - this.fade_start;
+
+    this.fm_output = new short[CHUNK_FRAMES * 2];
+    this.psg_output = new short[CHUNK_FRAMES * 2];
+    this.mix_output = new short[CHUNK_FRAMES * 2];
+    this.dac_frames = new byte[CHUNK_FRAMES];
+    this.commands = new VGMCommandBuffer(4096);
+    this.dac = new VGMYM2612DACStream(4096);
+  }
+
+  private static int clock(
+    final OptionalLong clock)
+  {
+    return (int) clock.orElse(0L) & CLOCK_MASK;
+  }
+
+  private static VGMSN76489Configuration psgConfiguration(
+    final VGMHeader header,
+    final int clock)
+  {
+    final VGMSN76489Configuration.Builder builder =
+      VGMSN76489Configuration.builder()
+        .setClock(clock)
+        .setFlags(header.chipSN76489Flags());
+
+    final int feedback = header.chipSN76489Feedback();
+    if (feedback != 0) {
+      builder.setFeedback(feedback);
+    }
+    final int width = header.chipSN76489ShiftRegisterWidth();
+    if (width != 0) {
+      builder.setShiftRegisterWidth(width);
+    }
+    return builder.build();
+  }
+
+  private long frameAt(
+    final long vgm_samples)
+  {
+    return (vgm_samples * (long) this.sample_rate) / VGM_RATE;
+  }
+
+  Validation<Seq<VGMParseError>, Long> run(
+    final VGMParserBodyType body)
+    throws IOException
+  {
+    VGMCheckpointIndex index = null;
+    if (this.looping && this.total_frames > this.frameAt(0L)
+      && body instanceof VGMParserSeekableBodyType) {
+      final Validation<Seq<VGMParseError>, VGMCheckpointIndex> index_result =
+        ((VGMParserSeekableBodyType) body).buildIndex(Long.MAX_VALUE);
+      if (!index_result.isValid()) {
+        return Validation.invalid(index_result.getError());
+      }
+      index = index_result.get();
+    }
+
+    long loop_time = -1L;
+    while (this.frames < this.total_frames) {
+      final Validation<Seq<VGMParseError>, Integer> result =
+        body.parseBatch(this.commands);
+      if (!result.isValid()) {
+        return Validation.invalid(result.getError());
+      }
+
+      final int count = this.commands.size();
+      if (count == 0) {
+        if (index == null || index.loop().isEmpty() || loop_time == this.vgm_time) {
+          break;
+        }
+        loop_time = this.vgm_time;
+        final Validation<Seq<VGMParseError>, Long> seek =
+          ((VGMParserSeekableBodyType) body).seekLoop(index, JUMP);
+        if (!seek.isValid()) {
+          return Validation.invalid(seek.getError());
+        }
+        continue;
+      }
+
+      this.execute(body, count);
+    }
+
+    this.renderTo(this.total_frames);
+    return Validation.valid(Long.valueOf(this.frames));
+  }
+
+  // CHECKSTYLE:OFF
+  private void execute(
+    final VGMParserBodyType body,
+    final int count)
+    throws IOException
+  {
+    int index = 0;
+    while (index < count && this.frames < this.total_frames) {
+      final int opcode = this.commands.opcode(index);
+      if (VGMYM2612DACStream.isDACCommand(opcode)) {
+        index += this.dac.collect(this.commands, index, body.dataBanks());
+        this.renderDAC();
+        continue;
+      }
+
+      switch (opcode) {
+        case 0x4f: {
+          if (this.psg != null) {
+            this.psg.writeStereo(this.commands.value(index));
+          }
+          break;
+        }
+        case 0x50: {
+          if (this.psg != null) {
+            this.psg.write(this.commands.value(index));
+          }
+          break;
+        }
+        case 0x52: {
+          if (this.fm != null) {
+            this.fm.writeRegisterPort0(
+              this.commands.register(index),
+              this.commands.value(index));
+          }
+          break;
+        }
+        case 0x53: {
+          if (this.fm != null) {
+            this.fm.writeRegisterPort1(
+              this.commands.register(index),
+              this.commands.value(index));
+          }
+          break;
+        }
+        default: {
+          final long wait = this.commands.waitSamples(index);
+          if (wait > 0L) {
+            this.vgm_time += wait;
+            this.renderTo(Math.min(this.frameAt(this.vgm_time), this.total_frames));
+          }
+          break;
+        }
+      }
+      ++index;
+    }
+  }
+  // CHECKSTYLE:ON
+
+  private void renderDAC()
+    throws IOException
+  {
+    final long start = this.vgm_time;
+    final int size = this.dac.size();
+    this.vgm_time += (long) size;
+
+    final long target = Math.min(this.frameAt(this.vgm_time), this.total_frames);
+    final byte[] samples = this.dac.array();
+    while (this.frames < target) {
+      final int chunk = (int) Math.min(CHUNK_FRAMES, target - this.frames);
+      if (this.fm != null) {
+        for (int frame = 0; frame < chunk; ++frame) {
+          final long time = ((this.frames + frame) * VGM_RATE) / (long) this.sample_rate;
+          final long sample = Math.max(0L, Math.min(time - start, size - 1));
+          this.dac_frames[frame] = samples[(int) sample];
+        }
+        this.fm.renderDAC(this.fm_output, 0, chunk, this.dac_frames, 0);
+      }
+      this.emit(chunk);
+    }
+
+    if (this.fm != null && this.dac.writes() > 0) {
+      this.fm.writeRegisterPort0(0x2a, this.dac.value());
+    }
+  }
+
+  private void renderTo(
+    final long target)
+    throws IOException
+  {
+    while (this.frames < target) {
+      final int chunk = (int) Math.min(CHUNK_FRAMES, target - this.frames);
+      if (this.fm != null) {
+        this.fm.render(this.fm_output, 0, chunk);
+      }
+      this.emit(chunk);
+    }
+  }
+
+  private void emit(
+    final int chunk)
+    throws IOException
+  {
+    final int samples = chunk * 2;
+    if (this.fm == null) {
+      Arrays.fill(this.fm_output, 0, samples, (short) 0);
+    }
+    if (this.psg != null) {
+      this.psg.render(this.psg_output, 0, chunk);
+    } else {
+      Arrays.fill(this.psg_output, 0, samples, (short) 0);
+    }
+
+    for (int index = 0; index < samples; ++index) {
+      int value = (int) this.fm_output[index] + (int) this.psg_output[index];
+      final long frame = this.frames + (long) (index >>> 1);
+      if (frame >= this.fade_start) {
+        value = (int) (((long) value * (this.total_frames - frame)) / this.fade_frames);
+      }
+      this.mix_output[index] =
+        (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+    }
+
+    this.writer.write(this.mix_output, 0, samples);
+    this.frames += (long) chunk;
+  }
+}
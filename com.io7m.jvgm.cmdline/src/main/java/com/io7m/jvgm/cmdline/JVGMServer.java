@@ -0,0 +1,201 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612Interpreter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * <p>A server that accepts jobs from local clients, and runs them on a pool
+ * of warm worker threads. Each worker thread owns a parser, a command buffer,
+ * and an interpreter, and reuses them for every job that it runs, and so the
+ * cost of starting a JVM is paid once rather than once per file.</p>
+ *
+ * <p>Clients send one request per line, in the form
+ * {@code id TAB job TAB path}, where {@code id} is an arbitrary
+ * client-chosen tag, and {@code job} is one of {@code interpret},
+ * {@code dump}, or {@code render}. A {@code render} request names an output
+ * file after the input file, in the form
+ * {@code id TAB render TAB path TAB output}, and renders a 16-bit stereo
+ * WAV file at {@value VGMYM2612Interpreter#VGM_SAMPLE_RATE}Hz with the
+ * defaults of the {@code render} command. Requests on a single connection
+ * run concurrently, and every line sent in reply begins with
+ * {@code id TAB}, and so replies to different requests may be interleaved.
+ * A {@code dump} job replies with one {@code command TAB text} line per
+ * command, where {@code text} is the line that the {@code dump} command
+ * writes in its {@code TEXT} format. Every job finishes with exactly one line that is either
+ * {@code ok TAB ...} or {@code error TAB message}. A connection is closed
+ * once the client has stopped sending requests and all of its jobs have
+ * finished.</p>
+ *
+ * <p>The server performs no authentication, and so it may only be bound
+ * to a loopback address. Request paths are resolved against a root
+ * directory, and requests for files that are not inside the root directory
+ * (after resolving symbolic links) are rejected.</p>
+ */
+
+public final class JVGMServer implements Closeable
+{
+  private static final Logger LOG = LoggerFactory.getLogger(JVGMServer.class);
+
+  private final ServerSocket socket;
+  private final InetSocketAddress address;
+  private final Path root;
+  private final ForkJoinPool pool;
+  private final ExecutorService connections;
+  private final Set<Socket> clients;
+  private final int in_flight;
+
+  /**
+   * Construct a server, binding to the given address immediately.
+   *
+   * @param in_address   The loopback address to which the server is bound
+   * @param in_root      The directory that contains every file that
+   *                     clients may access
+   * @param in_threads   The number of worker threads
+   * @param in_in_flight The maximum number of jobs per connection that may be
+   *                     submitted but not yet completed
+   *
+   * @throws IOException On errors binding the socket or resolving the root
+   *                     directory
+   */
+
+  public JVGMServer(
+    final InetSocketAddress in_address,
+    final Path in_root,
+    final int in_threads,
+    final int in_in_flight)
+    throws IOException
+  {
+    Objects.requireNonNull(in_address, "address");
+    Objects.requireNonNull(in_root, "root");
+
+    final InetAddress host = in_address.getAddress();
+    if (host == null || !host.isLoopbackAddress()) {
+      throw new IllegalArgumentException(
+        "Server must be bound to a loopback address (received "
+          + in_address + ")");
+    }
+
+    if (in_threads < 1) {
+      throw new IllegalArgumentException(
+        "Thread count must be positive (received " + in_threads + ")");
+    }
+    if (in_in_flight < 1) {
+      throw new IllegalArgumentException(
+        "In-flight limit must be positive (received " + in_in_flight + ")");
+    }
+
+    this.in_flight = in_in_flight;
+    this.root = in_root.toRealPath();
+    this.clients = ConcurrentHashMap.newKeySet();
+    this.socket = ServerSocketChannel.open().socket();
+    this.socket.bind(in_address);
+    this.address =
+      new InetSocketAddress(this.socket.getInetAddress(), this.socket.getLocalPort());
+    this.pool =
+      new ForkJoinPool(in_threads, JVGMBatchWorkerThread::new, null, true);
+    this.connections = Executors.newCachedThreadPool(runnable -> {
+      final Thread thread = new Thread(runnable);
+      thread.setName("com.io7m.jvgm.cmdline.server.connection-" + thread.getId());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * @return The address to which the server is bound
+   */
+
+  public InetSocketAddress address()
+  {
+    return this.address;
+  }
+
+  /**
+   * @return The directory that contains every file that clients may access
+   */
+
+  public Path root()
+  {
+    return this.root;
+  }
+
+  /**
+   * Accept connections until the server is closed.
+   *
+   * @throws IOException On errors accepting connections
+   */
+
+  public void run()
+    throws IOException
+  {
+    while (!this.socket.isClosed()) {
+      final Socket client;
+      try {
+        client = this.socket.accept();
+      } catch (final SocketException e) {
+        if (this.socket.isClosed()) {
+          return;
+        }
+        throw e;
+      }
+
+      LOG.debug("connection: {}", client.getRemoteSocketAddress());
+      this.clients.add(client);
+      this.connections.execute(() -> {
+        try {
+          new JVGMServerConnection(client, this.root, this.pool, this.in_flight).run();
+        } finally {
+          this.clients.remove(client);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    try {
+      this.socket.close();
+      for (final Socket client : this.clients) {
+        client.close();
+      }
+    } finally {
+      this.connections.shutdown();
+      this.pool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,429 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612Interpreter;
+import com.io7m.jvgm.parser.api.VGMParseError;
+import io.vavr.collection.Seq;
+import io.vavr.control.Validation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A single client connection. Requests are read on the connection's own
+ * thread, and the jobs that they describe are run on the server's worker
+ * pool.
+ *
+ * @see JVGMServer
+ */
+
+final class JVGMServerConnection
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(JVGMServerConnection.class);
+
+  private static final int DUMP_BUFFER_SIZE = 1 << 16;
+  private static final JVGMRender RENDER =
+    new JVGMRender(VGMYM2612Interpreter.VGM_SAMPLE_RATE, 1, 0.0);
+
+  private final Socket socket;
+  private final Path root;
+  private final Executor pool;
+  private final Semaphore permits;
+  private final int in_flight;
+  private OutputStream output;
+  private IOException failure;
+
+  JVGMServerConnection(
+    final Socket in_socket,
+    final Path in_root,
+    final Executor in_pool,
+    final int in_in_flight)
+  {
+    this.socket = Objects.requireNonNull(in_socket, "socket");
+    this.root = Objects.requireNonNull(in_root, "root");
+    this.pool = Objects.requireNonNull(in_pool, "pool");
+    this.in_flight = in_in_flight;
+    this.permits = new Semaphore(in_in_flight);
+  }
+
+  private static String clean(
+    final String text)
+  {
+    return text.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+  }
+
+  void run()
+  {
+    try (Socket client = this.socket) {
+      final BufferedReader reader =
+        new BufferedReader(new InputStreamReader(
+          client.getInputStream(), StandardCharsets.UTF_8));
+      this.open(new BufferedOutputStream(client.getOutputStream()));
+
+      while (true) {
+        final String line = reader.readLine();
+        if (line == null) {
+          break;
+        }
+        if (!line.isEmpty()) {
+          this.submit(line);
+        }
+      }
+
+      this.permits.acquire(this.in_flight);
+      this.permits.release(this.in_flight);
+      this.checkFailure();
+    } catch (final IOException e) {
+      LOG.error("{}: {}", this.socket.getRemoteSocketAddress(), e.getMessage());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void submit(
+    final String line)
+    throws InterruptedException
+  {
+    final String[] fields = line.split("\t", 3);
+    if (fields.length != 3) {
+      this.reply(fields[0], "error", "Malformed request: expected id, job, and path");
+      this.flush();
+      return;
+    }
+
+    final String id = fields[0];
+    final String job = fields[1];
+    final Path path;
+    final Optional<Path> target;
+    try {
+      if ("render".equals(job)) {
+        final String[] paths = fields[2].split("\t", 2);
+        if (paths.length != 2) {
+          this.reply(id, "error", "Malformed request: expected input and output paths");
+          this.flush();
+          return;
+        }
+        path = this.resolve(paths[0]);
+        target = Optional.of(this.resolveOutput(paths[1]));
+      } else {
+        path = this.resolve(fields[2]);
+        target = Optional.empty();
+      }
+    } catch (final InvalidPathException | IOException e) {
+      this.reply(id, "error", clean(String.valueOf(e.getMessage())));
+      this.flush();
+      return;
+    }
+
+    this.permits.acquire();
+    this.pool.execute(() -> {
+      try {
+        this.runJob(id, job, path, target);
+      } catch (final RuntimeException e) {
+        LOG.error("{}: ", path, e);
+        this.reply(id, "error", clean(String.valueOf(e.getMessage())));
+      } finally {
+        this.flush();
+        this.permits.release();
+      }
+    });
+  }
+
+  /**
+   * Resolve a requested path against the root directory. The path is
+   * rejected unless both the path and its real path (with all symbolic
+   * links resolved) are inside the root directory.
+   */
+
+  private Path resolve(
+    final String text)
+    throws IOException
+  {
+    final Path path = this.root.resolve(text).normalize();
+    if (path.startsWith(this.root)) {
+      final Path real = path.toRealPath();
+      if (real.startsWith(this.root)) {
+        return real;
+      }
+    }
+    throw new NoSuchFileException(text, null, "Not inside the server root");
+  }
+
+  /**
+   * Resolve a requested output path against the root directory. The file
+   * need not exist, but its parent directory must, and the path is rejected
+   * unless it is inside the root directory once the parent directory's
+   * symbolic links are resolved. An existing symbolic link is rejected
+   * here, and the render job opens the file without following symbolic
+   * links, and so a link created at the path after this check is not
+   * written through either.
+   */
+
+  private Path resolveOutput(
+    final String text)
+    throws IOException
+  {
+    final Path path = this.root.resolve(text).normalize();
+    final Path parent = path.getParent();
+    final Path name = path.getFileName();
+    if (path.startsWith(this.root) && parent != null && name != null) {
+      final Path real = parent.toRealPath().resolve(name);
+      if (real.startsWith(this.root) && !Files.isSymbolicLink(real)) {
+        return real;
+      }
+    }
+    throw new NoSuchFileException(text, null, "Not inside the server root");
+  }
+
+  private void runJob(
+    final String id,
+    final String job,
+    final Path path,
+    final Optional<Path> target)
+  {
+    final JVGMBatchWorker worker = JVGMBatchWorkerThread.current();
+    switch (job) {
+      case "interpret": {
+        final JVGMBatchFileResult result = worker.process(path, false, Optional.empty());
+        this.finish(id, result, String.join(
+          "\t",
+          Long.toString(result.samples()),
+          Long.toString(result.commands()),
+          Long.toString(result.registerWrites()),
+          Long.toString(result.presetChanges())));
+        break;
+      }
+      case "dump": {
+        final JVGMDumpWriter writer =
+          new JVGMDumpWriter(
+            JVGMDumpFormat.TEXT,
+            new ReplyChannel(id, "command"),
+            DUMP_BUFFER_SIZE);
+        final JVGMBatchFileResult result = worker.dump(path, false, writer);
+        this.finish(id, result, String.join(
+          "\t",
+          Long.toString(result.samples()),
+          Long.toString(result.commands())));
+        break;
+      }
+      case "render": {
+        this.render(id, path, target.orElseThrow());
+        break;
+      }
+      default: {
+        this.reply(id, "error", "Unrecognized job: " + clean(job));
+        break;
+      }
+    }
+  }
+
+  private void render(
+    final String id,
+    final Path path,
+    final Path target)
+  {
+    try {
+      final Validation<Seq<VGMParseError>, Long> result =
+        RENDER.render(path, false, target, LinkOption.NOFOLLOW_LINKS);
+      if (result.isValid()) {
+        this.reply(id, "ok", result.get().toString());
+        return;
+      }
+
+      final StringBuilder errors = new StringBuilder(128);
+      result.getError().forEach(error -> {
+        if (errors.length() > 0) {
+          errors.append("; ");
+        }
+        errors.append("0x")
+          .append(Long.toUnsignedString(error.offset(), 16))
+          .append(": ")
+          .append(error.message());
+      });
+      this.reply(id, "error", clean(errors.toString()));
+    } catch (final IOException e) {
+      this.reply(id, "error", clean(String.valueOf(e.getMessage())));
+    }
+  }
+
+  private void finish(
+    final String id,
+    final JVGMBatchFileResult result,
+    final String fields)
+  {
+    if (result.succeeded()) {
+      this.reply(id, "ok", fields);
+    } else {
+      this.reply(id, "error", clean(String.join("; ", result.errors())));
+    }
+  }
+
+  private synchronized void open(
+    final OutputStream stream)
+  {
+    this.output = stream;
+  }
+
+  private synchronized void reply(
+    final String id,
+    final String status,
+    final String text)
+  {
+    if (this.failure != null) {
+      return;
+    }
+
+    try {
+      this.output.write(
+        (id + '\t' + status + '\t' + text + '\n')
+          .getBytes(StandardCharsets.UTF_8));
+    } catch (final IOException e) {
+      this.failure = e;
+    }
+  }
+
+  /**
+   * Write lines of reply text, each of which is given the prefix
+   * {@code id TAB status TAB}.
+   */
+
+  private synchronized void replyLines(
+    final byte[] prefix,
+    final byte[] data,
+    final int length,
+    final boolean line_start)
+  {
+    if (this.failure != null) {
+      return;
+    }
+
+    try {
+      boolean start = line_start;
+      int position = 0;
+      while (position < length) {
+        if (start) {
+          this.output.write(prefix);
+        }
+
+        int end = position;
+        while (end < length && data[end] != (byte) '\n') {
+          ++end;
+        }
+        start = end < length;
+        if (start) {
+          ++end;
+        }
+        this.output.write(data, position, end - position);
+        position = end;
+      }
+    } catch (final IOException e) {
+      this.failure = e;
+    }
+  }
+
+  private synchronized void flush()
+  {
+    if (this.failure != null) {
+      return;
+    }
+
+    try {
+      this.output.flush();
+    } catch (final IOException e) {
+      this.failure = e;
+    }
+  }
+
+  private synchronized void checkFailure()
+    throws IOException
+  {
+    if (this.failure != null) {
+      throw this.failure;
+    }
+  }
+
+  /**
+   * A channel that sends everything written to it as reply lines. This
+   * allows a {@link JVGMDumpWriter} to encode commands directly into the
+   * reply, and so the server produces exactly the output of the
+   * {@code dump} command.
+   */
+
+  private final class ReplyChannel implements WritableByteChannel
+  {
+    private final byte[] prefix;
+    private final byte[] data;
+    private boolean line_start;
+
+    ReplyChannel(
+      final String id,
+      final String status)
+    {
+      this.prefix =
+        (id + '\t' + status + '\t').getBytes(StandardCharsets.UTF_8);
+      this.data = new byte[DUMP_BUFFER_SIZE];
+      this.line_start = true;
+    }
+
+    @Override
+    public int write(
+      final ByteBuffer source)
+    {
+      final int total = source.remaining();
+      while (source.hasRemaining()) {
+        final int length = Math.min(this.data.length, source.remaining());
+        source.get(this.data, 0, length);
+        JVGMServerConnection.this.replyLines(
+          this.prefix, this.data, length, this.line_start);
+        this.line_start = this.data[length - 1] == (byte) '\n';
+      }
+      return total;
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+      return true;
+    }
+
+    @Override
+    public void close()
+    {
+
+    }
+  }
+}
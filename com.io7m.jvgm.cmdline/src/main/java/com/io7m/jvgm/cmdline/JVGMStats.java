@@ -0,0 +1,283 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import com.io7m.jvgm.core.VGMCommandType;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612Interpreter;
+import com.io7m.jvgm.parser.api.VGMCommandBuffer;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>A profile of the commands in one or more VGM files.</p>
+ *
+ * <p>All counters are held in primitive arrays indexed by opcode, command
+ * type, or register, and so accumulating commands does not allocate.
+ * Profiles are mergeable: the profile of a corpus is the sum of the profiles
+ * of its files, and so profiles produced in parallel may be combined with
+ * {@link #merge(JVGMStats)} in any order.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ */
+
+public final class JVGMStats
+{
+  private static final VGMCommandType.Type[] TYPES =
+    VGMCommandType.Type.values();
+  private static final int[] TYPE_OF_OPCODE = typesOfOpcodes();
+
+  private final long[] types;
+  private final long[] ym2612_port_0;
+  private final long[] ym2612_port_1;
+  private long files;
+  private long wait_samples;
+  private long dac_bytes;
+  private long data_block_bytes;
+
+  /**
+   * Construct an empty profile.
+   */
+
+  public JVGMStats()
+  {
+    this.types = new long[TYPES.length];
+    this.ym2612_port_0 = new long[256];
+    this.ym2612_port_1 = new long[256];
+  }
+
+  private static int[] typesOfOpcodes()
+  {
+    final int[] table = new int[256];
+    Arrays.fill(table, -1);
+    for (final VGMCommandType.Type type : TYPES) {
+      table[type.tag()] = type.ordinal();
+    }
+    return table;
+  }
+
+  private static boolean isWrite(
+    final VGMCommandType.Type type)
+  {
+    switch (type) {
+      case GAME_GEAR_PSG_STEREO_WRITE:
+      case PSG_WRITE:
+      case YM2413_WRITE:
+      case YM2612_WRITE_PORT_0:
+      case YM2612_WRITE_PORT_1:
+        return true;
+      default:
+        return (type.tag() & 0xf0) == 0x80;
+    }
+  }
+
+  /**
+   * Count a file. Files are counted separately from their commands so that
+   * a file that is delivered in several command batches is counted once.
+   */
+
+  public void addFile()
+  {
+    ++this.files;
+  }
+
+  /**
+   * Accumulate all of the commands in the given buffer.
+   *
+   * @param commands The commands
+   */
+
+  public void add(
+    final VGMCommandBuffer commands)
+  {
+    Objects.requireNonNull(commands, "commands");
+
+    final int size = commands.size();
+    for (int index = 0; index < size; ++index) {
+      final int opcode = commands.opcode(index);
+      final int type = TYPE_OF_OPCODE[opcode];
+      if (type >= 0) {
+        ++this.types[type];
+      }
+
+      switch (opcode) {
+        case 0x52: {
+          ++this.ym2612_port_0[commands.register(index)];
+          break;
+        }
+        case 0x53: {
+          ++this.ym2612_port_1[commands.register(index)];
+          break;
+        }
+        case 0x67: {
+          this.data_block_bytes += commands.operands(index) & 0xffff_ffffL;
+          break;
+        }
+        default: {
+          if ((opcode & 0xf0) == 0x80) {
+            ++this.dac_bytes;
+          }
+          this.wait_samples += commands.waitSamples(index);
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Add all of the counters of the given profile to this profile.
+   *
+   * @param other The other profile
+   */
+
+  public void merge(
+    final JVGMStats other)
+  {
+    Objects.requireNonNull(other, "other");
+
+    for (int index = 0; index < this.types.length; ++index) {
+      this.types[index] += other.types[index];
+    }
+    for (int index = 0; index < 256; ++index) {
+      this.ym2612_port_0[index] += other.ym2612_port_0[index];
+      this.ym2612_port_1[index] += other.ym2612_port_1[index];
+    }
+    this.files += other.files;
+    this.wait_samples += other.wait_samples;
+    this.dac_bytes += other.dac_bytes;
+    this.data_block_bytes += other.data_block_bytes;
+  }
+
+  /**
+   * @return The number of files counted
+   */
+
+  public long files()
+  {
+    return this.files;
+  }
+
+  /**
+   * @param type The command type
+   *
+   * @return The number of commands of the given type
+   */
+
+  public long commands(
+    final VGMCommandType.Type type)
+  {
+    return this.types[Objects.requireNonNull(type, "type").ordinal()];
+  }
+
+  /**
+   * @return The total number of commands
+   */
+
+  public long commands()
+  {
+    long sum = 0L;
+    for (final long count : this.types) {
+      sum += count;
+    }
+    return sum;
+  }
+
+  /**
+   * @return The total number of samples waited for by wait commands
+   */
+
+  public long waitSamples()
+  {
+    return this.wait_samples;
+  }
+
+  /**
+   * @return The duration of the audio, in seconds
+   */
+
+  public double seconds()
+  {
+    return (double) this.wait_samples / (double) VGMYM2612Interpreter.VGM_SAMPLE_RATE;
+  }
+
+  /**
+   * @param port     The YM2612 port ({@code 0} or {@code 1})
+   * @param register The register
+   *
+   * @return The number of writes to the given register on the given port
+   */
+
+  public long ym2612Writes(
+    final int port,
+    final int register)
+  {
+    switch (port) {
+      case 0:
+        return this.ym2612_port_0[register];
+      case 1:
+        return this.ym2612_port_1[register];
+      default:
+        throw new IllegalArgumentException("Invalid port: " + port);
+    }
+  }
+
+  /**
+   * @return The number of bytes written to the YM2612 DAC
+   */
+
+  public long dacBytes()
+  {
+    return this.dac_bytes;
+  }
+
+  /**
+   * @return The total size of all data blocks
+   */
+
+  public long dataBlockBytes()
+  {
+    return this.data_block_bytes;
+  }
+
+  /**
+   * @return The total number of chip writes, including DAC writes
+   */
+
+  public long writes()
+  {
+    long sum = 0L;
+    for (int index = 0; index < this.types.length; ++index) {
+      if (isWrite(TYPES[index])) {
+        sum += this.types[index];
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * @return The number of chip writes per second of audio, or {@code 0} if
+   * the commands do not wait for any samples
+   */
+
+  public double writesPerSecond()
+  {
+    if (this.wait_samples == 0L) {
+      return 0.0;
+    }
+    return (double) this.writes() / this.seconds();
+  }
+}
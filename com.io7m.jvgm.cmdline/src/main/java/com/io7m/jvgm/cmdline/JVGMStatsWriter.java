@@ -0,0 +1,330 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import com.io7m.jvgm.core.VGMCommandType;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Objects;
+
+/**
+ * <p>A writer of command profiles.</p>
+ *
+ * <p>Per-file profiles may be written from any thread, in any order, and
+ * are written as they arrive so that memory use does not depend on the
+ * number of files. The corpus profile is written last. Errors that occur
+ * whilst writing per-file profiles are retained and raised by
+ * {@link #finish(JVGMStats)}.</p>
+ */
+
+public final class JVGMStatsWriter
+{
+  private static final VGMCommandType.Type[] TYPES =
+    VGMCommandType.Type.values();
+
+  private final JVGMStatsFormat format;
+  private final Writer writer;
+  private boolean started;
+  private boolean first;
+  private IOException failure;
+
+  /**
+   * Construct a writer.
+   *
+   * @param in_format The output format
+   * @param in_writer The underlying writer
+   */
+
+  public JVGMStatsWriter(
+    final JVGMStatsFormat in_format,
+    final Writer in_writer)
+  {
+    this.format = Objects.requireNonNull(in_format, "format");
+    this.writer = Objects.requireNonNull(in_writer, "writer");
+    this.first = true;
+  }
+
+  private static String register(
+    final int register)
+  {
+    return String.format("0x%02x", Integer.valueOf(register));
+  }
+
+  private static void jsonString(
+    final Appendable output,
+    final String text)
+    throws IOException
+  {
+    output.append('"');
+    for (int index = 0; index < text.length(); ++index) {
+      final char c = text.charAt(index);
+      switch (c) {
+        case '"':
+          output.append("\\\"");
+          break;
+        case '\\':
+          output.append("\\\\");
+          break;
+        default:
+          if (c < 0x20) {
+            output.append(String.format("\\u%04x", Integer.valueOf(c)));
+          } else {
+            output.append(c);
+          }
+          break;
+      }
+    }
+    output.append('"');
+  }
+
+  private static void csvString(
+    final Appendable output,
+    final String text)
+    throws IOException
+  {
+    if (text.indexOf(',') < 0
+      && text.indexOf('"') < 0
+      && text.indexOf('\n') < 0
+      && text.indexOf('\r') < 0) {
+      output.append(text);
+      return;
+    }
+
+    output.append('"');
+    for (int index = 0; index < text.length(); ++index) {
+      final char c = text.charAt(index);
+      if (c == '"') {
+        output.append('"');
+      }
+      output.append(c);
+    }
+    output.append('"');
+  }
+
+  private void start()
+    throws IOException
+  {
+    if (!this.started) {
+      this.started = true;
+      switch (this.format) {
+        case JSON:
+          this.writer.append("{\"files\":[");
+          break;
+        case CSV:
+          this.writer.append("scope,file,category,key,value\n");
+          break;
+      }
+    }
+  }
+
+  /**
+   * Write the profile of a single file. Errors are retained and raised by
+   * {@link #finish(JVGMStats)}.
+   *
+   * @param file      The file
+   * @param succeeded {@code true} iff the file was processed without errors
+   * @param stats     The profile of the file
+   */
+
+  public synchronized void file(
+    final String file,
+    final boolean succeeded,
+    final JVGMStats stats)
+  {
+    Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(stats, "stats");
+
+    if (this.failure != null) {
+      return;
+    }
+
+    try {
+      this.start();
+      switch (this.format) {
+        case JSON: {
+          if (!this.first) {
+            this.writer.append(',');
+          }
+          this.writer.append("\n{\"file\":");
+          jsonString(this.writer, file);
+          this.writer.append(",\"succeeded\":")
+            .append(Boolean.toString(succeeded))
+            .append(',');
+          this.jsonProfile(stats);
+          this.writer.append('}');
+          break;
+        }
+        case CSV: {
+          this.csvRow(file, "summary", "succeeded", Boolean.toString(succeeded));
+          this.csvProfile(file, stats);
+          break;
+        }
+      }
+      this.first = false;
+    } catch (final IOException e) {
+      this.failure = e;
+    }
+  }
+
+  /**
+   * Write the profile of the corpus and flush the underlying writer. The
+   * underlying writer is not closed.
+   *
+   * @param total The profile of the corpus
+   *
+   * @throws IOException On I/O errors, including errors retained from
+   *                     earlier calls to {@link #file(String, boolean,
+   *                     JVGMStats)}
+   */
+
+  public synchronized void finish(
+    final JVGMStats total)
+    throws IOException
+  {
+    Objects.requireNonNull(total, "total");
+
+    if (this.failure != null) {
+      throw this.failure;
+    }
+
+    this.start();
+    switch (this.format) {
+      case JSON: {
+        this.writer.append("\n],\n\"total\":{\"files\":")
+          .append(Long.toString(total.files()))
+          .append(',');
+        this.jsonProfile(total);
+        this.writer.append("}}\n");
+        break;
+      }
+      case CSV: {
+        this.csvRow(null, "summary", "files", Long.toString(total.files()));
+        this.csvProfile(null, total);
+        break;
+      }
+    }
+    this.writer.flush();
+  }
+
+  private void jsonProfile(
+    final JVGMStats stats)
+    throws IOException
+  {
+    this.writer.append("\"commands\":")
+      .append(Long.toString(stats.commands()))
+      .append(",\"wait_samples\":")
+      .append(Long.toString(stats.waitSamples()))
+      .append(",\"seconds\":")
+      .append(Double.toString(stats.seconds()))
+      .append(",\"writes\":")
+      .append(Long.toString(stats.writes()))
+      .append(",\"writes_per_second\":")
+      .append(Double.toString(stats.writesPerSecond()))
+      .append(",\"dac_bytes\":")
+      .append(Long.toString(stats.dacBytes()))
+      .append(",\"data_block_bytes\":")
+      .append(Long.toString(stats.dataBlockBytes()))
+      .append(",\"command_types\":{");
+
+    boolean separate = false;
+    for (final VGMCommandType.Type type : TYPES) {
+      final long count = stats.commands(type);
+      if (count != 0L) {
+        if (separate) {
+          this.writer.append(',');
+        }
+        jsonString(this.writer, type.name());
+        this.writer.append(':').append(Long.toString(count));
+        separate = true;
+      }
+    }
+    this.writer.append('}');
+
+    for (int port = 0; port < 2; ++port) {
+      this.writer.append(",\"ym2612_port_")
+        .append(Integer.toString(port))
+        .append("\":{");
+      separate = false;
+      for (int register = 0; register < 256; ++register) {
+        final long count = stats.ym2612Writes(port, register);
+        if (count != 0L) {
+          if (separate) {
+            this.writer.append(',');
+          }
+          jsonString(this.writer, register(register));
+          this.writer.append(':').append(Long.toString(count));
+          separate = true;
+        }
+      }
+      this.writer.append('}');
+    }
+  }
+
+  private void csvProfile(
+    final String file,
+    final JVGMStats stats)
+    throws IOException
+  {
+    this.csvRow(file, "summary", "commands", Long.toString(stats.commands()));
+    this.csvRow(file, "summary", "wait_samples", Long.toString(stats.waitSamples()));
+    this.csvRow(file, "summary", "seconds", Double.toString(stats.seconds()));
+    this.csvRow(file, "summary", "writes", Long.toString(stats.writes()));
+    this.csvRow(file, "summary", "writes_per_second", Double.toString(stats.writesPerSecond()));
+    this.csvRow(file, "summary", "dac_bytes", Long.toString(stats.dacBytes()));
+    this.csvRow(file, "summary", "data_block_bytes", Long.toString(stats.dataBlockBytes()));
+
+    for (final VGMCommandType.Type type : TYPES) {
+      final long count = stats.commands(type);
+      if (count != 0L) {
+        this.csvRow(file, "command_type", type.name(), Long.toString(count));
+      }
+    }
+
+    for (int port = 0; port < 2; ++port) {
+      final String category = "ym2612_port_" + port;
+      for (int register = 0; register < 256; ++register) {
+        final long count = stats.ym2612Writes(port, register);
+        if (count != 0L) {
+          this.csvRow(file, category, register(register), Long.toString(count));
+        }
+      }
+    }
+  }
+
+  private void csvRow(
+    final String file,
+    final String category,
+    final String key,
+    final String value)
+    throws IOException
+  {
+    if (file != null) {
+      this.writer.append("file,");
+      csvString(this.writer, file);
+    } else {
+      this.writer.append("corpus,");
+    }
+    this.writer.append(',')
+      .append(category)
+      .append(',')
+      .append(key)
+      .append(',')
+      .append(value)
+      .append('\n');
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.cmdline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A writer of 16-bit stereo PCM WAV files. Samples are written through a
+ * single {@link FileChannel} from a reusable direct buffer, and the sizes in
+ * the RIFF header are written when the writer is closed, and so the memory
+ * used does not depend on the length of the output.
+ */
+
+final class JVGMWAVWriter implements Closeable
+{
+  private static final int HEADER_SIZE = 44;
+  private static final int CHANNELS = 2;
+  private static final int BYTES_PER_SAMPLE = 2;
+  private static final long DATA_LIMIT = 0xffff_ffffL - (HEADER_SIZE - 8);
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private long data_size;
+
+  /**
+   * Open a writer. The file is created if necessary, and truncated.
+   *
+   * @param path        The output file
+   * @param sample_rate The sample rate in Hz
+   * @param buffer_size The size of the output buffer in bytes
+   * @param options     Additional options used when opening the file, such
+   *                    as {@link java.nio.file.LinkOption#NOFOLLOW_LINKS}
+   *
+   * @throws IOException On I/O errors
+   */
+
+  JVGMWAVWriter(
+    final Path path,
+    final int sample_rate,
+    final int buffer_size,
+    final OpenOption... options)
+    throws IOException
+  {
+    Objects.requireNonNull(path, "path");
+
+    final Set<OpenOption> open = new HashSet<>(List.of(options));
+    open.add(CREATE);
+    open.add(TRUNCATE_EXISTING);
+    open.add(WRITE);
+
+    this.buffer =
+      ByteBuffer.allocateDirect(buffer_size).order(ByteOrder.LITTLE_ENDIAN);
+    this.channel = FileChannel.open(path, open);
+
+    final int block_align = CHANNELS * BYTES_PER_SAMPLE;
+    this.buffer.putInt(0x4646_4952);
+    this.buffer.putInt(0);
+    this.buffer.putInt(0x4556_4157);
+    this.buffer.putInt(0x2074_6d66);
+    this.buffer.putInt(16);
+    this.buffer.putShort((short) 1);
+    this.buffer.putShort((short) CHANNELS);
+    this.buffer.putInt(sample_rate);
+    this.buffer.putInt(sample_rate * block_align);
+    this.buffer.putShort((short) block_align);
+    this.buffer.putShort((short) (BYTES_PER_SAMPLE * 8));
+    this.buffer.putInt(0x6174_6164);
+    this.buffer.putInt(0);
+  }
+
+  /**
+   * Write {@code count} samples from {@code samples} starting at
+   * {@code offset}.
+   *
+   * @param samples The samples
+   * @param offset  The offset of the first sample
+   * @param count   The number of samples
+   *
+   * @throws IOException On I/O errors, or if the output would exceed the
+   *                     maximum size of a WAV file
+   */
+
+  void write(
+    final short[] samples,
+    final int offset,
+    final int count)
+    throws IOException
+  {
+    Objects.checkFromIndexSize(offset, count, samples.length);
+
+    final long size = (long) count * (long) BYTES_PER_SAMPLE;
+    if (this.data_size + size > DATA_LIMIT) {
+      throw new IOException(String.format(
+        "Output exceeds the maximum size of a WAV file (%d bytes)",
+        Long.valueOf(DATA_LIMIT)));
+    }
+
+    int position = offset;
+    int remaining = count;
+    while (remaining > 0) {
+      if (this.buffer.remaining() < BYTES_PER_SAMPLE) {
+        this.flush();
+      }
+      final int chunk =
+        Math.min(remaining, this.buffer.remaining() / BYTES_PER_SAMPLE);
+      for (int index = 0; index < chunk; ++index) {
+        this.buffer.putShort(samples[position + index]);
+      }
+      position += chunk;
+      remaining -= chunk;
+    }
+    this.data_size += size;
+  }
+
+  private void flush()
+    throws IOException
+  {
+    this.buffer.flip();
+    while (this.buffer.hasRemaining()) {
+      this.channel.write(this.buffer);
+    }
+    this.buffer.clear();
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    try {
+      this.flush();
+
+      final ByteBuffer size =
+        ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+      size.putInt(0, (int) (this.data_size + (HEADER_SIZE - 8)));
+      this.channel.write(size, 4L);
+      size.clear();
+      size.putInt(0, (int) this.data_size);
+      this.channel.write(size, (long) (HEADER_SIZE - 4));
+    } finally {
+      this.channel.close();
+    }
+  }
+}
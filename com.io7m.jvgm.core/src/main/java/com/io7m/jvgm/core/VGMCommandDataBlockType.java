@@ -19,6 +19,9 @@ package com.io7m.jvgm.core;
 import com.io7m.immutables.styles.ImmutablesStyleType;
 import org.immutables.value.Value;
 
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
 /**
  * A VGM data block.
  */
@@ -46,4 +49,15 @@ public interface VGMCommandDataBlockType extends VGMCommandType
 
   @Value.Parameter
   long dataSize();
+
+  /**
+   * The data, if the parser retained it. The returned buffer is read-only,
+   * and is a view of the underlying input where the input permits it.
+   * The data is not considered for the purposes of equality.
+   *
+   * @return The data
+   */
+
+  @Value.Auxiliary
+  Optional<ByteBuffer> data();
 }
@@ -0,0 +1,245 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.core;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>A registry of data banks, keyed by data block type.</p>
+ *
+ * <p>Every data block of a given type is appended to the bank for that type,
+ * and offsets given by commands such as {@code 0xE0} are offsets into the
+ * concatenation of all of the blocks in the bank. Blocks are held by
+ * reference and are never copied.</p>
+ *
+ * <p>Compressed data blocks are stored exactly as they appear in the
+ * input.</p>
+ *
+ * <p>Instances are mutable and not thread-safe.</p>
+ */
+
+public final class VGMDataBanks
+{
+  /**
+   * The data block type used for YM2612 PCM data.
+   */
+
+  public static final int TYPE_YM2612_PCM = 0x00;
+
+  private final Bank[] banks;
+
+  /**
+   * Construct an empty registry.
+   */
+
+  public VGMDataBanks()
+  {
+    this.banks = new Bank[256];
+  }
+
+  /**
+   * Append a block to the bank of the given type.
+   *
+   * @param type The data block type in the range {@code [0, 255]}
+   * @param data The block data
+   */
+
+  public void addBlock(
+    final int type,
+    final ByteBuffer data)
+  {
+    Objects.requireNonNull(data, "Data");
+
+    final int index = checkType(type);
+    Bank bank = this.banks[index];
+    if (bank == null) {
+      bank = new Bank();
+      this.banks[index] = bank;
+    }
+    bank.add(data.asReadOnlyBuffer());
+  }
+
+  /**
+   * Remove all banks.
+   */
+
+  public void clear()
+  {
+    Arrays.fill(this.banks, null);
+  }
+
+  /**
+   * @param type The data block type in the range {@code [0, 255]}
+   *
+   * @return The total size of the bank in bytes
+   */
+
+  public long bankSize(
+    final int type)
+  {
+    final Bank bank = this.banks[checkType(type)];
+    if (bank == null) {
+      return 0L;
+    }
+    return bank.size;
+  }
+
+  /**
+   * @param type The data block type in the range {@code [0, 255]}
+   *
+   * @return The number of blocks in the bank
+   */
+
+  public int blockCount(
+    final int type)
+  {
+    final Bank bank = this.banks[checkType(type)];
+    if (bank == null) {
+      return 0;
+    }
+    return bank.count;
+  }
+
+  /**
+   * @param type  The data block type in the range {@code [0, 255]}
+   * @param index The block index
+   *
+   * @return A read-only view of the given block
+   */
+
+  public ByteBuffer block(
+    final int type,
+    final int index)
+  {
+    final Bank bank = this.banks[checkType(type)];
+    if (bank == null || index < 0 || index >= bank.count) {
+      throw new IndexOutOfBoundsException(
+        "Block " + index + " of bank " + type + " does not exist");
+    }
+    return bank.blocks[index].duplicate();
+  }
+
+  /**
+   * Read a byte from a bank. Sequential and repeated reads are resolved in
+   * constant time regardless of the number of blocks in the bank.
+   *
+   * @param type     The data block type in the range {@code [0, 255]}
+   * @param position The offset within the bank
+   *
+   * @return The unsigned byte at the given offset, or {@code -1} if the
+   * offset is outside of the bank
+   */
+
+  public int byteAt(
+    final int type,
+    final long position)
+  {
+    final Bank bank = this.banks[checkType(type)];
+    if (bank == null) {
+      return -1;
+    }
+    return bank.byteAt(position);
+  }
+
+  private static int checkType(
+    final int type)
+  {
+    if (type < 0 || type > 0xff) {
+      throw new IllegalArgumentException(
+        "Data block type must be in the range [0, 255]: " + type);
+    }
+    return type;
+  }
+
+  private static final class Bank
+  {
+    private ByteBuffer[] blocks;
+    private long[] starts;
+    private int count;
+    private long size;
+    private int hint;
+
+    Bank()
+    {
+      this.blocks = new ByteBuffer[1];
+      this.starts = new long[1];
+    }
+
+    void add(
+      final ByteBuffer data)
+    {
+      if (this.count == this.blocks.length) {
+        this.blocks = Arrays.copyOf(this.blocks, this.count * 2);
+        this.starts = Arrays.copyOf(this.starts, this.count * 2);
+      }
+
+      this.blocks[this.count] = data;
+      this.starts[this.count] = this.size;
+      this.size += (long) data.remaining();
+      ++this.count;
+    }
+
+    int byteAt(
+      final long position)
+    {
+      if (position < 0L || position >= this.size) {
+        return -1;
+      }
+
+      final int block_index = this.find(position);
+      final ByteBuffer block = this.blocks[block_index];
+      final int offset = (int) (position - this.starts[block_index]);
+      return (int) block.get(block.position() + offset) & 0xff;
+    }
+
+    private int find(
+      final long position)
+    {
+      final int current = this.hint;
+      if (this.contains(current, position)) {
+        return current;
+      }
+
+      final int next = current + 1;
+      if (next < this.count && this.contains(next, position)) {
+        this.hint = next;
+        return next;
+      }
+
+      int index = Arrays.binarySearch(this.starts, 0, this.count, position);
+      if (index < 0) {
+        index = -index - 2;
+      }
+      while (!this.contains(index, position)) {
+        ++index;
+      }
+      this.hint = index;
+      return index;
+    }
+
+    private boolean contains(
+      final int index,
+      final long position)
+    {
+      final long start = this.starts[index];
+      return position >= start
+        && position - start < (long) this.blocks[index].remaining();
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.core;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import org.immutables.value.Value;
+
+/**
+ * A parsed GD3 tag. GD3 tags hold descriptive metadata for a VGM file. Any
+ * string that is absent from the tag is represented by the empty string.
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface VGMGD3TagType
+{
+  /**
+   * @return The version of the GD3 tag format
+   */
+
+  @Value.Default
+  default long version()
+  {
+    return 0x100L;
+  }
+
+  /**
+   * @return The track name in English
+   */
+
+  @Value.Default
+  default String trackNameEnglish()
+  {
+    return "";
+  }
+
+  /**
+   * @return The track name in Japanese
+   */
+
+  @Value.Default
+  default String trackNameJapanese()
+  {
+    return "";
+  }
+
+  /**
+   * @return The game name in English
+   */
+
+  @Value.Default
+  default String gameNameEnglish()
+  {
+    return "";
+  }
+
+  /**
+   * @return The game name in Japanese
+   */
+
+  @Value.Default
+  default String gameNameJapanese()
+  {
+    return "";
+  }
+
+  /**
+   * @return The system name in English
+   */
+
+  @Value.Default
+  default String systemNameEnglish()
+  {
+    return "";
+  }
+
+  /**
+   * @return The system name in Japanese
+   */
+
+  @Value.Default
+  default String systemNameJapanese()
+  {
+    return "";
+  }
+
+  /**
+   * @return The name of the original author in English
+   */
+
+  @Value.Default
+  default String authorNameEnglish()
+  {
+    return "";
+  }
+
+  /**
+   * @return The name of the original author in Japanese
+   */
+
+  @Value.Default
+  default String authorNameJapanese()
+  {
+    return "";
+  }
+
+  /**
+   * @return The release date of the game
+   */
+
+  @Value.Default
+  default String releaseDate()
+  {
+    return "";
+  }
+
+  /**
+   * @return The name of the person that converted the file to VGM
+   */
+
+  @Value.Default
+  default String convertedBy()
+  {
+    return "";
+  }
+
+  /**
+   * @return Free-form notes
+   */
+
+  @Value.Default
+  default String notes()
+  {
+    return "";
+  }
+}
@@ -146,4 +146,362 @@ public interface VGMHeaderType
   {
     return 0L;
   }
+
+  /**
+   * @return The RF5C68 clock rate in hz, if any
+   */
+
+  OptionalLong chipRF5C68Clock();
+
+  /**
+   * @return The YM2203 clock rate in hz, if any
+   */
+
+  OptionalLong chipYM2203Clock();
+
+  /**
+   * @return The YM2608 clock rate in hz, if any
+   */
+
+  OptionalLong chipYM2608Clock();
+
+  /**
+   * @return The YM2610/YM2610B clock rate in hz, if any
+   */
+
+  OptionalLong chipYM2610Clock();
+
+  /**
+   * @return The YM3812 clock rate in hz, if any
+   */
+
+  OptionalLong chipYM3812Clock();
+
+  /**
+   * @return The YM3526 clock rate in hz, if any
+   */
+
+  OptionalLong chipYM3526Clock();
+
+  /**
+   * @return The Y8950 clock rate in hz, if any
+   */
+
+  OptionalLong chipY8950Clock();
+
+  /**
+   * @return The YMF262 clock rate in hz, if any
+   */
+
+  OptionalLong chipYMF262Clock();
+
+  /**
+   * @return The YMF278B clock rate in hz, if any
+   */
+
+  OptionalLong chipYMF278BClock();
+
+  /**
+   * @return The YMF271 clock rate in hz, if any
+   */
+
+  OptionalLong chipYMF271Clock();
+
+  /**
+   * @return The YMZ280B clock rate in hz, if any
+   */
+
+  OptionalLong chipYMZ280BClock();
+
+  /**
+   * @return The RF5C164 clock rate in hz, if any
+   */
+
+  OptionalLong chipRF5C164Clock();
+
+  /**
+   * @return The PWM clock rate in hz, if any
+   */
+
+  OptionalLong chipPWMClock();
+
+  /**
+   * @return The AY8910 clock rate in hz, if any
+   */
+
+  OptionalLong chipAY8910Clock();
+
+  /**
+   * @return The AY8910 chip type
+   */
+
+  @Value.Default
+  default int chipAY8910Type()
+  {
+    return 0;
+  }
+
+  /**
+   * @return Misc flags for the AY8910
+   */
+
+  @Value.Default
+  default int chipAY8910Flags()
+  {
+    return 0;
+  }
+
+  /**
+   * @return Misc flags for the AY8910 within the YM2203
+   */
+
+  @Value.Default
+  default int chipYM2203AY8910Flags()
+  {
+    return 0;
+  }
+
+  /**
+   * @return Misc flags for the AY8910 within the YM2608
+   */
+
+  @Value.Default
+  default int chipYM2608AY8910Flags()
+  {
+    return 0;
+  }
+
+  /**
+   * @return The raw volume modifier
+   */
+
+  @Value.Default
+  default int volumeModifier()
+  {
+    return 0;
+  }
+
+  /**
+   * @return The loop base, as a signed value
+   */
+
+  @Value.Default
+  default int loopBase()
+  {
+    return 0;
+  }
+
+  /**
+   * @return The raw loop modifier
+   */
+
+  @Value.Default
+  default int loopModifier()
+  {
+    return 0;
+  }
+
+  /**
+   * @return The GameBoy DMG clock rate in hz, if any
+   */
+
+  OptionalLong chipGameBoyDMGClock();
+
+  /**
+   * @return The NES APU clock rate in hz, if any
+   */
+
+  OptionalLong chipNESAPUClock();
+
+  /**
+   * @return The MultiPCM clock rate in hz, if any
+   */
+
+  OptionalLong chipMultiPCMClock();
+
+  /**
+   * @return The uPD7759 clock rate in hz, if any
+   */
+
+  OptionalLong chipUPD7759Clock();
+
+  /**
+   * @return The OKIM6258 clock rate in hz, if any
+   */
+
+  OptionalLong chipOKIM6258Clock();
+
+  /**
+   * @return Misc flags for the OKIM6258
+   */
+
+  @Value.Default
+  default int chipOKIM6258Flags()
+  {
+    return 0;
+  }
+
+  /**
+   * @return Misc flags for the K054539
+   */
+
+  @Value.Default
+  default int chipK054539Flags()
+  {
+    return 0;
+  }
+
+  /**
+   * @return The C140 chip type
+   */
+
+  @Value.Default
+  default int chipC140Type()
+  {
+    return 0;
+  }
+
+  /**
+   * @return The OKIM6295 clock rate in hz, if any
+   */
+
+  OptionalLong chipOKIM6295Clock();
+
+  /**
+   * @return The K051649 clock rate in hz, if any
+   */
+
+  OptionalLong chipK051649Clock();
+
+  /**
+   * @return The K054539 clock rate in hz, if any
+   */
+
+  OptionalLong chipK054539Clock();
+
+  /**
+   * @return The HuC6280 clock rate in hz, if any
+   */
+
+  OptionalLong chipHuC6280Clock();
+
+  /**
+   * @return The C140 clock rate in hz, if any
+   */
+
+  OptionalLong chipC140Clock();
+
+  /**
+   * @return The K053260 clock rate in hz, if any
+   */
+
+  OptionalLong chipK053260Clock();
+
+  /**
+   * @return The Pokey clock rate in hz, if any
+   */
+
+  OptionalLong chipPokeyClock();
+
+  /**
+   * @return The QSound clock rate in hz, if any
+   */
+
+  OptionalLong chipQSoundClock();
+
+  /**
+   * @return The SCSP clock rate in hz, if any
+   */
+
+  OptionalLong chipSCSPClock();
+
+  /**
+   * @return The absolute offset of the extra header, if any
+   */
+
+  OptionalLong extraHeaderOffset();
+
+  /**
+   * @return The WonderSwan clock rate in hz, if any
+   */
+
+  OptionalLong chipWonderSwanClock();
+
+  /**
+   * @return The VSU clock rate in hz, if any
+   */
+
+  OptionalLong chipVSUClock();
+
+  /**
+   * @return The SAA1099 clock rate in hz, if any
+   */
+
+  OptionalLong chipSAA1099Clock();
+
+  /**
+   * @return The ES5503 clock rate in hz, if any
+   */
+
+  OptionalLong chipES5503Clock();
+
+  /**
+   * @return The ES5505/ES5506 clock rate in hz, if any
+   */
+
+  OptionalLong chipES5506Clock();
+
+  /**
+   * @return The number of output channels for the ES5503
+   */
+
+  @Value.Default
+  default int chipES5503Channels()
+  {
+    return 0;
+  }
+
+  /**
+   * @return The number of output channels for the ES5505/ES5506
+   */
+
+  @Value.Default
+  default int chipES5506Channels()
+  {
+    return 0;
+  }
+
+  /**
+   * @return The C352 clock divider
+   */
+
+  @Value.Default
+  default int chipC352ClockDivider()
+  {
+    return 0;
+  }
+
+  /**
+   * @return The X1-010 clock rate in hz, if any
+   */
+
+  OptionalLong chipX1010Clock();
+
+  /**
+   * @return The C352 clock rate in hz, if any
+   */
+
+  OptionalLong chipC352Clock();
+
+  /**
+   * @return The GA20 clock rate in hz, if any
+   */
+
+  OptionalLong chipGA20Clock();
+
+  /**
+   * @return The Mikey clock rate in hz, if any
+   */
+
+  OptionalLong chipMikeyClock();
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.interpreter.sn76489;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import org.immutables.value.Value;
+
+/**
+ * The configuration of an SN76489 PSG. The defaults match the PSG of the
+ * Sega Master System and Mega Drive, and the values correspond to the
+ * SN76489 fields of a VGM header.
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface VGMSN76489ConfigurationType
+{
+  /**
+   * The usual clock rate of the SN76489 in NTSC systems.
+   */
+
+  int CLOCK_NTSC = 3579545;
+
+  /**
+   * The flag that indicates that a tone period of {@code 0} is treated as
+   * a period of {@code 0x400}.
+   */
+
+  int FLAG_FREQUENCY_ZERO_IS_MAXIMUM = 0b0001;
+
+  /**
+   * The flag that indicates that the output is inverted.
+   */
+
+  int FLAG_OUTPUT_NEGATE = 0b0010;
+
+  /**
+   * The flag that indicates that Game Gear stereo is <i>not</i> available.
+   */
+
+  int FLAG_STEREO_DISABLED = 0b0100;
+
+  /**
+   * The flag that indicates that the {@code /8} clock divider is
+   * <i>not</i> present.
+   */
+
+  int FLAG_CLOCK_DIVIDER_DISABLED = 0b1000;
+
+  /**
+   * @return The chip clock rate in Hz
+   */
+
+  @Value.Parameter
+  @Value.Default
+  default int clock()
+  {
+    return CLOCK_NTSC;
+  }
+
+  /**
+   * @return The white noise feedback pattern (the bits of the shift register
+   * that are tapped)
+   */
+
+  @Value.Default
+  default int feedback()
+  {
+    return 0x0009;
+  }
+
+  /**
+   * @return The width of the noise shift register in bits
+   */
+
+  @Value.Default
+  default int shiftRegisterWidth()
+  {
+    return 16;
+  }
+
+  /**
+   * @return The chip flags, as stored in a VGM header
+   */
+
+  @Value.Default
+  default int flags()
+  {
+    return 0;
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    final int clock = this.clock();
+    if (clock <= 0) {
+      throw new IllegalArgumentException(
+        "Clock must be positive (received " + clock + ")");
+    }
+
+    final int width = this.shiftRegisterWidth();
+    if (width < 1 || width > 30) {
+      throw new IllegalArgumentException(
+        "Shift register width must be in the range [1, 30] (received "
+          + width + ")");
+    }
+  }
+}
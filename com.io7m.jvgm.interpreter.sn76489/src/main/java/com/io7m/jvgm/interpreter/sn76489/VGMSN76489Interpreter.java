@@ -0,0 +1,232 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.interpreter.sn76489;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+
+/**
+ * <p>An SN76489 interpreter. The interpreter tracks the register state of
+ * the chip.</p>
+ *
+ * <p>The chip has eight registers, written through a single port. A byte
+ * with bit 7 set latches a register and writes the low four bits of its
+ * value. A byte with bit 7 clear writes to the latched register: It sets
+ * the high six bits of a tone period, or replaces the value of any other
+ * register. Writes do not allocate.</p>
+ */
+
+public final class VGMSN76489Interpreter
+{
+  /**
+   * The number of channels (three tone channels and one noise channel).
+   */
+
+  public static final int CHANNELS = 4;
+
+  /**
+   * The index of the noise channel.
+   */
+
+  public static final int NOISE_CHANNEL = 3;
+
+  /**
+   * The register that holds the noise control bits.
+   */
+
+  public static final int REGISTER_NOISE = 6;
+
+  private static final Logger LOG =
+    LoggerFactory.getLogger(VGMSN76489Interpreter.class);
+
+  private final int[] periods;
+  private final int[] attenuations;
+  private int noise;
+  private int stereo;
+  private int latched;
+
+  /**
+   * Construct an interpreter in the power-on state.
+   */
+
+  public VGMSN76489Interpreter()
+  {
+    this.periods = new int[CHANNELS - 1];
+    this.attenuations = new int[CHANNELS];
+    this.reset();
+  }
+
+  private static void checkChannel(
+    final int channel)
+  {
+    if (channel < 0 || channel >= CHANNELS) {
+      throw new IllegalArgumentException("Illegal channel index: " + channel);
+    }
+  }
+
+  /**
+   * Reset the interpreter to the power-on state: All channels are silent,
+   * all periods are zero, and all channels are routed to both outputs.
+   */
+
+  public void reset()
+  {
+    Arrays.fill(this.periods, 0);
+    Arrays.fill(this.attenuations, 0xf);
+    this.noise = 0;
+    this.stereo = 0xff;
+    this.latched = 0;
+  }
+
+  /**
+   * Write a byte to the chip.
+   *
+   * @param value The byte (in the range {@code [0x0, 0xff]})
+   *
+   * @return The register that was written (in the range {@code [0, 7]})
+   */
+
+  public int write(
+    final int value)
+  {
+    final int register;
+    if ((value & 0x80) != 0) {
+      register = (value >>> 4) & 0b111;
+      this.latched = register;
+      this.writeLow(register, value & 0xf);
+    } else {
+      register = this.latched;
+      this.writeHigh(register, value);
+    }
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+        "write: 0x{} register {}",
+        Integer.toUnsignedString(value & 0xff, 16),
+        Integer.valueOf(register));
+    }
+    return register;
+  }
+
+  private void writeLow(
+    final int register,
+    final int data)
+  {
+    final int channel = register >>> 1;
+    if ((register & 1) != 0) {
+      this.attenuations[channel] = data;
+    } else if (register == REGISTER_NOISE) {
+      this.noise = data & 0b111;
+    } else {
+      this.periods[channel] = (this.periods[channel] & 0x3f0) | data;
+    }
+  }
+
+  private void writeHigh(
+    final int register,
+    final int value)
+  {
+    final int channel = register >>> 1;
+    if ((register & 1) != 0) {
+      this.attenuations[channel] = value & 0xf;
+    } else if (register == REGISTER_NOISE) {
+      this.noise = value & 0b111;
+    } else {
+      this.periods[channel] =
+        (this.periods[channel] & 0xf) | ((value & 0x3f) << 4);
+    }
+  }
+
+  /**
+   * Write the Game Gear stereo register. Bit {@code n} enables channel
+   * {@code n} on the right output, and bit {@code n + 4} enables channel
+   * {@code n} on the left output.
+   *
+   * @param value The byte (in the range {@code [0x0, 0xff]})
+   */
+
+  public void writeStereo(
+    final int value)
+  {
+    this.stereo = value & 0xff;
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+        "writeStereo: 0x{}",
+        Integer.toUnsignedString(this.stereo, 16));
+    }
+  }
+
+  /**
+   * @param channel The tone channel (in the range {@code [0, 2]})
+   *
+   * @return The 10-bit period of the given tone channel
+   */
+
+  public int tonePeriod(
+    final int channel)
+  {
+    if (channel < 0 || channel >= NOISE_CHANNEL) {
+      throw new IllegalArgumentException("Illegal tone channel index: " + channel);
+    }
+    return this.periods[channel];
+  }
+
+  /**
+   * @param channel The channel (in the range {@code [0, 3]})
+   *
+   * @return The 4-bit attenuation of the given channel, where {@code 0xf}
+   * is silent
+   */
+
+  public int attenuation(
+    final int channel)
+  {
+    checkChannel(channel);
+    return this.attenuations[channel];
+  }
+
+  /**
+   * @return The 3-bit noise control value: Bit 2 selects white noise, and
+   * bits {@code [0, 1]} select the shift rate
+   */
+
+  public int noiseControl()
+  {
+    return this.noise;
+  }
+
+  /**
+   * @return The Game Gear stereo register
+   */
+
+  public int stereo()
+  {
+    return this.stereo;
+  }
+
+  /**
+   * @return The currently latched register (in the range {@code [0, 7]})
+   */
+
+  public int latchedRegister()
+  {
+    return this.latched;
+  }
+}
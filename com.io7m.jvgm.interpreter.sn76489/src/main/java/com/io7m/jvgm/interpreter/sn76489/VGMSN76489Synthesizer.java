@@ -0,0 +1,332 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.interpreter.sn76489;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import static com.io7m.jvgm.interpreter.sn76489.VGMSN76489ConfigurationType.FLAG_CLOCK_DIVIDER_DISABLED;
+import static com.io7m.jvgm.interpreter.sn76489.VGMSN76489ConfigurationType.FLAG_FREQUENCY_ZERO_IS_MAXIMUM;
+import static com.io7m.jvgm.interpreter.sn76489.VGMSN76489ConfigurationType.FLAG_OUTPUT_NEGATE;
+import static com.io7m.jvgm.interpreter.sn76489.VGMSN76489ConfigurationType.FLAG_STEREO_DISABLED;
+import static com.io7m.jvgm.interpreter.sn76489.VGMSN76489Interpreter.CHANNELS;
+import static com.io7m.jvgm.interpreter.sn76489.VGMSN76489Interpreter.NOISE_CHANNEL;
+import static com.io7m.jvgm.interpreter.sn76489.VGMSN76489Interpreter.REGISTER_NOISE;
+
+/**
+ * <p>An SN76489 PSG synthesizer.</p>
+ *
+ * <p>The synthesizer owns a {@link VGMSN76489Interpreter}, and all writes
+ * must be made through {@link #write(int)} and {@link #writeStereo(int)}
+ * so that noise register writes reset the noise shift register.</p>
+ *
+ * <p>The tone and noise counters are advanced once per chip cycle (every
+ * 16 input clocks, or every 2 input clocks if the clock divider is
+ * disabled), and each output sample is the average of the chip output over
+ * the cycles that it spans. Rendering is performed with integer arithmetic
+ * only, and does not allocate.</p>
+ */
+
+public final class VGMSN76489Synthesizer
+{
+  /*
+   * The amplitude of each attenuation value: Each step is 2dB, and the
+   * maximum amplitude allows all four channels to be summed without
+   * exceeding the range of a 16-bit sample.
+   */
+
+  private static final int[] VOLUMES = {
+    8191, 6506, 5168, 4105, 3261, 2590, 2057, 1634,
+    1298, 1031, 819, 651, 517, 411, 326, 0,
+  };
+
+  private final VGMSN76489Interpreter interpreter;
+  private final VGMSN76489Configuration configuration;
+  private final int sample_rate;
+  private final long cycle_cost;
+  private final boolean frequency_zero_is_maximum;
+  private final boolean stereo_enabled;
+  private final int polarity;
+  private final int lfsr_reset;
+  private final int lfsr_feedback_shift;
+
+  private final int[] tone_period = new int[NOISE_CHANNEL];
+  private final int[] tone_count = new int[NOISE_CHANNEL];
+  private final int[] tone_output = new int[NOISE_CHANNEL];
+  private final int[] tone_sum = new int[NOISE_CHANNEL];
+  private final int[] channel_volume = new int[CHANNELS];
+  private long cycle_accumulator;
+  private int noise_period;
+  private int noise_count;
+  private int noise_output;
+  private int noise_sum;
+  private int lfsr;
+
+  /**
+   * Construct a synthesizer.
+   *
+   * @param in_configuration The chip configuration
+   * @param in_sample_rate   The output sample rate in Hz
+   */
+
+  public VGMSN76489Synthesizer(
+    final VGMSN76489Configuration in_configuration,
+    final int in_sample_rate)
+  {
+    this.configuration =
+      Objects.requireNonNull(in_configuration, "configuration");
+
+    if (in_sample_rate <= 0) {
+      throw new IllegalArgumentException(
+        "Sample rate must be positive (received " + in_sample_rate + ")");
+    }
+
+    this.sample_rate = in_sample_rate;
+
+    final int flags = in_configuration.flags();
+    final long divider = (flags & FLAG_CLOCK_DIVIDER_DISABLED) != 0 ? 1L : 8L;
+    this.cycle_cost = 2L * divider * (long) in_sample_rate;
+    this.frequency_zero_is_maximum = (flags & FLAG_FREQUENCY_ZERO_IS_MAXIMUM) != 0;
+    this.stereo_enabled = (flags & FLAG_STEREO_DISABLED) == 0;
+    this.polarity = (flags & FLAG_OUTPUT_NEGATE) != 0 ? -1 : 1;
+    this.lfsr_feedback_shift = in_configuration.shiftRegisterWidth() - 1;
+    this.lfsr_reset = 1 << this.lfsr_feedback_shift;
+
+    this.interpreter = new VGMSN76489Interpreter();
+    this.reset();
+  }
+
+  /**
+   * @return The chip configuration
+   */
+
+  public VGMSN76489Configuration configuration()
+  {
+    return this.configuration;
+  }
+
+  /**
+   * @return The output sample rate in Hz
+   */
+
+  public int sampleRate()
+  {
+    return this.sample_rate;
+  }
+
+  /**
+   * Access the interpreter that holds the register state of the synthesizer.
+   * Writes must not be made directly to the returned interpreter.
+   *
+   * @return The interpreter
+   */
+
+  public VGMSN76489Interpreter interpreter()
+  {
+    return this.interpreter;
+  }
+
+  /**
+   * Reset the synthesizer to its power-on state.
+   */
+
+  public void reset()
+  {
+    this.interpreter.reset();
+    this.cycle_accumulator = 0L;
+    this.lfsr = this.lfsr_reset;
+    Arrays.fill(this.tone_count, 0);
+    Arrays.fill(this.tone_output, 1);
+    Arrays.fill(this.tone_sum, 0);
+    this.noise_count = 0;
+    this.noise_output = -1;
+    this.noise_sum = 0;
+    this.synchronize();
+  }
+
+  /**
+   * Write a byte to the chip.
+   *
+   * @param value The byte (in the range {@code [0x0, 0xff]})
+   */
+
+  public void write(
+    final int value)
+  {
+    final int register = this.interpreter.write(value);
+    if (register == REGISTER_NOISE) {
+      this.lfsr = this.lfsr_reset;
+      this.noise_output = -1;
+    }
+    this.synchronize();
+  }
+
+  /**
+   * Write the Game Gear stereo register. Writes are ignored if the chip
+   * configuration indicates that stereo is not available.
+   *
+   * @param value The byte (in the range {@code [0x0, 0xff]})
+   */
+
+  public void writeStereo(
+    final int value)
+  {
+    if (this.stereo_enabled) {
+      this.interpreter.writeStereo(value);
+    }
+  }
+
+  private int tonePeriod(
+    final int channel)
+  {
+    final int period = this.interpreter.tonePeriod(channel);
+    if (period == 0 && this.frequency_zero_is_maximum) {
+      return 0x400;
+    }
+    return period;
+  }
+
+  /*
+   * Decode the interpreter's registers. A tone period of 0 or 1 holds the
+   * tone output high, and the noise channel advances the shift register at
+   * half of the rate of the selected period.
+   */
+
+  private void synchronize()
+  {
+    for (int channel = 0; channel < NOISE_CHANNEL; ++channel) {
+      this.tone_period[channel] = this.tonePeriod(channel);
+    }
+
+    final int noise = this.interpreter.noiseControl();
+    if ((noise & 0b11) == 0b11) {
+      this.noise_period = Math.max(1, this.tonePeriod(NOISE_CHANNEL - 1)) << 1;
+    } else {
+      this.noise_period = 0x20 << (noise & 0b11);
+    }
+
+    for (int channel = 0; channel < CHANNELS; ++channel) {
+      this.channel_volume[channel] =
+        VOLUMES[this.interpreter.attenuation(channel)] * this.polarity;
+    }
+  }
+
+  private void cycleTones()
+  {
+    for (int channel = 0; channel < NOISE_CHANNEL; ++channel) {
+      final int period = this.tone_period[channel];
+      if (period <= 1) {
+        this.tone_output[channel] = 1;
+      } else {
+        final int count = this.tone_count[channel] - 1;
+        if (count <= 0) {
+          this.tone_count[channel] = period;
+          this.tone_output[channel] = -this.tone_output[channel];
+        } else {
+          this.tone_count[channel] = count;
+        }
+      }
+      this.tone_sum[channel] += this.tone_output[channel];
+    }
+  }
+
+  private int noiseVolume()
+  {
+    return this.channel_volume[this.channel_volume.length - 1];
+  }
+
+  private void cycleNoise()
+  {
+    final int count = this.noise_count - 1;
+    if (count <= 0) {
+      this.noise_count = this.noise_period;
+
+      final int bit;
+      if ((this.interpreter.noiseControl() & 0b100) != 0) {
+        bit = Integer.bitCount(this.lfsr & this.configuration.feedback()) & 1;
+      } else {
+        bit = this.lfsr & 1;
+      }
+      this.lfsr = (this.lfsr >>> 1) | (bit << this.lfsr_feedback_shift);
+      this.noise_output = (this.lfsr & 1) != 0 ? 1 : -1;
+    } else {
+      this.noise_count = count;
+    }
+    this.noise_sum += this.noise_output;
+  }
+
+  /**
+   * Render {@code frames} stereo frames into {@code output}, starting at
+   * {@code offset}. Each frame consists of a left and then a right signed
+   * 16-bit sample.
+   *
+   * @param output The output buffer
+   * @param offset The offset of the first sample in {@code output}
+   * @param frames The number of frames to render
+   */
+
+  public void render(
+    final short[] output,
+    final int offset,
+    final int frames)
+  {
+    Objects.requireNonNull(output, "output");
+    Objects.checkFromIndexSize(offset, frames * 2, output.length);
+
+    final long clock = (long) this.configuration.clock();
+    final int stereo = this.interpreter.stereo();
+
+    int position = offset;
+    for (int frame = 0; frame < frames; ++frame) {
+      this.cycle_accumulator += clock;
+      int cycles = 0;
+      while (this.cycle_accumulator >= this.cycle_cost) {
+        this.cycle_accumulator -= this.cycle_cost;
+        this.cycleTones();
+        this.cycleNoise();
+        ++cycles;
+      }
+
+      /*
+       * If the output rate exceeds the chip rate, the current output is
+       * held.
+       */
+
+      if (cycles == 0) {
+        System.arraycopy(this.tone_output, 0, this.tone_sum, 0, NOISE_CHANNEL);
+        this.noise_sum = this.noise_output;
+        cycles = 1;
+      }
+
+      final int noise_level = this.noise_sum * this.noiseVolume();
+      this.noise_sum = 0;
+
+      int left = ((stereo >>> (NOISE_CHANNEL + 4)) & 1) * noise_level;
+      int right = ((stereo >>> NOISE_CHANNEL) & 1) * noise_level;
+      for (int channel = 0; channel < NOISE_CHANNEL; ++channel) {
+        final int level = this.tone_sum[channel] * this.channel_volume[channel];
+        this.tone_sum[channel] = 0;
+        left += ((stereo >>> (channel + 4)) & 1) * level;
+        right += ((stereo >>> channel) & 1) * level;
+      }
+
+      output[position] = (short) (left / cycles);
+      output[position + 1] = (short) (right / cycles);
+      position += 2;
+    }
+  }
+}
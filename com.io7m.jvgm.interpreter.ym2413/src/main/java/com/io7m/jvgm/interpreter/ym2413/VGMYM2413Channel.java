@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.interpreter.ym2413;
+
+import java.util.Objects;
+
+/**
+ * A channel. A channel is a view over the state of an interpreter, and holds
+ * no state of its own.
+ */
+
+public final class VGMYM2413Channel
+{
+  private final int index;
+  private final VGMYM2413Registers registers;
+
+  VGMYM2413Channel(
+    final VGMYM2413Registers in_registers,
+    final int in_index)
+  {
+    this.registers = Objects.requireNonNull(in_registers, "registers");
+    this.index = in_index;
+  }
+
+  private int register(
+    final int base)
+  {
+    return this.registers.get(base + this.index);
+  }
+
+  /**
+   * @return The channel index
+   */
+
+  public int index()
+  {
+    return this.index;
+  }
+
+  /**
+   * @return {@code true} iff the channel is currently playing a rhythm
+   * instrument
+   */
+
+  public boolean isRhythm()
+  {
+    return this.index >= VGMYM2413Interpreter.RHYTHM_CHANNEL_FIRST
+      && this.registers.isRhythmMode();
+  }
+
+  /**
+   * @return The patch played by the channel, including the rhythm patches
+   *
+   * @see VGMYM2413Instruments
+   */
+
+  public int instrument()
+  {
+    if (this.isRhythm()) {
+      return VGMYM2413Instruments.RHYTHM_BASS_DRUM
+        + (this.index - VGMYM2413Interpreter.RHYTHM_CHANNEL_FIRST);
+    }
+    return (this.register(VGMYM2413Registers.CHANNEL_INSTRUMENT_VOLUME) >>> 4) & 0b1111;
+  }
+
+  /**
+   * @return The (inverse) volume of the channel in 3dB steps. In rhythm mode,
+   * this is the volume of the carrier (the bass drum, snare drum, or top
+   * cymbal).
+   */
+
+  public int volume()
+  {
+    return this.register(VGMYM2413Registers.CHANNEL_INSTRUMENT_VOLUME) & 0b1111;
+  }
+
+  /**
+   * @return The 9-bit frequency number
+   */
+
+  public int frequencyNumber()
+  {
+    return this.register(VGMYM2413Registers.CHANNEL_FREQUENCY_LSB)
+      | ((this.register(VGMYM2413Registers.CHANNEL_FREQUENCY_MSB) & 0b1) << 8);
+  }
+
+  /**
+   * @return The block (octave)
+   */
+
+  public int block()
+  {
+    return (this.register(VGMYM2413Registers.CHANNEL_FREQUENCY_MSB) >>> 1) & 0b111;
+  }
+
+  /**
+   * @return {@code true} iff the channel is keyed on (excluding rhythm keys)
+   */
+
+  public boolean isKeyOn()
+  {
+    return (this.register(VGMYM2413Registers.CHANNEL_FREQUENCY_MSB) & VGMYM2413Registers.KEY_ON) != 0;
+  }
+
+  /**
+   * @return {@code true} iff the channel sustain flag is set
+   */
+
+  public boolean isSustainOn()
+  {
+    return (this.register(VGMYM2413Registers.CHANNEL_FREQUENCY_MSB) & 0b10_0000) != 0;
+  }
+
+  /**
+   * @return The packed patch played by the channel
+   *
+   * @see VGMYM2413Instruments#patchByte(long, int)
+   */
+
+  public long patch()
+  {
+    final int instrument = this.instrument();
+    if (instrument == VGMYM2413Instruments.USER) {
+      return this.registers.userPatch();
+    }
+    return VGMYM2413Instruments.patch(instrument);
+  }
+
+  /**
+   * @return The total level of the modulator in 0.75dB steps. In rhythm mode,
+   * the modulators of channels 7 and 8 (the high hat and tom-tom) take their
+   * level from the upper half of the instrument register.
+   */
+
+  public int modulatorTotalLevel()
+  {
+    if (this.index > VGMYM2413Interpreter.RHYTHM_CHANNEL_FIRST && this.isRhythm()) {
+      return ((this.register(VGMYM2413Registers.CHANNEL_INSTRUMENT_VOLUME) >>> 4) & 0b1111) << 2;
+    }
+    return VGMYM2413Instruments.patchByte(this.patch(), 2) & 0b11_1111;
+  }
+
+  /**
+   * @return A snapshot of the current channel state
+   */
+
+  public VGMYM2413ChannelSnapshot snapshot()
+  {
+    final long word = this.patch();
+    final int volume = this.volume();
+    return VGMYM2413ChannelSnapshot.builder()
+      .setIndex(this.index)
+      .setInstrument(this.instrument())
+      .setVolume(volume)
+      .setFeedback(VGMYM2413Instruments.patchByte(word, 3) & 0b111)
+      .setModulator(operator(word, 0, this.modulatorTotalLevel()))
+      .setCarrier(operator(word, 1, volume << 2))
+      .build();
+  }
+
+  private static VGMYM2413OperatorSnapshot operator(
+    final long word,
+    final int operator,
+    final int total_level)
+  {
+    final int mode = VGMYM2413Instruments.patchByte(word, operator);
+    final int ksl = VGMYM2413Instruments.patchByte(word, 2 + operator);
+    final int wave = VGMYM2413Instruments.patchByte(word, 3);
+    final int rates = VGMYM2413Instruments.patchByte(word, 4 + operator);
+    final int levels = VGMYM2413Instruments.patchByte(word, 6 + operator);
+
+    return VGMYM2413OperatorSnapshot.builder()
+      .setIndex(operator)
+      .setAmplitudeModulation((mode & 0b1000_0000) != 0)
+      .setVibrato((mode & 0b0100_0000) != 0)
+      .setSustained((mode & 0b0010_0000) != 0)
+      .setKeyScaleRate((mode & 0b0001_0000) != 0)
+      .setPitchMultiply(mode & 0b1111)
+      .setKeyScaleLevel((ksl >>> 6) & 0b11)
+      .setTotalLevel(total_level)
+      .setRectified((wave & (0b1000 << operator)) != 0)
+      .setEnvelopeAttackRate((rates >>> 4) & 0b1111)
+      .setEnvelopeDecayRate(rates & 0b1111)
+      .setEnvelopeSustainLevel((levels >>> 4) & 0b1111)
+      .setEnvelopeReleaseRate(levels & 0b1111)
+      .build();
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.interpreter.ym2413;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import org.immutables.value.Value;
+
+/**
+ * A snapshot of a channel.
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface VGMYM2413ChannelSnapshotType
+{
+  /**
+   * @return The channel index
+   */
+
+  int index();
+
+  /**
+   * @return The instrument (patch) number, where {@code 0} is the user
+   * instrument, {@code [1, 15]} are the built-in instruments, and
+   * {@code [16, 18]} are the rhythm instruments
+   *
+   * @see VGMYM2413Instruments
+   */
+
+  int instrument();
+
+  /**
+   * @return The (inverse) channel volume in 3dB steps
+   */
+
+  int volume();
+
+  /**
+   * @return The modulator feedback amount
+   */
+
+  int feedback();
+
+  /**
+   * @return The modulator
+   */
+
+  VGMYM2413OperatorSnapshot modulator();
+
+  /**
+   * @return The carrier
+   */
+
+  VGMYM2413OperatorSnapshot carrier();
+}
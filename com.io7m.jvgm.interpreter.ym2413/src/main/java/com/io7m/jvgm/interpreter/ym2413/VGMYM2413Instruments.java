@@ -0,0 +1,178 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.interpreter.ym2413;
+
+import com.io7m.junreachable.UnreachableCodeException;
+
+/**
+ * The instrument patches built into the YM2413. Each patch is the eight bytes
+ * that would otherwise be written to registers {@code [0x00, 0x07]} to define
+ * the user instrument, packed into a {@code long} such that byte {@code n} of
+ * the patch occupies bits {@code [n * 8, (n * 8) + 7]}.
+ *
+ * The chip does not expose its instrument ROM, so the values here are those of
+ * the widely used dump of the YM2413 tone set (with the rhythm patches taken
+ * from the closely related VRC7).
+ */
+
+public final class VGMYM2413Instruments
+{
+  /**
+   * The number of instruments selectable in the instrument register.
+   */
+
+  public static final int MELODIC_INSTRUMENTS = 16;
+
+  /**
+   * The user-defined instrument.
+   */
+
+  public static final int USER = 0;
+
+  /**
+   * The bass drum rhythm patch (used by channel 6 in rhythm mode).
+   */
+
+  public static final int RHYTHM_BASS_DRUM = 16;
+
+  /**
+   * The high hat (modulator) and snare drum (carrier) rhythm patch (used by
+   * channel 7 in rhythm mode).
+   */
+
+  public static final int RHYTHM_HIGH_HAT_SNARE_DRUM = 17;
+
+  /**
+   * The tom-tom (modulator) and top cymbal (carrier) rhythm patch (used by
+   * channel 8 in rhythm mode).
+   */
+
+  public static final int RHYTHM_TOM_TOM_TOP_CYMBAL = 18;
+
+  /**
+   * The total number of patches, including the user patch.
+   */
+
+  public static final int PATCHES = 19;
+
+  private static final long[] ROM = {
+    pack(0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00),
+    pack(0x71, 0x61, 0x1e, 0x17, 0xd0, 0x78, 0x00, 0x17),
+    pack(0x13, 0x41, 0x1a, 0x0d, 0xd8, 0xf7, 0x23, 0x13),
+    pack(0x13, 0x01, 0x99, 0x00, 0xf2, 0xc4, 0x21, 0x23),
+    pack(0x11, 0x61, 0x0e, 0x07, 0x8d, 0x64, 0x70, 0x27),
+    pack(0x32, 0x21, 0x1e, 0x06, 0xe1, 0x76, 0x01, 0x28),
+    pack(0x31, 0x22, 0x16, 0x05, 0xe0, 0x71, 0x00, 0x18),
+    pack(0x21, 0x61, 0x1d, 0x07, 0x82, 0x81, 0x11, 0x07),
+    pack(0x33, 0x21, 0x2d, 0x13, 0xb0, 0x70, 0x00, 0x07),
+    pack(0x61, 0x61, 0x1b, 0x06, 0x64, 0x65, 0x10, 0x17),
+    pack(0x41, 0x61, 0x0b, 0x18, 0x85, 0xf0, 0x81, 0x07),
+    pack(0x33, 0x01, 0x83, 0x11, 0xea, 0xef, 0x10, 0x04),
+    pack(0x17, 0xc1, 0x24, 0x07, 0xf8, 0xf8, 0x22, 0x12),
+    pack(0x61, 0x50, 0x0c, 0x05, 0xd2, 0xf5, 0x40, 0x42),
+    pack(0x01, 0x01, 0x55, 0x03, 0xe9, 0x90, 0x03, 0x02),
+    pack(0x41, 0x41, 0x89, 0x03, 0xf1, 0xe4, 0xc0, 0x13),
+    pack(0x01, 0x01, 0x18, 0x0f, 0xdf, 0xf8, 0x6a, 0x6d),
+    pack(0x01, 0x01, 0x00, 0x00, 0xc8, 0xd8, 0xa7, 0x68),
+    pack(0x05, 0x01, 0x00, 0x00, 0xf8, 0xaa, 0x59, 0x55),
+  };
+
+  private static final String[] NAMES = {
+    "User",
+    "Violin",
+    "Guitar",
+    "Piano",
+    "Flute",
+    "Clarinet",
+    "Oboe",
+    "Trumpet",
+    "Organ",
+    "Horn",
+    "Synthesizer",
+    "Harpsichord",
+    "Vibraphone",
+    "Synthesizer Bass",
+    "Acoustic Bass",
+    "Electric Guitar",
+    "Bass Drum",
+    "High Hat/Snare Drum",
+    "Tom-tom/Top Cymbal",
+  };
+
+  private VGMYM2413Instruments()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  private static long pack(
+    final int... bytes)
+  {
+    long word = 0L;
+    for (int index = bytes.length - 1; index >= 0; --index) {
+      word = (word << 8) | (long) bytes[index];
+    }
+    return word;
+  }
+
+  private static void checkPatch(
+    final int patch)
+  {
+    if (patch < 0 || patch >= PATCHES) {
+      throw new IllegalArgumentException("Illegal patch index: " + patch);
+    }
+  }
+
+  /**
+   * @param patch The patch index in the range {@code [0, 18]}
+   *
+   * @return The packed built-in patch (always zero for the user patch)
+   */
+
+  public static long patch(
+    final int patch)
+  {
+    checkPatch(patch);
+    return ROM[patch];
+  }
+
+  /**
+   * @param patch The patch index in the range {@code [0, 18]}
+   *
+   * @return The name of the patch
+   */
+
+  public static String name(
+    final int patch)
+  {
+    checkPatch(patch);
+    return NAMES[patch];
+  }
+
+  /**
+   * @param word  A packed patch
+   * @param index The byte index in the range {@code [0, 7]}
+   *
+   * @return The given byte of the packed patch
+   */
+
+  public static int patchByte(
+    final long word,
+    final int index)
+  {
+    return (int) (word >>> ((index & 0b111) * 8)) & 0xff;
+  }
+}
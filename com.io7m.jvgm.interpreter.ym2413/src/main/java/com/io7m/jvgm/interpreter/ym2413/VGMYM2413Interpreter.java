@@ -0,0 +1,339 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.interpreter.ym2413;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+
+import static com.io7m.jvgm.interpreter.ym2413.VGMYM2413Registers.CHANNEL_FREQUENCY_MSB;
+import static com.io7m.jvgm.interpreter.ym2413.VGMYM2413Registers.CHANNEL_INSTRUMENT_VOLUME;
+import static com.io7m.jvgm.interpreter.ym2413.VGMYM2413Registers.KEY_ON;
+import static com.io7m.jvgm.interpreter.ym2413.VGMYM2413Registers.REGISTERS;
+import static com.io7m.jvgm.interpreter.ym2413.VGMYM2413Registers.RHYTHM;
+import static com.io7m.jvgm.interpreter.ym2413.VGMYM2413Registers.RHYTHM_MODE;
+import static com.io7m.jvgm.interpreter.ym2413.VGMYM2413Registers.USER_PATCH_LAST;
+
+/**
+ * A YM2413 (OPLL) state interpreter.
+ */
+
+public final class VGMYM2413Interpreter
+{
+  /**
+   * The number of melodic channels.
+   */
+
+  public static final int CHANNELS = 9;
+
+  /**
+   * The first of the three channels that play rhythm instruments in rhythm
+   * mode.
+   */
+
+  public static final int RHYTHM_CHANNEL_FIRST = 6;
+
+  /**
+   * The rhythm key bit for the bass drum.
+   */
+
+  public static final int RHYTHM_BASS_DRUM = 0b1_0000;
+
+  /**
+   * The rhythm key bit for the snare drum.
+   */
+
+  public static final int RHYTHM_SNARE_DRUM = 0b0_1000;
+
+  /**
+   * The rhythm key bit for the tom-tom.
+   */
+
+  public static final int RHYTHM_TOM_TOM = 0b0_0100;
+
+  /**
+   * The rhythm key bit for the top cymbal.
+   */
+
+  public static final int RHYTHM_TOP_CYMBAL = 0b0_0010;
+
+  /**
+   * The rhythm key bit for the high hat.
+   */
+
+  public static final int RHYTHM_HIGH_HAT = 0b0_0001;
+
+  private static final int RHYTHM_CHANNELS_MASK = 0b111 << RHYTHM_CHANNEL_FIRST;
+  private static final int ALL_CHANNELS_MASK = (1 << CHANNELS) - 1;
+
+  private static final Logger LOG =
+    LoggerFactory.getLogger(VGMYM2413Interpreter.class);
+
+  private final VGMYM2413OnInstructionReceivedType on_instruction;
+  private final VGMYM2413Channel[] channels;
+  private final VGMYM2413Registers registers;
+  private int dirty_channels;
+  private int keyed_channels;
+
+  /**
+   * Construct an interpreter.
+   *
+   * @param in_callbacks The callbacks
+   */
+
+  public VGMYM2413Interpreter(
+    final VGMYM2413Callbacks in_callbacks)
+  {
+    Objects.requireNonNull(in_callbacks, "callbacks");
+    this.on_instruction = in_callbacks.onInstructionReceived();
+
+    this.registers = new VGMYM2413Registers();
+    this.channels = new VGMYM2413Channel[CHANNELS];
+    for (int index = 0; index < CHANNELS; ++index) {
+      this.channels[index] = new VGMYM2413Channel(this.registers, index);
+    }
+    this.dirty_channels = ALL_CHANNELS_MASK;
+  }
+
+  /**
+   * @param in_index The channel index
+   *
+   * @return The channel with the given index
+   */
+
+  public VGMYM2413Channel channel(
+    final int in_index)
+  {
+    if (in_index < 0 || in_index >= this.channels.length) {
+      throw new IllegalArgumentException("Illegal channel index: " + in_index);
+    }
+    return this.channels[in_index];
+  }
+
+  /**
+   * @param register The register (in the range {@code [0x0, 0x3f]})
+   *
+   * @return The value most recently written to {@code register}
+   */
+
+  public int register(
+    final int register)
+  {
+    return this.registers.get(register);
+  }
+
+  /**
+   * @return {@code true} iff rhythm mode is enabled
+   */
+
+  public boolean isRhythmMode()
+  {
+    return this.registers.isRhythmMode();
+  }
+
+  /**
+   * @return The rhythm key bits (such as {@link #RHYTHM_BASS_DRUM})
+   */
+
+  public int rhythmKeys()
+  {
+    return this.registers.get(RHYTHM) & 0b1_1111;
+  }
+
+  /**
+   * @return The packed user patch
+   *
+   * @see VGMYM2413Instruments#patchByte(long, int)
+   */
+
+  public long userPatch()
+  {
+    return this.registers.userPatch();
+  }
+
+  /**
+   * @return A mask of the channels whose preset (patch, instrument, volume,
+   * or rhythm mode) has changed since they were last acknowledged, where bit
+   * {@code n} represents channel {@code n}
+   */
+
+  public int dirtyChannels()
+  {
+    return this.dirty_channels;
+  }
+
+  /**
+   * @return A mask of the channels that have been keyed on, or that have
+   * played rhythm instruments, since the interpreter was created or last
+   * reset, where bit {@code n} represents channel {@code n}
+   */
+
+  public int keyedChannels()
+  {
+    return this.keyed_channels;
+  }
+
+  /**
+   * Acknowledge all changes to the given channel.
+   *
+   * @param channel The channel index
+   */
+
+  public void acknowledge(
+    final int channel)
+  {
+    if (channel < 0 || channel >= CHANNELS) {
+      throw new IllegalArgumentException("Illegal channel index: " + channel);
+    }
+    this.dirty_channels &= ~(1 << channel);
+  }
+
+  /**
+   * Acknowledge all changes to all channels.
+   */
+
+  public void acknowledgeAll()
+  {
+    this.dirty_channels = 0;
+  }
+
+  /**
+   * Reset all registers to zero, mark every channel as changed, and mark
+   * every channel as not having been keyed on.
+   */
+
+  public void reset()
+  {
+    this.registers.clear();
+    this.dirty_channels = ALL_CHANNELS_MASK;
+    this.keyed_channels = 0;
+  }
+
+  /**
+   * Write {@code value} to {@code register}.
+   *
+   * @param register The register (in the range {@code [0x0, 0xff]})
+   * @param value    The value (in the range {@code [0x0, 0xff]})
+   */
+
+  public void writeRegister(
+    final int register,
+    final int value)
+  {
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+        "write: 0x{} 0x{}",
+        Integer.toUnsignedString(register, 16),
+        Integer.toUnsignedString(value, 16));
+    }
+
+    boolean preset_changed = false;
+    try {
+      preset_changed = this.dispatch(register & 0xff, value & 0xff);
+    } finally {
+      this.on_instruction.onInstructionReceived(this, preset_changed);
+    }
+  }
+
+  /**
+   * Store the value and mark the affected channels. Channels are marked only
+   * if the written value differs from the value previously held by the
+   * register.
+   *
+   * @return {@code true} iff the write changed the current preset
+   */
+
+  private boolean dispatch(
+    final int register,
+    final int value)
+  {
+    if (register >= REGISTERS) {
+      LOG.debug("unrecognized register: 0x{}", Integer.toUnsignedString(register, 16));
+      return false;
+    }
+
+    final int previous = this.registers.get(register);
+    this.registers.set(register, value);
+    final boolean changed = previous != value;
+
+    if (register <= USER_PATCH_LAST) {
+      if (changed) {
+        this.dirty_channels |= this.userPatchChannels();
+      }
+      return true;
+    }
+
+    if (register == RHYTHM) {
+      if ((value & RHYTHM_MODE) != 0) {
+        this.keyed_channels |= RHYTHM_CHANNELS_MASK;
+      }
+      final boolean mode_changed = ((previous ^ value) & RHYTHM_MODE) != 0;
+      if (mode_changed) {
+        this.dirty_channels |= RHYTHM_CHANNELS_MASK;
+      }
+      return mode_changed;
+    }
+
+    return this.dispatchChannel(register, value, changed);
+  }
+
+  /**
+   * Mark the channel affected by a write to a per-channel register.
+   *
+   * @return {@code true} iff the write changed the current preset
+   */
+
+  private boolean dispatchChannel(
+    final int register,
+    final int value,
+    final boolean changed)
+  {
+    final int channel = register & 0xf;
+    if (channel >= CHANNELS) {
+      LOG.debug("unrecognized register: 0x{}", Integer.toUnsignedString(register, 16));
+      return false;
+    }
+
+    if ((register & 0xf0) == CHANNEL_FREQUENCY_MSB) {
+      if ((value & KEY_ON) != 0) {
+        this.keyed_channels |= 1 << channel;
+      }
+      return false;
+    }
+
+    if ((register & 0xf0) == CHANNEL_INSTRUMENT_VOLUME) {
+      if (changed) {
+        this.dirty_channels |= 1 << channel;
+      }
+      return true;
+    }
+
+    return false;
+  }
+
+  private int userPatchChannels()
+  {
+    int mask = 0;
+    for (final VGMYM2413Channel channel : this.channels) {
+      if (channel.instrument() == VGMYM2413Instruments.USER) {
+        mask |= 1 << channel.index();
+      }
+    }
+    return mask;
+  }
+}
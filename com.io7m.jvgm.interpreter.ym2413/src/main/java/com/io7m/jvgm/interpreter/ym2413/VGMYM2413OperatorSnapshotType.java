@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.interpreter.ym2413;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import org.immutables.value.Value;
+
+/**
+ * A snapshot of an operator. Each channel has a modulator (operator
+ * {@code 0}) and a carrier (operator {@code 1}).
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface VGMYM2413OperatorSnapshotType
+{
+  /**
+   * @return The operator index
+   */
+
+  int index();
+
+  /**
+   * @return {@code true} iff the operator is subject to amplitude modulation
+   */
+
+  boolean amplitudeModulation();
+
+  /**
+   * @return {@code true} iff the operator is subject to vibrato
+   */
+
+  boolean vibrato();
+
+  /**
+   * @return {@code true} iff the envelope is sustained (rather than
+   * percussive)
+   */
+
+  boolean sustained();
+
+  /**
+   * @return {@code true} iff envelope rates are scaled by key
+   */
+
+  boolean keyScaleRate();
+
+  /**
+   * @return The frequency multiplication value
+   */
+
+  int pitchMultiply();
+
+  /**
+   * @return The key scale level
+   */
+
+  int keyScaleLevel();
+
+  /**
+   * @return The total level (attenuation) in 0.75dB steps. The total level of
+   * the carrier is derived from the channel volume.
+   */
+
+  int totalLevel();
+
+  /**
+   * @return {@code true} iff the operator uses a half-wave rectified sine
+   */
+
+  boolean rectified();
+
+  /**
+   * @return The attack rate
+   */
+
+  int envelopeAttackRate();
+
+  /**
+   * @return The decay rate
+   */
+
+  int envelopeDecayRate();
+
+  /**
+   * @return The sustain level
+   */
+
+  int envelopeSustainLevel();
+
+  /**
+   * @return The release rate
+   */
+
+  int envelopeReleaseRate();
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.interpreter.ym2413;
+
+import java.util.Arrays;
+
+/**
+ * The register shadow of an interpreter.
+ */
+
+final class VGMYM2413Registers
+{
+  static final int REGISTERS = 0x40;
+  static final int USER_PATCH_FIRST = 0x00;
+  static final int USER_PATCH_LAST = 0x07;
+  static final int RHYTHM = 0x0E;
+  static final int RHYTHM_MODE = 0b10_0000;
+  static final int CHANNEL_FREQUENCY_LSB = 0x10;
+  static final int CHANNEL_FREQUENCY_MSB = 0x20;
+  static final int CHANNEL_INSTRUMENT_VOLUME = 0x30;
+  static final int KEY_ON = 0b1_0000;
+
+  private final int[] values;
+
+  VGMYM2413Registers()
+  {
+    this.values = new int[REGISTERS];
+  }
+
+  int get(
+    final int register)
+  {
+    return this.values[register & (REGISTERS - 1)];
+  }
+
+  void set(
+    final int register,
+    final int value)
+  {
+    this.values[register & (REGISTERS - 1)] = value & 0xff;
+  }
+
+  void clear()
+  {
+    Arrays.fill(this.values, 0);
+  }
+
+  boolean isRhythmMode()
+  {
+    return (this.get(RHYTHM) & RHYTHM_MODE) != 0;
+  }
+
+  long userPatch()
+  {
+    long word = 0L;
+    for (int index = USER_PATCH_LAST; index >= USER_PATCH_FIRST; --index) {
+      word = (word << 8) | (long) this.values[index];
+    }
+    return word;
+  }
+}
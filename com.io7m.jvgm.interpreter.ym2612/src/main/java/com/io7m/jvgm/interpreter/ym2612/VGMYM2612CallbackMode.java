@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.interpreter.ym2612;
+
+/**
+ * The mode in which an interpreter delivers notifications.
+ */
+
+public enum VGMYM2612CallbackMode
+{
+  /**
+   * {@link VGMYM2612OnInstructionReceivedType} is called after every
+   * register write.
+   */
+
+  PER_INSTRUCTION,
+
+  /**
+   * {@link VGMYM2612OnTimeStepType} is called once for all of the register
+   * writes made between two advances of time.
+   *
+   * @see VGMYM2612Interpreter#advance(long)
+   */
+
+  PER_TIME_STEP
+}
@@ -39,4 +39,27 @@ public interface VGMYM2612CallbacksType
 
     };
   }
+
+  /**
+   * @return The mode in which notifications are delivered
+   */
+
+  @Value.Default
+  default VGMYM2612CallbackMode mode()
+  {
+    return VGMYM2612CallbackMode.PER_INSTRUCTION;
+  }
+
+  /**
+   * @return A callback to be called at the end of each time step in
+   * {@link VGMYM2612CallbackMode#PER_TIME_STEP} mode
+   */
+
+  @Value.Default
+  default VGMYM2612OnTimeStepType onTimeStep()
+  {
+    return (interpreter, step) -> {
+
+    };
+  }
 }
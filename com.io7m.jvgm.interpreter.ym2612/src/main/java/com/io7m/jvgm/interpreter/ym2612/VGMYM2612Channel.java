@@ -19,53 +19,44 @@ package com.io7m.jvgm.interpreter.ym2612;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.Objects;
-import java.util.Optional;
+
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.CHANNEL_ALGORITHM;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.CHANNEL_FEEDBACK;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.CHANNEL_FREQUENCY_LSB;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.CHANNEL_FREQUENCY_MSB;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.CHANNEL_FREQUENCY_OCTAVE;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.CHANNEL_LFO_AMPLITUDE_SENSITIVITY;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.CHANNEL_LFO_FREQUENCY_SENSITIVITY;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.CHANNEL_STEREO_LEFT;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.CHANNEL_STEREO_RIGHT;
 
 /**
- * A channel.
+ * A channel. A channel is a view over the state of an interpreter, and holds
+ * no state of its own.
  */
 
 public final class VGMYM2612Channel
 {
+  private static final Logger LOG =
+    LoggerFactory.getLogger(VGMYM2612Channel.class);
+
   private final int index;
-  private final HashMap<Integer, VGMYM2612Operator> operators;
-  private final Logger log;
-  private VGMYM2612Interpreter interpreter;
-  private int frequency_lsb;
-  private int frequency_msb;
-  private int frequency_octave;
-  private int feedback;
-  private int algorithm;
-  private boolean stereo_left_enabled;
-  private boolean stereo_right_enabled;
-  private int lfo_amplitude_sensitivity;
-  private int lfo_frequency_sensitivity;
+  private final VGMYM2612State state;
+  private final VGMYM2612Operator[] operators;
 
   VGMYM2612Channel(
-    final VGMYM2612Interpreter in_interpreter,
+    final VGMYM2612State in_state,
     final int in_index)
   {
-    this.interpreter =
-      Objects.requireNonNull(in_interpreter, "interpreter");
+    this.state = Objects.requireNonNull(in_state, "state");
     this.index = in_index;
 
-    this.operators = new HashMap<>(6);
-    for (int op_index = 0; op_index < 4; ++op_index) {
-      this.operators.put(
-        Integer.valueOf(op_index), new VGMYM2612Operator(
-          in_interpreter,
-          this, op_index));
+    this.operators = new VGMYM2612Operator[VGMYM2612State.OPERATORS];
+    for (int op_index = 0; op_index < VGMYM2612State.OPERATORS; ++op_index) {
+      this.operators[op_index] =
+        new VGMYM2612Operator(in_state, in_index, op_index);
     }
-
-    this.log = LoggerFactory.getLogger(
-      new StringBuilder(128)
-        .append(VGMYM2612Interpreter.class.getCanonicalName())
-        .append(" [channel ")
-        .append(this.index)
-        .append("]")
-        .toString());
   }
 
   /**
@@ -77,8 +68,10 @@ public final class VGMYM2612Channel
   public VGMYM2612Operator operator(
     final int in_index)
   {
-    return Optional.ofNullable(this.operators.get(Integer.valueOf(in_index)))
-      .orElseThrow(() -> new IllegalArgumentException("Invalid operator index: " + in_index));
+    if (in_index < 0 || in_index >= this.operators.length) {
+      throw new IllegalArgumentException("Invalid operator index: " + in_index);
+    }
+    return this.operators[in_index];
   }
 
   /**
@@ -98,11 +91,12 @@ public final class VGMYM2612Channel
 
   public void setFrequencyLSB(final int value)
   {
-    this.frequency_lsb = value;
+    this.state.setChannelField(CHANNEL_FREQUENCY_LSB, this.index, value);
 
-    if (this.log.isTraceEnabled()) {
-      this.log.trace(
-        "setFrequencyLSB: lsb 0x{}",
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+        "[channel {}] setFrequencyLSB: lsb 0x{}",
+        Integer.valueOf(this.index),
         Integer.toUnsignedString(value, 16));
     }
   }
@@ -116,14 +110,16 @@ public final class VGMYM2612Channel
   public void setFrequencyMSB(
     final int value)
   {
-    this.frequency_msb = value & 0b111;
-    this.frequency_octave = (value >>> 3) & 0b111;
-
-    if (this.log.isTraceEnabled()) {
-      this.log.trace(
-        "setFrequencyMSB: msb 0x{} octave {}",
+    final int octave = (value >>> 3) & 0b111;
+    this.state.setChannelField(CHANNEL_FREQUENCY_MSB, this.index, value & 0b111);
+    this.state.setChannelField(CHANNEL_FREQUENCY_OCTAVE, this.index, octave);
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+        "[channel {}] setFrequencyMSB: msb 0x{} octave {}",
+        Integer.valueOf(this.index),
         Integer.toUnsignedString(value, 16),
-        Integer.valueOf(this.frequency_octave));
+        Integer.valueOf(octave));
     }
   }
 
@@ -136,14 +132,17 @@ public final class VGMYM2612Channel
   public void setAlgorithmAndFeedback(
     final int value)
   {
-    this.feedback = (value >>> 3) & 0b111;
-    this.algorithm = value & 0b111;
-
-    if (this.log.isTraceEnabled()) {
-      this.log.trace(
-        "setAlgorithmAndFeedback: feedback {} algorithm {}",
-        Integer.valueOf(this.feedback),
-        Integer.valueOf(this.algorithm));
+    final int feedback = (value >>> 3) & 0b111;
+    final int algorithm = value & 0b111;
+    this.state.setChannelField(CHANNEL_FEEDBACK, this.index, feedback);
+    this.state.setChannelField(CHANNEL_ALGORITHM, this.index, algorithm);
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+        "[channel {}] setAlgorithmAndFeedback: feedback {} algorithm {}",
+        Integer.valueOf(this.index),
+        Integer.valueOf(feedback),
+        Integer.valueOf(algorithm));
     }
   }
 
@@ -156,18 +155,23 @@ public final class VGMYM2612Channel
   public void setStereoAndLFOSensitivity(
     final int value)
   {
-    this.stereo_left_enabled = ((value >>> 7) & 0b1) == 0b1;
-    this.stereo_right_enabled = ((value >>> 6) & 0b1) == 0b1;
-    this.lfo_amplitude_sensitivity = (value >>> 3) & 0b111;
-    this.lfo_frequency_sensitivity = value & 0b11;
-
-    if (this.log.isTraceEnabled()) {
-      this.log.trace(
-        "setStereoAndLFOSensitivity: L/R ({}/{}) amp-sensitivity {} freq-sensitivity {}",
-        Boolean.valueOf(this.stereo_left_enabled),
-        Boolean.valueOf(this.stereo_right_enabled),
-        Integer.valueOf(this.lfo_amplitude_sensitivity),
-        Integer.valueOf(this.lfo_frequency_sensitivity));
+    final int left = (value >>> 7) & 0b1;
+    final int right = (value >>> 6) & 0b1;
+    final int amplitude = (value >>> 3) & 0b111;
+    final int frequency = value & 0b11;
+    this.state.setChannelField(CHANNEL_STEREO_LEFT, this.index, left);
+    this.state.setChannelField(CHANNEL_STEREO_RIGHT, this.index, right);
+    this.state.setChannelField(CHANNEL_LFO_AMPLITUDE_SENSITIVITY, this.index, amplitude);
+    this.state.setChannelField(CHANNEL_LFO_FREQUENCY_SENSITIVITY, this.index, frequency);
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+        "[channel {}] setStereoAndLFOSensitivity: L/R ({}/{}) amp-sensitivity {} freq-sensitivity {}",
+        Integer.valueOf(this.index),
+        Boolean.valueOf(left == 1),
+        Boolean.valueOf(right == 1),
+        Integer.valueOf(amplitude),
+        Integer.valueOf(frequency));
     }
   }
 
@@ -177,14 +181,38 @@ public final class VGMYM2612Channel
 
   public VGMYM2612ChannelSnapshot snapshot()
   {
-    return VGMYM2612ChannelSnapshot.builder()
-      .setAlgorithm(this.algorithm)
-      .setFeedback(this.feedback)
-      .setIndex(this.index)
-      .putOperators(0, this.operator(0).snapshot())
-      .putOperators(1, this.operator(1).snapshot())
-      .putOperators(2, this.operator(2).snapshot())
-      .putOperators(3, this.operator(3).snapshot())
-      .build();
+    final VGMYM2612ChannelSnapshot.Builder builder =
+      VGMYM2612ChannelSnapshot.builder()
+        .setAlgorithm(this.state.channelField(CHANNEL_ALGORITHM, this.index))
+        .setFeedback(this.state.channelField(CHANNEL_FEEDBACK, this.index))
+        .setIndex(this.index);
+
+    for (final VGMYM2612Operator operator : this.operators) {
+      builder.putOperators(operator.index(), operator.snapshot());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Write the current channel state into the given packed snapshot. This
+   * method does not allocate.
+   *
+   * @param packed The target snapshot
+   */
+
+  public void snapshotInto(
+    final VGMYM2612PackedSnapshot packed)
+  {
+    Objects.requireNonNull(packed, "packed");
+
+    final long word =
+      (long) (this.state.channelField(CHANNEL_ALGORITHM, this.index) & 0xff)
+        | ((long) (this.state.channelField(CHANNEL_FEEDBACK, this.index) & 0xff) << 8);
+
+    packed.setChannelWord(this.index, word);
+    for (final VGMYM2612Operator operator : this.operators) {
+      packed.setOperatorWord(this.index, operator.index(), operator.packed());
+    }
+    packed.updateFingerprint(this.index);
   }
 }
@@ -19,739 +19,740 @@ package com.io7m.jvgm.interpreter.ym2612;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Objects;
-import java.util.Optional;
+
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.GLOBAL_CHANNEL_3_6_SPECIAL_MODE;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.GLOBAL_CHANNEL_3_CSM_MODE;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.GLOBAL_DAC_DATA;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.GLOBAL_DAC_ENABLE;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.GLOBAL_LFO_ENABLE;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.GLOBAL_LFO_FREQUENCY;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.GLOBAL_TIMER_A_COUNTER;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.GLOBAL_TIMER_A_ENABLE;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.GLOBAL_TIMER_A_LOAD;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.GLOBAL_TIMER_A_RESET;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.GLOBAL_TIMER_A_TIME;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.GLOBAL_TIMER_B_COUNTER;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.GLOBAL_TIMER_B_ENABLE;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.GLOBAL_TIMER_B_LOAD;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.GLOBAL_TIMER_B_RESET;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.GLOBAL_TIMER_B_TIME;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.GLOBAL_TIMER_STATUS;
 
 /**
- * A YM2612 state interpreter.
+ * <p>A YM2612 state interpreter.</p>
+ *
+ * <p>The interpreter emulates the two timers of the chip. The timers count
+ * in units of the FM sample period of {@code 144} chip clock cycles, and are
+ * advanced explicitly with {@link #advance(long)} (in VGM samples at
+ * {@value #VGM_SAMPLE_RATE}Hz) or {@link #advanceTicks(long)}. Overflow
+ * flags are exposed via {@link #status()}, and the number of channel 3
+ * CSM key-on events caused by timer A overflows is returned from each
+ * advance.</p>
+ *
+ * <p>By default, {@link VGMYM2612OnInstructionReceivedType} is called after
+ * every register write. In {@link VGMYM2612CallbackMode#PER_TIME_STEP}
+ * mode, the writes received between two calls to {@link #advance(long)}
+ * are instead accumulated into a single {@link VGMYM2612TimeStep} that is
+ * delivered to {@link VGMYM2612OnTimeStepType} when time advances.</p>
  */
 
 public final class VGMYM2612Interpreter
 {
+  /**
+   * The chip clock of an NTSC Mega Drive in Hz.
+   */
+
+  public static final int CLOCK_NTSC = 7670453;
+
+  /**
+   * The sample rate in Hz of the wait commands in VGM files.
+   */
+
+  public static final int VGM_SAMPLE_RATE = 44100;
+
+  /**
+   * The number of chip clock cycles per timer tick (one FM sample).
+   */
+
+  public static final int CLOCKS_PER_TICK = 144;
+
+  /**
+   * The status bit set when timer A overflows.
+   */
+
+  public static final int STATUS_TIMER_A = 0b01;
+
+  /**
+   * The status bit set when timer B overflows.
+   */
+
+  public static final int STATUS_TIMER_B = 0b10;
+
   private static final Logger LOG =
     LoggerFactory.getLogger(VGMYM2612Interpreter.class);
 
   private static final int LFO_ENABLE = 0x22;
+  private static final int TIMER_A_MSB = 0x24;
+  private static final int TIMER_A_LSB = 0x25;
   private static final int TIMER_B = 0x26;
   private static final int TIMERS_AND_CHANNEL_3_6_MODE = 0x27;
   private static final int KEY_ON_OFF = 0x28;
   private static final int DAC_DATA = 0x2A;
   private static final int DAC_ENABLE = 0x2b;
 
-  private static final int CHANNEL_0_ALGORITHM_AND_FEEDBACK = 0xB0;
-  private static final int CHANNEL_1_ALGORITHM_AND_FEEDBACK = 0xB1;
-  private static final int CHANNEL_2_ALGORITHM_AND_FEEDBACK = 0xB2;
+  /*
+   * The base registers for each group of per-operator registers. Within a
+   * port, the register for channel {@code c} and operator {@code o} is
+   * {@code base + c + (o * 4)}.
+   */
 
-  private static final int CHANNEL_3_ALGORITHM_AND_FEEDBACK = 0xB0;
-  private static final int CHANNEL_4_ALGORITHM_AND_FEEDBACK = 0xB1;
-  private static final int CHANNEL_5_ALGORITHM_AND_FEEDBACK = 0xB2;
+  private static final int OPERATOR_DETUNE_MULTIPLE = 0x30;
+  private static final int OPERATOR_VOLUME_INVERSE = 0x40;
+  private static final int OPERATOR_RATE_SCALING_AND_ATTACK_RATE = 0x50;
+  private static final int OPERATOR_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x60;
+  private static final int OPERATOR_RATE_DECAY_SECONDARY = 0x70;
+  private static final int OPERATOR_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x80;
 
-  private static final int CHANNEL_0_FREQUENCY_LSB = 0xA0;
-  private static final int CHANNEL_0_FREQUENCY_MSB = 0xA4;
+  /*
+   * The base registers for each group of per-channel registers. Within a
+   * port, the register for channel {@code c} is {@code base + c}.
+   */
 
-  private static final int CHANNEL_1_FREQUENCY_LSB = 0xA1;
-  private static final int CHANNEL_1_FREQUENCY_MSB = 0xA5;
+  private static final int CHANNEL_FREQUENCY_LSB = 0xA0;
+  private static final int CHANNEL_FREQUENCY_MSB = 0xA4;
+  private static final int CHANNEL_ALGORITHM_AND_FEEDBACK = 0xB0;
+  private static final int CHANNEL_STEREO_AND_LFO_SENSITIVITY = 0xB4;
 
-  private static final int CHANNEL_2_FREQUENCY_LSB = 0xA2;
-  private static final int CHANNEL_2_FREQUENCY_MSB = 0xA6;
+  /*
+   * The registers for the per-operator frequencies of the third channel of
+   * each port in special mode. The register for operator {@code o} (in the
+   * range {@code [1, 3]}) is {@code base + (o - 1)}.
+   */
 
-  private static final int CHANNEL_2_FREQUENCY_LSB_OPERATOR_1 = 0xA8;
-  private static final int CHANNEL_2_FREQUENCY_MSB_OPERATOR_1 = 0xAC;
+  private static final int SPECIAL_FREQUENCY_LSB = 0xA8;
+  private static final int SPECIAL_FREQUENCY_MSB = 0xAC;
 
-  private static final int CHANNEL_2_FREQUENCY_LSB_OPERATOR_2 = 0xA9;
-  private static final int CHANNEL_2_FREQUENCY_MSB_OPERATOR_2 = 0xAD;
-
-  private static final int CHANNEL_2_FREQUENCY_LSB_OPERATOR_3 = 0xAA;
-  private static final int CHANNEL_2_FREQUENCY_MSB_OPERATOR_3 = 0xAE;
+  /*
+   * The kinds of register write handlers.
+   */
+
+  private static final int HANDLER_UNRECOGNIZED = 0;
+  private static final int HANDLER_PROPRIETARY = 1;
+  private static final int HANDLER_LFO = 2;
+  private static final int HANDLER_TIMER_B = 3;
+  private static final int HANDLER_TIMERS_AND_MODE = 4;
+  private static final int HANDLER_KEY_ON_OFF = 5;
+  private static final int HANDLER_DAC_DATA = 6;
+  private static final int HANDLER_DAC_ENABLE = 7;
+  private static final int HANDLER_OPERATOR_DETUNE_MULTIPLE = 8;
+  private static final int HANDLER_OPERATOR_VOLUME_INVERSE = 9;
+  private static final int HANDLER_OPERATOR_RATE_SCALING_AND_ATTACK_RATE = 10;
+  private static final int HANDLER_OPERATOR_RATE_DECAY_AND_AMPLITUDE_MODULATION = 11;
+  private static final int HANDLER_OPERATOR_RATE_DECAY_SECONDARY = 12;
+  private static final int HANDLER_OPERATOR_RATE_RELEASE_SECONDARY_AMPLITUDE = 13;
+  private static final int HANDLER_OPERATOR_FREQUENCY_LSB = 14;
+  private static final int HANDLER_OPERATOR_FREQUENCY_MSB = 15;
+  private static final int HANDLER_CHANNEL_FREQUENCY_LSB = 16;
+  private static final int HANDLER_CHANNEL_FREQUENCY_MSB = 17;
+  private static final int HANDLER_CHANNEL_SPECIAL_FREQUENCY_LSB = 18;
+  private static final int HANDLER_CHANNEL_SPECIAL_FREQUENCY_MSB = 19;
+  private static final int HANDLER_CHANNEL_ALGORITHM_AND_FEEDBACK = 20;
+  private static final int HANDLER_CHANNEL_STEREO_AND_LFO_SENSITIVITY = 21;
+  private static final int HANDLER_TIMER_A_MSB = 22;
+  private static final int HANDLER_TIMER_A_LSB = 23;
 
-  private static final int CHANNEL_3_FREQUENCY_LSB = 0xA0;
-  private static final int CHANNEL_3_FREQUENCY_MSB = 0xA4;
+  /**
+   * The register write handlers, indexed by {@code (port << 8) | register}.
+   * Each entry packs the handler kind into bits {@code [0, 7]}, the channel
+   * index into bits {@code [8, 11]}, and the operator index into bits
+   * {@code [12, 15]}.
+   */
 
-  private static final int CHANNEL_4_FREQUENCY_LSB = 0xA1;
-  private static final int CHANNEL_4_FREQUENCY_MSB = 0xA5;
-
-  private static final int CHANNEL_5_FREQUENCY_LSB = 0xA2;
-  private static final int CHANNEL_5_FREQUENCY_MSB = 0xA6;
-
-  private static final int CHANNEL_5_FREQUENCY_LSB_OPERATOR_1 = 0xA8;
-  private static final int CHANNEL_5_FREQUENCY_MSB_OPERATOR_1 = 0xAC;
-
-  private static final int CHANNEL_5_FREQUENCY_LSB_OPERATOR_2 = 0xA9;
-  private static final int CHANNEL_5_FREQUENCY_MSB_OPERATOR_2 = 0xAD;
-
-  private static final int CHANNEL_5_FREQUENCY_LSB_OPERATOR_3 = 0xAA;
-  private static final int CHANNEL_5_FREQUENCY_MSB_OPERATOR_3 = 0xAE;
-
-  private static final int CHANNEL_0_OPERATOR_0_DETUNE_MULTIPLE = 0x30;
-  private static final int CHANNEL_0_OPERATOR_1_DETUNE_MULTIPLE = 0x34;
-  private static final int CHANNEL_0_OPERATOR_2_DETUNE_MULTIPLE = 0x38;
-  private static final int CHANNEL_0_OPERATOR_3_DETUNE_MULTIPLE = 0x3C;
-
-  private static final int CHANNEL_1_OPERATOR_0_DETUNE_MULTIPLE = 0x31;
-  private static final int CHANNEL_1_OPERATOR_1_DETUNE_MULTIPLE = 0x35;
-  private static final int CHANNEL_1_OPERATOR_2_DETUNE_MULTIPLE = 0x39;
-  private static final int CHANNEL_1_OPERATOR_3_DETUNE_MULTIPLE = 0x3D;
-
-  private static final int CHANNEL_2_OPERATOR_0_DETUNE_MULTIPLE = 0x32;
-  private static final int CHANNEL_2_OPERATOR_1_DETUNE_MULTIPLE = 0x36;
-  private static final int CHANNEL_2_OPERATOR_2_DETUNE_MULTIPLE = 0x3A;
-  private static final int CHANNEL_2_OPERATOR_3_DETUNE_MULTIPLE = 0x3E;
-
-  private static final int CHANNEL_0_OPERATOR_0_VOLUME_INVERSE = 0x40;
-  private static final int CHANNEL_0_OPERATOR_1_VOLUME_INVERSE = 0x44;
-  private static final int CHANNEL_0_OPERATOR_2_VOLUME_INVERSE = 0x48;
-  private static final int CHANNEL_0_OPERATOR_3_VOLUME_INVERSE = 0x4C;
-
-  private static final int CHANNEL_1_OPERATOR_0_VOLUME_INVERSE = 0x41;
-  private static final int CHANNEL_1_OPERATOR_1_VOLUME_INVERSE = 0x45;
-  private static final int CHANNEL_1_OPERATOR_2_VOLUME_INVERSE = 0x49;
-  private static final int CHANNEL_1_OPERATOR_3_VOLUME_INVERSE = 0x4D;
-
-  private static final int CHANNEL_2_OPERATOR_0_VOLUME_INVERSE = 0x42;
-  private static final int CHANNEL_2_OPERATOR_1_VOLUME_INVERSE = 0x46;
-  private static final int CHANNEL_2_OPERATOR_2_VOLUME_INVERSE = 0x4A;
-  private static final int CHANNEL_2_OPERATOR_3_VOLUME_INVERSE = 0x4E;
-
-  private static final int CHANNEL_0_OPERATOR_0_RATE_SCALING_AND_ATTACK_RATE = 0x50;
-  private static final int CHANNEL_0_OPERATOR_1_RATE_SCALING_AND_ATTACK_RATE = 0x54;
-  private static final int CHANNEL_0_OPERATOR_2_RATE_SCALING_AND_ATTACK_RATE = 0x58;
-  private static final int CHANNEL_0_OPERATOR_3_RATE_SCALING_AND_ATTACK_RATE = 0x5C;
-
-  private static final int CHANNEL_1_OPERATOR_0_RATE_SCALING_AND_ATTACK_RATE = 0x51;
-  private static final int CHANNEL_1_OPERATOR_1_RATE_SCALING_AND_ATTACK_RATE = 0x55;
-  private static final int CHANNEL_1_OPERATOR_2_RATE_SCALING_AND_ATTACK_RATE = 0x59;
-  private static final int CHANNEL_1_OPERATOR_3_RATE_SCALING_AND_ATTACK_RATE = 0x5D;
-
-  private static final int CHANNEL_2_OPERATOR_0_RATE_SCALING_AND_ATTACK_RATE = 0x52;
-  private static final int CHANNEL_2_OPERATOR_1_RATE_SCALING_AND_ATTACK_RATE = 0x56;
-  private static final int CHANNEL_2_OPERATOR_2_RATE_SCALING_AND_ATTACK_RATE = 0x5A;
-  private static final int CHANNEL_2_OPERATOR_3_RATE_SCALING_AND_ATTACK_RATE = 0x5E;
-
-  private static final int CHANNEL_0_OPERATOR_0_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x60;
-  private static final int CHANNEL_0_OPERATOR_1_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x64;
-  private static final int CHANNEL_0_OPERATOR_2_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x68;
-  private static final int CHANNEL_0_OPERATOR_3_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x6C;
-
-  private static final int CHANNEL_1_OPERATOR_0_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x61;
-  private static final int CHANNEL_1_OPERATOR_1_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x65;
-  private static final int CHANNEL_1_OPERATOR_2_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x69;
-  private static final int CHANNEL_1_OPERATOR_3_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x6D;
-
-  private static final int CHANNEL_2_OPERATOR_0_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x62;
-  private static final int CHANNEL_2_OPERATOR_1_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x66;
-  private static final int CHANNEL_2_OPERATOR_2_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x6A;
-  private static final int CHANNEL_2_OPERATOR_3_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x6E;
-
-  private static final int CHANNEL_0_OPERATOR_0_RATE_DECAY_SECONDARY = 0x70;
-  private static final int CHANNEL_0_OPERATOR_1_RATE_DECAY_SECONDARY = 0x74;
-  private static final int CHANNEL_0_OPERATOR_2_RATE_DECAY_SECONDARY = 0x78;
-  private static final int CHANNEL_0_OPERATOR_3_RATE_DECAY_SECONDARY = 0x7C;
-
-  private static final int CHANNEL_1_OPERATOR_0_RATE_DECAY_SECONDARY = 0x71;
-  private static final int CHANNEL_1_OPERATOR_1_RATE_DECAY_SECONDARY = 0x75;
-  private static final int CHANNEL_1_OPERATOR_2_RATE_DECAY_SECONDARY = 0x79;
-  private static final int CHANNEL_1_OPERATOR_3_RATE_DECAY_SECONDARY = 0x7D;
-
-  private static final int CHANNEL_2_OPERATOR_0_RATE_DECAY_SECONDARY = 0x72;
-  private static final int CHANNEL_2_OPERATOR_1_RATE_DECAY_SECONDARY = 0x76;
-  private static final int CHANNEL_2_OPERATOR_2_RATE_DECAY_SECONDARY = 0x7A;
-  private static final int CHANNEL_2_OPERATOR_3_RATE_DECAY_SECONDARY = 0x7E;
-
-  private static final int CHANNEL_0_OPERATOR_0_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x80;
-  private static final int CHANNEL_0_OPERATOR_1_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x84;
-  private static final int CHANNEL_0_OPERATOR_2_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x88;
-  private static final int CHANNEL_0_OPERATOR_3_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x8C;
-
-  private static final int CHANNEL_1_OPERATOR_0_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x81;
-  private static final int CHANNEL_1_OPERATOR_1_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x85;
-  private static final int CHANNEL_1_OPERATOR_2_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x89;
-  private static final int CHANNEL_1_OPERATOR_3_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x8D;
-
-  private static final int CHANNEL_2_OPERATOR_0_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x82;
-  private static final int CHANNEL_2_OPERATOR_1_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x86;
-  private static final int CHANNEL_2_OPERATOR_2_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x8A;
-  private static final int CHANNEL_2_OPERATOR_3_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x8E;
-
-  private static final int CHANNEL_3_OPERATOR_0_DETUNE_MULTIPLE = 0x30;
-  private static final int CHANNEL_3_OPERATOR_1_DETUNE_MULTIPLE = 0x34;
-  private static final int CHANNEL_3_OPERATOR_2_DETUNE_MULTIPLE = 0x38;
-  private static final int CHANNEL_3_OPERATOR_3_DETUNE_MULTIPLE = 0x3C;
-
-  private static final int CHANNEL_4_OPERATOR_0_DETUNE_MULTIPLE = 0x31;
-  private static final int CHANNEL_4_OPERATOR_1_DETUNE_MULTIPLE = 0x35;
-  private static final int CHANNEL_4_OPERATOR_2_DETUNE_MULTIPLE = 0x39;
-  private static final int CHANNEL_4_OPERATOR_3_DETUNE_MULTIPLE = 0x3D;
-
-  private static final int CHANNEL_5_OPERATOR_0_DETUNE_MULTIPLE = 0x32;
-  private static final int CHANNEL_5_OPERATOR_1_DETUNE_MULTIPLE = 0x36;
-  private static final int CHANNEL_5_OPERATOR_2_DETUNE_MULTIPLE = 0x3A;
-  private static final int CHANNEL_5_OPERATOR_3_DETUNE_MULTIPLE = 0x3E;
-
-  private static final int CHANNEL_3_OPERATOR_0_VOLUME_INVERSE = 0x40;
-  private static final int CHANNEL_3_OPERATOR_1_VOLUME_INVERSE = 0x44;
-  private static final int CHANNEL_3_OPERATOR_2_VOLUME_INVERSE = 0x48;
-  private static final int CHANNEL_3_OPERATOR_3_VOLUME_INVERSE = 0x4C;
-
-  private static final int CHANNEL_4_OPERATOR_0_VOLUME_INVERSE = 0x41;
-  private static final int CHANNEL_4_OPERATOR_1_VOLUME_INVERSE = 0x45;
-  private static final int CHANNEL_4_OPERATOR_2_VOLUME_INVERSE = 0x49;
-  private static final int CHANNEL_4_OPERATOR_3_VOLUME_INVERSE = 0x4D;
-
-  private static final int CHANNEL_5_OPERATOR_0_VOLUME_INVERSE = 0x42;
-  private static final int CHANNEL_5_OPERATOR_1_VOLUME_INVERSE = 0x46;
-  private static final int CHANNEL_5_OPERATOR_2_VOLUME_INVERSE = 0x4A;
-  private static final int CHANNEL_5_OPERATOR_3_VOLUME_INVERSE = 0x4E;
-
-  private static final int CHANNEL_3_OPERATOR_0_RATE_SCALING_AND_ATTACK_RATE = 0x50;
-  private static final int CHANNEL_3_OPERATOR_1_RATE_SCALING_AND_ATTACK_RATE = 0x54;
-  private static final int CHANNEL_3_OPERATOR_2_RATE_SCALING_AND_ATTACK_RATE = 0x58;
-  private static final int CHANNEL_3_OPERATOR_3_RATE_SCALING_AND_ATTACK_RATE = 0x5C;
-
-  private static final int CHANNEL_4_OPERATOR_0_RATE_SCALING_AND_ATTACK_RATE = 0x51;
-  private static final int CHANNEL_4_OPERATOR_1_RATE_SCALING_AND_ATTACK_RATE = 0x55;
-  private static final int CHANNEL_4_OPERATOR_2_RATE_SCALING_AND_ATTACK_RATE = 0x59;
-  private static final int CHANNEL_4_OPERATOR_3_RATE_SCALING_AND_ATTACK_RATE = 0x5D;
-
-  private static final int CHANNEL_5_OPERATOR_0_RATE_SCALING_AND_ATTACK_RATE = 0x52;
-  private static final int CHANNEL_5_OPERATOR_1_RATE_SCALING_AND_ATTACK_RATE = 0x56;
-  private static final int CHANNEL_5_OPERATOR_2_RATE_SCALING_AND_ATTACK_RATE = 0x5A;
-  private static final int CHANNEL_5_OPERATOR_3_RATE_SCALING_AND_ATTACK_RATE = 0x5E;
-
-  private static final int CHANNEL_3_OPERATOR_0_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x60;
-  private static final int CHANNEL_3_OPERATOR_1_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x64;
-  private static final int CHANNEL_3_OPERATOR_2_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x68;
-  private static final int CHANNEL_3_OPERATOR_3_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x6C;
-
-  private static final int CHANNEL_4_OPERATOR_0_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x61;
-  private static final int CHANNEL_4_OPERATOR_1_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x65;
-  private static final int CHANNEL_4_OPERATOR_2_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x69;
-  private static final int CHANNEL_4_OPERATOR_3_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x6D;
-
-  private static final int CHANNEL_5_OPERATOR_0_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x62;
-  private static final int CHANNEL_5_OPERATOR_1_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x66;
-  private static final int CHANNEL_5_OPERATOR_2_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x6A;
-  private static final int CHANNEL_5_OPERATOR_3_RATE_DECAY_AND_AMPLITUDE_MODULATION = 0x6E;
-
-  private static final int CHANNEL_3_OPERATOR_0_RATE_DECAY_SECONDARY = 0x70;
-  private static final int CHANNEL_3_OPERATOR_1_RATE_DECAY_SECONDARY = 0x74;
-  private static final int CHANNEL_3_OPERATOR_2_RATE_DECAY_SECONDARY = 0x78;
-  private static final int CHANNEL_3_OPERATOR_3_RATE_DECAY_SECONDARY = 0x7C;
-
-  private static final int CHANNEL_4_OPERATOR_0_RATE_DECAY_SECONDARY = 0x71;
-  private static final int CHANNEL_4_OPERATOR_1_RATE_DECAY_SECONDARY = 0x75;
-  private static final int CHANNEL_4_OPERATOR_2_RATE_DECAY_SECONDARY = 0x79;
-  private static final int CHANNEL_4_OPERATOR_3_RATE_DECAY_SECONDARY = 0x7D;
-
-  private static final int CHANNEL_5_OPERATOR_0_RATE_DECAY_SECONDARY = 0x72;
-  private static final int CHANNEL_5_OPERATOR_1_RATE_DECAY_SECONDARY = 0x76;
-  private static final int CHANNEL_5_OPERATOR_2_RATE_DECAY_SECONDARY = 0x7A;
-  private static final int CHANNEL_5_OPERATOR_3_RATE_DECAY_SECONDARY = 0x7E;
-
-  private static final int CHANNEL_3_OPERATOR_0_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x80;
-  private static final int CHANNEL_3_OPERATOR_1_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x84;
-  private static final int CHANNEL_3_OPERATOR_2_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x88;
-  private static final int CHANNEL_3_OPERATOR_3_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x8C;
-
-  private static final int CHANNEL_4_OPERATOR_0_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x81;
-  private static final int CHANNEL_4_OPERATOR_1_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x85;
-  private static final int CHANNEL_4_OPERATOR_2_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x89;
-  private static final int CHANNEL_4_OPERATOR_3_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x8D;
-
-  private static final int CHANNEL_5_OPERATOR_0_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x82;
-  private static final int CHANNEL_5_OPERATOR_1_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x86;
-  private static final int CHANNEL_5_OPERATOR_2_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x8A;
-  private static final int CHANNEL_5_OPERATOR_3_RATE_RELEASE_SECONDARY_AMPLITUDE = 0x8E;
-
-  private static final int CHANNEL_0_STEREO_AND_LFO_SENSITIVITY = 0xb4;
-  private static final int CHANNEL_1_STEREO_AND_LFO_SENSITIVITY = 0xb5;
-  private static final int CHANNEL_2_STEREO_AND_LFO_SENSITIVITY = 0xb6;
-
-  private static final int CHANNEL_3_STEREO_AND_LFO_SENSITIVITY = 0xb4;
-  private static final int CHANNEL_4_STEREO_AND_LFO_SENSITIVITY = 0xb5;
-  private static final int CHANNEL_5_STEREO_AND_LFO_SENSITIVITY = 0xb6;
-
-  private final HashMap<Integer, VGMYM2612Channel> channels;
-  private final VGMYM2612Callbacks callbacks;
-  private int lfo_enable;
-  private int lfo_frequency;
-  private int dac_enable;
-  private int timer_b_reset;
-  private int timer_a_reset;
-  private int timer_b_enable;
-  private int timer_a_enable;
-  private int timer_b_load;
-  private int timer_a_load;
-  private boolean channel_3_6_special_mode;
-  private int timer_b_time;
+  private static final int[] HANDLERS = makeHandlers();
+
+  private static final int GROUP_ENVELOPE =
+    VGMYM2612ParameterGroup.ENVELOPE.mask();
+  private static final int GROUP_LEVEL =
+    VGMYM2612ParameterGroup.LEVEL.mask();
+  private static final int GROUP_PITCH =
+    VGMYM2612ParameterGroup.PITCH.mask();
+  private static final int GROUP_ALGORITHM_FEEDBACK =
+    VGMYM2612ParameterGroup.ALGORITHM_FEEDBACK.mask();
+  private static final int GROUP_STEREO_LFO =
+    VGMYM2612ParameterGroup.STEREO_LFO.mask();
+  private static final int GROUP_FREQUENCY =
+    VGMYM2612ParameterGroup.FREQUENCY.mask();
+  private static final int GROUP_KEY =
+    VGMYM2612ParameterGroup.KEY.mask();
+
+  private final VGMYM2612State state;
+  private final VGMYM2612Channel[] channels;
+  private final VGMYM2612OnInstructionReceivedType on_instruction;
+  private final VGMYM2612OnTimeStepType on_time_step;
+  private final boolean per_time_step;
+  private final VGMYM2612TimeStep step;
+  private final int[] dirty_channel_groups;
+  private final int[] dirty_operator_groups;
+  private final long clock;
+  private int dirty_channels;
+  private long vgm_remainder;
+  private long time;
 
   /**
-   * @param in_callbacks The callbacks Construct an interpreter.
+   * Construct an interpreter for a chip running at {@link #CLOCK_NTSC}.
+   *
+   * @param in_callbacks The callbacks
    */
 
   public VGMYM2612Interpreter(
     final VGMYM2612Callbacks in_callbacks)
   {
-    this.callbacks = Objects.requireNonNull(in_callbacks, "callbacks");
+    this(in_callbacks, CLOCK_NTSC);
+  }
 
-    this.channels = new HashMap<>(6);
-    for (int index = 0; index < 6; ++index) {
-      this.channels.put(Integer.valueOf(index), new VGMYM2612Channel(this, index));
+  /**
+   * Construct an interpreter for a chip running at the given clock rate.
+   *
+   * @param in_callbacks The callbacks
+   * @param in_clock     The chip clock rate in Hz (such as {@link #CLOCK_NTSC})
+   */
+
+  public VGMYM2612Interpreter(
+    final VGMYM2612Callbacks in_callbacks,
+    final int in_clock)
+  {
+    Objects.requireNonNull(in_callbacks, "callbacks");
+    if (in_clock <= 0) {
+      throw new IllegalArgumentException("Clock must be positive: " + in_clock);
+    }
+    this.clock = in_clock;
+    this.on_instruction = in_callbacks.onInstructionReceived();
+    this.on_time_step = in_callbacks.onTimeStep();
+    this.per_time_step =
+      in_callbacks.mode() == VGMYM2612CallbackMode.PER_TIME_STEP;
+    this.step = new VGMYM2612TimeStep();
+
+    this.state = new VGMYM2612State();
+    this.channels = new VGMYM2612Channel[VGMYM2612State.CHANNELS];
+    for (int index = 0; index < VGMYM2612State.CHANNELS; ++index) {
+      this.channels[index] = new VGMYM2612Channel(this.state, index);
+    }
+
+    this.dirty_channel_groups = new int[VGMYM2612State.CHANNELS];
+    this.dirty_operator_groups =
+      new int[VGMYM2612State.CHANNELS * VGMYM2612State.OPERATORS];
+    this.markAllDirty();
+  }
+
+  private static void checkChannel(
+    final int channel)
+  {
+    if (channel < 0 || channel >= VGMYM2612State.CHANNELS) {
+      throw new IllegalArgumentException("Illegal channel index: " + channel);
     }
   }
 
   /**
-   * @param in_index The channel index
+   * @return A mask of the channels that have changed since they were last
+   * acknowledged, where bit {@code n} represents channel {@code n}
+   */
+
+  public int dirtyChannels()
+  {
+    return this.dirty_channels;
+  }
+
+  /**
+   * @param channel The channel index
    *
-   * @return The channel with the given index
+   * @return A mask of the {@link VGMYM2612ParameterGroup} values that have
+   * changed in the channel or any of its operators since the channel was last
+   * acknowledged
    */
 
-  public VGMYM2612Channel channel(
-    final int in_index)
+  public int dirtyGroups(
+    final int channel)
   {
-    return Optional.ofNullable(this.channels.get(Integer.valueOf(in_index)))
-      .orElseThrow(() -> new IllegalArgumentException("Illegal channel index: " + in_index));
+    checkChannel(channel);
+
+    final int base = channel * VGMYM2612State.OPERATORS;
+    int groups = this.dirty_channel_groups[channel];
+    for (int index = base; index < base + VGMYM2612State.OPERATORS; ++index) {
+      groups |= this.dirty_operator_groups[index];
+    }
+    return groups;
   }
 
   /**
-   * Write {@code value} to {@code register} in port 1.
+   * @param channel  The channel index
+   * @param operator The operator index
    *
-   * @param register The register (in the range {@code [0x0, 0xff]})
-   * @param value    The value (in the range {@code [0x0, 0xff]})
+   * @return A mask of the {@link VGMYM2612ParameterGroup} values that have
+   * changed in the given operator since the channel was last acknowledged
    */
 
-  // Switch-based interpreters suffer from high cyclomatic complexity
-  // CHECKSTYLE:OFF
-  public void writeRegisterPort1(
-    final int register,
-    final int value)
+  public int dirtyOperatorGroups(
+    final int channel,
+    final int operator)
   {
-    boolean preset_changed = true;
+    checkChannel(channel);
+    if (operator < 0 || operator >= VGMYM2612State.OPERATORS) {
+      throw new IllegalArgumentException("Illegal operator index: " + operator);
+    }
+    return this.dirty_operator_groups[(channel * VGMYM2612State.OPERATORS) + operator];
+  }
 
-    try {
-      LOG.trace(
-        "write: port 1: 0x{} 0x{}",
-        Integer.toUnsignedString(register, 16),
-        Integer.toUnsignedString(value, 16));
+  /**
+   * Acknowledge all changes to the given channel and its operators.
+   *
+   * @param channel The channel index
+   */
 
-      switch (register & 0xff) {
-        case 0x90:
-        case 0x91:
-        case 0x92:
-        case 0x93:
-        case 0x94:
-        case 0x95:
-        case 0x96:
-        case 0x97:
-        case 0x98:
-        case 0x99:
-        case 0x9a:
-        case 0x9b:
-        case 0x9c:
-        case 0x9d:
-        case 0x9e: {
-          // XXX: It's not clear whether this should be a "preset" change or not
-          this.setProprietaryRegister(register, value);
-          break;
-        }
+  public void acknowledge(
+    final int channel)
+  {
+    checkChannel(channel);
 
-        case CHANNEL_3_STEREO_AND_LFO_SENSITIVITY: {
-          this.channel(3).setStereoAndLFOSensitivity(value);
-          break;
-        }
-        case CHANNEL_4_STEREO_AND_LFO_SENSITIVITY: {
-          this.channel(4).setStereoAndLFOSensitivity(value);
-          break;
-        }
-        case CHANNEL_5_STEREO_AND_LFO_SENSITIVITY: {
-          this.channel(5).setStereoAndLFOSensitivity(value);
-          break;
-        }
-        case CHANNEL_3_ALGORITHM_AND_FEEDBACK: {
-          this.channel(3).setAlgorithmAndFeedback(value);
-          break;
-        }
-        case CHANNEL_4_ALGORITHM_AND_FEEDBACK: {
-          this.channel(4).setAlgorithmAndFeedback(value);
-          break;
-        }
-        case CHANNEL_5_ALGORITHM_AND_FEEDBACK: {
-          this.channel(5).setAlgorithmAndFeedback(value);
-          break;
-        }
-        case CHANNEL_3_FREQUENCY_LSB: {
-          this.channel(3).setFrequencyLSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_3_FREQUENCY_MSB: {
-          this.channel(3).setFrequencyMSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_4_FREQUENCY_LSB: {
-          this.channel(4).setFrequencyLSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_4_FREQUENCY_MSB: {
-          this.channel(4).setFrequencyMSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_5_FREQUENCY_LSB: {
-          final VGMYM2612Channel channel = this.channel(5);
-          if (this.channel_3_6_special_mode) {
-            channel.operator(0).setFrequencyLSB(value);
-          } else {
-            channel.setFrequencyLSB(value);
-            preset_changed = false;
-          }
-          break;
-        }
-        case CHANNEL_5_FREQUENCY_MSB: {
-          final VGMYM2612Channel channel = this.channel(5);
-          if (this.channel_3_6_special_mode) {
-            channel.operator(0).setFrequencyMSB(value);
-          } else {
-            channel.setFrequencyMSB(value);
-            preset_changed = false;
-          }
-          break;
-        }
-        case CHANNEL_5_FREQUENCY_LSB_OPERATOR_1: {
-          this.channel(5).operator(1).setFrequencyLSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_5_FREQUENCY_MSB_OPERATOR_1: {
-          this.channel(5).operator(1).setFrequencyMSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_5_FREQUENCY_LSB_OPERATOR_2: {
-          this.channel(5).operator(2).setFrequencyLSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_5_FREQUENCY_MSB_OPERATOR_2: {
-          this.channel(5).operator(2).setFrequencyMSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_5_FREQUENCY_LSB_OPERATOR_3: {
-          this.channel(5).operator(3).setFrequencyLSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_5_FREQUENCY_MSB_OPERATOR_3: {
-          this.channel(5).operator(3).setFrequencyMSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_3_OPERATOR_0_DETUNE_MULTIPLE: {
-          this.channel(3).operator(0).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_1_DETUNE_MULTIPLE: {
-          this.channel(3).operator(1).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_2_DETUNE_MULTIPLE: {
-          this.channel(3).operator(2).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_3_DETUNE_MULTIPLE: {
-          this.channel(3).operator(3).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_0_VOLUME_INVERSE: {
-          this.channel(3).operator(0).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_1_VOLUME_INVERSE: {
-          this.channel(3).operator(1).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_2_VOLUME_INVERSE: {
-          this.channel(3).operator(2).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_3_VOLUME_INVERSE: {
-          this.channel(3).operator(3).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_0_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(3).operator(0).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_1_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(3).operator(1).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_2_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(3).operator(2).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_3_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(3).operator(3).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_0_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(3).operator(0).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_1_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(3).operator(1).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_2_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(3).operator(2).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_3_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(3).operator(3).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_0_RATE_DECAY_SECONDARY: {
-          this.channel(3).operator(0).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_1_RATE_DECAY_SECONDARY: {
-          this.channel(3).operator(1).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_2_RATE_DECAY_SECONDARY: {
-          this.channel(3).operator(2).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_3_RATE_DECAY_SECONDARY: {
-          this.channel(3).operator(3).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_0_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(3).operator(0).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_1_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(3).operator(1).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_2_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(3).operator(2).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_3_OPERATOR_3_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(3).operator(3).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_0_DETUNE_MULTIPLE: {
-          this.channel(4).operator(0).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_1_DETUNE_MULTIPLE: {
-          this.channel(4).operator(1).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_2_DETUNE_MULTIPLE: {
-          this.channel(4).operator(2).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_3_DETUNE_MULTIPLE: {
-          this.channel(4).operator(3).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_0_VOLUME_INVERSE: {
-          this.channel(4).operator(0).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_1_VOLUME_INVERSE: {
-          this.channel(4).operator(1).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_2_VOLUME_INVERSE: {
-          this.channel(4).operator(2).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_3_VOLUME_INVERSE: {
-          this.channel(4).operator(3).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_0_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(4).operator(0).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_1_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(4).operator(1).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_2_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(4).operator(2).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_3_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(4).operator(3).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_0_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(4).operator(0).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_1_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(4).operator(1).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_2_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(4).operator(2).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_3_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(4).operator(3).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_0_RATE_DECAY_SECONDARY: {
-          this.channel(4).operator(0).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_1_RATE_DECAY_SECONDARY: {
-          this.channel(4).operator(1).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_2_RATE_DECAY_SECONDARY: {
-          this.channel(4).operator(2).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_3_RATE_DECAY_SECONDARY: {
-          this.channel(4).operator(3).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_0_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(4).operator(0).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_1_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(4).operator(1).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_2_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(4).operator(2).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_4_OPERATOR_3_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(4).operator(3).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_0_DETUNE_MULTIPLE: {
-          this.channel(5).operator(0).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_1_DETUNE_MULTIPLE: {
-          this.channel(5).operator(1).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_2_DETUNE_MULTIPLE: {
-          this.channel(5).operator(2).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_3_DETUNE_MULTIPLE: {
-          this.channel(5).operator(3).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_0_VOLUME_INVERSE: {
-          this.channel(5).operator(0).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_1_VOLUME_INVERSE: {
-          this.channel(5).operator(1).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_2_VOLUME_INVERSE: {
-          this.channel(5).operator(2).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_3_VOLUME_INVERSE: {
-          this.channel(5).operator(3).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_0_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(5).operator(0).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_1_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(5).operator(1).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_2_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(5).operator(2).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_3_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(5).operator(3).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_0_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(5).operator(0).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_1_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(5).operator(1).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_2_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(5).operator(2).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_3_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(5).operator(3).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_0_RATE_DECAY_SECONDARY: {
-          this.channel(5).operator(0).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_1_RATE_DECAY_SECONDARY: {
-          this.channel(5).operator(1).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_2_RATE_DECAY_SECONDARY: {
-          this.channel(5).operator(2).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_3_RATE_DECAY_SECONDARY: {
-          this.channel(5).operator(3).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_0_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(5).operator(0).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_1_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(5).operator(1).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_2_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(5).operator(2).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_5_OPERATOR_3_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(5).operator(3).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
+    final int base = channel * VGMYM2612State.OPERATORS;
+    this.dirty_channel_groups[channel] = 0;
+    Arrays.fill(this.dirty_operator_groups, base, base + VGMYM2612State.OPERATORS, 0);
+    this.dirty_channels &= ~(1 << channel);
+  }
+
+  /**
+   * Acknowledge all changes to all channels.
+   */
+
+  public void acknowledgeAll()
+  {
+    Arrays.fill(this.dirty_channel_groups, 0);
+    Arrays.fill(this.dirty_operator_groups, 0);
+    this.dirty_channels = 0;
+  }
+
+  /**
+   * Mark every group of every channel and operator as changed. This is the
+   * initial condition of a new interpreter, and should be used after the
+   * state has been replaced with {@link VGMYM2612State#copyFrom(VGMYM2612State)}.
+   */
+
+  public void markAllDirty()
+  {
+    Arrays.fill(this.dirty_channel_groups, VGMYM2612ParameterGroup.ALL_MASK);
+    Arrays.fill(this.dirty_operator_groups, VGMYM2612ParameterGroup.ALL_MASK);
+    this.dirty_channels = (1 << VGMYM2612State.CHANNELS) - 1;
+  }
+
+  private void markChannel(
+    final int channel,
+    final int groups)
+  {
+    this.dirty_channel_groups[channel] |= groups;
+    this.dirty_channels |= 1 << channel;
+    this.step.mark(channel, groups);
+  }
+
+  private void markOperator(
+    final int channel,
+    final int operator,
+    final int groups)
+  {
+    this.dirty_operator_groups[(channel * VGMYM2612State.OPERATORS) + operator] |= groups;
+    this.dirty_channels |= 1 << channel;
+    this.step.mark(channel, groups);
+  }
+
+  /**
+   * Access the state of the interpreter. The returned value is the live
+   * state, and changes to the interpreter are immediately visible through
+   * it. The state can be saved and later restored with
+   * {@link VGMYM2612State#copyFrom(VGMYM2612State)}.
+   *
+   * @return The interpreter state
+   */
+
+  public VGMYM2612State state()
+  {
+    return this.state;
+  }
+
+  private boolean isSpecialMode()
+  {
+    return this.state.globalField(GLOBAL_CHANNEL_3_6_SPECIAL_MODE) != 0;
+  }
+
+  /**
+   * @return {@code true} iff channel 3 is in CSM mode, and is therefore
+   * keyed on by each overflow of timer A
+   */
+
+  public boolean isCSMMode()
+  {
+    return this.state.globalField(GLOBAL_CHANNEL_3_CSM_MODE) != 0;
+  }
+
+  /**
+   * Read the status register. Bit {@link #STATUS_TIMER_A} is set if timer A
+   * has overflowed with its flag enabled, and bit {@link #STATUS_TIMER_B} is
+   * set if timer B has overflowed with its flag enabled. The bits remain set
+   * until they are cleared by a write to register {@code 0x27}.
+   *
+   * @return The status register
+   */
+
+  public int status()
+  {
+    return this.state.globalField(GLOBAL_TIMER_STATUS);
+  }
+
+  /**
+   * @return {@code true} iff the DAC replaces the output of channel 6
+   */
+
+  public boolean isDACEnabled()
+  {
+    return this.state.globalField(GLOBAL_DAC_ENABLE) != 0;
+  }
+
+  /**
+   * @return The unsigned 8-bit value most recently written to the DAC
+   */
+
+  public int dacData()
+  {
+    return this.state.globalField(GLOBAL_DAC_DATA);
+  }
+
+  /**
+   * @return {@code true} iff timer A is loaded and counting
+   */
+
+  public boolean isTimerARunning()
+  {
+    return this.state.globalField(GLOBAL_TIMER_A_LOAD) != 0;
+  }
+
+  /**
+   * @return {@code true} iff timer B is loaded and counting
+   */
+
+  public boolean isTimerBRunning()
+  {
+    return this.state.globalField(GLOBAL_TIMER_B_LOAD) != 0;
+  }
+
+  /**
+   * @return The number of ticks remaining until timer A overflows
+   */
+
+  public int timerARemaining()
+  {
+    return this.state.globalField(GLOBAL_TIMER_A_COUNTER);
+  }
+
+  /**
+   * @return The number of ticks remaining until timer B overflows
+   */
+
+  public int timerBRemaining()
+  {
+    return this.state.globalField(GLOBAL_TIMER_B_COUNTER);
+  }
+
+  private int timerAPeriod()
+  {
+    return 1024 - this.state.globalField(GLOBAL_TIMER_A_TIME);
+  }
+
+  private int timerBPeriod()
+  {
+    return (256 - this.state.globalField(GLOBAL_TIMER_B_TIME)) << 4;
+  }
+
+  /**
+   * Advance the timers by the given number of VGM samples (at
+   * {@value #VGM_SAMPLE_RATE}Hz), such as the duration of a wait command.
+   * Fractional ticks are carried over to the next call. In
+   * {@link VGMYM2612CallbackMode#PER_TIME_STEP} mode, advancing by a
+   * non-zero number of samples ends the current time step.
+   *
+   * @param samples The number of samples
+   *
+   * @return The number of times that channel 3 was keyed on in CSM mode
+   *
+   * @see #advanceTicks(long)
+   */
+
+  public int advance(
+    final long samples)
+  {
+    if (samples < 0L) {
+      throw new IllegalArgumentException(
+        "Sample count must be non-negative: " + samples);
+    }
+
+    if (samples > 0L) {
+      this.flushTimeStep();
+      this.time += samples;
+      this.step.clear(this.time);
+    }
+
+    final long divisor = (long) CLOCKS_PER_TICK * (long) VGM_SAMPLE_RATE;
+    final long total = (samples * this.clock) + this.vgm_remainder;
+    this.vgm_remainder = total % divisor;
+    return this.advanceTicks(total / divisor);
+  }
+
+  /**
+   * @return The current time in VGM samples, being the sum of all samples
+   * passed to {@link #advance(long)}
+   */
 
-        default: {
-          LOG.warn(
-            "write: port 1: unrecognized or unimplemented command 0x{} 0x{}",
-            Integer.toUnsignedString(register, 16),
-            Integer.toUnsignedString(value, 16));
-          preset_changed = false;
-          break;
+  public long time()
+  {
+    return this.time;
+  }
+
+  /**
+   * Reset the time to zero and discard any fractional tick carried over by
+   * {@link #advance(long)}, so that the interpreter can be reused for a new
+   * input. Any register writes in the current time step are discarded
+   * without being delivered; use {@link #flushTimeStep()} first to deliver
+   * them. The register state and the dirty groups are not affected.
+   */
+
+  public void reset()
+  {
+    this.time = 0L;
+    this.vgm_remainder = 0L;
+    this.step.clear(0L);
+  }
+
+  /**
+   * End the current time step. If any register writes have been received
+   * during the step, and the interpreter is in
+   * {@link VGMYM2612CallbackMode#PER_TIME_STEP} mode, the time step callback
+   * is called. This should be called once the end of the input has been
+   * reached in order to deliver the final step.
+   */
+
+  public void flushTimeStep()
+  {
+    if (this.per_time_step && this.step.writes() > 0) {
+      try {
+        this.on_time_step.onTimeStep(this, this.step);
+      } finally {
+        this.step.clear(this.time);
+      }
+    }
+  }
+
+  /**
+   * Advance the timers by the given number of ticks, where a tick is the
+   * FM sample period of {@value #CLOCKS_PER_TICK} chip clock cycles. Timer
+   * A overflows every {@code 1024 - A} ticks, and timer B every
+   * {@code 16 * (256 - B)} ticks. An overflow sets the corresponding status
+   * bit if the timer's flag is enabled, and reloads the timer.
+   *
+   * @param ticks The number of ticks
+   *
+   * @return The number of times that channel 3 was keyed on in CSM mode
+   */
+
+  public int advanceTicks(
+    final long ticks)
+  {
+    if (ticks < 0L) {
+      throw new IllegalArgumentException(
+        "Tick count must be non-negative: " + ticks);
+    }
+
+    final long overflows_b = this.advanceTimer(
+      ticks,
+      GLOBAL_TIMER_B_LOAD,
+      GLOBAL_TIMER_B_ENABLE,
+      GLOBAL_TIMER_B_COUNTER,
+      this.timerBPeriod(),
+      STATUS_TIMER_B);
+
+    final long overflows_a = this.advanceTimer(
+      ticks,
+      GLOBAL_TIMER_A_LOAD,
+      GLOBAL_TIMER_A_ENABLE,
+      GLOBAL_TIMER_A_COUNTER,
+      this.timerAPeriod(),
+      STATUS_TIMER_A);
+
+    if (overflows_b > 0L && LOG.isTraceEnabled()) {
+      LOG.trace("advanceTicks: timer B overflows {}", Long.valueOf(overflows_b));
+    }
+    if (overflows_a > 0L && LOG.isTraceEnabled()) {
+      LOG.trace("advanceTicks: timer A overflows {}", Long.valueOf(overflows_a));
+    }
+
+    if (this.isCSMMode()) {
+      return (int) Math.min(overflows_a, (long) Integer.MAX_VALUE);
+    }
+    return 0;
+  }
+
+  private long advanceTimer(
+    final long ticks,
+    final int field_load,
+    final int field_enable,
+    final int field_counter,
+    final int period,
+    final int status_bit)
+  {
+    if (this.state.globalField(field_load) == 0) {
+      return 0L;
+    }
+
+    final long counter = (long) this.state.globalField(field_counter) - ticks;
+    if (counter > 0L) {
+      this.state.setGlobalField(field_counter, (int) counter);
+      return 0L;
+    }
+
+    final long overflows = 1L + (-counter / (long) period);
+    this.state.setGlobalField(
+      field_counter, (int) (counter + (overflows * (long) period)));
+
+    if (this.state.globalField(field_enable) != 0) {
+      this.state.setGlobalField(
+        GLOBAL_TIMER_STATUS,
+        this.state.globalField(GLOBAL_TIMER_STATUS) | status_bit);
+    }
+    return overflows;
+  }
+
+  private static int handler(
+    final int kind,
+    final int channel,
+    final int operator)
+  {
+    return kind | (channel << 8) | (operator << 12);
+  }
+
+  private static int[] makeHandlers()
+  {
+    final int[] table = new int[512];
+
+    for (int port = 0; port < 2; ++port) {
+      final int base = port << 8;
+
+      for (int register = 0x90; register <= 0x9e; ++register) {
+        table[base | register] = HANDLER_PROPRIETARY;
+      }
+
+      for (int slot = 0; slot < 3; ++slot) {
+        final int channel = (port * 3) + slot;
+
+        for (int operator = 0; operator < 4; ++operator) {
+          final int offset = slot + (operator * 4);
+          table[base | (OPERATOR_DETUNE_MULTIPLE + offset)] =
+            handler(HANDLER_OPERATOR_DETUNE_MULTIPLE, channel, operator);
+          table[base | (OPERATOR_VOLUME_INVERSE + offset)] =
+            handler(HANDLER_OPERATOR_VOLUME_INVERSE, channel, operator);
+          table[base | (OPERATOR_RATE_SCALING_AND_ATTACK_RATE + offset)] =
+            handler(HANDLER_OPERATOR_RATE_SCALING_AND_ATTACK_RATE, channel, operator);
+          table[base | (OPERATOR_RATE_DECAY_AND_AMPLITUDE_MODULATION + offset)] =
+            handler(HANDLER_OPERATOR_RATE_DECAY_AND_AMPLITUDE_MODULATION, channel, operator);
+          table[base | (OPERATOR_RATE_DECAY_SECONDARY + offset)] =
+            handler(HANDLER_OPERATOR_RATE_DECAY_SECONDARY, channel, operator);
+          table[base | (OPERATOR_RATE_RELEASE_SECONDARY_AMPLITUDE + offset)] =
+            handler(HANDLER_OPERATOR_RATE_RELEASE_SECONDARY_AMPLITUDE, channel, operator);
+        }
+
+        /*
+         * The third channel of each port has per-operator frequencies in
+         * special mode, and the channel frequency registers then address
+         * the first operator.
+         */
+
+        if (slot == 2) {
+          table[base | (CHANNEL_FREQUENCY_LSB + slot)] =
+            handler(HANDLER_CHANNEL_SPECIAL_FREQUENCY_LSB, channel, 0);
+          table[base | (CHANNEL_FREQUENCY_MSB + slot)] =
+            handler(HANDLER_CHANNEL_SPECIAL_FREQUENCY_MSB, channel, 0);
+
+          for (int operator = 1; operator < 4; ++operator) {
+            table[base | (SPECIAL_FREQUENCY_LSB + operator - 1)] =
+              handler(HANDLER_OPERATOR_FREQUENCY_LSB, channel, operator);
+            table[base | (SPECIAL_FREQUENCY_MSB + operator - 1)] =
+              handler(HANDLER_OPERATOR_FREQUENCY_MSB, channel, operator);
+          }
+        } else {
+          table[base | (CHANNEL_FREQUENCY_LSB + slot)] =
+            handler(HANDLER_CHANNEL_FREQUENCY_LSB, channel, 0);
+          table[base | (CHANNEL_FREQUENCY_MSB + slot)] =
+            handler(HANDLER_CHANNEL_FREQUENCY_MSB, channel, 0);
         }
+
+        table[base | (CHANNEL_ALGORITHM_AND_FEEDBACK + slot)] =
+          handler(HANDLER_CHANNEL_ALGORITHM_AND_FEEDBACK, channel, 0);
+        table[base | (CHANNEL_STEREO_AND_LFO_SENSITIVITY + slot)] =
+          handler(HANDLER_CHANNEL_STEREO_AND_LFO_SENSITIVITY, channel, 0);
       }
-    } finally {
-      this.callbacks.onInstructionReceived().onInstructionReceived(this, preset_changed);
     }
+
+    table[LFO_ENABLE] = HANDLER_LFO;
+    table[TIMER_A_MSB] = HANDLER_TIMER_A_MSB;
+    table[TIMER_A_LSB] = HANDLER_TIMER_A_LSB;
+    table[TIMER_B] = HANDLER_TIMER_B;
+    table[TIMERS_AND_CHANNEL_3_6_MODE] = HANDLER_TIMERS_AND_MODE;
+    table[KEY_ON_OFF] = HANDLER_KEY_ON_OFF;
+    table[DAC_DATA] = HANDLER_DAC_DATA;
+    table[DAC_ENABLE] = HANDLER_DAC_ENABLE;
+    return table;
+  }
+
+  /**
+   * @param in_index The channel index
+   *
+   * @return The channel with the given index
+   */
+
+  public VGMYM2612Channel channel(
+    final int in_index)
+  {
+    if (in_index < 0 || in_index >= this.channels.length) {
+      throw new IllegalArgumentException("Illegal channel index: " + in_index);
+    }
+    return this.channels[in_index];
+  }
+
+  /**
+   * Write the current state of all channels into the given packed snapshot.
+   * This method does not allocate.
+   *
+   * @param packed The target snapshot
+   */
+
+  public void snapshotInto(
+    final VGMYM2612PackedSnapshot packed)
+  {
+    Objects.requireNonNull(packed, "packed");
+    for (final VGMYM2612Channel channel : this.channels) {
+      channel.snapshotInto(packed);
+    }
+  }
+
+  /**
+   * Write {@code value} to {@code register} in port 1.
+   *
+   * @param register The register (in the range {@code [0x0, 0xff]})
+   * @param value    The value (in the range {@code [0x0, 0xff]})
+   */
+
+  public void writeRegisterPort1(
+    final int register,
+    final int value)
+  {
+    this.writeRegister(1, register, value);
   }
-  // CHECKSTYLE:ON
 
   /**
    * Write {@code value} to {@code register} in port 0.
@@ -760,461 +761,227 @@ public final class VGMYM2612Interpreter
    * @param value    The value (in the range {@code [0x0, 0xff]})
    */
 
-  // Switch-based interpreters suffer from high cyclomatic complexity
-  // CHECKSTYLE:OFF
   public void writeRegisterPort0(
     final int register,
     final int value)
   {
-    boolean preset_changed = true;
+    this.writeRegister(0, register, value);
+  }
 
-    try {
+  /**
+   * Write {@code value} to {@code register} in {@code port}.
+   *
+   * @param port     The port (in the range {@code [0, 1]})
+   * @param register The register (in the range {@code [0x0, 0xff]})
+   * @param value    The value (in the range {@code [0x0, 0xff]})
+   */
+
+  public void writeRegister(
+    final int port,
+    final int register,
+    final int value)
+  {
+    final int address = ((port & 0b1) << 8) | (register & 0xff);
+
+    if (LOG.isTraceEnabled()) {
       LOG.trace(
-        "write: port 0: 0x{} 0x{}",
+        "write: port {}: 0x{} 0x{}",
+        Integer.valueOf(port & 0b1),
         Integer.toUnsignedString(register, 16),
         Integer.toUnsignedString(value, 16));
+    }
 
-      switch (register & 0xff) {
-        case 0x90:
-        case 0x91:
-        case 0x92:
-        case 0x93:
-        case 0x94:
-        case 0x95:
-        case 0x96:
-        case 0x97:
-        case 0x98:
-        case 0x99:
-        case 0x9a:
-        case 0x9b:
-        case 0x9c:
-        case 0x9d:
-        case 0x9e: {
-          // XXX: It's not clear whether this should be a "preset" change or not
-          this.setProprietaryRegister(register, value);
-          break;
-        }
+    final boolean changed = this.state.register(port, register) != (value & 0xff);
+    this.state.setRegister(address, value);
 
-        case TIMER_B: {
-          this.setTimerBTime(value);
-          break;
-        }
+    if (this.per_time_step) {
+      this.step.recordWrite(this.dispatch(address, value, changed));
+      return;
+    }
 
-        case CHANNEL_0_STEREO_AND_LFO_SENSITIVITY: {
-          this.channel(0).setStereoAndLFOSensitivity(value);
-          break;
-        }
-        case CHANNEL_1_STEREO_AND_LFO_SENSITIVITY: {
-          this.channel(1).setStereoAndLFOSensitivity(value);
-          break;
-        }
-        case CHANNEL_2_STEREO_AND_LFO_SENSITIVITY: {
-          this.channel(2).setStereoAndLFOSensitivity(value);
-          break;
-        }
-        case CHANNEL_0_ALGORITHM_AND_FEEDBACK: {
-          this.channel(0).setAlgorithmAndFeedback(value);
-          break;
-        }
-        case CHANNEL_1_ALGORITHM_AND_FEEDBACK: {
-          this.channel(1).setAlgorithmAndFeedback(value);
-          break;
-        }
-        case CHANNEL_2_ALGORITHM_AND_FEEDBACK: {
-          this.channel(2).setAlgorithmAndFeedback(value);
-          break;
-        }
-        case CHANNEL_0_FREQUENCY_LSB: {
-          this.channel(0).setFrequencyLSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_0_FREQUENCY_MSB: {
-          this.channel(0).setFrequencyMSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_1_FREQUENCY_LSB: {
-          this.channel(1).setFrequencyLSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_1_FREQUENCY_MSB: {
-          this.channel(1).setFrequencyMSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_2_FREQUENCY_LSB: {
-          final VGMYM2612Channel channel = this.channel(2);
-          if (this.channel_3_6_special_mode) {
-            channel.operator(0).setFrequencyLSB(value);
-          } else {
-            channel.setFrequencyLSB(value);
-            preset_changed = false;
-          }
-          break;
-        }
-        case CHANNEL_2_FREQUENCY_MSB: {
-          final VGMYM2612Channel channel = this.channel(2);
-          if (this.channel_3_6_special_mode) {
-            channel.operator(0).setFrequencyMSB(value);
-          } else {
-            channel.setFrequencyMSB(value);
-            preset_changed = false;
-          }
-          break;
-        }
-        case CHANNEL_2_FREQUENCY_LSB_OPERATOR_1: {
-          this.channel(2).operator(1).setFrequencyLSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_2_FREQUENCY_MSB_OPERATOR_1: {
-          this.channel(2).operator(1).setFrequencyMSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_2_FREQUENCY_LSB_OPERATOR_2: {
-          this.channel(2).operator(2).setFrequencyLSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_2_FREQUENCY_MSB_OPERATOR_2: {
-          this.channel(2).operator(2).setFrequencyMSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_2_FREQUENCY_LSB_OPERATOR_3: {
-          this.channel(2).operator(3).setFrequencyLSB(value);
-          preset_changed = false;
-          break;
-        }
-        case CHANNEL_2_FREQUENCY_MSB_OPERATOR_3: {
-          this.channel(2).operator(3).setFrequencyMSB(value);
-          preset_changed = false;
-          break;
-        }
-        case DAC_DATA: {
-          this.setDACData(value);
-          break;
-        }
-        case DAC_ENABLE: {
-          this.setDAC(value);
-          break;
-        }
-        case KEY_ON_OFF: {
-          this.setKeyOnOff(value);
-          preset_changed = false;
-          break;
-        }
-        case TIMERS_AND_CHANNEL_3_6_MODE: {
-          this.setTimersAndChannel3_6Mode(value);
-          break;
-        }
-        case LFO_ENABLE: {
-          this.setLFO(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_0_DETUNE_MULTIPLE: {
-          this.channel(0).operator(0).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_1_DETUNE_MULTIPLE: {
-          this.channel(0).operator(1).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_2_DETUNE_MULTIPLE: {
-          this.channel(0).operator(2).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_3_DETUNE_MULTIPLE: {
-          this.channel(0).operator(3).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_0_VOLUME_INVERSE: {
-          this.channel(0).operator(0).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_1_VOLUME_INVERSE: {
-          this.channel(0).operator(1).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_2_VOLUME_INVERSE: {
-          this.channel(0).operator(2).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_3_VOLUME_INVERSE: {
-          this.channel(0).operator(3).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_0_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(0).operator(0).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_1_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(0).operator(1).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_2_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(0).operator(2).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_3_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(0).operator(3).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_0_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(0).operator(0).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_1_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(0).operator(1).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_2_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(0).operator(2).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_3_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(0).operator(3).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_0_RATE_DECAY_SECONDARY: {
-          this.channel(0).operator(0).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_1_RATE_DECAY_SECONDARY: {
-          this.channel(0).operator(1).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_2_RATE_DECAY_SECONDARY: {
-          this.channel(0).operator(2).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_3_RATE_DECAY_SECONDARY: {
-          this.channel(0).operator(3).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_0_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(0).operator(0).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_1_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(0).operator(1).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_2_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(0).operator(2).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_0_OPERATOR_3_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(0).operator(3).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_0_DETUNE_MULTIPLE: {
-          this.channel(1).operator(0).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_1_DETUNE_MULTIPLE: {
-          this.channel(1).operator(1).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_2_DETUNE_MULTIPLE: {
-          this.channel(1).operator(2).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_3_DETUNE_MULTIPLE: {
-          this.channel(1).operator(3).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_0_VOLUME_INVERSE: {
-          this.channel(1).operator(0).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_1_VOLUME_INVERSE: {
-          this.channel(1).operator(1).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_2_VOLUME_INVERSE: {
-          this.channel(1).operator(2).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_3_VOLUME_INVERSE: {
-          this.channel(1).operator(3).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_0_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(1).operator(0).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_1_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(1).operator(1).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_2_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(1).operator(2).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_3_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(1).operator(3).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_0_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(1).operator(0).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_1_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(1).operator(1).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_2_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(1).operator(2).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_3_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(1).operator(3).setRateDecayAndAmplitudeModulation(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_0_RATE_DECAY_SECONDARY: {
-          this.channel(1).operator(0).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_1_RATE_DECAY_SECONDARY: {
-          this.channel(1).operator(1).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_2_RATE_DECAY_SECONDARY: {
-          this.channel(1).operator(2).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_3_RATE_DECAY_SECONDARY: {
-          this.channel(1).operator(3).setRateDecaySecondary(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_0_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(1).operator(0).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_1_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(1).operator(1).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_2_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(1).operator(2).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_1_OPERATOR_3_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(1).operator(3).setRateReleaseAndSecondaryAmplitude(value);
-          break;
-        }
-        case CHANNEL_2_OPERATOR_0_DETUNE_MULTIPLE: {
-          this.channel(2).operator(0).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_2_OPERATOR_1_DETUNE_MULTIPLE: {
-          this.channel(2).operator(1).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_2_OPERATOR_2_DETUNE_MULTIPLE: {
-          this.channel(2).operator(2).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_2_OPERATOR_3_DETUNE_MULTIPLE: {
-          this.channel(2).operator(3).setDetuneAndMultiple(value);
-          break;
-        }
-        case CHANNEL_2_OPERATOR_0_VOLUME_INVERSE: {
-          this.channel(2).operator(0).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_2_OPERATOR_1_VOLUME_INVERSE: {
-          this.channel(2).operator(1).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_2_OPERATOR_2_VOLUME_INVERSE: {
-          this.channel(2).operator(2).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_2_OPERATOR_3_VOLUME_INVERSE: {
-          this.channel(2).operator(3).setVolumeInverse(value);
-          break;
-        }
-        case CHANNEL_2_OPERATOR_0_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(2).operator(0).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_2_OPERATOR_1_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(2).operator(1).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_2_OPERATOR_2_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(2).operator(2).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_2_OPERATOR_3_RATE_SCALING_AND_ATTACK_RATE: {
-          this.channel(2).operator(3).setRateScalingAndAttackRate(value);
-          break;
-        }
-        case CHANNEL_2_OPERATOR_0_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(2).operator(0).setRateDecayAndAmplitudeModulation(value);
-          break;
+    boolean preset_changed = false;
+    try {
+      preset_changed = this.dispatch(address, value, changed);
+    } finally {
+      this.on_instruction.onInstructionReceived(this, preset_changed);
+    }
+  }
+
+  /**
+   * Execute the handler for the given address. Parameter groups are marked
+   * as dirty only if {@code changed} indicates that the written value differs
+   * from the value previously held by the register, with the exception of
+   * registers whose meaning depends on other state (key on/off and the
+   * special mode frequency registers).
+   *
+   * @return {@code true} iff the write changed the current preset
+   */
+
+  // Switch-based interpreters suffer from high cyclomatic complexity
+  // CHECKSTYLE:OFF
+  private boolean dispatch(
+    final int address,
+    final int value,
+    final boolean changed)
+  {
+    final int handler = HANDLERS[address];
+    final int channel_index = (handler >>> 8) & 0xf;
+    final VGMYM2612Channel channel = this.channels[channel_index];
+    final int operator = (handler >>> 12) & 0xf;
+
+    switch (handler & 0xff) {
+      case HANDLER_PROPRIETARY: {
+        // XXX: It's not clear whether this should be a "preset" change or not
+        this.setProprietaryRegister(address, value);
+        return true;
+      }
+      case HANDLER_LFO: {
+        this.setLFO(value);
+        return true;
+      }
+      case HANDLER_TIMER_A_MSB: {
+        this.setTimerATime(
+          ((value & 0xff) << 2) | (this.state.globalField(GLOBAL_TIMER_A_TIME) & 0b11));
+        return false;
+      }
+      case HANDLER_TIMER_A_LSB: {
+        this.setTimerATime(
+          (this.state.globalField(GLOBAL_TIMER_A_TIME) & ~0b11) | (value & 0b11));
+        return false;
+      }
+      case HANDLER_TIMER_B: {
+        this.setTimerBTime(value);
+        return false;
+      }
+      case HANDLER_TIMERS_AND_MODE: {
+        return this.setTimersAndChannel3_6Mode(value);
+      }
+      case HANDLER_KEY_ON_OFF: {
+        this.setKeyOnOff(value);
+        return false;
+      }
+      case HANDLER_DAC_DATA: {
+        this.setDACData(value);
+        return false;
+      }
+      case HANDLER_DAC_ENABLE: {
+        this.setDAC(value);
+        return true;
+      }
+      case HANDLER_OPERATOR_DETUNE_MULTIPLE: {
+        channel.operator(operator).setDetuneAndMultiple(value);
+        if (changed) {
+          this.markOperator(channel_index, operator, GROUP_PITCH);
         }
-        case CHANNEL_2_OPERATOR_1_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(2).operator(1).setRateDecayAndAmplitudeModulation(value);
-          break;
+        return true;
+      }
+      case HANDLER_OPERATOR_VOLUME_INVERSE: {
+        channel.operator(operator).setVolumeInverse(value);
+        if (changed) {
+          this.markOperator(channel_index, operator, GROUP_LEVEL);
         }
-        case CHANNEL_2_OPERATOR_2_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(2).operator(2).setRateDecayAndAmplitudeModulation(value);
-          break;
+        return true;
+      }
+      case HANDLER_OPERATOR_RATE_SCALING_AND_ATTACK_RATE: {
+        channel.operator(operator).setRateScalingAndAttackRate(value);
+        if (changed) {
+          this.markOperator(channel_index, operator, GROUP_ENVELOPE);
         }
-        case CHANNEL_2_OPERATOR_3_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
-          this.channel(2).operator(3).setRateDecayAndAmplitudeModulation(value);
-          break;
+        return true;
+      }
+      case HANDLER_OPERATOR_RATE_DECAY_AND_AMPLITUDE_MODULATION: {
+        channel.operator(operator).setRateDecayAndAmplitudeModulation(value);
+        if (changed) {
+          this.markOperator(channel_index, operator, GROUP_ENVELOPE);
         }
-        case CHANNEL_2_OPERATOR_0_RATE_DECAY_SECONDARY: {
-          this.channel(2).operator(0).setRateDecaySecondary(value);
-          break;
+        return true;
+      }
+      case HANDLER_OPERATOR_RATE_DECAY_SECONDARY: {
+        channel.operator(operator).setRateDecaySecondary(value);
+        if (changed) {
+          this.markOperator(channel_index, operator, GROUP_ENVELOPE);
         }
-        case CHANNEL_2_OPERATOR_1_RATE_DECAY_SECONDARY: {
-          this.channel(2).operator(1).setRateDecaySecondary(value);
-          break;
+        return true;
+      }
+      case HANDLER_OPERATOR_RATE_RELEASE_SECONDARY_AMPLITUDE: {
+        channel.operator(operator).setRateReleaseAndSecondaryAmplitude(value);
+        if (changed) {
+          this.markOperator(channel_index, operator, GROUP_ENVELOPE);
         }
-        case CHANNEL_2_OPERATOR_2_RATE_DECAY_SECONDARY: {
-          this.channel(2).operator(2).setRateDecaySecondary(value);
-          break;
+        return true;
+      }
+      case HANDLER_OPERATOR_FREQUENCY_LSB: {
+        channel.operator(operator).setFrequencyLSB(value);
+        if (changed) {
+          this.markOperator(channel_index, operator, GROUP_FREQUENCY);
         }
-        case CHANNEL_2_OPERATOR_3_RATE_DECAY_SECONDARY: {
-          this.channel(2).operator(3).setRateDecaySecondary(value);
-          break;
+        return false;
+      }
+      case HANDLER_OPERATOR_FREQUENCY_MSB: {
+        channel.operator(operator).setFrequencyMSB(value);
+        if (changed) {
+          this.markOperator(channel_index, operator, GROUP_FREQUENCY);
         }
-        case CHANNEL_2_OPERATOR_0_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(2).operator(0).setRateReleaseAndSecondaryAmplitude(value);
-          break;
+        return false;
+      }
+      case HANDLER_CHANNEL_FREQUENCY_LSB: {
+        channel.setFrequencyLSB(value);
+        if (changed) {
+          this.markChannel(channel_index, GROUP_FREQUENCY);
         }
-        case CHANNEL_2_OPERATOR_1_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(2).operator(1).setRateReleaseAndSecondaryAmplitude(value);
-          break;
+        return false;
+      }
+      case HANDLER_CHANNEL_FREQUENCY_MSB: {
+        channel.setFrequencyMSB(value);
+        if (changed) {
+          this.markChannel(channel_index, GROUP_FREQUENCY);
         }
-        case CHANNEL_2_OPERATOR_2_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(2).operator(2).setRateReleaseAndSecondaryAmplitude(value);
-          break;
+        return false;
+      }
+      case HANDLER_CHANNEL_SPECIAL_FREQUENCY_LSB: {
+        if (this.isSpecialMode()) {
+          channel.operator(0).setFrequencyLSB(value);
+          this.markOperator(channel_index, 0, GROUP_FREQUENCY);
+          return true;
+        }
+        channel.setFrequencyLSB(value);
+        this.markChannel(channel_index, GROUP_FREQUENCY);
+        return false;
+      }
+      case HANDLER_CHANNEL_SPECIAL_FREQUENCY_MSB: {
+        if (this.isSpecialMode()) {
+          channel.operator(0).setFrequencyMSB(value);
+          this.markOperator(channel_index, 0, GROUP_FREQUENCY);
+          return true;
+        }
+        channel.setFrequencyMSB(value);
+        this.markChannel(channel_index, GROUP_FREQUENCY);
+        return false;
+      }
+      case HANDLER_CHANNEL_ALGORITHM_AND_FEEDBACK: {
+        channel.setAlgorithmAndFeedback(value);
+        if (changed) {
+          this.markChannel(channel_index, GROUP_ALGORITHM_FEEDBACK);
         }
-        case CHANNEL_2_OPERATOR_3_RATE_RELEASE_SECONDARY_AMPLITUDE: {
-          this.channel(2).operator(3).setRateReleaseAndSecondaryAmplitude(value);
-          break;
+        return true;
+      }
+      case HANDLER_CHANNEL_STEREO_AND_LFO_SENSITIVITY: {
+        channel.setStereoAndLFOSensitivity(value);
+        if (changed) {
+          this.markChannel(channel_index, GROUP_STEREO_LFO);
         }
-
-        default: {
+        return true;
+      }
+      default: {
+        if (LOG.isWarnEnabled()) {
           LOG.warn(
-            "write: port 0: unrecognized or unimplemented command 0x{} 0x{}",
-            Integer.toUnsignedString(register, 16),
+            "write: port {}: unrecognized or unimplemented command 0x{} 0x{}",
+            Integer.valueOf(address >>> 8),
+            Integer.toUnsignedString(address & 0xff, 16),
             Integer.toUnsignedString(value, 16));
-          preset_changed = false;
-          break;
         }
+        return false;
       }
-    } finally {
-      this.callbacks.onInstructionReceived().onInstructionReceived(this, preset_changed);
     }
   }
   // CHECKSTYLE:ON
@@ -1231,44 +998,62 @@ public final class VGMYM2612Interpreter
     }
   }
 
+  private void setTimerATime(
+    final int value)
+  {
+    this.state.setGlobalField(GLOBAL_TIMER_A_TIME, value);
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+        "setTimerATime: 0x{}",
+        Integer.toUnsignedString(value, 16));
+    }
+  }
+
   private void setTimerBTime(
     final int value)
   {
-    this.timer_b_time = value;
+    this.state.setGlobalField(GLOBAL_TIMER_B_TIME, value & 0xff);
 
     if (LOG.isTraceEnabled()) {
       LOG.trace(
         "setTimerBTime: 0x{}",
-        Integer.toUnsignedString(this.timer_b_time, 16));
+        Integer.toUnsignedString(value, 16));
     }
   }
 
   private void setDACData(
     final int value)
   {
+    this.state.setGlobalField(GLOBAL_DAC_DATA, value & 0xff);
+
     if (LOG.isTraceEnabled()) {
       LOG.trace("setDACData: 0x{}", Integer.toUnsignedString(value, 16));
     }
   }
 
+  private void setOperatorEnabled(
+    final VGMYM2612Channel channel,
+    final int operator_index,
+    final boolean enabled)
+  {
+    final VGMYM2612Operator operator = channel.operator(operator_index);
+    if (operator.isEnabled() != enabled) {
+      this.markOperator(channel.index(), operator_index, GROUP_KEY);
+    }
+    operator.setEnabled(enabled);
+  }
+
   private void setKeyOnOff(
     final int value)
   {
     final VGMYM2612Channel channel;
     final int channel_index = value & 0b111;
-    if (channel_index == 0b000) {
-      channel = this.channel(0);
-    } else if (channel_index == 0b001) {
-      channel = this.channel(1);
-    } else if (channel_index == 0b010) {
-      channel = this.channel(2);
+    if (channel_index <= 0b010) {
+      channel = this.channels[channel_index];
       // This is not a typo: The operator numbering is discontinuous
-    } else if (channel_index == 0b100) {
-      channel = this.channel(3);
-    } else if (channel_index == 0b101) {
-      channel = this.channel(4);
-    } else if (channel_index == 0b110) {
-      channel = this.channel(5);
+    } else if (channel_index >= 0b100 && channel_index <= 0b110) {
+      channel = this.channels[channel_index - 1];
     } else {
       LOG.warn(
         "setKeyOnOff: channel 0x{} is invalid",
@@ -1278,13 +1063,13 @@ public final class VGMYM2612Interpreter
 
     final int ops = (value >>> 4) & 0b1111;
     final boolean op_0 = (ops & 0b0001) == 0b0001;
-    channel.operator(0).setEnabled(op_0);
+    this.setOperatorEnabled(channel, 0, op_0);
     final boolean op_1 = (ops & 0b0010) == 0b0010;
-    channel.operator(1).setEnabled(op_1);
+    this.setOperatorEnabled(channel, 1, op_1);
     final boolean op_2 = (ops & 0b0100) == 0b0100;
-    channel.operator(2).setEnabled(op_2);
+    this.setOperatorEnabled(channel, 2, op_2);
     final boolean op_3 = (ops & 0b1000) == 0b1000;
-    channel.operator(3).setEnabled(op_3);
+    this.setOperatorEnabled(channel, 3, op_3);
 
     if (LOG.isTraceEnabled()) {
       LOG.trace(
@@ -1297,72 +1082,104 @@ public final class VGMYM2612Interpreter
     }
   }
 
-  private void setTimersAndChannel3_6Mode(
+  private boolean setTimersAndChannel3_6Mode(
     final int value)
   {
     /*
-     * There are 2 bits that specify the channel 3/6 mode, but only bit patterns
-     * 0b00 and 0b01 are valid.
+     * The mode bit patterns are 0b00 (normal), 0b01 (special) and 0b10
+     * (CSM). CSM mode also uses the per-operator frequencies of special
+     * mode, and so 0b11 is treated as special mode.
      */
 
+    final boolean special_before = this.isSpecialMode();
     final int mode_raw = (value >>> 6) & 0b11;
-    if (mode_raw == 0b00) {
-      this.channel_3_6_special_mode = false;
-    } else if (mode_raw == 0b01) {
-      this.channel_3_6_special_mode = true;
-    } else {
-      LOG.warn(
-        "setTimersAndChannel3_6Mode: mode 0x{} is invalid",
-        Integer.toUnsignedString(mode_raw, 16));
+    this.state.setGlobalField(
+      GLOBAL_CHANNEL_3_6_SPECIAL_MODE, mode_raw != 0b00 ? 1 : 0);
+    this.state.setGlobalField(
+      GLOBAL_CHANNEL_3_CSM_MODE, mode_raw == 0b10 ? 1 : 0);
+
+    final boolean mode_changed = special_before != this.isSpecialMode();
+    if (mode_changed) {
+      this.markChannel(2, GROUP_FREQUENCY);
+      this.markChannel(5, GROUP_FREQUENCY);
+    }
+
+    final int timer_b_reset = (value >>> 5) & 0b1;
+    final int timer_a_reset = (value >>> 4) & 0b1;
+    final int timer_b_enable = (value >>> 3) & 0b1;
+    final int timer_a_enable = (value >>> 2) & 0b1;
+    final int timer_b_load = (value >>> 1) & 0b1;
+    final int timer_a_load = value & 0b1;
+
+    /*
+     * The reset bits clear the overflow flags, and a timer is reloaded
+     * when its load bit changes from 0 to 1.
+     */
+
+    final int status = this.state.globalField(GLOBAL_TIMER_STATUS);
+    this.state.setGlobalField(
+      GLOBAL_TIMER_STATUS,
+      status & ~((timer_b_reset << 1) | timer_a_reset));
+
+    if (timer_a_load > this.state.globalField(GLOBAL_TIMER_A_LOAD)) {
+      this.state.setGlobalField(GLOBAL_TIMER_A_COUNTER, this.timerAPeriod());
+    }
+    if (timer_b_load > this.state.globalField(GLOBAL_TIMER_B_LOAD)) {
+      this.state.setGlobalField(GLOBAL_TIMER_B_COUNTER, this.timerBPeriod());
     }
 
-    this.timer_b_reset = (value >>> 5) & 0b1;
-    this.timer_a_reset = (value >>> 4) & 0b1;
-    this.timer_b_enable = (value >>> 3) & 0b1;
-    this.timer_a_enable = (value >>> 2) & 0b1;
-    this.timer_b_load = (value >>> 1) & 0b1;
-    this.timer_a_load = value & 0b1;
+    this.state.setGlobalField(GLOBAL_TIMER_B_RESET, timer_b_reset);
+    this.state.setGlobalField(GLOBAL_TIMER_A_RESET, timer_a_reset);
+    this.state.setGlobalField(GLOBAL_TIMER_B_ENABLE, timer_b_enable);
+    this.state.setGlobalField(GLOBAL_TIMER_A_ENABLE, timer_a_enable);
+    this.state.setGlobalField(GLOBAL_TIMER_B_LOAD, timer_b_load);
+    this.state.setGlobalField(GLOBAL_TIMER_A_LOAD, timer_a_load);
 
     if (LOG.isTraceEnabled()) {
       LOG.trace(
-        "setTimersAndChannel3_6Mode: channel 3/6 mode {}",
-        this.channel_3_6_special_mode ? "special" : "normal");
+        "setTimersAndChannel3_6Mode: channel 3/6 mode {} csm {}",
+        this.isSpecialMode() ? "special" : "normal",
+        Boolean.valueOf(this.isCSMMode()));
       LOG.trace(
         "setTimersAndChannel3_6Mode: timer A reset/enable/load ({}/{}/{})",
-        Integer.valueOf(this.timer_a_reset),
-        Integer.valueOf(this.timer_a_enable),
-        Integer.valueOf(this.timer_a_load));
+        Integer.valueOf(timer_a_reset),
+        Integer.valueOf(timer_a_enable),
+        Integer.valueOf(timer_a_load));
       LOG.trace(
         "setTimersAndChannel3_6Mode: timer B reset/enable/load ({}/{}/{})",
-        Integer.valueOf(this.timer_b_reset),
-        Integer.valueOf(this.timer_b_enable),
-        Integer.valueOf(this.timer_b_load));
+        Integer.valueOf(timer_b_reset),
+        Integer.valueOf(timer_b_enable),
+        Integer.valueOf(timer_b_load));
     }
+    return mode_changed;
   }
 
   private void setDAC(
     final int value)
   {
-    this.dac_enable = (value >>> 7) & 0b1;
+    final int enable = (value >>> 7) & 0b1;
+    this.state.setGlobalField(GLOBAL_DAC_ENABLE, enable);
 
     if (LOG.isTraceEnabled()) {
       LOG.trace(
         "setDAC: enable {}",
-        Boolean.valueOf(this.dac_enable == 1));
+        Boolean.valueOf(enable == 1));
     }
   }
 
   private void setLFO(
     final int value)
   {
-    this.lfo_enable = (value >>> 3) & 0b1;
-    this.lfo_frequency = value & 0b111;
+    final int enable = (value >>> 3) & 0b1;
+    final int frequency = value & 0b111;
+    this.state.setGlobalField(GLOBAL_LFO_ENABLE, enable);
+    this.state.setGlobalField(GLOBAL_LFO_FREQUENCY, frequency);
 
     if (LOG.isTraceEnabled()) {
       LOG.trace(
         "setLFO: enable {} frequency 0x{}",
-        Boolean.valueOf(this.lfo_enable == 1),
-        Integer.toUnsignedString(this.lfo_frequency, 16));
+        Boolean.valueOf(enable == 1),
+        Integer.toUnsignedString(frequency, 16));
     }
   }
 }
@@ -21,51 +21,67 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Objects;
 
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.OPERATOR_AMPLITUDE_MODULATION;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.OPERATOR_AMPLITUDE_SECONDARY;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.OPERATOR_ENABLED;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.OPERATOR_FREQUENCY_LSB;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.OPERATOR_FREQUENCY_MSB;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.OPERATOR_FREQUENCY_OCTAVE;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.OPERATOR_PITCH_DETUNE;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.OPERATOR_PITCH_MULTIPLY;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.OPERATOR_RATE_ATTACK;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.OPERATOR_RATE_DECAY_0;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.OPERATOR_RATE_DECAY_1;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.OPERATOR_RATE_RELEASE;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.OPERATOR_RATE_SCALE;
+import static com.io7m.jvgm.interpreter.ym2612.VGMYM2612State.OPERATOR_VOLUME;
+
 /**
- * An operator.
+ * An operator. An operator is a view over the state of an interpreter, and
+ * holds no state of its own.
  */
 
 public final class VGMYM2612Operator
 {
+  private static final Logger LOG =
+    LoggerFactory.getLogger(VGMYM2612Operator.class);
+
   private final int index;
-  private final VGMYM2612Channel channel;
-  private VGMYM2612Interpreter interpreter;
-  private Logger log;
-  private int pitch_multiply;
-  private int pitch_detune;
-  private int volume;
-  private int rate_scale;
-  private int rate_attack;
-  private int amplitude_modulation_enabled;
-  private int rate_decay_0;
-  private int rate_decay_1;
-  private int amplitude_secondary;
-  private int rate_release;
-  private boolean enabled;
-  private int frequency_lsb;
-  private int frequency_msb;
-  private int frequency_octave;
+  private final int channel;
+  private final int slot;
+  private final VGMYM2612State state;
 
   VGMYM2612Operator(
-    final VGMYM2612Interpreter in_interpreter,
-    final VGMYM2612Channel in_channel,
+    final VGMYM2612State in_state,
+    final int in_channel,
     final int in_index)
   {
-    this.interpreter =
-      Objects.requireNonNull(in_interpreter, "interpreter");
-    this.channel =
-      Objects.requireNonNull(in_channel, "channel");
+    this.state = Objects.requireNonNull(in_state, "state");
+    this.channel = in_channel;
     this.index = in_index;
+    this.slot = (in_channel * VGMYM2612State.OPERATORS) + in_index;
+  }
+
+  private int field(
+    final int field)
+  {
+    return this.state.operatorField(field, this.slot);
+  }
+
+  private void setField(
+    final int field,
+    final int value)
+  {
+    this.state.setOperatorField(field, this.slot, value);
+  }
+
+  /**
+   * @return The operator index
+   */
 
-    this.log = LoggerFactory.getLogger(
-      new StringBuilder(128)
-        .append(VGMYM2612Interpreter.class.getCanonicalName())
-        .append(" [channel ")
-        .append(this.channel.index())
-        .append("] [operator ")
-        .append(in_index)
-        .append("]")
-        .toString());
+  public int index()
+  {
+    return this.index;
   }
 
   /**
@@ -75,18 +91,38 @@ public final class VGMYM2612Operator
   public VGMYM2612OperatorSnapshot snapshot()
   {
     return VGMYM2612OperatorSnapshot.builder()
-      .setEnvelopeDecay1Level(this.amplitude_secondary)
-      .setEnvelopeDecay1Rate(this.rate_decay_0)
-      .setEnvelopeDecay2Rate(this.rate_decay_1)
-      .setEnvelopeRateAttack(this.rate_attack)
-      .setEnvelopeReleaseRate(this.rate_release)
+      .setEnvelopeDecay1Level(this.field(OPERATOR_AMPLITUDE_SECONDARY))
+      .setEnvelopeDecay1Rate(this.field(OPERATOR_RATE_DECAY_0))
+      .setEnvelopeDecay2Rate(this.field(OPERATOR_RATE_DECAY_1))
+      .setEnvelopeRateAttack(this.field(OPERATOR_RATE_ATTACK))
+      .setEnvelopeReleaseRate(this.field(OPERATOR_RATE_RELEASE))
       .setIndex(this.index)
-      .setPitchDetune(this.pitch_detune)
-      .setPitchMultiply(this.pitch_multiply)
-      .setVolumeInverse(this.volume)
+      .setPitchDetune(this.field(OPERATOR_PITCH_DETUNE))
+      .setPitchMultiply(this.field(OPERATOR_PITCH_MULTIPLY))
+      .setVolumeInverse(this.field(OPERATOR_VOLUME))
       .build();
   }
 
+  private long fieldByte(
+    final int field,
+    final int position)
+  {
+    return (long) (this.field(field) & 0xff) << (position * 8);
+  }
+
+  long packed()
+  {
+    long word = this.fieldByte(OPERATOR_PITCH_MULTIPLY, 0);
+    word |= this.fieldByte(OPERATOR_PITCH_DETUNE, 1);
+    word |= this.fieldByte(OPERATOR_VOLUME, 2);
+    word |= this.fieldByte(OPERATOR_RATE_ATTACK, 3);
+    word |= this.fieldByte(OPERATOR_RATE_DECAY_0, 4);
+    word |= this.fieldByte(OPERATOR_RATE_DECAY_1, 5);
+    word |= this.fieldByte(OPERATOR_AMPLITUDE_SECONDARY, 6);
+    word |= this.fieldByte(OPERATOR_RATE_RELEASE, 7);
+    return word;
+  }
+
   /**
    * Set the detune and pitch multiplication.
    *
@@ -96,16 +132,18 @@ public final class VGMYM2612Operator
   public void setDetuneAndMultiple(
     final int value)
   {
-    final int mult = value & 0b1111;
-    this.pitch_multiply = mult;
+    final int multiply = value & 0b1111;
     final int detune = (value >>> 4) & 0b111;
-    this.pitch_detune = detune;
-
-    if (this.log.isTraceEnabled()) {
-      this.log.trace(
-        "setDetuneAndMultiple: multiply {} detune {}",
-        Integer.valueOf(this.pitch_multiply),
-        Integer.valueOf(this.pitch_detune));
+    this.setField(OPERATOR_PITCH_MULTIPLY, multiply);
+    this.setField(OPERATOR_PITCH_DETUNE, detune);
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+        "[channel {}] [operator {}] setDetuneAndMultiple: multiply {} detune {}",
+        Integer.valueOf(this.channel),
+        Integer.valueOf(this.index),
+        Integer.valueOf(multiply),
+        Integer.valueOf(detune));
     }
   }
 
@@ -118,12 +156,14 @@ public final class VGMYM2612Operator
   public void setVolumeInverse(
     final int value)
   {
-    this.volume = value;
+    this.setField(OPERATOR_VOLUME, value);
 
-    if (this.log.isTraceEnabled()) {
-      this.log.trace(
-        "setVolumeInverse: 0x{}",
-        Integer.toUnsignedString(this.volume, 16));
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+        "[channel {}] [operator {}] setVolumeInverse: 0x{}",
+        Integer.valueOf(this.channel),
+        Integer.valueOf(this.index),
+        Integer.toUnsignedString(value, 16));
     }
   }
 
@@ -136,14 +176,18 @@ public final class VGMYM2612Operator
   public void setRateScalingAndAttackRate(
     final int value)
   {
-    this.rate_scale = (value >>> 6) & 0b11;
-    this.rate_attack = value & 0b11111;
-
-    if (this.log.isTraceEnabled()) {
-      this.log.trace(
-        "setRateScalingAndAttackRate: scale {} attack {}",
-        Integer.valueOf(this.rate_scale),
-        Integer.valueOf(this.rate_attack));
+    final int scale = (value >>> 6) & 0b11;
+    final int attack = value & 0b11111;
+    this.setField(OPERATOR_RATE_SCALE, scale);
+    this.setField(OPERATOR_RATE_ATTACK, attack);
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+        "[channel {}] [operator {}] setRateScalingAndAttackRate: scale {} attack {}",
+        Integer.valueOf(this.channel),
+        Integer.valueOf(this.index),
+        Integer.valueOf(scale),
+        Integer.valueOf(attack));
     }
   }
 
@@ -156,14 +200,18 @@ public final class VGMYM2612Operator
   public void setRateDecayAndAmplitudeModulation(
     final int value)
   {
-    this.amplitude_modulation_enabled = (value >>> 7) & 0b1;
-    this.rate_decay_0 = value & 0b11111;
-
-    if (this.log.isTraceEnabled()) {
-      this.log.trace(
-        "setRateDecayAndAmplitudeModulation: amp-mod {} decay-0 {}",
-        Integer.valueOf(this.amplitude_modulation_enabled),
-        Integer.valueOf(this.rate_decay_0));
+    final int modulation = (value >>> 7) & 0b1;
+    final int decay = value & 0b11111;
+    this.setField(OPERATOR_AMPLITUDE_MODULATION, modulation);
+    this.setField(OPERATOR_RATE_DECAY_0, decay);
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+        "[channel {}] [operator {}] setRateDecayAndAmplitudeModulation: amp-mod {} decay-0 {}",
+        Integer.valueOf(this.channel),
+        Integer.valueOf(this.index),
+        Integer.valueOf(modulation),
+        Integer.valueOf(decay));
     }
   }
 
@@ -176,12 +224,15 @@ public final class VGMYM2612Operator
   public void setRateDecaySecondary(
     final int value)
   {
-    this.rate_decay_1 = value & 0b11111;
-
-    if (this.log.isTraceEnabled()) {
-      this.log.trace(
-        "setRateDecaySecondary: decay-1 {}",
-        Integer.valueOf(this.rate_decay_1));
+    final int decay = value & 0b11111;
+    this.setField(OPERATOR_RATE_DECAY_1, decay);
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+        "[channel {}] [operator {}] setRateDecaySecondary: decay-1 {}",
+        Integer.valueOf(this.channel),
+        Integer.valueOf(this.index),
+        Integer.valueOf(decay));
     }
   }
 
@@ -194,14 +245,18 @@ public final class VGMYM2612Operator
   public void setRateReleaseAndSecondaryAmplitude(
     final int value)
   {
-    this.amplitude_secondary = (value >>> 4) & 0b1111;
-    this.rate_release = value & 0b1111;
-
-    if (this.log.isTraceEnabled()) {
-      this.log.trace(
-        "setRateReleaseAndSecondaryAmplitude: amp-second {} release {}",
-        Integer.valueOf(this.amplitude_secondary),
-        Integer.valueOf(this.rate_release));
+    final int amplitude = (value >>> 4) & 0b1111;
+    final int release = value & 0b1111;
+    this.setField(OPERATOR_AMPLITUDE_SECONDARY, amplitude);
+    this.setField(OPERATOR_RATE_RELEASE, release);
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+        "[channel {}] [operator {}] setRateReleaseAndSecondaryAmplitude: amp-second {} release {}",
+        Integer.valueOf(this.channel),
+        Integer.valueOf(this.index),
+        Integer.valueOf(amplitude),
+        Integer.valueOf(release));
     }
   }
 
@@ -214,11 +269,13 @@ public final class VGMYM2612Operator
   public void setFrequencyLSB(
     final int value)
   {
-    this.frequency_lsb = value;
+    this.setField(OPERATOR_FREQUENCY_LSB, value);
 
-    if (this.log.isTraceEnabled()) {
-      this.log.trace(
-        "setFrequencyLSB: (special mode) lsb 0x{}",
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+        "[channel {}] [operator {}] setFrequencyLSB: (special mode) lsb 0x{}",
+        Integer.valueOf(this.channel),
+        Integer.valueOf(this.index),
         Integer.toUnsignedString(value, 16));
     }
   }
@@ -232,14 +289,17 @@ public final class VGMYM2612Operator
   public void setFrequencyMSB(
     final int value)
   {
-    this.frequency_msb = value & 0b111;
-    this.frequency_octave = (value >>> 3) & 0b111;
-
-    if (this.log.isTraceEnabled()) {
-      this.log.trace(
-        "setFrequencyMSB: (special mode) msb 0x{} octave {}",
+    final int octave = (value >>> 3) & 0b111;
+    this.setField(OPERATOR_FREQUENCY_MSB, value & 0b111);
+    this.setField(OPERATOR_FREQUENCY_OCTAVE, octave);
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+        "[channel {}] [operator {}] setFrequencyMSB: (special mode) msb 0x{} octave {}",
+        Integer.valueOf(this.channel),
+        Integer.valueOf(this.index),
         Integer.toUnsignedString(value, 16),
-        Integer.valueOf(this.frequency_octave));
+        Integer.valueOf(octave));
     }
   }
 
@@ -252,10 +312,23 @@ public final class VGMYM2612Operator
   public void setEnabled(
     final boolean e)
   {
-    this.enabled = e;
-
-    if (this.log.isTraceEnabled()) {
-      this.log.trace("setEnabled: {}", Boolean.valueOf(this.enabled));
+    this.setField(OPERATOR_ENABLED, e ? 1 : 0);
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+        "[channel {}] [operator {}] setEnabled: {}",
+        Integer.valueOf(this.channel),
+        Integer.valueOf(this.index),
+        Boolean.valueOf(e));
     }
   }
+
+  /**
+   * @return {@code true} iff the operator is enabled (keyed on)
+   */
+
+  public boolean isEnabled()
+  {
+    return this.field(OPERATOR_ENABLED) != 0;
+  }
 }
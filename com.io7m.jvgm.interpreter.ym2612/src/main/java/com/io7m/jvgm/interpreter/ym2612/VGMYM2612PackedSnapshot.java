@@ -0,0 +1,291 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.interpreter.ym2612;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>A mutable, reusable snapshot of the preset-relevant state of all
+ * channels.</p>
+ *
+ * <p>Each channel is packed into {@code 1 + }{@link VGMYM2612State#OPERATORS}
+ * {@code long} values: one for the channel fields, and one per operator with
+ * each operator field occupying a single byte. A 64-bit fingerprint is
+ * computed for each channel as it is captured, so that callers can cheaply
+ * determine whether a channel has changed before materializing an
+ * immutable {@link VGMYM2612ChannelSnapshot}.</p>
+ *
+ * <p>Capturing into an existing snapshot does not allocate.</p>
+ */
+
+public final class VGMYM2612PackedSnapshot
+{
+  /**
+   * The number of {@code long} values used to pack a single channel.
+   */
+
+  public static final int WORDS_PER_CHANNEL = 1 + VGMYM2612State.OPERATORS;
+
+  private final long[] words;
+  private final long[] fingerprints;
+
+  /**
+   * Construct an empty snapshot. Every channel is initially zero.
+   */
+
+  public VGMYM2612PackedSnapshot()
+  {
+    this.words = new long[WORDS_PER_CHANNEL * VGMYM2612State.CHANNELS];
+    this.fingerprints = new long[VGMYM2612State.CHANNELS];
+    for (int channel = 0; channel < VGMYM2612State.CHANNELS; ++channel) {
+      this.fingerprints[channel] = this.computeFingerprint(channel);
+    }
+  }
+
+  private static void checkChannel(
+    final int channel)
+  {
+    if (channel < 0 || channel >= VGMYM2612State.CHANNELS) {
+      throw new IllegalArgumentException("Invalid channel index: " + channel);
+    }
+  }
+
+  private static int byteOf(
+    final long word,
+    final int index)
+  {
+    return (int) (word >>> (index * 8)) & 0xff;
+  }
+
+  private static long mix(
+    final long x)
+  {
+    long z = x;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Compute the fingerprint of a channel that has been packed into
+   * {@link #WORDS_PER_CHANNEL} consecutive words of an array. This is the
+   * function used by {@link #fingerprint(int)}.
+   *
+   * @param words  The packed words
+   * @param offset The offset of the first word of the channel
+   *
+   * @return A 64-bit fingerprint of the channel
+   */
+
+  public static long fingerprintOf(
+    final long[] words,
+    final int offset)
+  {
+    long hash = 0x9e3779b97f4a7c15L;
+    for (int index = 0; index < WORDS_PER_CHANNEL; ++index) {
+      hash = mix(hash ^ words[offset + index]);
+    }
+    return hash;
+  }
+
+  private long computeFingerprint(
+    final int channel)
+  {
+    return fingerprintOf(this.words, channel * WORDS_PER_CHANNEL);
+  }
+
+  void setChannelWord(
+    final int channel,
+    final long word)
+  {
+    this.words[channel * WORDS_PER_CHANNEL] = word;
+  }
+
+  void setOperatorWord(
+    final int channel,
+    final int operator,
+    final long word)
+  {
+    this.words[(channel * WORDS_PER_CHANNEL) + 1 + operator] = word;
+  }
+
+  void updateFingerprint(
+    final int channel)
+  {
+    this.fingerprints[channel] = this.computeFingerprint(channel);
+  }
+
+  /**
+   * @param channel The channel index
+   *
+   * @return A 64-bit fingerprint of the given channel
+   */
+
+  public long fingerprint(
+    final int channel)
+  {
+    checkChannel(channel);
+    return this.fingerprints[channel];
+  }
+
+  /**
+   * Retrieve one of the packed words of a channel. Word {@code 0} holds the
+   * channel fields, and word {@code 1 + n} holds the fields of operator
+   * {@code n}.
+   *
+   * @param channel The channel index
+   * @param index   The word index in the range
+   *                {@code [0, }{@link #WORDS_PER_CHANNEL}{@code )}
+   *
+   * @return The packed word
+   */
+
+  public long channelWord(
+    final int channel,
+    final int index)
+  {
+    checkChannel(channel);
+    if (index < 0 || index >= WORDS_PER_CHANNEL) {
+      throw new IllegalArgumentException("Invalid word index: " + index);
+    }
+    return this.words[(channel * WORDS_PER_CHANNEL) + index];
+  }
+
+  /**
+   * @param channel The channel index
+   * @param other   The other snapshot
+   *
+   * @return {@code true} iff the given channel is identical in both snapshots
+   */
+
+  public boolean channelEquals(
+    final int channel,
+    final VGMYM2612PackedSnapshot other)
+  {
+    Objects.requireNonNull(other, "other");
+    checkChannel(channel);
+
+    if (this.fingerprints[channel] != other.fingerprints[channel]) {
+      return false;
+    }
+
+    final int base = channel * WORDS_PER_CHANNEL;
+    for (int index = base; index < base + WORDS_PER_CHANNEL; ++index) {
+      if (this.words[index] != other.words[index]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Copy the given channel from the other snapshot into this snapshot.
+   *
+   * @param channel The channel index
+   * @param other   The source snapshot
+   */
+
+  public void copyChannelFrom(
+    final int channel,
+    final VGMYM2612PackedSnapshot other)
+  {
+    Objects.requireNonNull(other, "other");
+    checkChannel(channel);
+
+    final int base = channel * WORDS_PER_CHANNEL;
+    System.arraycopy(other.words, base, this.words, base, WORDS_PER_CHANNEL);
+    this.fingerprints[channel] = other.fingerprints[channel];
+  }
+
+  /**
+   * Copy all channels from the other snapshot into this snapshot.
+   *
+   * @param other The source snapshot
+   */
+
+  public void copyFrom(
+    final VGMYM2612PackedSnapshot other)
+  {
+    Objects.requireNonNull(other, "other");
+
+    System.arraycopy(other.words, 0, this.words, 0, this.words.length);
+    System.arraycopy(
+      other.fingerprints, 0, this.fingerprints, 0, this.fingerprints.length);
+  }
+
+  /**
+   * Materialize an immutable snapshot of the given channel.
+   *
+   * @param channel The channel index
+   *
+   * @return An immutable snapshot of the channel
+   */
+
+  public VGMYM2612ChannelSnapshot toChannelSnapshot(
+    final int channel)
+  {
+    checkChannel(channel);
+
+    final int base = channel * WORDS_PER_CHANNEL;
+    final long channel_word = this.words[base];
+
+    final VGMYM2612ChannelSnapshot.Builder builder =
+      VGMYM2612ChannelSnapshot.builder()
+        .setIndex(channel)
+        .setAlgorithm(byteOf(channel_word, 0))
+        .setFeedback(byteOf(channel_word, 1));
+
+    for (int op_index = 0; op_index < VGMYM2612State.OPERATORS; ++op_index) {
+      final long op = this.words[base + 1 + op_index];
+      builder.putOperators(
+        op_index,
+        VGMYM2612OperatorSnapshot.builder()
+          .setIndex(op_index)
+          .setPitchMultiply(byteOf(op, 0))
+          .setPitchDetune(byteOf(op, 1))
+          .setVolumeInverse(byteOf(op, 2))
+          .setEnvelopeRateAttack(byteOf(op, 3))
+          .setEnvelopeDecay1Rate(byteOf(op, 4))
+          .setEnvelopeDecay2Rate(byteOf(op, 5))
+          .setEnvelopeDecay1Level(byteOf(op, 6))
+          .setEnvelopeReleaseRate(byteOf(op, 7))
+          .build());
+    }
+    return builder.build();
+  }
+
+  @Override
+  public boolean equals(
+    final Object o)
+  {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || !Objects.equals(this.getClass(), o.getClass())) {
+      return false;
+    }
+    final VGMYM2612PackedSnapshot other = (VGMYM2612PackedSnapshot) o;
+    return Arrays.equals(this.words, other.words);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return Arrays.hashCode(this.words);
+  }
+}
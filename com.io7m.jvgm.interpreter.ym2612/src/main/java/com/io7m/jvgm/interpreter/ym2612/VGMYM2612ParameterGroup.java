@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.interpreter.ym2612;
+
+/**
+ * The groups of parameters that are tracked for changes by the interpreter.
+ *
+ * @see VGMYM2612Interpreter#dirtyGroups(int)
+ */
+
+public enum VGMYM2612ParameterGroup
+{
+  /**
+   * The operator envelope: Attack, decay, sustain and release rates, the
+   * sustain level, rate scaling, and amplitude modulation enable.
+   */
+
+  ENVELOPE(0b0000_0001),
+
+  /**
+   * The operator (inverse) volume.
+   */
+
+  LEVEL(0b0000_0010),
+
+  /**
+   * The operator pitch detune and multiplier.
+   */
+
+  PITCH(0b0000_0100),
+
+  /**
+   * The channel algorithm and feedback.
+   */
+
+  ALGORITHM_FEEDBACK(0b0000_1000),
+
+  /**
+   * The channel stereo panning and LFO sensitivity.
+   */
+
+  STEREO_LFO(0b0001_0000),
+
+  /**
+   * The channel (or, in special mode, operator) frequency.
+   */
+
+  FREQUENCY(0b0010_0000),
+
+  /**
+   * The operator key on/off state.
+   */
+
+  KEY(0b0100_0000);
+
+  /**
+   * The mask of all groups that make up a preset: {@link #ENVELOPE},
+   * {@link #LEVEL}, {@link #PITCH}, {@link #ALGORITHM_FEEDBACK}, and
+   * {@link #STEREO_LFO}.
+   */
+
+  public static final int PRESET_MASK = 0b0001_1111;
+
+  /**
+   * The mask of all groups.
+   */
+
+  public static final int ALL_MASK = 0b0111_1111;
+
+  private final int mask;
+
+  VGMYM2612ParameterGroup(
+    final int in_mask)
+  {
+    this.mask = in_mask;
+  }
+
+  /**
+   * @return The bit that represents this group in a group mask
+   */
+
+  public int mask()
+  {
+    return this.mask;
+  }
+
+  /**
+   * @param groups A group mask
+   *
+   * @return {@code true} iff this group is present in {@code groups}
+   */
+
+  public boolean isIn(
+    final int groups)
+  {
+    return (groups & this.mask) != 0;
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.interpreter.ym2612;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>The complete state of a YM2612 interpreter.</p>
+ *
+ * <p>The state consists of a shadow of all 512 registers together with the
+ * fields decoded from those registers. Decoded fields are held in flat
+ * arrays: each per-channel field occupies a run of {@link #CHANNELS}
+ * elements, and each per-operator field occupies a run of
+ * {@link #CHANNELS} × {@link #OPERATORS} elements indexed by
+ * {@code (channel * 4) + operator}. The state can therefore be saved and
+ * restored with a handful of array copies.</p>
+ */
+
+public final class VGMYM2612State
+{
+  /**
+   * The number of channels.
+   */
+
+  public static final int CHANNELS = 6;
+
+  /**
+   * The number of operators per channel.
+   */
+
+  public static final int OPERATORS = 4;
+
+  static final int CHANNEL_FREQUENCY_LSB = 0;
+  static final int CHANNEL_FREQUENCY_MSB = 1;
+  static final int CHANNEL_FREQUENCY_OCTAVE = 2;
+  static final int CHANNEL_FEEDBACK = 3;
+  static final int CHANNEL_ALGORITHM = 4;
+  static final int CHANNEL_STEREO_LEFT = 5;
+  static final int CHANNEL_STEREO_RIGHT = 6;
+  static final int CHANNEL_LFO_AMPLITUDE_SENSITIVITY = 7;
+  static final int CHANNEL_LFO_FREQUENCY_SENSITIVITY = 8;
+  static final int CHANNEL_FIELDS = 9;
+
+  static final int OPERATOR_PITCH_MULTIPLY = 0;
+  static final int OPERATOR_PITCH_DETUNE = 1;
+  static final int OPERATOR_VOLUME = 2;
+  static final int OPERATOR_RATE_SCALE = 3;
+  static final int OPERATOR_RATE_ATTACK = 4;
+  static final int OPERATOR_AMPLITUDE_MODULATION = 5;
+  static final int OPERATOR_RATE_DECAY_0 = 6;
+  static final int OPERATOR_RATE_DECAY_1 = 7;
+  static final int OPERATOR_AMPLITUDE_SECONDARY = 8;
+  static final int OPERATOR_RATE_RELEASE = 9;
+  static final int OPERATOR_ENABLED = 10;
+  static final int OPERATOR_FREQUENCY_LSB = 11;
+  static final int OPERATOR_FREQUENCY_MSB = 12;
+  static final int OPERATOR_FREQUENCY_OCTAVE = 13;
+  static final int OPERATOR_FIELDS = 14;
+
+  static final int GLOBAL_LFO_ENABLE = 0;
+  static final int GLOBAL_LFO_FREQUENCY = 1;
+  static final int GLOBAL_DAC_ENABLE = 2;
+  static final int GLOBAL_TIMER_A_RESET = 3;
+  static final int GLOBAL_TIMER_B_RESET = 4;
+  static final int GLOBAL_TIMER_A_ENABLE = 5;
+  static final int GLOBAL_TIMER_B_ENABLE = 6;
+  static final int GLOBAL_TIMER_A_LOAD = 7;
+  static final int GLOBAL_TIMER_B_LOAD = 8;
+  static final int GLOBAL_TIMER_B_TIME = 9;
+  static final int GLOBAL_CHANNEL_3_6_SPECIAL_MODE = 10;
+  static final int GLOBAL_TIMER_A_TIME = 11;
+  static final int GLOBAL_TIMER_A_COUNTER = 12;
+  static final int GLOBAL_TIMER_B_COUNTER = 13;
+  static final int GLOBAL_TIMER_STATUS = 14;
+  static final int GLOBAL_CHANNEL_3_CSM_MODE = 15;
+  static final int GLOBAL_DAC_DATA = 16;
+  static final int GLOBAL_FIELDS = 17;
+
+  private static final int SLOTS = CHANNELS * OPERATORS;
+
+  private final byte[] registers;
+  private final int[] channel_fields;
+  private final int[] operator_fields;
+  private final int[] global_fields;
+
+  /**
+   * Construct a state in which every register and field is zero.
+   */
+
+  public VGMYM2612State()
+  {
+    this.registers = new byte[512];
+    this.channel_fields = new int[CHANNEL_FIELDS * CHANNELS];
+    this.operator_fields = new int[OPERATOR_FIELDS * SLOTS];
+    this.global_fields = new int[GLOBAL_FIELDS];
+  }
+
+  /**
+   * Replace this state with the given state.
+   *
+   * @param other The source state
+   */
+
+  public void copyFrom(
+    final VGMYM2612State other)
+  {
+    Objects.requireNonNull(other, "other");
+
+    System.arraycopy(
+      other.registers, 0, this.registers, 0, this.registers.length);
+    System.arraycopy(
+      other.channel_fields, 0, this.channel_fields, 0, this.channel_fields.length);
+    System.arraycopy(
+      other.operator_fields, 0, this.operator_fields, 0, this.operator_fields.length);
+    System.arraycopy(
+      other.global_fields, 0, this.global_fields, 0, this.global_fields.length);
+  }
+
+  /**
+   * Reset every register and field to zero.
+   */
+
+  public void clear()
+  {
+    Arrays.fill(this.registers, (byte) 0);
+    Arrays.fill(this.channel_fields, 0);
+    Arrays.fill(this.operator_fields, 0);
+    Arrays.fill(this.global_fields, 0);
+  }
+
+  /**
+   * @param port     The port (in the range {@code [0, 1]})
+   * @param register The register (in the range {@code [0x0, 0xff]})
+   *
+   * @return The value most recently written to the register
+   */
+
+  public int register(
+    final int port,
+    final int register)
+  {
+    return (int) this.registers[((port & 0b1) << 8) | (register & 0xff)] & 0xff;
+  }
+
+  void setRegister(
+    final int address,
+    final int value)
+  {
+    this.registers[address] = (byte) value;
+  }
+
+  int channelField(
+    final int field,
+    final int channel)
+  {
+    return this.channel_fields[(field * CHANNELS) + channel];
+  }
+
+  void setChannelField(
+    final int field,
+    final int channel,
+    final int value)
+  {
+    this.channel_fields[(field * CHANNELS) + channel] = value;
+  }
+
+  int operatorField(
+    final int field,
+    final int slot)
+  {
+    return this.operator_fields[(field * SLOTS) + slot];
+  }
+
+  void setOperatorField(
+    final int field,
+    final int slot,
+    final int value)
+  {
+    this.operator_fields[(field * SLOTS) + slot] = value;
+  }
+
+  int globalField(
+    final int field)
+  {
+    return this.global_fields[field];
+  }
+
+  void setGlobalField(
+    final int field,
+    final int value)
+  {
+    this.global_fields[field] = value;
+  }
+
+  @Override
+  public boolean equals(
+    final Object o)
+  {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || !Objects.equals(this.getClass(), o.getClass())) {
+      return false;
+    }
+    final VGMYM2612State other = (VGMYM2612State) o;
+    return Arrays.equals(this.registers, other.registers)
+      && Arrays.equals(this.channel_fields, other.channel_fields)
+      && Arrays.equals(this.operator_fields, other.operator_fields)
+      && Arrays.equals(this.global_fields, other.global_fields);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    int result = Arrays.hashCode(this.registers);
+    result = 31 * result + Arrays.hashCode(this.channel_fields);
+    result = 31 * result + Arrays.hashCode(this.operator_fields);
+    return 31 * result + Arrays.hashCode(this.global_fields);
+  }
+}
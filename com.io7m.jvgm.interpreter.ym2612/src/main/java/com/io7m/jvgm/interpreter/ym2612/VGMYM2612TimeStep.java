@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.interpreter.ym2612;
+
+import java.util.Arrays;
+
+/**
+ * <p>The changes accumulated by an interpreter during a single time step:
+ * All of the register writes received between two advances of time.</p>
+ *
+ * <p>A time step is a view that is reused by the interpreter, and is only
+ * valid for the duration of a
+ * {@link VGMYM2612OnTimeStepType#onTimeStep(VGMYM2612Interpreter, VGMYM2612TimeStep)}
+ * call.</p>
+ */
+
+public final class VGMYM2612TimeStep
+{
+  private final int[] groups;
+  private long time;
+  private int writes;
+  private int channels;
+  private boolean preset_changed;
+
+  VGMYM2612TimeStep()
+  {
+    this.groups = new int[VGMYM2612State.CHANNELS];
+  }
+
+  void clear(
+    final long in_time)
+  {
+    Arrays.fill(this.groups, 0);
+    this.time = in_time;
+    this.writes = 0;
+    this.channels = 0;
+    this.preset_changed = false;
+  }
+
+  void recordWrite(
+    final boolean in_preset_changed)
+  {
+    ++this.writes;
+    this.preset_changed |= in_preset_changed;
+  }
+
+  void mark(
+    final int channel,
+    final int in_groups)
+  {
+    this.groups[channel] |= in_groups;
+    this.channels |= 1 << channel;
+  }
+
+  /**
+   * @return The time of the step in VGM samples since the interpreter was
+   * created
+   */
+
+  public long time()
+  {
+    return this.time;
+  }
+
+  /**
+   * @return The number of register writes received during the step
+   */
+
+  public int writes()
+  {
+    return this.writes;
+  }
+
+  /**
+   * @return The set of channels changed during the step, as a mask in which
+   * bit {@code n} represents channel {@code n}
+   */
+
+  public int channels()
+  {
+    return this.channels;
+  }
+
+  /**
+   * @param channel The channel index
+   *
+   * @return The mask of {@link VGMYM2612ParameterGroup} values changed on
+   * the channel or any of its operators during the step
+   */
+
+  public int groups(
+    final int channel)
+  {
+    if (channel < 0 || channel >= VGMYM2612State.CHANNELS) {
+      throw new IllegalArgumentException("Illegal channel index: " + channel);
+    }
+    return this.groups[channel];
+  }
+
+  /**
+   * @return {@code true} iff any write during the step changed the preset
+   * state
+   */
+
+  public boolean isPresetChanged()
+  {
+    return this.preset_changed;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.parser.api;
+
+import java.util.Objects;
+
+/**
+ * A checkpoint within a body: The state required to resume parsing at a
+ * given point without parsing any of the preceding commands.
+ */
+
+public final class VGMCheckpoint
+{
+  private final long offset;
+  private final long sample;
+  private final long pcm_position;
+  private final VGMYM2612RegisterShadow registers;
+
+  /**
+   * Construct a checkpoint.
+   *
+   * @param in_offset       The offset of the next command within the input
+   * @param in_sample       The cumulative sample position
+   * @param in_pcm_position The YM2612 PCM data bank position
+   * @param in_registers    The YM2612 registers (copied)
+   */
+
+  public VGMCheckpoint(
+    final long in_offset,
+    final long in_sample,
+    final long in_pcm_position,
+    final VGMYM2612RegisterShadow in_registers)
+  {
+    Objects.requireNonNull(in_registers, "Registers");
+
+    this.offset = in_offset;
+    this.sample = in_sample;
+    this.pcm_position = in_pcm_position;
+    this.registers = new VGMYM2612RegisterShadow();
+    this.registers.copyFrom(in_registers);
+  }
+
+  /**
+   * @return The offset of the next command within the input
+   */
+
+  public long offset()
+  {
+    return this.offset;
+  }
+
+  /**
+   * @return The cumulative sample position
+   */
+
+  public long sample()
+  {
+    return this.sample;
+  }
+
+  /**
+   * @return The YM2612 PCM data bank position
+   */
+
+  public long pcmPosition()
+  {
+    return this.pcm_position;
+  }
+
+  /**
+   * Copy the YM2612 registers at the checkpoint into {@code out}.
+   *
+   * @param out The output shadow
+   */
+
+  public void copyRegistersTo(
+    final VGMYM2612RegisterShadow out)
+  {
+    Objects.requireNonNull(out, "Out").copyFrom(this.registers);
+  }
+
+  /**
+   * Deliver the state of the checkpoint to the given visitor: The visitor is
+   * reset, the YM2612 registers are replayed, and then a seek to the PCM
+   * data bank position is delivered.
+   *
+   * @param visitor The visitor
+   *
+   * @see VGMYM2612RegisterShadow#replay(VGMParserBodyVisitorType)
+   */
+
+  public void replay(
+    final VGMParserBodyVisitorType visitor)
+  {
+    visitor.onReset();
+    this.registers.replay(visitor);
+    visitor.onYM2612SeekPCM(this.pcm_position);
+  }
+}
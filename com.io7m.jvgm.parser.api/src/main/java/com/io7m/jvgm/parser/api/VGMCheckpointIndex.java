@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.parser.api;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A sparse index of checkpoints over a body, ordered by sample position.
+ *
+ * @see VGMParserSeekableBodyType#buildIndex(long)
+ */
+
+public final class VGMCheckpointIndex
+{
+  private final long interval;
+  private final VGMCheckpoint[] checkpoints;
+  private final long[] samples;
+  private final Optional<VGMCheckpoint> loop;
+
+  /**
+   * Construct an index.
+   *
+   * @param in_interval    The approximate number of samples between
+   *                       checkpoints
+   * @param in_checkpoints The checkpoints, in ascending sample order,
+   *                       starting with a checkpoint at sample {@code 0}
+   * @param in_loop        The checkpoint at the loop point, if any
+   */
+
+  public VGMCheckpointIndex(
+    final long in_interval,
+    final List<VGMCheckpoint> in_checkpoints,
+    final Optional<VGMCheckpoint> in_loop)
+  {
+    Objects.requireNonNull(in_checkpoints, "Checkpoints");
+
+    this.interval = in_interval;
+    this.loop = Objects.requireNonNull(in_loop, "Loop");
+    this.checkpoints = in_checkpoints.toArray(new VGMCheckpoint[0]);
+    this.samples = new long[this.checkpoints.length];
+
+    if (this.checkpoints.length == 0) {
+      throw new IllegalArgumentException(
+        "At least one checkpoint is required (received "
+          + in_checkpoints.size()
+          + ")");
+    }
+
+    for (int index = 0; index < this.checkpoints.length; ++index) {
+      this.samples[index] = this.checkpoints[index].sample();
+      if (index > 0 && this.samples[index] < this.samples[index - 1]) {
+        final String separator = System.lineSeparator();
+        throw new IllegalArgumentException(
+          new StringBuilder(128)
+            .append("Checkpoints must be in ascending sample order.")
+            .append(separator)
+            .append("  Checkpoint: ")
+            .append(index)
+            .append(separator)
+            .append("  Sample: ")
+            .append(this.samples[index])
+            .append(separator)
+            .toString());
+      }
+    }
+  }
+
+  /**
+   * @return The approximate number of samples between checkpoints
+   */
+
+  public long interval()
+  {
+    return this.interval;
+  }
+
+  /**
+   * @return The number of checkpoints
+   */
+
+  public int size()
+  {
+    return this.checkpoints.length;
+  }
+
+  /**
+   * @param index The checkpoint index
+   *
+   * @return The checkpoint at the given index
+   */
+
+  public VGMCheckpoint checkpoint(
+    final int index)
+  {
+    return this.checkpoints[index];
+  }
+
+  /**
+   * @return The checkpoint at the loop point, if the body has one
+   */
+
+  public Optional<VGMCheckpoint> loop()
+  {
+    return this.loop;
+  }
+
+  /**
+   * @param sample The sample position
+   *
+   * @return The last checkpoint at or before the given sample position
+   */
+
+  public VGMCheckpoint nearest(
+    final long sample)
+  {
+    int index = Arrays.binarySearch(this.samples, sample);
+    if (index < 0) {
+      index = Math.max(0, -index - 2);
+    } else {
+      while (index + 1 < this.samples.length
+        && this.samples[index + 1] == sample) {
+        ++index;
+      }
+    }
+    return this.checkpoints[index];
+  }
+}
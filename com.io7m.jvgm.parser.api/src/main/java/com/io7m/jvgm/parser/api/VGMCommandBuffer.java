@@ -0,0 +1,228 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.parser.api;
+
+/**
+ * <p>A reusable buffer of packed commands.</p>
+ *
+ * <p>Each command occupies two consecutive elements of a {@code long[]}
+ * array. The first element holds the offset of the command within the input
+ * in the upper 56 bits and the opcode in the lower 8 bits. The second element
+ * holds the operands of the command:</p>
+ *
+ * <ul>
+ * <li>{@code 0x4f}, {@code 0x50}: The written value in bits {@code [0, 7]}</li>
+ * <li>{@code 0x51}, {@code 0x52}, {@code 0x53}: The register in bits
+ * {@code [8, 15]} and the written value in bits {@code [0, 7]}</li>
+ * <li>{@code 0x61}, {@code 0x62}, {@code 0x63}, {@code 0x70-0x7f}: The number
+ * of samples to wait</li>
+ * <li>{@code 0x80-0x8f}: The number of samples to wait after the PCM write</li>
+ * <li>{@code 0xe0}: The PCM data bank offset</li>
+ * <li>{@code 0x67}: The data type in bits {@code [32, 39]} and the size of
+ * the data in bits {@code [0, 31]}. The data begins {@code 7} bytes after
+ * the command offset.</li>
+ * <li>{@code 0x66}: Nothing</li>
+ * </ul>
+ *
+ * <p>Buffers are not thread-safe.</p>
+ *
+ * @see VGMParserBodyType#parseBatch(VGMCommandBuffer)
+ */
+
+public final class VGMCommandBuffer
+{
+  private final long[] data;
+  private int size;
+
+  /**
+   * Construct a buffer.
+   *
+   * @param capacity The maximum number of commands held
+   */
+
+  public VGMCommandBuffer(
+    final int capacity)
+  {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException(
+        "Capacity must be positive: " + capacity);
+    }
+
+    this.data = new long[Math.multiplyExact(capacity, 2)];
+  }
+
+  /**
+   * @return The maximum number of commands held
+   */
+
+  public int capacity()
+  {
+    return this.data.length / 2;
+  }
+
+  /**
+   * @return The number of commands held
+   */
+
+  public int size()
+  {
+    return this.size;
+  }
+
+  /**
+   * @return {@code true} iff the buffer cannot hold any more commands
+   */
+
+  public boolean isFull()
+  {
+    return this.size * 2 == this.data.length;
+  }
+
+  /**
+   * Remove all commands from the buffer.
+   */
+
+  public void clear()
+  {
+    this.size = 0;
+  }
+
+  /**
+   * Append a command to the buffer.
+   *
+   * @param opcode   The opcode
+   * @param offset   The offset of the command within the input
+   * @param operands The packed operands
+   */
+
+  public void append(
+    final int opcode,
+    final long offset,
+    final long operands)
+  {
+    if (this.isFull()) {
+      throw new IndexOutOfBoundsException(
+        "Buffer is full: " + this.capacity());
+    }
+
+    final int base = this.size * 2;
+    this.data[base] = (offset << 8) | (long) (opcode & 0xff);
+    this.data[base + 1] = operands;
+    ++this.size;
+  }
+
+  /**
+   * Direct access to the packed array. Only the first {@code size() * 2}
+   * elements are meaningful.
+   *
+   * @return The underlying array
+   */
+
+  public long[] array()
+  {
+    return this.data;
+  }
+
+  /**
+   * @param index The command index
+   *
+   * @return The opcode of the command
+   */
+
+  public int opcode(
+    final int index)
+  {
+    return (int) (this.data[this.checkIndex(index) * 2] & 0xffL);
+  }
+
+  /**
+   * @param index The command index
+   *
+   * @return The offset of the command within the input
+   */
+
+  public long offset(
+    final int index)
+  {
+    return this.data[this.checkIndex(index) * 2] >>> 8;
+  }
+
+  /**
+   * @param index The command index
+   *
+   * @return The packed operands of the command
+   */
+
+  public long operands(
+    final int index)
+  {
+    return this.data[this.checkIndex(index) * 2 + 1];
+  }
+
+  /**
+   * @param index The command index
+   *
+   * @return The register operand of a register write
+   */
+
+  public int register(
+    final int index)
+  {
+    return (int) ((this.operands(index) >>> 8) & 0xffL);
+  }
+
+  /**
+   * @param index The command index
+   *
+   * @return The value operand of a register write
+   */
+
+  public int value(
+    final int index)
+  {
+    return (int) (this.operands(index) & 0xffL);
+  }
+
+  /**
+   * @param index The command index
+   *
+   * @return The number of samples that the command waits for, or {@code 0}
+   * if the command is not one of the wait commands {@code 0x61},
+   * {@code 0x62}, {@code 0x63}, {@code 0x70-0x7f}, or {@code 0x80-0x8f}
+   */
+
+  public long waitSamples(
+    final int index)
+  {
+    final int opcode = this.opcode(index);
+    final int group = opcode & 0xf0;
+    if (group == 0x70 || group == 0x80 || (opcode >= 0x61 && opcode <= 0x63)) {
+      return this.operands(index);
+    }
+    return 0L;
+  }
+
+  private int checkIndex(
+    final int index)
+  {
+    if (index < 0 || index >= this.size) {
+      throw new IndexOutOfBoundsException(
+        "Index " + index + " out of range [0, " + this.size + ")");
+    }
+    return index;
+  }
+}
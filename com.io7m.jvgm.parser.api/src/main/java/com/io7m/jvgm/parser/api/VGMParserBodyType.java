@@ -17,6 +17,7 @@
 package com.io7m.jvgm.parser.api;
 
 import com.io7m.jvgm.core.VGMCommandType;
+import com.io7m.jvgm.core.VGMDataBanks;
 import io.vavr.collection.Seq;
 import io.vavr.control.Validation;
 
@@ -33,4 +34,44 @@ public interface VGMParserBodyType
    */
 
   Validation<Seq<VGMParseError>, VGMCommandType> parse();
+
+  /**
+   * Parse the remainder of the body, delivering each command to the given
+   * visitor. Parsing stops at the end of the sound data, at the end of the
+   * input, or at the first error. Implementations are expected to parse the
+   * body without allocating per command.
+   *
+   * @param visitor The visitor
+   *
+   * @return Nothing, or a list of parse errors
+   */
+
+  Validation<Seq<VGMParseError>, Void> parseAll(
+    VGMParserBodyVisitorType visitor);
+
+  /**
+   * Parse up to {@code buffer.capacity()} commands into the given buffer. The
+   * buffer is cleared before parsing begins. The buffer will contain fewer
+   * commands than its capacity only when the end of the sound data, or the
+   * end of the input, has been reached; a buffer containing no commands
+   * indicates that there is nothing left to parse. If an error is
+   * encountered, the buffer contains the commands parsed prior to the error.
+   *
+   * @param buffer The output buffer
+   *
+   * @return The number of parsed commands, or a list of parse errors
+   */
+
+  Validation<Seq<VGMParseError>, Integer> parseBatch(
+    VGMCommandBuffer buffer);
+
+  /**
+   * The data banks populated by the data blocks parsed so far. Data blocks
+   * are added to the banks regardless of which of the parsing methods
+   * encountered them.
+   *
+   * @return The data banks
+   */
+
+  VGMDataBanks dataBanks();
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.parser.api;
+
+/**
+ * <p>The type of body visitors.</p>
+ *
+ * <p>A visitor receives decoded commands as primitive arguments, and so a body
+ * parser can drive a visitor over an entire body without allocating per
+ * command. All methods have empty default implementations so that visitors
+ * need only override the commands that they are interested in.</p>
+ *
+ * @see VGMParserBodyType#parseAll(VGMParserBodyVisitorType)
+ */
+
+public interface VGMParserBodyVisitorType
+{
+  /**
+   * A Game Gear PSG stereo write.
+   *
+   * @param value The written value in the range {@code [0, 255]}
+   */
+
+  default void onGameGearPSGStereoWrite(
+    final int value)
+  {
+
+  }
+
+  /**
+   * A PSG (SN76489) write.
+   *
+   * @param value The written value in the range {@code [0, 255]}
+   */
+
+  default void onPSGWrite(
+    final int value)
+  {
+
+  }
+
+  /**
+   * A YM2413 register write.
+   *
+   * @param register The register in the range {@code [0, 255]}
+   * @param value    The written value in the range {@code [0, 255]}
+   */
+
+  default void onYM2413Write(
+    final int register,
+    final int value)
+  {
+
+  }
+
+  /**
+   * A YM2612 register write.
+   *
+   * @param port     The port ({@code 0} or {@code 1})
+   * @param register The register in the range {@code [0, 255]}
+   * @param value    The written value in the range {@code [0, 255]}
+   */
+
+  default void onYM2612Write(
+    final int port,
+    final int register,
+    final int value)
+  {
+
+  }
+
+  /**
+   * A seek within the YM2612 PCM data bank.
+   *
+   * @param position The offset within the data bank
+   */
+
+  default void onYM2612SeekPCM(
+    final long position)
+  {
+
+  }
+
+  /**
+   * A write of the next byte of the PCM data bank to the YM2612 DAC,
+   * followed by a wait.
+   *
+   * @param samples The number of samples to wait in the range {@code [0, 15]}
+   */
+
+  default void onYM2612PCMWriteWait(
+    final int samples)
+  {
+
+  }
+
+  /**
+   * A wait. All of the wait commands are delivered to this method.
+   *
+   * @param samples The number of samples to wait in the range
+   *                {@code [0, 65535]}
+   */
+
+  default void onWait(
+    final int samples)
+  {
+
+  }
+
+  /**
+   * A data block.
+   *
+   * @param type   The data block type in the range {@code [0, 255]}
+   * @param offset The offset of the start of the data within the input
+   * @param size   The size of the data in bytes
+   */
+
+  default void onDataBlock(
+    final int type,
+    final long offset,
+    final long size)
+  {
+
+  }
+
+  /**
+   * The chip state is about to be restored from a checkpoint. Visitors that
+   * maintain chip state should reset it to the power-on state, so that
+   * registers that had not been written at the checkpoint do not keep
+   * values written after it.
+   *
+   * @see VGMCheckpoint#replay(VGMParserBodyVisitorType)
+   */
+
+  default void onReset()
+  {
+
+  }
+
+  /**
+   * The end of the sound data.
+   */
+
+  default void onEndOfSoundData()
+  {
+
+  }
+}
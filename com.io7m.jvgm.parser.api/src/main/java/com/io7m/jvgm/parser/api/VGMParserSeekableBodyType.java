@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.parser.api;
+
+import io.vavr.collection.Seq;
+import io.vavr.control.Validation;
+
+/**
+ * The type of body parsers that support random access by sample position.
+ */
+
+public interface VGMParserSeekableBodyType extends VGMParserBodyType
+{
+  /**
+   * Make a single pass over the entire body, recording a checkpoint at the
+   * first command boundary at or after every multiple of {@code interval}
+   * samples, and at the loop offset given in the header. The current parsing
+   * position is unaffected.
+   *
+   * @param interval The number of samples between checkpoints
+   *
+   * @return An index, or a list of parse errors
+   */
+
+  Validation<Seq<VGMParseError>, VGMCheckpointIndex> buildIndex(
+    long interval);
+
+  /**
+   * Move to the given sample position. The nearest checkpoint at or before
+   * the sample position is restored by replaying its state to
+   * {@code visitor}, after which the remaining commands up to the sample
+   * position are parsed and delivered to {@code visitor}. Parsing stops at
+   * the first command boundary at or after the sample position, and so the
+   * returned position may exceed the requested position by part of a wait.
+   * Subsequent calls to the parsing methods continue from the new position.
+   *
+   * @param index   An index produced by {@link #buildIndex(long)}
+   * @param sample  The target sample position
+   * @param visitor The visitor receiving the restored state
+   *
+   * @return The sample position reached, or a list of parse errors
+   */
+
+  Validation<Seq<VGMParseError>, Long> seek(
+    VGMCheckpointIndex index,
+    long sample,
+    VGMParserBodyVisitorType visitor);
+
+  /**
+   * Move to the loop point by restoring the loop checkpoint. No commands
+   * are parsed.
+   *
+   * @param index   An index produced by {@link #buildIndex(long)}
+   * @param visitor The visitor receiving the restored state
+   *
+   * @return The sample position of the loop point, or a list of parse errors
+   * if the body has no loop point
+   */
+
+  Validation<Seq<VGMParseError>, Long> seekLoop(
+    VGMCheckpointIndex index,
+    VGMParserBodyVisitorType visitor);
+}
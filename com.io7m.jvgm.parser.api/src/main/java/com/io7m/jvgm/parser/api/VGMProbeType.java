@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.parser.api;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import com.io7m.jvgm.core.VGMGD3Tag;
+import com.io7m.jvgm.core.VGMHeader;
+import org.immutables.value.Value;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * The result of probing a file.
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface VGMProbeType
+{
+  /**
+   * @return The probed file
+   */
+
+  @Value.Parameter
+  Path path();
+
+  /**
+   * @return The file header
+   */
+
+  @Value.Parameter
+  VGMHeader header();
+
+  /**
+   * @return The GD3 tag, if the file has one
+   */
+
+  @Value.Parameter
+  Optional<VGMGD3Tag> gd3();
+}
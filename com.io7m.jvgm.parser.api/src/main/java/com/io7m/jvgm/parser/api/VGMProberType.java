@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.parser.api;
+
+import io.vavr.collection.Seq;
+import io.vavr.control.Validation;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * <p>The type of probers.</p>
+ *
+ * <p>A prober reads the header and GD3 tag of a file without reading any of
+ * the command data, and is therefore suitable for cataloguing large numbers
+ * of files.</p>
+ */
+
+public interface VGMProberType
+{
+  /**
+   * Probe the given file.
+   *
+   * @param path The file
+   *
+   * @return The probe result, or a list of errors
+   *
+   * @throws IOException On I/O errors
+   */
+
+  Validation<Seq<VGMParseError>, VGMProbe> probe(
+    Path path)
+    throws IOException;
+
+  /**
+   * Probe a file using an existing channel. The channel is only accessed
+   * using positional reads, and so its position is not changed.
+   *
+   * @param path    The path, for diagnostic messages
+   * @param channel The channel
+   *
+   * @return The probe result, or a list of errors
+   *
+   * @throws IOException On I/O errors
+   */
+
+  Validation<Seq<VGMParseError>, VGMProbe> probe(
+    Path path,
+    FileChannel channel)
+    throws IOException;
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.parser.api;
+
+import com.io7m.jvgm.core.VGMDataBanks;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>A stream of YM2612 DAC samples decoded from the PCM write-wait
+ * commands ({@code 0x80-0x8f}) and the PCM seek command ({@code 0xE0}).</p>
+ *
+ * <p>Each write-wait command writes the byte at the current seek pointer of
+ * the YM2612 PCM data bank to the DAC, advances the pointer, and then waits
+ * for {@code n} samples. Consecutive commands are collected into a single
+ * contiguous run holding one DAC value per sample at the VGM sample rate,
+ * so that a consumer can process an entire run at once rather than
+ * handling each byte as a separate register write.</p>
+ *
+ * <p>Instances are mutable and not thread-safe. The sample array grows as
+ * required and is reused between runs.</p>
+ */
+
+public final class VGMYM2612DACStream
+{
+  private static final int SILENCE = 0x80;
+
+  private byte[] samples;
+  private int size;
+  private int writes;
+  private long position;
+  private int value;
+
+  /**
+   * Construct a stream.
+   *
+   * @param capacity The initial sample capacity of a run
+   */
+
+  public VGMYM2612DACStream(
+    final int capacity)
+  {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException(
+        "Capacity must be positive: " + capacity);
+    }
+
+    this.samples = new byte[capacity];
+    this.value = SILENCE;
+  }
+
+  /**
+   * @param opcode An opcode
+   *
+   * @return {@code true} iff the opcode is a PCM write-wait or PCM seek
+   * command, and would therefore be consumed by
+   * {@link #collect(VGMCommandBuffer, int, VGMDataBanks)}
+   */
+
+  public static boolean isDACCommand(
+    final int opcode)
+  {
+    return (opcode & 0xf0) == 0x80 || opcode == 0xe0;
+  }
+
+  /**
+   * Set the seek pointer, as the {@code 0xE0} command does.
+   *
+   * @param in_position The offset within the YM2612 PCM data bank
+   */
+
+  public void seek(
+    final long in_position)
+  {
+    if (in_position < 0L) {
+      throw new IllegalArgumentException(
+        "Position must be non-negative: " + in_position);
+    }
+    this.position = in_position;
+  }
+
+  /**
+   * @return The current seek pointer
+   */
+
+  public long position()
+  {
+    return this.position;
+  }
+
+  /**
+   * Collect a run of DAC samples, replacing the current run. Commands are
+   * consumed starting at {@code index} until a command that is neither a PCM
+   * write-wait nor a PCM seek is encountered, or the end of the buffer is
+   * reached. Bytes that lie outside of the data bank are read as the DAC
+   * midpoint value {@code 0x80}.
+   *
+   * @param commands The command buffer
+   * @param index    The index of the first command
+   * @param banks    The data banks
+   *
+   * @return The number of commands consumed
+   */
+
+  public int collect(
+    final VGMCommandBuffer commands,
+    final int index,
+    final VGMDataBanks banks)
+  {
+    Objects.requireNonNull(commands, "commands");
+    Objects.requireNonNull(banks, "banks");
+
+    this.size = 0;
+    this.writes = 0;
+
+    int current = index;
+    final int count = commands.size();
+    while (current < count) {
+      final int opcode = commands.opcode(current);
+      if (opcode == 0xe0) {
+        this.seek(commands.operands(current));
+      } else if ((opcode & 0xf0) == 0x80) {
+        this.write(banks, (int) commands.operands(current));
+      } else {
+        break;
+      }
+      ++current;
+    }
+    return current - index;
+  }
+
+  private void write(
+    final VGMDataBanks banks,
+    final int wait)
+  {
+    final int data = banks.byteAt(VGMDataBanks.TYPE_YM2612_PCM, this.position);
+    this.value = data < 0 ? SILENCE : data;
+    ++this.position;
+    ++this.writes;
+
+    final int required = this.size + wait;
+    if (required > this.samples.length) {
+      this.samples = Arrays.copyOf(
+        this.samples, Math.max(required, this.samples.length * 2));
+    }
+    Arrays.fill(this.samples, this.size, required, (byte) this.value);
+    this.size = required;
+  }
+
+  /**
+   * @return The number of samples in the current run
+   */
+
+  public int size()
+  {
+    return this.size;
+  }
+
+  /**
+   * @return The number of PCM write commands in the current run
+   */
+
+  public int writes()
+  {
+    return this.writes;
+  }
+
+  /**
+   * @return The most recent value written to the DAC
+   */
+
+  public int value()
+  {
+    return this.value;
+  }
+
+  /**
+   * @param index The sample index
+   *
+   * @return The unsigned DAC value of the given sample of the current run
+   */
+
+  public int sample(
+    final int index)
+  {
+    Objects.checkIndex(index, this.size);
+    return (int) this.samples[index] & 0xff;
+  }
+
+  /**
+   * Direct access to the sample array. Only the first {@link #size()}
+   * elements are meaningful, and each element is an unsigned DAC value.
+   *
+   * @return The underlying array
+   */
+
+  public byte[] array()
+  {
+    return this.samples;
+  }
+}
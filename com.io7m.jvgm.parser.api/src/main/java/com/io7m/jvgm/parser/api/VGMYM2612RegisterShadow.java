@@ -0,0 +1,214 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.parser.api;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>A shadow copy of the 512 registers of a YM2612, tracking which registers
+ * have been written.</p>
+ *
+ * <p>Register {@code 0x28} (key on/off) applies to one channel per write, and
+ * so the most recent value written for each channel is tracked separately.</p>
+ *
+ * <p>Instances are mutable and not thread-safe.</p>
+ */
+
+public final class VGMYM2612RegisterShadow
+{
+  private static final int TIMER_CONTROL_REGISTER = 0x27;
+  private static final int CHANNEL_3_MODE_MASK = 0b1100_0000;
+  private static final int KEY_REGISTER = 0x28;
+
+  private final byte[] registers;
+  private final long[] written;
+  private final byte[] keys;
+  private int keys_written;
+
+  /**
+   * Construct an empty shadow.
+   */
+
+  public VGMYM2612RegisterShadow()
+  {
+    this.registers = new byte[512];
+    this.written = new long[8];
+    this.keys = new byte[8];
+  }
+
+  private static int index(
+    final int port,
+    final int register)
+  {
+    return ((port & 1) << 8) | (register & 0xff);
+  }
+
+  /**
+   * Record a register write.
+   *
+   * @param port     The port ({@code 0} or {@code 1})
+   * @param register The register
+   * @param value    The value
+   */
+
+  public void write(
+    final int port,
+    final int register,
+    final int value)
+  {
+    final int i = index(port, register);
+    this.registers[i] = (byte) value;
+    this.written[i >>> 6] |= 1L << (i & 63);
+
+    if (i == KEY_REGISTER) {
+      final int channel = value & 7;
+      this.keys[channel] = (byte) value;
+      this.keys_written |= 1 << channel;
+    }
+  }
+
+  /**
+   * @param port     The port ({@code 0} or {@code 1})
+   * @param register The register
+   *
+   * @return The most recent value written to the register, or {@code 0}
+   */
+
+  public int read(
+    final int port,
+    final int register)
+  {
+    return (int) this.registers[index(port, register)] & 0xff;
+  }
+
+  /**
+   * @param port     The port ({@code 0} or {@code 1})
+   * @param register The register
+   *
+   * @return {@code true} iff the register has been written
+   */
+
+  public boolean isWritten(
+    final int port,
+    final int register)
+  {
+    final int i = index(port, register);
+    return (this.written[i >>> 6] & (1L << (i & 63))) != 0L;
+  }
+
+  /**
+   * Reset the shadow to its initial empty state.
+   */
+
+  public void clear()
+  {
+    Arrays.fill(this.registers, (byte) 0);
+    Arrays.fill(this.written, 0L);
+    Arrays.fill(this.keys, (byte) 0);
+    this.keys_written = 0;
+  }
+
+  /**
+   * Make this shadow an exact copy of {@code other}.
+   *
+   * @param other The source shadow
+   */
+
+  public void copyFrom(
+    final VGMYM2612RegisterShadow other)
+  {
+    Objects.requireNonNull(other, "Other");
+    System.arraycopy(other.registers, 0, this.registers, 0, 512);
+    System.arraycopy(other.written, 0, this.written, 0, 8);
+    System.arraycopy(other.keys, 0, this.keys, 0, 8);
+    this.keys_written = other.keys_written;
+  }
+
+  /**
+   * Deliver the written registers to the given visitor as register writes,
+   * in an order that reproduces the state of the chip: Frequency registers
+   * are written high byte first, and key on/off writes are delivered last.
+   * The timer periods ({@code 0x24-0x26}) are replayed as written, but
+   * register {@code 0x27} is replayed with only the channel 3 mode bits,
+   * so that replaying does not load or reset the timers or clear their
+   * overflow flags.
+   *
+   * @param visitor The receiving visitor
+   */
+
+  public void replay(
+    final VGMParserBodyVisitorType visitor)
+  {
+    Objects.requireNonNull(visitor, "Visitor");
+
+    for (int port = 0; port < 2; ++port) {
+      this.replayRange(visitor, port, 0x00, 0xa0);
+      this.replayRange(visitor, port, 0xa4, 0xa8);
+      this.replayRange(visitor, port, 0xa0, 0xa4);
+      this.replayRange(visitor, port, 0xac, 0xb0);
+      this.replayRange(visitor, port, 0xa8, 0xac);
+      this.replayRange(visitor, port, 0xb0, 0x100);
+    }
+
+    for (int channel = 0; channel < 8; ++channel) {
+      if ((this.keys_written & (1 << channel)) != 0) {
+        visitor.onYM2612Write(0, KEY_REGISTER, (int) this.keys[channel] & 0xff);
+      }
+    }
+  }
+
+  private void replayRange(
+    final VGMParserBodyVisitorType visitor,
+    final int port,
+    final int start,
+    final int end)
+  {
+    for (int register = start; register < end; ++register) {
+      if (register != KEY_REGISTER && this.isWritten(port, register)) {
+        int value = this.read(port, register);
+        if (port == 0 && register == TIMER_CONTROL_REGISTER) {
+          value &= CHANNEL_3_MODE_MASK;
+        }
+        visitor.onYM2612Write(port, register, value);
+      }
+    }
+  }
+
+  @Override
+  public boolean equals(
+    final Object o)
+  {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || !Objects.equals(this.getClass(), o.getClass())) {
+      return false;
+    }
+    final VGMYM2612RegisterShadow other = (VGMYM2612RegisterShadow) o;
+    return this.keys_written == other.keys_written
+      && Arrays.equals(this.registers, other.registers)
+      && Arrays.equals(this.written, other.written)
+      && Arrays.equals(this.keys, other.keys);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return Arrays.hashCode(this.registers);
+  }
+}
@@ -57,6 +57,18 @@ abstract class VGMParserVanillaBase
       Optional.empty());
   }
 
+  protected final <T> Validation<Seq<VGMParseError>, T> errorAtV(
+    final long offset,
+    final String message)
+  {
+    return Validation.invalid(Vector.of(
+      VGMParseError.of(
+        offset,
+        Optional.of(this.path()),
+        message,
+        Optional.empty())));
+  }
+
   protected final <T> Validation<Seq<VGMParseError>, T> errorExceptionV(
     final Exception e)
   {
@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.parser.vanilla;
+
+import com.io7m.jvgm.parser.api.VGMCommandBuffer;
+import com.io7m.jvgm.parser.api.VGMParserBodyVisitorType;
+
+import java.util.Objects;
+
+/**
+ * A visitor that packs commands into a command buffer.
+ */
+
+final class VGMParserVanillaBatchVisitor implements VGMParserBodyVisitorType
+{
+  private VGMCommandBuffer buffer;
+  private int opcode;
+  private long offset;
+
+  VGMParserVanillaBatchVisitor()
+  {
+
+  }
+
+  void setBuffer(
+    final VGMCommandBuffer in_buffer)
+  {
+    this.buffer = Objects.requireNonNull(in_buffer, "Buffer");
+  }
+
+  void begin(
+    final long in_offset,
+    final int in_opcode)
+  {
+    this.offset = in_offset;
+    this.opcode = in_opcode;
+  }
+
+  @Override
+  public void onGameGearPSGStereoWrite(
+    final int value)
+  {
+    this.buffer.append(this.opcode, this.offset, (long) value);
+  }
+
+  @Override
+  public void onPSGWrite(
+    final int value)
+  {
+    this.buffer.append(this.opcode, this.offset, (long) value);
+  }
+
+  @Override
+  public void onYM2413Write(
+    final int register,
+    final int value)
+  {
+    this.buffer.append(
+      this.opcode, this.offset, (long) ((register << 8) | value));
+  }
+
+  @Override
+  public void onYM2612Write(
+    final int port,
+    final int register,
+    final int value)
+  {
+    this.buffer.append(
+      this.opcode, this.offset, (long) ((register << 8) | value));
+  }
+
+  @Override
+  public void onYM2612SeekPCM(
+    final long position)
+  {
+    this.buffer.append(this.opcode, this.offset, position);
+  }
+
+  @Override
+  public void onYM2612PCMWriteWait(
+    final int samples)
+  {
+    this.buffer.append(this.opcode, this.offset, (long) samples);
+  }
+
+  @Override
+  public void onWait(
+    final int samples)
+  {
+    this.buffer.append(this.opcode, this.offset, (long) samples);
+  }
+
+  @Override
+  public void onDataBlock(
+    final int type,
+    final long data_offset,
+    final long size)
+  {
+    this.buffer.append(
+      this.opcode, this.offset, ((long) type << 32) | size);
+  }
+
+  @Override
+  public void onEndOfSoundData()
+  {
+    this.buffer.append(this.opcode, this.offset, 0L);
+  }
+}
@@ -62,9 +62,12 @@ import com.io7m.jvgm.core.VGMCommandYM2612PCMWriteWaitF;
 import com.io7m.jvgm.core.VGMCommandYM2612SeekPCM;
 import com.io7m.jvgm.core.VGMCommandYM2612WritePort0;
 import com.io7m.jvgm.core.VGMCommandYM2612WritePort1;
+import com.io7m.jvgm.core.VGMDataBanks;
 import com.io7m.jvgm.core.VGMHeader;
+import com.io7m.jvgm.parser.api.VGMCommandBuffer;
 import com.io7m.jvgm.parser.api.VGMParseError;
 import com.io7m.jvgm.parser.api.VGMParserBodyType;
+import com.io7m.jvgm.parser.api.VGMParserBodyVisitorType;
 import io.vavr.collection.Seq;
 import io.vavr.control.Validation;
 import org.apache.commons.io.input.CountingInputStream;
@@ -72,7 +75,10 @@ import org.apache.commons.io.input.SwappedDataInputStream;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 import static com.io7m.jvgm.core.VGMCommandType.Type.DATA_BLOCK;
@@ -80,8 +86,15 @@ import static com.io7m.jvgm.core.VGMCommandType.Type.DATA_BLOCK;
 final class VGMParserVanillaBody
   extends VGMParserVanillaBase implements VGMParserBodyType
 {
+  private static final Validation<Seq<VGMParseError>, Void> VALID =
+    Validation.valid(null);
+  private static final int DATA_BLOCK_CHUNK_SIZE = 1 << 16;
+
   private final SwappedDataInputStream data_stream;
   private final VGMHeader header;
+  private final VGMParserVanillaBatchVisitor batch;
+  private final VGMDataBanks banks;
+  private final byte[] chunk;
   private boolean finished;
 
   VGMParserVanillaBody(
@@ -97,6 +110,15 @@ final class VGMParserVanillaBody
     this.data_stream =
       Objects.requireNonNull(in_data_stream, "Data stream");
     this.finished = false;
+    this.batch = new VGMParserVanillaBatchVisitor();
+    this.banks = new VGMDataBanks();
+    this.chunk = new byte[8192];
+  }
+
+  @Override
+  public VGMDataBanks dataBanks()
+  {
+    return this.banks;
   }
 
   // Excessive cyclomatic complexity due to unavoidable switching
@@ -169,30 +191,17 @@ final class VGMParserVanillaBody
             // Skip 0x66 compatibility byte
             final byte pad = this.readByte();
             if ((int) pad != 0x66) {
-              final String separator = System.lineSeparator();
-              final CountingInputStream stream = this.countingStream();
-              final String tag_text = Integer.toUnsignedString(DATA_BLOCK.tag(), 16);
-              return this.errorV(
-                new StringBuilder(128)
-                  .append("  Position: ")
-                  .append(stream.getByteCount())
-                  .append(separator)
-                  .append("  Received: ")
-                  .append(tag_text)
-                  .append(" ")
-                  .append(Integer.toUnsignedString(pad, 16))
-                  .append(separator)
-                  .append("  Expected: ")
-                  .append(tag_text)
-                  .append(" 0x66")
-                  .append(separator)
-                  .toString());
+              return this.errorDataBlockPadding(pad);
             }
 
             final byte data_type = this.readByte();
             final long size = Integer.toUnsignedLong(this.data_stream.readInt());
-            this.data_stream.skip(size);
-            return Validation.valid(VGMCommandDataBlock.of(data_type, size));
+            return this.dataBlock((int) data_type & 0xff, size)
+              .map(data -> VGMCommandDataBlock.builder()
+                .setDataType(data_type)
+                .setDataSize(size)
+                .setData(data)
+                .build());
           }
 
           case WAIT_735:
@@ -277,69 +286,317 @@ final class VGMParserVanillaBody
     }
   }
 
-  /**
-   * Skip reserved opcodes.
-   */
+  @Override
+  public Validation<Seq<VGMParseError>, Void> parseAll(
+    final VGMParserBodyVisitorType visitor)
+  {
+    Objects.requireNonNull(visitor, "Visitor");
 
-  private boolean skipReservedCommand(
+    try {
+      while (!this.finished) {
+        final Validation<Seq<VGMParseError>, Void> r = this.visitNext(visitor);
+        if (r.isInvalid()) {
+          return r;
+        }
+      }
+    } catch (final EOFException e) {
+      this.finished = true;
+    } catch (final IllegalArgumentException | IOException e) {
+      return this.errorExceptionV(e);
+    }
+    return VALID;
+  }
+
+  @Override
+  public Validation<Seq<VGMParseError>, Integer> parseBatch(
+    final VGMCommandBuffer buffer)
+  {
+    Objects.requireNonNull(buffer, "Buffer");
+
+    buffer.clear();
+    this.batch.setBuffer(buffer);
+
+    try {
+      while (!this.finished && !buffer.isFull()) {
+        final long offset = this.countingStream().getByteCount();
+        final int tag = this.data_stream.readUnsignedByte();
+        this.batch.begin(offset, tag);
+        final Validation<Seq<VGMParseError>, Void> r =
+          this.visitTag(this.batch, tag);
+        if (r.isInvalid()) {
+          return Validation.invalid(r.getError());
+        }
+      }
+    } catch (final EOFException e) {
+      this.finished = true;
+    } catch (final IllegalArgumentException | IOException e) {
+      return this.errorExceptionV(e);
+    }
+    return Validation.valid(Integer.valueOf(buffer.size()));
+  }
+
+  private Validation<Seq<VGMParseError>, Void> visitNext(
+    final VGMParserBodyVisitorType visitor)
+    throws IOException
+  {
+    return this.visitTag(visitor, this.data_stream.readUnsignedByte());
+  }
+
+  private Validation<Seq<VGMParseError>, Void> visitTag(
+    final VGMParserBodyVisitorType visitor,
     final int tag)
     throws IOException
   {
-    if (tag >= 0x30 && tag <= 0x3f) {
-      this.readByte();
-      return true;
+    switch (tag) {
+      case 0x4f: {
+        visitor.onGameGearPSGStereoWrite(this.data_stream.readUnsignedByte());
+        return VALID;
+      }
+      case 0x50: {
+        visitor.onPSGWrite(this.data_stream.readUnsignedByte());
+        return VALID;
+      }
+      case 0x51: {
+        final int reg = this.data_stream.readUnsignedByte();
+        final int val = this.data_stream.readUnsignedByte();
+        visitor.onYM2413Write(reg, val);
+        return VALID;
+      }
+      case 0x52:
+      case 0x53: {
+        final int reg = this.data_stream.readUnsignedByte();
+        final int val = this.data_stream.readUnsignedByte();
+        visitor.onYM2612Write(tag - 0x52, reg, val);
+        return VALID;
+      }
+      case 0x61: {
+        visitor.onWait(this.data_stream.readUnsignedShort());
+        return VALID;
+      }
+      case 0x62: {
+        visitor.onWait(735);
+        return VALID;
+      }
+      case 0x63: {
+        visitor.onWait(882);
+        return VALID;
+      }
+      case 0x66: {
+        this.finished = true;
+        visitor.onEndOfSoundData();
+        return VALID;
+      }
+      case 0x67: {
+        return this.visitDataBlock(visitor);
+      }
+      case 0xe0: {
+        visitor.onYM2612SeekPCM(Integer.toUnsignedLong(this.data_stream.readInt()));
+        return VALID;
+      }
+      default: {
+        this.visitOther(visitor, tag);
+        return VALID;
+      }
     }
+  }
 
-    if (tag >= 0x40 && tag <= 0x4e) {
-      if (this.header.version() < 0x160L) {
-        this.readByte();
-      } else {
-        this.readByte();
-        this.readByte();
-      }
-      return true;
+  private Validation<Seq<VGMParseError>, Void> visitDataBlock(
+    final VGMParserBodyVisitorType visitor)
+    throws IOException
+  {
+    final byte pad = this.readByte();
+    if ((int) pad != 0x66) {
+      return this.errorDataBlockPadding(pad);
     }
 
-    if (tag >= 0xA1 && tag <= 0xAF) {
-      this.readByte();
-      this.readByte();
-      return true;
+    final int data_type = this.data_stream.readUnsignedByte();
+    final long size = Integer.toUnsignedLong(this.data_stream.readInt());
+    final long offset = this.countingStream().getByteCount();
+    final Validation<Seq<VGMParseError>, ByteBuffer> data =
+      this.dataBlock(data_type, size);
+    if (data.isInvalid()) {
+      return Validation.invalid(data.getError());
     }
+    visitor.onDataBlock(data_type, offset, size);
+    return VALID;
+  }
 
-    if (tag >= 0xC9 && tag <= 0xCF) {
-      this.readByte();
-      this.readByte();
-      this.readByte();
-      return true;
+  private void visitOther(
+    final VGMParserBodyVisitorType visitor,
+    final int tag)
+    throws IOException
+  {
+    final int group = tag & 0xf0;
+    if (group == 0x70) {
+      visitor.onWait((tag & 0xf) + 1);
+      return;
     }
+    if (group == 0x80) {
+      visitor.onYM2612PCMWriteWait(tag & 0xf);
+      return;
+    }
+    if (!this.skipReservedCommand(tag)) {
+      throw VGMParserVanillaCommands.unrecognized(tag);
+    }
+  }
 
-    if (tag >= 0xD7 && tag <= 0xDF) {
-      this.readByte();
-      this.readByte();
-      this.readByte();
+  private <T> Validation<Seq<VGMParseError>, T> errorDataBlockPadding(
+    final byte pad)
+  {
+    final String separator = System.lineSeparator();
+    final String tag_text = Integer.toUnsignedString(DATA_BLOCK.tag(), 16);
+    return this.errorV(
+      new StringBuilder(128)
+        .append("  Position: ")
+        .append(this.countingStream().getByteCount())
+        .append(separator)
+        .append("  Received: ")
+        .append(tag_text)
+        .append(" ")
+        .append(Integer.toUnsignedString(pad, 16))
+        .append(separator)
+        .append("  Expected: ")
+        .append(tag_text)
+        .append(" 0x66")
+        .append(separator)
+        .toString());
+  }
+
+  private <T> Validation<Seq<VGMParseError>, T> errorDataBlockSize(
+    final long offset,
+    final long size)
+  {
+    return this.errorAtV(
+      offset, VGMParserVanillaCommands.dataBlockTooLarge(offset, size));
+  }
+
+  /**
+   * @return {@code true} if a data block of the given size cannot fit in
+   * the input that remains before the EOF offset given in the header
+   */
+
+  private boolean dataBlockExceedsInput(
+    final long size)
+  {
+    if (size > (long) Integer.MAX_VALUE) {
       return true;
     }
 
-    if (tag >= 0xE2 && tag <= 0xFF) {
-      this.readByte();
-      this.readByte();
-      this.readByte();
-      this.readByte();
-      return true;
+    final long eof = this.header.eofOffset();
+    if (eof <= 0L) {
+      return false;
     }
+    return size > eof - this.countingStream().getByteCount();
+  }
+
+  /**
+   * Skip reserved opcodes.
+   */
 
-    return false;
+  private boolean skipReservedCommand(
+    final int tag)
+    throws IOException
+  {
+    final int operands =
+      VGMParserVanillaCommands.reservedOperandBytes(tag, this.header.version());
+    for (int index = 0; index < operands; ++index) {
+      this.readByte();
+    }
+    return operands >= 0;
   }
   //CHECKSTYLE:ON
 
+  /**
+   * Read a data block into a direct buffer, so that large blocks do not
+   * occupy the heap. When the header states an EOF offset, the size has
+   * already been checked against the remaining input, and the buffer is
+   * allocated once at exactly the block size. Otherwise, the block is read
+   * in fixed-size direct chunks, so that a size that the input cannot back
+   * does not provoke a large allocation, and the chunks are gathered into
+   * a single buffer once the whole block has arrived. A block truncated by
+   * the end of the input is an error.
+   */
+
+  private Validation<Seq<VGMParseError>, ByteBuffer> dataBlock(
+    final int data_type,
+    final long size)
+    throws IOException
+  {
+    final long offset = this.countingStream().getByteCount();
+    if (this.dataBlockExceedsInput(size)) {
+      return this.errorDataBlockSize(offset, size);
+    }
+
+    final ByteBuffer data;
+    if (this.header.eofOffset() > 0L) {
+      data = ByteBuffer.allocateDirect((int) size);
+      if (!this.fill(data)) {
+        return this.errorDataBlockSize(offset, size);
+      }
+    } else {
+      final List<ByteBuffer> chunks = new ArrayList<>();
+      long remaining = size;
+      while (remaining > 0L) {
+        final ByteBuffer chunk_data = ByteBuffer.allocateDirect(
+          (int) Math.min(remaining, (long) DATA_BLOCK_CHUNK_SIZE));
+        if (!this.fill(chunk_data)) {
+          return this.errorDataBlockSize(offset, size);
+        }
+        chunks.add(chunk_data);
+        remaining -= (long) chunk_data.capacity();
+      }
+
+      if (chunks.size() == 1) {
+        data = chunks.get(0);
+      } else {
+        data = ByteBuffer.allocateDirect((int) size);
+        for (final ByteBuffer chunk_data : chunks) {
+          data.put(chunk_data);
+        }
+        data.flip();
+      }
+    }
+
+    final ByteBuffer view = data.asReadOnlyBuffer();
+    this.banks.addBlock(data_type, view);
+    return Validation.valid(view);
+  }
+
+  /**
+   * Fill the given buffer from the input, and flip it.
+   *
+   * @return {@code false} if the input ended before the buffer was full
+   */
+
+  private boolean fill(
+    final ByteBuffer data)
+    throws IOException
+  {
+    while (data.hasRemaining()) {
+      final int want = Math.min(this.chunk.length, data.remaining());
+      final int got = this.data_stream.read(this.chunk, 0, want);
+      if (got == -1) {
+        return false;
+      }
+      data.put(this.chunk, 0, got);
+    }
+    data.flip();
+    return true;
+  }
+
   private byte readByte()
     throws IOException
   {
+    /*
+     * Unlike DataInputStream, SwappedDataInputStream returns -1 from
+     * readUnsignedByte() at the end of the input rather than throwing.
+     */
+
     final int r = this.data_stream.readUnsignedByte();
     if (r == -1) {
       throw new EOFException("Unexpected EOF");
     }
 
-    return (byte) (r & 0xff);
+    return (byte) r;
   }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.parser.vanilla;
+
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.util.Arrays;
+
+/**
+ * Functions shared between the parser implementations for dealing with
+ * opcodes that the parsers do not decode, and for reporting errors that
+ * both parsers must report identically.
+ */
+
+final class VGMParserVanillaCommands
+{
+  /**
+   * The number of operand bytes for each reserved opcode, or {@code -1} for
+   * opcodes that are not reserved. Opcodes for chips that the parsers do
+   * not decode are treated as reserved. Opcodes {@code 0x40-0x4e} took a
+   * single operand prior to version 1.60, and so are handled separately.
+   */
+
+  private static final byte[] RESERVED_OPERANDS = makeReservedOperands();
+
+  private VGMParserVanillaCommands()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  private static byte[] makeReservedOperands()
+  {
+    final byte[] sizes = new byte[256];
+    Arrays.fill(sizes, (byte) -1);
+    Arrays.fill(sizes, 0x30, 0x40, (byte) 1);
+    Arrays.fill(sizes, 0x40, 0x4f, (byte) 2);
+    Arrays.fill(sizes, 0x54, 0x60, (byte) 2);
+    sizes[0x68] = (byte) 11;
+    sizes[0x90] = (byte) 4;
+    sizes[0x91] = (byte) 4;
+    sizes[0x92] = (byte) 5;
+    sizes[0x93] = (byte) 10;
+    sizes[0x94] = (byte) 1;
+    sizes[0x95] = (byte) 4;
+    Arrays.fill(sizes, 0xa0, 0xc0, (byte) 2);
+    Arrays.fill(sizes, 0xc0, 0xe0, (byte) 3);
+    Arrays.fill(sizes, 0xe1, 0x100, (byte) 4);
+    return sizes;
+  }
+
+  /**
+   * Determine the number of operand bytes that follow a reserved opcode.
+   *
+   * @param tag     The opcode
+   * @param version The format version of the file
+   *
+   * @return The number of operand bytes, or {@code -1} if the opcode is not
+   * reserved
+   */
+
+  static int reservedOperandBytes(
+    final int tag,
+    final long version)
+  {
+    if (tag >= 0x40 && tag <= 0x4e && version < 0x160L) {
+      return 1;
+    }
+    return (int) RESERVED_OPERANDS[tag & 0xff];
+  }
+
+  /**
+   * @param tag The opcode
+   *
+   * @return An exception indicating that the opcode is not recognized
+   */
+
+  static IllegalArgumentException unrecognized(
+    final int tag)
+  {
+    return new IllegalArgumentException(
+      "Unrecognized tag: 0x" + Integer.toUnsignedString(tag, 16));
+  }
+
+  /**
+   * @param position The offset of the data block payload
+   * @param size     The size declared by the data block
+   *
+   * @return An error message for a data block that runs past the input
+   */
+
+  static String dataBlockTooLarge(
+    final long position,
+    final long size)
+  {
+    final String separator = System.lineSeparator();
+    return new StringBuilder(128)
+      .append("Data block is larger than the remaining input.")
+      .append(separator)
+      .append("  Position: ")
+      .append(position)
+      .append(separator)
+      .append("  Size:     ")
+      .append(size)
+      .append(separator)
+      .toString();
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.parser.vanilla;
+
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.jvgm.core.VGMHeader;
+
+import java.nio.ByteBuffer;
+import java.util.OptionalLong;
+
+/**
+ * A decoder for VGM headers held in memory. The decoder handles every
+ * published revision of the header, from version 1.00 to version 1.72.
+ */
+
+final class VGMParserVanillaHeaderDecoder
+{
+  /**
+   * The size of the smallest header that any version of the format permits.
+   */
+
+  static final int HEADER_MINIMUM_SIZE = 0x40;
+
+  /**
+   * The size of the largest header that any version of the format defines.
+   */
+
+  static final int HEADER_MAXIMUM_SIZE = 0x100;
+
+  private VGMParserVanillaHeaderDecoder()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  private static long u32(
+    final ByteBuffer buffer,
+    final int offset)
+  {
+    return Integer.toUnsignedLong(buffer.getInt(offset));
+  }
+
+  private static int u8(
+    final ByteBuffer buffer,
+    final int offset)
+  {
+    return (int) buffer.get(offset) & 0xff;
+  }
+
+  private static long relativeOffset(
+    final long base,
+    final long value)
+  {
+    if (value > 0L) {
+      return value + base;
+    }
+    return value;
+  }
+
+  private static OptionalLong clock(
+    final ByteBuffer buffer,
+    final int offset)
+  {
+    final long value = u32(buffer, offset);
+    if (value == 0L) {
+      return OptionalLong.empty();
+    }
+    return OptionalLong.of(value);
+  }
+
+  /**
+   * Determine the absolute offset of the command data. Versions prior to
+   * 1.50 have no data offset field, and a data offset of zero is treated
+   * in the same manner: the command data begins immediately after the
+   * 64 byte header.
+   *
+   * @param buffer A little-endian buffer holding at least the first 64 bytes
+   *               of the header
+   *
+   * @return The absolute offset of the command data
+   */
+
+  static long dataOffset(
+    final ByteBuffer buffer)
+  {
+    final long version = u32(buffer, 0x08);
+    final long offset = u32(buffer, 0x34);
+    if (version < 0x150L || offset == 0L) {
+      return (long) HEADER_MINIMUM_SIZE;
+    }
+    return offset + 0x34L;
+  }
+
+  /**
+   * Determine the number of header bytes that are actually present in the
+   * file. The header ends at the start of the command data, and any header
+   * fields at or beyond that point must be treated as zero.
+   *
+   * @param buffer A little-endian buffer holding at least the first 64 bytes
+   *               of the header
+   *
+   * @return The number of bytes of header present, in the range
+   * {@code [HEADER_MINIMUM_SIZE, HEADER_MAXIMUM_SIZE]}
+   */
+
+  static int headerSize(
+    final ByteBuffer buffer)
+  {
+    if (u32(buffer, 0x08) < 0x151L) {
+      return HEADER_MINIMUM_SIZE;
+    }
+
+    final long offset = dataOffset(buffer);
+    if (offset >= (long) HEADER_MAXIMUM_SIZE) {
+      return HEADER_MAXIMUM_SIZE;
+    }
+    return Math.max(HEADER_MINIMUM_SIZE, (int) offset);
+  }
+
+  /**
+   * Decode a header.
+   *
+   * @param buffer A little-endian buffer of at least
+   *               {@link #HEADER_MAXIMUM_SIZE} bytes holding the header, with
+   *               all bytes beyond {@link #headerSize(ByteBuffer)} set to zero
+   *
+   * @return A decoded header
+   */
+
+  static VGMHeader decode(
+    final ByteBuffer buffer)
+  {
+    final long version = u32(buffer, 0x08);
+    final long clock_ym2413 = u32(buffer, 0x10);
+
+    final VGMHeader.Builder builder =
+      VGMHeader.builder()
+        .setEofOffset(relativeOffset(0x04L, u32(buffer, 0x04)))
+        .setVersion(version)
+        .setChipSN76489Clock(u32(buffer, 0x0c))
+        .setChipYM2413Clock(clock_ym2413)
+        .setOffsetGD3(relativeOffset(0x14L, u32(buffer, 0x14)))
+        .setSampleCount(u32(buffer, 0x18))
+        .setLoopOffset(relativeOffset(0x1cL, u32(buffer, 0x1c)))
+        .setLoopSampleCount(u32(buffer, 0x20))
+        .setDataOffset(dataOffset(buffer))
+        .setChipSegaPCMClock(u32(buffer, 0x38))
+        .setChipSegaPCMInterfaceRegister(u32(buffer, 0x3c));
+
+    /*
+     * Version 1.00 files have no rate field, and versions prior to 1.10
+     * share the YM2413 clock with the YM2612 and YM2151, and use the
+     * default SN76489 noise parameters.
+     */
+
+    if (version < 0x101L) {
+      builder.setRate(0L);
+    } else {
+      builder.setRate(u32(buffer, 0x24));
+    }
+
+    if (version < 0x110L) {
+      builder.setChipYM2612Clock(clock_ym2413);
+      builder.setChipYM2151Clock(clock_ym2413);
+    } else {
+      builder.setChipSN76489Feedback((int) buffer.getShort(0x28) & 0xffff);
+      builder.setChipSN76489ShiftRegisterWidth(u8(buffer, 0x2a));
+      builder.setChipSN76489Flags(u8(buffer, 0x2b));
+      builder.setChipYM2612Clock(u32(buffer, 0x2c));
+      builder.setChipYM2151Clock(u32(buffer, 0x30));
+    }
+
+    decode151(buffer, builder);
+    decode161(buffer, builder);
+    decode171(buffer, builder);
+    return builder.build();
+  }
+
+  private static void decode151(
+    final ByteBuffer buffer,
+    final VGMHeader.Builder builder)
+  {
+    builder.setChipRF5C68Clock(clock(buffer, 0x40));
+    builder.setChipYM2203Clock(clock(buffer, 0x44));
+    builder.setChipYM2608Clock(clock(buffer, 0x48));
+    builder.setChipYM2610Clock(clock(buffer, 0x4c));
+    builder.setChipYM3812Clock(clock(buffer, 0x50));
+    builder.setChipYM3526Clock(clock(buffer, 0x54));
+    builder.setChipY8950Clock(clock(buffer, 0x58));
+    builder.setChipYMF262Clock(clock(buffer, 0x5c));
+    builder.setChipYMF278BClock(clock(buffer, 0x60));
+    builder.setChipYMF271Clock(clock(buffer, 0x64));
+    builder.setChipYMZ280BClock(clock(buffer, 0x68));
+    builder.setChipRF5C164Clock(clock(buffer, 0x6c));
+    builder.setChipPWMClock(clock(buffer, 0x70));
+    builder.setChipAY8910Clock(clock(buffer, 0x74));
+    builder.setChipAY8910Type(u8(buffer, 0x78));
+    builder.setChipAY8910Flags(u8(buffer, 0x79));
+    builder.setChipYM2203AY8910Flags(u8(buffer, 0x7a));
+    builder.setChipYM2608AY8910Flags(u8(buffer, 0x7b));
+    builder.setVolumeModifier(u8(buffer, 0x7c));
+    builder.setLoopBase((int) buffer.get(0x7e));
+    builder.setLoopModifier(u8(buffer, 0x7f));
+  }
+
+  private static void decode161(
+    final ByteBuffer buffer,
+    final VGMHeader.Builder builder)
+  {
+    builder.setChipGameBoyDMGClock(clock(buffer, 0x80));
+    builder.setChipNESAPUClock(clock(buffer, 0x84));
+    builder.setChipMultiPCMClock(clock(buffer, 0x88));
+    builder.setChipUPD7759Clock(clock(buffer, 0x8c));
+    builder.setChipOKIM6258Clock(clock(buffer, 0x90));
+    builder.setChipOKIM6258Flags(u8(buffer, 0x94));
+    builder.setChipK054539Flags(u8(buffer, 0x95));
+    builder.setChipC140Type(u8(buffer, 0x96));
+    builder.setChipOKIM6295Clock(clock(buffer, 0x98));
+    builder.setChipK051649Clock(clock(buffer, 0x9c));
+    builder.setChipK054539Clock(clock(buffer, 0xa0));
+    builder.setChipHuC6280Clock(clock(buffer, 0xa4));
+    builder.setChipC140Clock(clock(buffer, 0xa8));
+    builder.setChipK053260Clock(clock(buffer, 0xac));
+    builder.setChipPokeyClock(clock(buffer, 0xb0));
+    builder.setChipQSoundClock(clock(buffer, 0xb4));
+  }
+
+  private static void decode171(
+    final ByteBuffer buffer,
+    final VGMHeader.Builder builder)
+  {
+    builder.setChipSCSPClock(clock(buffer, 0xb8));
+
+    final long extra = u32(buffer, 0xbc);
+    if (extra != 0L) {
+      builder.setExtraHeaderOffset(extra + 0xbcL);
+    }
+
+    builder.setChipWonderSwanClock(clock(buffer, 0xc0));
+    builder.setChipVSUClock(clock(buffer, 0xc4));
+    builder.setChipSAA1099Clock(clock(buffer, 0xc8));
+    builder.setChipES5503Clock(clock(buffer, 0xcc));
+    builder.setChipES5506Clock(clock(buffer, 0xd0));
+    builder.setChipES5503Channels(u8(buffer, 0xd4));
+    builder.setChipES5506Channels(u8(buffer, 0xd5));
+    builder.setChipC352ClockDivider(u8(buffer, 0xd6));
+    builder.setChipX1010Clock(clock(buffer, 0xd8));
+    builder.setChipC352Clock(clock(buffer, 0xdc));
+    builder.setChipGA20Clock(clock(buffer, 0xe0));
+    builder.setChipMikeyClock(clock(buffer, 0xe4));
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.parser.vanilla;
+
+import com.io7m.junreachable.UnreachableCodeException;
+
+/**
+ * The VGM magic number.
+ */
+
+final class VGMParserVanillaMagic
+{
+  private static final byte[] MAGIC = {
+    (byte) 0x56,
+    (byte) 0x67,
+    (byte) 0x6d,
+    (byte) 0x20,
+  };
+
+  private static final char[] HEX_ARRAY = "0123456789ABCDEF".toCharArray();
+
+  private VGMParserVanillaMagic()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @param bytes The received bytes
+   *
+   * @return {@code true} iff the first four bytes are the VGM magic number
+   */
+
+  static boolean isMagic(
+    final byte[] bytes)
+  {
+    if (bytes.length < MAGIC.length) {
+      return false;
+    }
+    for (int index = 0; index < MAGIC.length; ++index) {
+      if (bytes[index] != MAGIC[index]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return The expected magic number as a hex string
+   */
+
+  static String magicHex()
+  {
+    return bytesToHex(MAGIC);
+  }
+
+  /**
+   * @param bytes The bytes
+   *
+   * @return The given bytes as a hex string
+   */
+
+  static String bytesToHex(
+    final byte[] bytes)
+  {
+    final char[] chars = new char[bytes.length * 2];
+    for (int index = 0; index < bytes.length; ++index) {
+      final int v = bytes[index] & 0xFF;
+      chars[index * 2] = HEX_ARRAY[v >>> 4];
+      chars[index * 2 + 1] = HEX_ARRAY[v & 0x0F];
+    }
+    return String.valueOf(chars);
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.parser.vanilla;
+
+import com.io7m.jvgm.core.VGMVersion;
+import com.io7m.jvgm.parser.api.VGMParserHeaderType;
+import com.io7m.jvgm.parser.api.VGMParserProviderType;
+import io.vavr.collection.SortedSet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * A parser provider that decodes VGM data held entirely in memory using
+ * absolute reads. Files opened with {@link #openMapped(Path)} are mapped
+ * directly rather than being read through a stream.
+ */
+
+public final class VGMParserVanillaMapped implements VGMParserProviderType
+{
+  /**
+   * Construct a parser provider.
+   */
+
+  public VGMParserVanillaMapped()
+  {
+
+  }
+
+  /**
+   * Create a new parser for the given file. The file is mapped read-only into
+   * memory, and the mapping is released when the parser becomes unreachable.
+   *
+   * @param path The file
+   *
+   * @return A new parser
+   *
+   * @throws IOException On I/O errors, or if the file is too large to map
+   */
+
+  public VGMParserHeaderType openMapped(
+    final Path path)
+    throws IOException
+  {
+    Objects.requireNonNull(path, "Path");
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size > (long) Integer.MAX_VALUE) {
+        final String separator = System.lineSeparator();
+        throw new IOException(
+          new StringBuilder(128)
+            .append("File is too large to be mapped.")
+            .append(separator)
+            .append("  File: ")
+            .append(path)
+            .append(separator)
+            .append("  Size: ")
+            .append(size)
+            .append(separator)
+            .toString());
+      }
+
+      final MappedByteBuffer map =
+        channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+      return new VGMParserVanillaMappedHeader(path, map);
+    }
+  }
+
+  /**
+   * Create a new parser for the given buffer. The buffer is not copied, and
+   * must not be modified while the parser is in use.
+   *
+   * @param path   The path, for diagnostic messages
+   * @param buffer The buffer
+   *
+   * @return A new parser
+   */
+
+  public VGMParserHeaderType openBuffer(
+    final Path path,
+    final ByteBuffer buffer)
+  {
+    Objects.requireNonNull(path, "Path");
+    Objects.requireNonNull(buffer, "Buffer");
+
+    return new VGMParserVanillaMappedHeader(path, buffer.slice());
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * The stream is read fully into memory before parsing begins.
+   *
+   * @throws UncheckedIOException If the stream cannot be read
+   */
+
+  @Override
+  public VGMParserHeaderType open(
+    final Path path,
+    final InputStream stream)
+  {
+    Objects.requireNonNull(path, "Path");
+    Objects.requireNonNull(stream, "Stream");
+
+    try {
+      return new VGMParserVanillaMappedHeader(
+        path, ByteBuffer.wrap(stream.readAllBytes()));
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public SortedSet<VGMVersion> supportedVersions()
+  {
+    return VGMParserVanillaSupported.SUPPORTED;
+  }
+}
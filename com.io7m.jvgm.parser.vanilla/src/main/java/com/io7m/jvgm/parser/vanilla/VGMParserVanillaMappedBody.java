@@ -0,0 +1,694 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.parser.vanilla;
+
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.jvgm.core.VGMCommandDataBlock;
+import com.io7m.jvgm.core.VGMCommandEOF;
+import com.io7m.jvgm.core.VGMCommandEndOfSoundData;
+import com.io7m.jvgm.core.VGMCommandGameGearPSGStereoWrite;
+import com.io7m.jvgm.core.VGMCommandPSGWrite;
+import com.io7m.jvgm.core.VGMCommandType;
+import com.io7m.jvgm.core.VGMCommandWait735;
+import com.io7m.jvgm.core.VGMCommandWait882;
+import com.io7m.jvgm.core.VGMCommandWaitLong;
+import com.io7m.jvgm.core.VGMCommandWaitShort0;
+import com.io7m.jvgm.core.VGMCommandWaitShort1;
+import com.io7m.jvgm.core.VGMCommandWaitShort2;
+import com.io7m.jvgm.core.VGMCommandWaitShort3;
+import com.io7m.jvgm.core.VGMCommandWaitShort4;
+import com.io7m.jvgm.core.VGMCommandWaitShort5;
+import com.io7m.jvgm.core.VGMCommandWaitShort6;
+import com.io7m.jvgm.core.VGMCommandWaitShort7;
+import com.io7m.jvgm.core.VGMCommandWaitShort8;
+import com.io7m.jvgm.core.VGMCommandWaitShort9;
+import com.io7m.jvgm.core.VGMCommandWaitShortA;
+import com.io7m.jvgm.core.VGMCommandWaitShortB;
+import com.io7m.jvgm.core.VGMCommandWaitShortC;
+import com.io7m.jvgm.core.VGMCommandWaitShortD;
+import com.io7m.jvgm.core.VGMCommandWaitShortE;
+import com.io7m.jvgm.core.VGMCommandWaitShortF;
+import com.io7m.jvgm.core.VGMCommandYM2413Write;
+import com.io7m.jvgm.core.VGMCommandYM2612PCMWriteWait0;
+import com.io7m.jvgm.core.VGMCommandYM2612PCMWriteWait1;
+import com.io7m.jvgm.core.VGMCommandYM2612PCMWriteWait2;
+import com.io7m.jvgm.core.VGMCommandYM2612PCMWriteWait3;
+import com.io7m.jvgm.core.VGMCommandYM2612PCMWriteWait4;
+import com.io7m.jvgm.core.VGMCommandYM2612PCMWriteWait5;
+import com.io7m.jvgm.core.VGMCommandYM2612PCMWriteWait6;
+import com.io7m.jvgm.core.VGMCommandYM2612PCMWriteWait7;
+import com.io7m.jvgm.core.VGMCommandYM2612PCMWriteWait8;
+import com.io7m.jvgm.core.VGMCommandYM2612PCMWriteWait9;
+import com.io7m.jvgm.core.VGMCommandYM2612PCMWriteWaitA;
+import com.io7m.jvgm.core.VGMCommandYM2612PCMWriteWaitB;
+import com.io7m.jvgm.core.VGMCommandYM2612PCMWriteWaitC;
+import com.io7m.jvgm.core.VGMCommandYM2612PCMWriteWaitD;
+import com.io7m.jvgm.core.VGMCommandYM2612PCMWriteWaitE;
+import com.io7m.jvgm.core.VGMCommandYM2612PCMWriteWaitF;
+import com.io7m.jvgm.core.VGMCommandYM2612SeekPCM;
+import com.io7m.jvgm.core.VGMCommandYM2612WritePort0;
+import com.io7m.jvgm.core.VGMCommandYM2612WritePort1;
+import com.io7m.jvgm.core.VGMDataBanks;
+import com.io7m.jvgm.core.VGMHeader;
+import com.io7m.jvgm.parser.api.VGMCheckpoint;
+import com.io7m.jvgm.parser.api.VGMCheckpointIndex;
+import com.io7m.jvgm.parser.api.VGMCommandBuffer;
+import com.io7m.jvgm.parser.api.VGMParseError;
+import com.io7m.jvgm.parser.api.VGMParserBodyVisitorType;
+import com.io7m.jvgm.parser.api.VGMParserSeekableBodyType;
+import io.vavr.collection.Seq;
+import io.vavr.control.Validation;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static com.io7m.jvgm.core.VGMCommandType.Type.DATA_BLOCK;
+
+final class VGMParserVanillaMappedBody
+  extends VGMParserVanillaMappedBase implements VGMParserSeekableBodyType
+{
+  private static final Validation<Seq<VGMParseError>, Void> VALID =
+    Validation.valid(null);
+
+  private final VGMHeader header;
+  private final VGMParserVanillaBatchVisitor batch;
+  private final VGMDataBanks banks;
+  private final int limit;
+  private int position;
+  private final VGMParserVanillaTracker tracker;
+  private final int start;
+  private int banks_limit;
+  private boolean finished;
+
+  VGMParserVanillaMappedBody(
+    final VGMHeader in_header,
+    final Path in_path,
+    final ByteBuffer in_buffer,
+    final int in_position)
+  {
+    super(in_path, in_buffer);
+
+    this.header =
+      Objects.requireNonNull(in_header, "Header");
+    this.limit = this.buffer().limit();
+    this.position = in_position;
+    this.finished = false;
+    this.batch = new VGMParserVanillaBatchVisitor();
+    this.banks = new VGMDataBanks();
+    this.tracker = new VGMParserVanillaTracker();
+    this.start = in_position;
+    this.banks_limit = -1;
+  }
+
+  @Override
+  public VGMDataBanks dataBanks()
+  {
+    return this.banks;
+  }
+
+  @Override
+  public Validation<Seq<VGMParseError>, VGMCheckpointIndex> buildIndex(
+    final long interval)
+  {
+    if (interval <= 0L) {
+      throw new IllegalArgumentException(
+        "Checkpoint interval must be positive: " + interval);
+    }
+
+    final int saved_position = this.position;
+    final boolean saved_finished = this.finished;
+    final long loop_offset = this.header.loopOffset().orElse(0L);
+
+    try {
+      this.position = this.start;
+      this.finished = false;
+      this.tracker.reset();
+
+      final List<VGMCheckpoint> checkpoints = new ArrayList<>();
+      VGMCheckpoint loop = null;
+      long next = 0L;
+
+      try {
+        while (!this.finished) {
+          final long offset = this.position();
+          final long samples = this.tracker.samples();
+          if (samples >= next) {
+            checkpoints.add(this.tracker.checkpoint(offset));
+            next = (samples / interval + 1L) * interval;
+          }
+          if (loop == null && loop_offset > 0L && offset == loop_offset) {
+            loop = this.tracker.checkpoint(offset);
+          }
+
+          final Validation<Seq<VGMParseError>, Void> r =
+            this.visitNext(this.tracker);
+          if (r.isInvalid()) {
+            return Validation.invalid(r.getError());
+          }
+        }
+      } catch (final EOFException e) {
+        // The end of the input is a valid place to finish indexing
+      } catch (final IllegalArgumentException e) {
+        return this.errorExceptionV(e);
+      }
+
+      return Validation.valid(
+        new VGMCheckpointIndex(interval, checkpoints, Optional.ofNullable(loop)));
+    } finally {
+      this.position = saved_position;
+      this.finished = saved_finished;
+    }
+  }
+
+  @Override
+  public Validation<Seq<VGMParseError>, Long> seek(
+    final VGMCheckpointIndex index,
+    final long sample,
+    final VGMParserBodyVisitorType visitor)
+  {
+    Objects.requireNonNull(index, "Index");
+    Objects.requireNonNull(visitor, "Visitor");
+
+    this.restore(index.nearest(sample), visitor);
+
+    try {
+      while (!this.finished && this.tracker.samples() < sample) {
+        final Validation<Seq<VGMParseError>, Void> r =
+          this.visitNext(this.tracker);
+        if (r.isInvalid()) {
+          return Validation.invalid(r.getError());
+        }
+      }
+    } catch (final EOFException e) {
+      this.finished = true;
+    } catch (final IllegalArgumentException e) {
+      return this.errorExceptionV(e);
+    }
+
+    return Validation.valid(Long.valueOf(this.tracker.samples()));
+  }
+
+  @Override
+  public Validation<Seq<VGMParseError>, Long> seekLoop(
+    final VGMCheckpointIndex index,
+    final VGMParserBodyVisitorType visitor)
+  {
+    Objects.requireNonNull(index, "Index");
+    Objects.requireNonNull(visitor, "Visitor");
+
+    final Optional<VGMCheckpoint> loop_opt = index.loop();
+    if (loop_opt.isEmpty()) {
+      return this.errorV("The body does not have a loop point.");
+    }
+
+    final VGMCheckpoint loop = loop_opt.get();
+    this.restore(loop, visitor);
+    return Validation.valid(Long.valueOf(loop.sample()));
+  }
+
+  private void restore(
+    final VGMCheckpoint checkpoint,
+    final VGMParserBodyVisitorType visitor)
+  {
+    this.position = (int) checkpoint.offset();
+    this.finished = false;
+    this.tracker.restore(checkpoint, visitor);
+    checkpoint.replay(visitor);
+  }
+
+  @Override
+  protected long position()
+  {
+    return Integer.toUnsignedLong(this.position);
+  }
+
+  // Excessive cyclomatic complexity due to unavoidable switching
+  //CHECKSTYLE:OFF
+  @Override
+  public Validation<Seq<VGMParseError>, VGMCommandType> parse()
+  {
+    if (this.finished) {
+      return Validation.valid(VGMCommandEOF.builder().build());
+    }
+
+    try {
+      while (true) {
+        final int tag = this.readUnsigned8();
+
+        if (this.skipReservedCommand(tag)) {
+          continue;
+        }
+
+        final VGMCommandType.Type type = VGMCommandType.Type.ofInt(tag);
+
+        switch (type) {
+          case EOF: {
+            throw new UnreachableCodeException();
+          }
+
+          case GAME_GEAR_PSG_STEREO_WRITE: {
+            return Validation.valid(
+              VGMCommandGameGearPSGStereoWrite.of(this.readByte()));
+          }
+
+          case PSG_WRITE: {
+            return Validation.valid(VGMCommandPSGWrite.of(this.readByte()));
+          }
+
+          case YM2413_WRITE: {
+            final byte reg = this.readByte();
+            final byte val = this.readByte();
+            return Validation.valid(VGMCommandYM2413Write.of(reg, val));
+          }
+
+          case YM2612_WRITE_PORT_0: {
+            final byte reg = this.readByte();
+            final byte val = this.readByte();
+            return Validation.valid(VGMCommandYM2612WritePort0.of(reg, val));
+          }
+
+          case YM2612_WRITE_PORT_1: {
+            final byte reg = this.readByte();
+            final byte val = this.readByte();
+            return Validation.valid(VGMCommandYM2612WritePort1.of(reg, val));
+          }
+
+          case YM2612_SEEK_PCM: {
+            final long size = this.readUnsigned32();
+            return Validation.valid(VGMCommandYM2612SeekPCM.of(size));
+          }
+
+          case WAIT_LONG: {
+            final int val = this.readUnsigned16();
+            return Validation.valid(VGMCommandWaitLong.of(val));
+          }
+
+          case END_OF_SOUND_DATA: {
+            this.finished = true;
+            return Validation.valid(VGMCommandEndOfSoundData.builder().build());
+          }
+
+          case DATA_BLOCK: {
+            // Skip 0x66 compatibility byte
+            final byte pad = this.readByte();
+            if ((int) pad != 0x66) {
+              return this.errorDataBlockPadding(pad);
+            }
+
+            final byte data_type = this.readByte();
+            final long size = this.readUnsigned32();
+            if (this.dataBlockExceedsInput(size)) {
+              return this.errorDataBlockSize(size);
+            }
+            final ByteBuffer data = this.dataBlock((int) data_type & 0xff, size);
+            return Validation.valid(
+              VGMCommandDataBlock.builder()
+                .setDataType(data_type)
+                .setDataSize(size)
+                .setData(data)
+                .build());
+          }
+
+          case WAIT_735:
+            return Validation.valid(VGMCommandWait735.builder().build());
+          case WAIT_882:
+            return Validation.valid(VGMCommandWait882.builder().build());
+          case WAIT_SHORT_0:
+            return Validation.valid(VGMCommandWaitShort0.builder().build());
+          case WAIT_SHORT_1:
+            return Validation.valid(VGMCommandWaitShort1.builder().build());
+          case WAIT_SHORT_2:
+            return Validation.valid(VGMCommandWaitShort2.builder().build());
+          case WAIT_SHORT_3:
+            return Validation.valid(VGMCommandWaitShort3.builder().build());
+          case WAIT_SHORT_4:
+            return Validation.valid(VGMCommandWaitShort4.builder().build());
+          case WAIT_SHORT_5:
+            return Validation.valid(VGMCommandWaitShort5.builder().build());
+          case WAIT_SHORT_6:
+            return Validation.valid(VGMCommandWaitShort6.builder().build());
+          case WAIT_SHORT_7:
+            return Validation.valid(VGMCommandWaitShort7.builder().build());
+          case WAIT_SHORT_8:
+            return Validation.valid(VGMCommandWaitShort8.builder().build());
+          case WAIT_SHORT_9:
+            return Validation.valid(VGMCommandWaitShort9.builder().build());
+          case WAIT_SHORT_A:
+            return Validation.valid(VGMCommandWaitShortA.builder().build());
+          case WAIT_SHORT_B:
+            return Validation.valid(VGMCommandWaitShortB.builder().build());
+          case WAIT_SHORT_C:
+            return Validation.valid(VGMCommandWaitShortC.builder().build());
+          case WAIT_SHORT_D:
+            return Validation.valid(VGMCommandWaitShortD.builder().build());
+          case WAIT_SHORT_E:
+            return Validation.valid(VGMCommandWaitShortE.builder().build());
+          case WAIT_SHORT_F:
+            return Validation.valid(VGMCommandWaitShortF.builder().build());
+
+          case YM2612_PCM_WRITE_WAIT_0:
+            return Validation.valid(VGMCommandYM2612PCMWriteWait0.builder().build());
+          case YM2612_PCM_WRITE_WAIT_1:
+            return Validation.valid(VGMCommandYM2612PCMWriteWait1.builder().build());
+          case YM2612_PCM_WRITE_WAIT_2:
+            return Validation.valid(VGMCommandYM2612PCMWriteWait2.builder().build());
+          case YM2612_PCM_WRITE_WAIT_3:
+            return Validation.valid(VGMCommandYM2612PCMWriteWait3.builder().build());
+          case YM2612_PCM_WRITE_WAIT_4:
+            return Validation.valid(VGMCommandYM2612PCMWriteWait4.builder().build());
+          case YM2612_PCM_WRITE_WAIT_5:
+            return Validation.valid(VGMCommandYM2612PCMWriteWait5.builder().build());
+          case YM2612_PCM_WRITE_WAIT_6:
+            return Validation.valid(VGMCommandYM2612PCMWriteWait6.builder().build());
+          case YM2612_PCM_WRITE_WAIT_7:
+            return Validation.valid(VGMCommandYM2612PCMWriteWait7.builder().build());
+          case YM2612_PCM_WRITE_WAIT_8:
+            return Validation.valid(VGMCommandYM2612PCMWriteWait8.builder().build());
+          case YM2612_PCM_WRITE_WAIT_9:
+            return Validation.valid(VGMCommandYM2612PCMWriteWait9.builder().build());
+          case YM2612_PCM_WRITE_WAIT_A:
+            return Validation.valid(VGMCommandYM2612PCMWriteWaitA.builder().build());
+          case YM2612_PCM_WRITE_WAIT_B:
+            return Validation.valid(VGMCommandYM2612PCMWriteWaitB.builder().build());
+          case YM2612_PCM_WRITE_WAIT_C:
+            return Validation.valid(VGMCommandYM2612PCMWriteWaitC.builder().build());
+          case YM2612_PCM_WRITE_WAIT_D:
+            return Validation.valid(VGMCommandYM2612PCMWriteWaitD.builder().build());
+          case YM2612_PCM_WRITE_WAIT_E:
+            return Validation.valid(VGMCommandYM2612PCMWriteWaitE.builder().build());
+          case YM2612_PCM_WRITE_WAIT_F:
+            return Validation.valid(VGMCommandYM2612PCMWriteWaitF.builder().build());
+        }
+
+        throw new UnreachableCodeException();
+      }
+
+    } catch (final EOFException e) {
+      this.finished = true;
+      return Validation.valid(VGMCommandEOF.builder().build());
+    } catch (final IllegalArgumentException e) {
+      return this.errorExceptionV(e);
+    }
+  }
+
+  @Override
+  public Validation<Seq<VGMParseError>, Void> parseAll(
+    final VGMParserBodyVisitorType visitor)
+  {
+    Objects.requireNonNull(visitor, "Visitor");
+
+    try {
+      while (!this.finished) {
+        final Validation<Seq<VGMParseError>, Void> r = this.visitNext(visitor);
+        if (r.isInvalid()) {
+          return r;
+        }
+      }
+    } catch (final EOFException e) {
+      this.finished = true;
+    } catch (final IllegalArgumentException e) {
+      return this.errorExceptionV(e);
+    }
+    return VALID;
+  }
+
+  @Override
+  public Validation<Seq<VGMParseError>, Integer> parseBatch(
+    final VGMCommandBuffer buffer)
+  {
+    Objects.requireNonNull(buffer, "Buffer");
+
+    buffer.clear();
+    this.batch.setBuffer(buffer);
+
+    try {
+      while (!this.finished && !buffer.isFull()) {
+        final long offset = this.position();
+        final int tag = this.readUnsigned8();
+        this.batch.begin(offset, tag);
+        final Validation<Seq<VGMParseError>, Void> r =
+          this.visitTag(this.batch, tag);
+        if (r.isInvalid()) {
+          return Validation.invalid(r.getError());
+        }
+      }
+    } catch (final EOFException e) {
+      this.finished = true;
+    } catch (final IllegalArgumentException e) {
+      return this.errorExceptionV(e);
+    }
+    return Validation.valid(Integer.valueOf(buffer.size()));
+  }
+
+  private Validation<Seq<VGMParseError>, Void> visitNext(
+    final VGMParserBodyVisitorType visitor)
+    throws EOFException
+  {
+    return this.visitTag(visitor, this.readUnsigned8());
+  }
+
+  private Validation<Seq<VGMParseError>, Void> visitTag(
+    final VGMParserBodyVisitorType visitor,
+    final int tag)
+    throws EOFException
+  {
+    switch (tag) {
+      case 0x4f: {
+        visitor.onGameGearPSGStereoWrite(this.readUnsigned8());
+        return VALID;
+      }
+      case 0x50: {
+        visitor.onPSGWrite(this.readUnsigned8());
+        return VALID;
+      }
+      case 0x51: {
+        final int reg = this.readUnsigned8();
+        final int val = this.readUnsigned8();
+        visitor.onYM2413Write(reg, val);
+        return VALID;
+      }
+      case 0x52:
+      case 0x53: {
+        final int reg = this.readUnsigned8();
+        final int val = this.readUnsigned8();
+        visitor.onYM2612Write(tag - 0x52, reg, val);
+        return VALID;
+      }
+      case 0x61: {
+        visitor.onWait(this.readUnsigned16());
+        return VALID;
+      }
+      case 0x62: {
+        visitor.onWait(735);
+        return VALID;
+      }
+      case 0x63: {
+        visitor.onWait(882);
+        return VALID;
+      }
+      case 0x66: {
+        this.finished = true;
+        visitor.onEndOfSoundData();
+        return VALID;
+      }
+      case 0x67: {
+        return this.visitDataBlock(visitor);
+      }
+      case 0xe0: {
+        visitor.onYM2612SeekPCM(this.readUnsigned32());
+        return VALID;
+      }
+      default: {
+        this.visitOther(visitor, tag);
+        return VALID;
+      }
+    }
+  }
+
+  private Validation<Seq<VGMParseError>, Void> visitDataBlock(
+    final VGMParserBodyVisitorType visitor)
+    throws EOFException
+  {
+    final byte pad = this.readByte();
+    if ((int) pad != 0x66) {
+      return this.errorDataBlockPadding(pad);
+    }
+
+    final int data_type = this.readUnsigned8();
+    final long size = this.readUnsigned32();
+    if (this.dataBlockExceedsInput(size)) {
+      return this.errorDataBlockSize(size);
+    }
+    final long offset = this.position();
+    this.dataBlock(data_type, size);
+    visitor.onDataBlock(data_type, offset, size);
+    return VALID;
+  }
+
+  private void visitOther(
+    final VGMParserBodyVisitorType visitor,
+    final int tag)
+    throws EOFException
+  {
+    final int group = tag & 0xf0;
+    if (group == 0x70) {
+      visitor.onWait((tag & 0xf) + 1);
+      return;
+    }
+    if (group == 0x80) {
+      visitor.onYM2612PCMWriteWait(tag & 0xf);
+      return;
+    }
+    if (!this.skipReservedCommand(tag)) {
+      throw VGMParserVanillaCommands.unrecognized(tag);
+    }
+  }
+
+  private <T> Validation<Seq<VGMParseError>, T> errorDataBlockPadding(
+    final byte pad)
+  {
+    final String separator = System.lineSeparator();
+    final String tag_text = Integer.toUnsignedString(DATA_BLOCK.tag(), 16);
+    return this.errorV(
+      new StringBuilder(128)
+        .append("  Position: ")
+        .append(this.position)
+        .append(separator)
+        .append("  Received: ")
+        .append(tag_text)
+        .append(" ")
+        .append(Integer.toUnsignedString(pad, 16))
+        .append(separator)
+        .append("  Expected: ")
+        .append(tag_text)
+        .append(" 0x66")
+        .append(separator)
+        .toString());
+  }
+
+  private <T> Validation<Seq<VGMParseError>, T> errorDataBlockSize(
+    final long size)
+  {
+    return this.errorV(
+      VGMParserVanillaCommands.dataBlockTooLarge(this.position, size));
+  }
+
+  /**
+   * @return {@code true} if a data block of the given size runs past the
+   * end of the mapped input
+   */
+
+  private boolean dataBlockExceedsInput(
+    final long size)
+  {
+    return size > (long) (this.limit - this.position);
+  }
+
+  /**
+   * Skip reserved opcodes.
+   */
+
+  private boolean skipReservedCommand(
+    final int tag)
+    throws EOFException
+  {
+    final int operands =
+      VGMParserVanillaCommands.reservedOperandBytes(tag, this.header.version());
+    if (operands >= 0) {
+      this.require(operands);
+      this.position += operands;
+      return true;
+    }
+    return false;
+  }
+  //CHECKSTYLE:ON
+
+  private void require(
+    final int count)
+    throws EOFException
+  {
+    if (this.limit - this.position < count) {
+      this.position = this.limit;
+      throw new EOFException("Unexpected EOF");
+    }
+  }
+
+  private ByteBuffer dataBlock(
+    final int data_type,
+    final long size)
+  {
+    final int data_start = this.position;
+    this.position += (int) size;
+
+    final ByteBuffer view = this.buffer().duplicate();
+    view.limit(this.position);
+    view.position(data_start);
+    final ByteBuffer data = view.slice().asReadOnlyBuffer();
+
+    /*
+     * A seekable body may parse the same data block more than once, but
+     * each block must appear in the data banks exactly once.
+     */
+
+    if (data_start > this.banks_limit) {
+      this.banks.addBlock(data_type, data);
+      this.banks_limit = data_start;
+    }
+    return data;
+  }
+
+  private int readUnsigned8()
+    throws EOFException
+  {
+    this.require(1);
+    final int r = (int) this.buffer().get(this.position) & 0xff;
+    this.position += 1;
+    return r;
+  }
+
+  private int readUnsigned16()
+    throws EOFException
+  {
+    this.require(2);
+    final int r = (int) this.buffer().getShort(this.position) & 0xffff;
+    this.position += 2;
+    return r;
+  }
+
+  private long readUnsigned32()
+    throws EOFException
+  {
+    this.require(4);
+    final long r = Integer.toUnsignedLong(this.buffer().getInt(this.position));
+    this.position += 4;
+    return r;
+  }
+
+  private byte readByte()
+    throws EOFException
+  {
+    this.require(1);
+    final byte r = this.buffer().get(this.position);
+    this.position += 1;
+    return r;
+  }
+}
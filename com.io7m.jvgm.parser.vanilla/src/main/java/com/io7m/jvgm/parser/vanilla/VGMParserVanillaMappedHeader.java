@@ -0,0 +1,242 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.parser.vanilla;
+
+import com.io7m.jvgm.core.VGMHeader;
+import com.io7m.jvgm.core.VGMVersion;
+import com.io7m.jvgm.parser.api.VGMParseError;
+import com.io7m.jvgm.parser.api.VGMParserBodyType;
+import com.io7m.jvgm.parser.api.VGMParserHeaderType;
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import io.vavr.collection.Seq;
+import io.vavr.control.Validation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+
+final class VGMParserVanillaMappedHeader
+  extends VGMParserVanillaMappedBase implements VGMParserHeaderType
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(VGMParserVanillaMappedHeader.class);
+
+  private static final int HEADER_SIZE =
+    VGMParserVanillaHeaderDecoder.HEADER_MINIMUM_SIZE;
+
+  private final byte[] magic;
+  private int position;
+  private boolean header_done;
+
+  VGMParserVanillaMappedHeader(
+    final Path in_path,
+    final ByteBuffer in_buffer)
+  {
+    super(in_path, in_buffer);
+    this.magic = new byte[4];
+    this.header_done = false;
+  }
+
+  @Override
+  protected long position()
+  {
+    return Integer.toUnsignedLong(this.position);
+  }
+
+  @Override
+  public Validation<Seq<VGMParseError>, Tuple2<VGMParserBodyType, VGMHeader>> parse()
+  {
+    if (this.header_done) {
+      throw new IllegalStateException("Parser has already executed");
+    }
+
+    try {
+      return this.parseHeader();
+    } finally {
+      this.header_done = true;
+    }
+  }
+
+  private Validation<Seq<VGMParseError>, Tuple2<VGMParserBodyType, VGMHeader>> parseHeader()
+  {
+    return this.parseHeaderOnly().flatMap(this::parseBody);
+  }
+
+  /**
+   * Parse the header without preparing a body parser. The buffer is only
+   * required to contain the header itself.
+   *
+   * @return The parsed header, or a list of errors
+   */
+
+  Validation<Seq<VGMParseError>, VGMHeader> parseHeaderOnly()
+  {
+    return this.parseHeaderMagicNumber().flatMap(
+      ignore0 -> this.parseHeaderVersionNumber().flatMap(
+        version -> this.parseHeaderVersioned()));
+  }
+
+  private Validation<Seq<VGMParseError>, Void> parseHeaderMagicNumber()
+  {
+    final ByteBuffer buffer = this.buffer();
+    if (buffer.limit() < this.magic.length) {
+      this.position = buffer.limit();
+      return this.errorTruncated(this.magic.length);
+    }
+
+    for (int index = 0; index < this.magic.length; ++index) {
+      this.magic[index] = buffer.get(index);
+    }
+    this.position = this.magic.length;
+
+    if (!VGMParserVanillaMagic.isMagic(this.magic)) {
+      final String separator = System.lineSeparator();
+      return this.errorV(
+        new StringBuilder(128)
+          .append("Bad magic number.")
+          .append(separator)
+          .append("  Position: ")
+          .append(this.position)
+          .append(separator)
+          .append("  Received: ")
+          .append(VGMParserVanillaMagic.bytesToHex(this.magic))
+          .append(separator)
+          .append("  Expected: ")
+          .append(VGMParserVanillaMagic.magicHex())
+          .append(separator)
+          .toString());
+    }
+
+    return Validation.valid(null);
+  }
+
+  private Validation<Seq<VGMParseError>, Integer> parseHeaderVersionNumber()
+  {
+    final ByteBuffer buffer = this.buffer();
+    if (buffer.limit() < HEADER_SIZE) {
+      this.position = buffer.limit();
+      return this.errorTruncated(HEADER_SIZE);
+    }
+
+    final int header_version = buffer.getInt(0x08);
+    this.position = 0x0c;
+
+    if (!VGMParserVanillaSupported.SUPPORTED.contains(
+      VGMVersion.of(header_version))) {
+      final String separator = System.lineSeparator();
+      return this.errorV(
+        new StringBuilder(128)
+          .append("Unsupported format version.")
+          .append(separator)
+          .append("  Position: ")
+          .append(this.position)
+          .append(separator)
+          .append("  Received: ")
+          .append(Integer.toUnsignedString(header_version, 16))
+          .append(separator)
+          .append("  Expected: One of ")
+          .append(
+            VGMParserVanillaSupported.SUPPORTED
+              .map(v -> Integer.toUnsignedString(v.version(), 16))
+              .collect(Collectors.joining(" ")))
+          .append(separator)
+          .toString());
+    }
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+        "header version: 0x{}",
+        Integer.toUnsignedString(header_version, 16));
+    }
+
+    return Validation.valid(Integer.valueOf(header_version));
+  }
+
+  private Validation<Seq<VGMParseError>, VGMHeader> parseHeaderVersioned()
+  {
+    final ByteBuffer buffer = this.buffer();
+    final int size =
+      Math.min(
+        buffer.limit(),
+        VGMParserVanillaHeaderDecoder.headerSize(buffer));
+
+    final ByteBuffer header_buffer =
+      ByteBuffer.allocate(VGMParserVanillaHeaderDecoder.HEADER_MAXIMUM_SIZE)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    final ByteBuffer source = buffer.duplicate();
+    source.position(0);
+    source.limit(size);
+    header_buffer.put(source);
+
+    final VGMHeader header = VGMParserVanillaHeaderDecoder.decode(header_buffer);
+    this.position = size;
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("header: {}", header);
+    }
+
+    return Validation.valid(header);
+  }
+
+  private Validation<Seq<VGMParseError>, Tuple2<VGMParserBodyType, VGMHeader>> parseBody(
+    final VGMHeader header)
+  {
+    final ByteBuffer buffer = this.buffer();
+    final long header_data_offset = header.dataOffset();
+    if (Long.compareUnsigned(header_data_offset, (long) buffer.limit()) > 0) {
+      this.position = buffer.limit();
+      return this.errorTruncated(header_data_offset);
+    }
+
+    final VGMParserBodyType body =
+      new VGMParserVanillaMappedBody(
+        header,
+        this.path(),
+        buffer,
+        (int) header_data_offset);
+
+    return Validation.valid(Tuple.of(body, header));
+  }
+
+  private <T> Validation<Seq<VGMParseError>, T> errorTruncated(
+    final long expected)
+  {
+    final String separator = System.lineSeparator();
+    return this.errorV(
+      new StringBuilder(128)
+        .append("Unexpected EOF.")
+        .append(separator)
+        .append("  Position: ")
+        .append(this.position)
+        .append(separator)
+        .append("  Expected: At least ")
+        .append(expected)
+        .append(" bytes")
+        .append(separator)
+        .toString());
+  }
+
+  @Override
+  public void close()
+  {
+
+  }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.parser.vanilla;
+
+import com.io7m.jvgm.core.VGMGD3Tag;
+import com.io7m.jvgm.core.VGMHeader;
+import com.io7m.jvgm.parser.api.VGMParseError;
+import com.io7m.jvgm.parser.api.VGMProbe;
+import com.io7m.jvgm.parser.api.VGMProberType;
+import io.vavr.collection.Seq;
+import io.vavr.collection.Vector;
+import io.vavr.control.Validation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * A prober that reads headers and GD3 tags using positional reads. The
+ * command data of probed files is never read.
+ */
+
+public final class VGMParserVanillaProber implements VGMProberType
+{
+  /**
+   * The number of bytes read from the start of a file. This is large enough
+   * to hold the header of any version of the format.
+   */
+
+  private static final int HEADER_READ_SIZE = 0x100;
+
+  private static final int GD3_MAGIC = 0x20336447;
+  private static final int GD3_HEADER_SIZE = 12;
+
+  /**
+   * Construct a prober.
+   */
+
+  public VGMParserVanillaProber()
+  {
+
+  }
+
+  private static int readFully(
+    final FileChannel channel,
+    final ByteBuffer buffer,
+    final long position)
+    throws IOException
+  {
+    int total = 0;
+    while (buffer.hasRemaining()) {
+      final int r = channel.read(buffer, position + (long) total);
+      if (r == -1) {
+        break;
+      }
+      total += r;
+    }
+    buffer.flip();
+    return total;
+  }
+
+  private static <T> Validation<Seq<VGMParseError>, T> errorV(
+    final Path path,
+    final long offset,
+    final String message)
+  {
+    return Validation.invalid(Vector.of(
+      VGMParseError.of(offset, Optional.of(path), message, Optional.empty())));
+  }
+
+  private static <T> Validation<Seq<VGMParseError>, T> errorTruncated(
+    final Path path,
+    final long offset,
+    final long expected)
+  {
+    final String separator = System.lineSeparator();
+    return errorV(
+      path,
+      offset,
+      new StringBuilder(128)
+        .append("Unexpected EOF.")
+        .append(separator)
+        .append("  Position: ")
+        .append(offset)
+        .append(separator)
+        .append("  Expected: At least ")
+        .append(expected)
+        .append(" bytes")
+        .append(separator)
+        .toString());
+  }
+
+  @Override
+  public Validation<Seq<VGMParseError>, VGMProbe> probe(
+    final Path path)
+    throws IOException
+  {
+    Objects.requireNonNull(path, "Path");
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return this.probe(path, channel);
+    }
+  }
+
+  @Override
+  public Validation<Seq<VGMParseError>, VGMProbe> probe(
+    final Path path,
+    final FileChannel channel)
+    throws IOException
+  {
+    Objects.requireNonNull(path, "Path");
+    Objects.requireNonNull(channel, "Channel");
+
+    final ByteBuffer header_buffer = ByteBuffer.allocate(HEADER_READ_SIZE);
+    readFully(channel, header_buffer, 0L);
+
+    final Validation<Seq<VGMParseError>, VGMHeader> header_result =
+      new VGMParserVanillaMappedHeader(path, header_buffer).parseHeaderOnly();
+    if (!header_result.isValid()) {
+      return Validation.invalid(header_result.getError());
+    }
+
+    final VGMHeader header = header_result.get();
+    final OptionalLong gd3_offset = header.offsetGD3();
+    if (!gd3_offset.isPresent() || gd3_offset.getAsLong() == 0L) {
+      return Validation.valid(VGMProbe.of(path, header, Optional.empty()));
+    }
+
+    return probeGD3(path, channel, gd3_offset.getAsLong())
+      .map(tag -> VGMProbe.of(path, header, Optional.of(tag)));
+  }
+
+  private static Validation<Seq<VGMParseError>, VGMGD3Tag> probeGD3(
+    final Path path,
+    final FileChannel channel,
+    final long offset)
+    throws IOException
+  {
+    final long size = channel.size();
+
+    final ByteBuffer tag_header =
+      ByteBuffer.allocate(GD3_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    if (readFully(channel, tag_header, offset) < GD3_HEADER_SIZE) {
+      return errorTruncated(path, offset, (long) GD3_HEADER_SIZE);
+    }
+
+    final int magic = tag_header.getInt(0);
+    if (magic != GD3_MAGIC) {
+      final String separator = System.lineSeparator();
+      return errorV(
+        path,
+        offset,
+        new StringBuilder(128)
+          .append("Bad GD3 magic number.")
+          .append(separator)
+          .append("  Position: ")
+          .append(offset)
+          .append(separator)
+          .append("  Received: ")
+          .append(Integer.toUnsignedString(magic, 16))
+          .append(separator)
+          .append("  Expected: ")
+          .append(Integer.toUnsignedString(GD3_MAGIC, 16))
+          .append(separator)
+          .toString());
+    }
+
+    final long version = Integer.toUnsignedLong(tag_header.getInt(4));
+    final long length = Integer.toUnsignedLong(tag_header.getInt(8));
+    final long data_offset = offset + (long) GD3_HEADER_SIZE;
+    if (length > size - data_offset) {
+      return errorTruncated(path, data_offset, length);
+    }
+
+    final ByteBuffer data = ByteBuffer.allocate((int) length);
+    if ((long) readFully(channel, data, data_offset) < length) {
+      return errorTruncated(path, data_offset, length);
+    }
+
+    final GD3Strings strings = new GD3Strings(data.array());
+    return Validation.valid(
+      VGMGD3Tag.builder()
+        .setVersion(version)
+        .setTrackNameEnglish(strings.next())
+        .setTrackNameJapanese(strings.next())
+        .setGameNameEnglish(strings.next())
+        .setGameNameJapanese(strings.next())
+        .setSystemNameEnglish(strings.next())
+        .setSystemNameJapanese(strings.next())
+        .setAuthorNameEnglish(strings.next())
+        .setAuthorNameJapanese(strings.next())
+        .setReleaseDate(strings.next())
+        .setConvertedBy(strings.next())
+        .setNotes(strings.next())
+        .build());
+  }
+
+  /**
+   * A reader of consecutive null-terminated UTF-16LE strings. Reading past
+   * the end of the data yields empty strings.
+   */
+
+  private static final class GD3Strings
+  {
+    private final byte[] data;
+    private int position;
+
+    GD3Strings(
+      final byte[] in_data)
+    {
+      this.data = in_data;
+      this.position = 0;
+    }
+
+    String next()
+    {
+      final int start = this.position;
+      int end = start;
+      while (end + 1 < this.data.length) {
+        if (this.data[end] == 0 && this.data[end + 1] == 0) {
+          break;
+        }
+        end += 2;
+      }
+
+      this.position = Math.min(end + 2, this.data.length);
+      return StandardCharsets.UTF_16LE.decode(
+        ByteBuffer.wrap(this.data, start, end - start)).toString();
+    }
+  }
+}
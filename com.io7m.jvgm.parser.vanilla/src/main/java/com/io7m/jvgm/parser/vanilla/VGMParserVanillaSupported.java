@@ -25,8 +25,16 @@ final class VGMParserVanillaSupported
 {
   static final SortedSet<VGMVersion> SUPPORTED =
     TreeSet.of(
+      VGMVersion.of(0x00000100),
+      VGMVersion.of(0x00000101),
+      VGMVersion.of(0x00000110),
       VGMVersion.of(0x00000150),
-      VGMVersion.of(0x00000170));
+      VGMVersion.of(0x00000151),
+      VGMVersion.of(0x00000160),
+      VGMVersion.of(0x00000161),
+      VGMVersion.of(0x00000170),
+      VGMVersion.of(0x00000171),
+      VGMVersion.of(0x00000172));
 
   private VGMParserVanillaSupported()
   {
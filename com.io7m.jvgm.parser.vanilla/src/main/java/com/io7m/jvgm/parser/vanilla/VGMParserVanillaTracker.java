@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.parser.vanilla;
+
+import com.io7m.jvgm.parser.api.VGMCheckpoint;
+import com.io7m.jvgm.parser.api.VGMParserBodyVisitorType;
+import com.io7m.jvgm.parser.api.VGMYM2612RegisterShadow;
+
+import java.util.Objects;
+
+/**
+ * A visitor that tracks the sample position, the PCM data bank position, and
+ * the YM2612 registers, passing every command on to a delegate.
+ */
+
+final class VGMParserVanillaTracker implements VGMParserBodyVisitorType
+{
+  private static final VGMParserBodyVisitorType IGNORE =
+    new VGMParserBodyVisitorType()
+    {
+    };
+
+  private final VGMYM2612RegisterShadow registers;
+  private VGMParserBodyVisitorType delegate;
+  private long samples;
+  private long pcm_position;
+
+  VGMParserVanillaTracker()
+  {
+    this.registers = new VGMYM2612RegisterShadow();
+    this.delegate = IGNORE;
+  }
+
+  void reset()
+  {
+    this.registers.clear();
+    this.samples = 0L;
+    this.pcm_position = 0L;
+    this.delegate = IGNORE;
+  }
+
+  void restore(
+    final VGMCheckpoint checkpoint,
+    final VGMParserBodyVisitorType in_delegate)
+  {
+    checkpoint.copyRegistersTo(this.registers);
+    this.samples = checkpoint.sample();
+    this.pcm_position = checkpoint.pcmPosition();
+    this.delegate = Objects.requireNonNull(in_delegate, "Delegate");
+  }
+
+  VGMCheckpoint checkpoint(
+    final long offset)
+  {
+    return new VGMCheckpoint(
+      offset, this.samples, this.pcm_position, this.registers);
+  }
+
+  long samples()
+  {
+    return this.samples;
+  }
+
+  @Override
+  public void onGameGearPSGStereoWrite(
+    final int value)
+  {
+    this.delegate.onGameGearPSGStereoWrite(value);
+  }
+
+  @Override
+  public void onPSGWrite(
+    final int value)
+  {
+    this.delegate.onPSGWrite(value);
+  }
+
+  @Override
+  public void onYM2413Write(
+    final int register,
+    final int value)
+  {
+    this.delegate.onYM2413Write(register, value);
+  }
+
+  @Override
+  public void onYM2612Write(
+    final int port,
+    final int register,
+    final int value)
+  {
+    this.registers.write(port, register, value);
+    this.delegate.onYM2612Write(port, register, value);
+  }
+
+  @Override
+  public void onYM2612SeekPCM(
+    final long position)
+  {
+    this.pcm_position = position;
+    this.delegate.onYM2612SeekPCM(position);
+  }
+
+  @Override
+  public void onYM2612PCMWriteWait(
+    final int in_samples)
+  {
+    ++this.pcm_position;
+    this.samples += (long) in_samples;
+    this.delegate.onYM2612PCMWriteWait(in_samples);
+  }
+
+  @Override
+  public void onWait(
+    final int in_samples)
+  {
+    this.samples += (long) in_samples;
+    this.delegate.onWait(in_samples);
+  }
+
+  @Override
+  public void onDataBlock(
+    final int type,
+    final long offset,
+    final long size)
+  {
+    this.delegate.onDataBlock(type, offset, size);
+  }
+
+  @Override
+  public void onEndOfSoundData()
+  {
+    this.delegate.onEndOfSoundData();
+  }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.synth.ym2413;
+
+import com.io7m.junreachable.UnreachableCodeException;
+
+/**
+ * Constant tables for the synthesizer. The tables and the fixed-point
+ * arithmetic that uses them follow the MAME OPLL core, so that output is
+ * bit-exact across platforms for a given clock and sample rate.
+ */
+
+final class VGMYM2413SynthTables
+{
+  static final int FREQ_SH = 16;
+  static final int EG_SH = 16;
+  static final int LFO_SH = 24;
+  static final int FREQ_MASK = (1 << FREQ_SH) - 1;
+
+  static final int ENV_BITS = 10;
+  static final int ENV_LEN = 1 << ENV_BITS;
+  static final double ENV_STEP = 128.0 / ENV_LEN;
+  static final int MAX_ATT_INDEX = (1 << (ENV_BITS - 2)) - 1;
+  static final int MIN_ATT_INDEX = 0;
+
+  static final int SIN_BITS = 10;
+  static final int SIN_LEN = 1 << SIN_BITS;
+  static final int SIN_MASK = SIN_LEN - 1;
+
+  static final int TL_RES_LEN = 256;
+  static final int TL_TAB_LEN = 11 * 2 * TL_RES_LEN;
+  static final int ENV_QUIET = TL_TAB_LEN >> 5;
+
+  static final int RATE_STEPS = 8;
+
+  static final int EG_OFF = 0;
+  static final int EG_REL = 1;
+  static final int EG_SUS = 2;
+  static final int EG_DEC = 3;
+  static final int EG_ATT = 4;
+  static final int EG_DMP = 5;
+
+  /**
+   * The number of entries in {@link #LFO_AM_TABLE}.
+   */
+
+  static final int LFO_AM_TAB_ELEMENTS = 210;
+
+  /**
+   * The attenuation table: {@code 2^(-x)} in 11 octaves of
+   * {@link #TL_RES_LEN} steps, with alternating positive and negative
+   * entries.
+   */
+
+  static final int[] TL_TAB = makeTLTable();
+
+  /**
+   * The logarithmic sine tables. Each entry is an index into
+   * {@link #TL_TAB}. The first {@link #SIN_LEN} entries are a full sine
+   * wave, and the second {@link #SIN_LEN} entries are a half-wave rectified
+   * sine wave.
+   */
+
+  static final int[] SIN_TAB = makeSinTable();
+
+  /**
+   * The frequency multipliers (doubled, so that {@code 0.5} is
+   * representable).
+   */
+
+  static final int[] MUL_TAB = {
+    1, 2, 4, 6, 8, 10, 12, 14, 16, 18, 20, 20, 24, 24, 30, 30,
+  };
+
+  /**
+   * The key scale level attenuations of the highest block, in 0.375dB
+   * units. Each lower block is attenuated 3dB less, down to zero.
+   */
+
+  private static final int[] KSL_BLOCK_7 = {
+    0, 24, 32, 37, 40, 43, 45, 47, 48, 50, 51, 52, 53, 54, 55, 56,
+  };
+
+  /**
+   * The key scale level attenuation, in half envelope units, for the top
+   * seven bits of the block and frequency number.
+   */
+
+  static final int[] KSL_TAB = makeKSLTable();
+
+  /**
+   * The shift applied to {@link #KSL_TAB} for each key scale level value.
+   */
+
+  static final int[] KSL_SHIFT = {
+    31, 1, 2, 0,
+  };
+
+  /**
+   * The envelope increments for each rate, for each of eight cycles.
+   */
+
+  static final int[] EG_INC = {
+    0, 1, 0, 1, 0, 1, 0, 1,
+    0, 1, 0, 1, 1, 1, 0, 1,
+    0, 1, 1, 1, 0, 1, 1, 1,
+    0, 1, 1, 1, 1, 1, 1, 1,
+
+    1, 1, 1, 1, 1, 1, 1, 1,
+    1, 1, 1, 2, 1, 1, 1, 2,
+    1, 2, 1, 2, 1, 2, 1, 2,
+    1, 2, 2, 2, 1, 2, 2, 2,
+
+    2, 2, 2, 2, 2, 2, 2, 2,
+    2, 2, 2, 4, 2, 2, 2, 4,
+    2, 4, 2, 4, 2, 4, 2, 4,
+    2, 4, 4, 4, 2, 4, 4, 4,
+
+    4, 4, 4, 4, 4, 4, 4, 4,
+    8, 8, 8, 8, 8, 8, 8, 8,
+    0, 0, 0, 0, 0, 0, 0, 0,
+  };
+
+  /**
+   * The row of {@link #EG_INC} used for attack rates that are effectively
+   * instantaneous.
+   */
+
+  static final int EG_INC_ATTACK_INSTANT = 13 * RATE_STEPS;
+
+  /**
+   * The smallest effective attack rate that is effectively instantaneous.
+   */
+
+  static final int EG_ATTACK_INSTANT = 16 + 62;
+
+  /**
+   * The offset into {@link #EG_INC} for each of the 96 effective rates.
+   */
+
+  static final int[] EG_RATE_SELECT = makeRateSelect();
+
+  /**
+   * The envelope counter shift for each of the 96 effective rates.
+   */
+
+  static final int[] EG_RATE_SHIFT = makeRateShift();
+
+  /**
+   * The amplitude modulation waveform, in envelope units.
+   */
+
+  static final int[] LFO_AM_TABLE = makeAMTable();
+
+  /**
+   * The vibrato offsets, in frequency number units, for each of eight
+   * vibrato steps and the top three bits of the frequency number.
+   */
+
+  static final int[] LFO_PM_TABLE = {
+    0, 0, 0, 0, 0, 0, 0, 0,
+    1, 0, 0, 0, -1, 0, 0, 0,
+    2, 1, 0, -1, -2, -1, 0, 1,
+    3, 1, 0, -1, -3, -1, 0, 1,
+    4, 2, 0, -2, -4, -2, 0, 2,
+    5, 2, 0, -2, -5, -2, 0, 2,
+    6, 3, 0, -3, -6, -3, 0, 3,
+    7, 3, 0, -3, -7, -3, 0, 3,
+  };
+
+  private VGMYM2413SynthTables()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  private static int[] makeTLTable()
+  {
+    final int[] table = new int[TL_TAB_LEN];
+
+    for (int x = 0; x < TL_RES_LEN; ++x) {
+      final double m =
+        StrictMath.floor(
+          (double) (1 << 16)
+            / StrictMath.pow(2.0, (double) (x + 1) * (ENV_STEP / 4.0) / 8.0));
+
+      int n = (int) m;
+      n >>= 4;
+      if ((n & 1) != 0) {
+        n = (n >> 1) + 1;
+      } else {
+        n >>= 1;
+      }
+
+      table[x * 2] = n;
+      table[(x * 2) + 1] = -n;
+
+      for (int i = 1; i < 11; ++i) {
+        final int base = (x * 2) + (i * 2 * TL_RES_LEN);
+        table[base] = n >> i;
+        table[base + 1] = -(n >> i);
+      }
+    }
+    return table;
+  }
+
+  private static int[] makeSinTable()
+  {
+    final int[] table = new int[SIN_LEN * 2];
+
+    for (int i = 0; i < SIN_LEN; ++i) {
+      final double m =
+        StrictMath.sin((double) ((i * 2) + 1) * StrictMath.PI / (double) SIN_LEN);
+
+      final double o;
+      if (m > 0.0) {
+        o = 8.0 * StrictMath.log(1.0 / m) / StrictMath.log(2.0);
+      } else {
+        o = 8.0 * StrictMath.log(-1.0 / m) / StrictMath.log(2.0);
+      }
+
+      int n = (int) (2.0 * (o / (ENV_STEP / 4.0)));
+      if ((n & 1) != 0) {
+        n = (n >> 1) + 1;
+      } else {
+        n >>= 1;
+      }
+
+      table[i] = (n * 2) + (m >= 0.0 ? 0 : 1);
+      if ((i & (1 << (SIN_BITS - 1))) != 0) {
+        table[SIN_LEN + i] = TL_TAB_LEN;
+      } else {
+        table[SIN_LEN + i] = table[i];
+      }
+    }
+    return table;
+  }
+
+  private static int[] makeKSLTable()
+  {
+    final int[] table = new int[8 * 16];
+    for (int block = 0; block < 8; ++block) {
+      for (int index = 0; index < 16; ++index) {
+        final int value = KSL_BLOCK_7[index] - (8 * (7 - block));
+        table[(block * 16) + index] = Math.max(0, value) * 2;
+      }
+    }
+    return table;
+  }
+
+  private static int[] makeRateSelect()
+  {
+    final int[] table = new int[96];
+    for (int rate = 0; rate < 96; ++rate) {
+      final int group;
+      if (rate < 16) {
+        group = 14;
+      } else if (rate < 68) {
+        group = rate & 3;
+      } else if (rate < 76) {
+        group = 4 + (rate - 68);
+      } else {
+        group = 12;
+      }
+      table[rate] = group * RATE_STEPS;
+    }
+    return table;
+  }
+
+  private static int[] makeRateShift()
+  {
+    final int[] table = new int[96];
+    for (int rate = 0; rate < 96; ++rate) {
+      if (rate >= 16 && rate < 68) {
+        table[rate] = 13 - ((rate - 16) >> 2);
+      } else {
+        table[rate] = 0;
+      }
+    }
+    return table;
+  }
+
+  private static int[] makeAMTable()
+  {
+    final int[] table = new int[LFO_AM_TAB_ELEMENTS];
+    int index = 0;
+    for (int i = 0; i < 7; ++i) {
+      table[index] = 0;
+      ++index;
+    }
+    for (int level = 1; level <= 25; ++level) {
+      for (int i = 0; i < 4; ++i) {
+        table[index] = level;
+        ++index;
+      }
+    }
+    for (int i = 0; i < 3; ++i) {
+      table[index] = 26;
+      ++index;
+    }
+    for (int level = 25; level >= 1; --level) {
+      for (int i = 0; i < 4; ++i) {
+        table[index] = level;
+        ++index;
+      }
+    }
+    return table;
+  }
+}
@@ -0,0 +1,892 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.synth.ym2413;
+
+import com.io7m.jvgm.interpreter.ym2413.VGMYM2413Callbacks;
+import com.io7m.jvgm.interpreter.ym2413.VGMYM2413Channel;
+import com.io7m.jvgm.interpreter.ym2413.VGMYM2413Instruments;
+import com.io7m.jvgm.interpreter.ym2413.VGMYM2413Interpreter;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.EG_ATT;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.EG_ATTACK_INSTANT;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.EG_DEC;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.EG_DMP;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.EG_INC;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.EG_INC_ATTACK_INSTANT;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.EG_OFF;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.EG_RATE_SELECT;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.EG_RATE_SHIFT;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.EG_REL;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.EG_SH;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.EG_SUS;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.ENV_QUIET;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.FREQ_MASK;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.FREQ_SH;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.KSL_SHIFT;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.KSL_TAB;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.LFO_AM_TABLE;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.LFO_AM_TAB_ELEMENTS;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.LFO_PM_TABLE;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.LFO_SH;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.MAX_ATT_INDEX;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.MIN_ATT_INDEX;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.MUL_TAB;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.SIN_LEN;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.SIN_MASK;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.SIN_TAB;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.TL_TAB;
+import static com.io7m.jvgm.synth.ym2413.VGMYM2413SynthTables.TL_TAB_LEN;
+
+/**
+ * <p>A YM2413 (OPLL) FM synthesizer.</p>
+ *
+ * <p>The synthesizer owns a {@link VGMYM2413Interpreter}, and all register
+ * writes must be made through {@link #writeRegister(int, int)} so that key
+ * on/off events are observed at the correct time. Patches are decoded from
+ * the interpreter's register shadow when the interpreter reports that a
+ * channel has changed.</p>
+ *
+ * <p>The chip is monophonic, and so both samples of each rendered frame are
+ * identical. Rendering is performed with integer arithmetic only, and the
+ * output for a given sequence of register writes, clock, and sample rate is
+ * identical on all platforms. Rendering does not allocate.</p>
+ */
+
+public final class VGMYM2413Synthesizer
+{
+  /**
+   * The usual clock rate of the YM2413 in NTSC systems.
+   */
+
+  public static final int CLOCK_NTSC = 3579545;
+
+  private static final int CHANNELS = VGMYM2413Interpreter.CHANNELS;
+  private static final int SLOTS = CHANNELS * 2;
+  private static final int EG_TIMER_OVERFLOW = 1 << EG_SH;
+  private static final long LFO_AM_OVERFLOW = (long) LFO_AM_TAB_ELEMENTS << LFO_SH;
+  private static final int NOISE_FEEDBACK = 0x800302;
+
+  private static final int RHYTHM = 0x0E;
+  private static final int RHYTHM_MODE = 0b10_0000;
+  private static final int CHANNEL_FREQUENCY_LSB = 0x10;
+  private static final int CHANNEL_FREQUENCY_MSB = 0x20;
+
+  /*
+   * Key bits: A slot can be keyed on both by its channel and, in rhythm
+   * mode, by the rhythm register. The slot is released when neither holds
+   * it on.
+   */
+
+  private static final int KEY_CHANNEL = 0b01;
+  private static final int KEY_RHYTHM = 0b10;
+
+  /*
+   * Slots are stored in channel order: For channel {@code c}, slot
+   * {@code c * 2} is the modulator and {@code c * 2 + 1} is the carrier. In
+   * rhythm mode, the slots of channels 6, 7, and 8 play the rhythm
+   * instruments.
+   */
+
+  private static final int SLOT_RHYTHM_FIRST = VGMYM2413Interpreter.RHYTHM_CHANNEL_FIRST * 2;
+  private static final int SLOT_BASS_DRUM_MODULATOR = 12;
+  private static final int SLOT_BASS_DRUM_CARRIER = 13;
+  private static final int SLOT_HIGH_HAT = 14;
+  private static final int SLOT_SNARE_DRUM = 15;
+  private static final int SLOT_TOM_TOM = 16;
+  private static final int SLOT_TOP_CYMBAL = 17;
+
+  private final VGMYM2413Interpreter interpreter;
+  private final int clock;
+  private final int sample_rate;
+
+  private final int[] fn_table;
+  private final int eg_timer_add;
+  private final long lfo_am_add;
+  private final long lfo_pm_add;
+  private final int noise_add;
+
+  private final int[] slot_phase = new int[SLOTS];
+  private final int[] slot_incr = new int[SLOTS];
+  private final int[] slot_mul = new int[SLOTS];
+  private final int[] slot_tl = new int[SLOTS];
+  private final int[] slot_tll = new int[SLOTS];
+  private final int[] slot_ksl_shift = new int[SLOTS];
+  private final int[] slot_ksr_shift = new int[SLOTS];
+  private final int[] slot_am_mask = new int[SLOTS];
+  private final boolean[] slot_vibrato = new boolean[SLOTS];
+  private final boolean[] slot_sustained = new boolean[SLOTS];
+  private final int[] slot_wave = new int[SLOTS];
+  private final int[] slot_ar = new int[SLOTS];
+  private final int[] slot_dr = new int[SLOTS];
+  private final int[] slot_rr = new int[SLOTS];
+  private final int[] slot_sl = new int[SLOTS];
+  private final int[] slot_key = new int[SLOTS];
+  private final int[] slot_state = new int[SLOTS];
+  private final int[] slot_volume = new int[SLOTS];
+  private final int[] slot_eg_sh_ar = new int[SLOTS];
+  private final int[] slot_eg_sel_ar = new int[SLOTS];
+  private final int[] slot_eg_sh_dr = new int[SLOTS];
+  private final int[] slot_eg_sel_dr = new int[SLOTS];
+  private final int[] slot_eg_sh_rr = new int[SLOTS];
+  private final int[] slot_eg_sel_rr = new int[SLOTS];
+  private final int[] slot_eg_sh_rs = new int[SLOTS];
+  private final int[] slot_eg_sel_rs = new int[SLOTS];
+  private final int[] slot_eg_sh_dp = new int[SLOTS];
+  private final int[] slot_eg_sel_dp = new int[SLOTS];
+
+  private final int[] channel_block_fnum = new int[CHANNELS];
+  private final boolean[] channel_sustain = new boolean[CHANNELS];
+  private final int[] channel_fb_shift = new int[CHANNELS];
+  private final int[] channel_op1_out_0 = new int[CHANNELS];
+  private final int[] channel_op1_out_1 = new int[CHANNELS];
+
+  private int eg_timer;
+  private int eg_count;
+  private long lfo_am_count;
+  private long lfo_pm_count;
+  private int lfo_am;
+  private int lfo_pm;
+  private int noise_position;
+  private int noise_rng;
+  private boolean rhythm;
+
+  /**
+   * Construct a synthesizer.
+   *
+   * @param in_clock       The chip clock rate in Hz (such as {@link #CLOCK_NTSC})
+   * @param in_sample_rate The output sample rate in Hz
+   */
+
+  public VGMYM2413Synthesizer(
+    final int in_clock,
+    final int in_sample_rate)
+  {
+    if (in_clock <= 0) {
+      throw new IllegalArgumentException("Clock must be positive: " + in_clock);
+    }
+    if (in_sample_rate <= 0) {
+      throw new IllegalArgumentException(
+        "Sample rate must be positive: " + in_sample_rate);
+    }
+
+    this.clock = in_clock;
+    this.sample_rate = in_sample_rate;
+    this.interpreter =
+      new VGMYM2413Interpreter(VGMYM2413Callbacks.builder().build());
+
+    final double freqbase =
+      ((double) in_clock / (double) in_sample_rate) / 72.0;
+
+    this.fn_table = makeFnTable(freqbase);
+    this.eg_timer_add = (int) ((double) (1 << EG_SH) * freqbase);
+    this.lfo_am_add = (long) ((double) (1 << LFO_SH) * freqbase / 64.0);
+    this.lfo_pm_add = (long) ((double) (1 << LFO_SH) * freqbase / 1024.0);
+    this.noise_add = (int) ((double) (1 << FREQ_SH) * freqbase);
+    this.reset();
+  }
+
+  /*
+   * The phase increment of block 7 for each F-number, such that a slot with
+   * a multiple of 1 plays {@code fnum * (clock / 72) * 2^(block - 19)} Hz.
+   */
+
+  private static int[] makeFnTable(
+    final double freqbase)
+  {
+    final int[] table = new int[512];
+    for (int index = 0; index < 512; ++index) {
+      table[index] =
+        (int) ((double) index * 64.0 * freqbase * (double) (1 << (FREQ_SH - 9)));
+    }
+    return table;
+  }
+
+  private static int rate(
+    final int value)
+  {
+    final int rate = value & 0b1111;
+    return rate != 0 ? 16 + (rate << 2) : 0;
+  }
+
+  /**
+   * @return The chip clock rate in Hz
+   */
+
+  public int clock()
+  {
+    return this.clock;
+  }
+
+  /**
+   * @return The output sample rate in Hz
+   */
+
+  public int sampleRate()
+  {
+    return this.sample_rate;
+  }
+
+  /**
+   * Access the interpreter that holds the register state of the synthesizer.
+   * Register writes must not be made directly to the returned interpreter.
+   *
+   * @return The interpreter
+   */
+
+  public VGMYM2413Interpreter interpreter()
+  {
+    return this.interpreter;
+  }
+
+  /**
+   * Reset the synthesizer to its power-on state: All slots are silent and
+   * all registers are zero.
+   */
+
+  public void reset()
+  {
+    this.interpreter.reset();
+
+    Arrays.fill(this.slot_phase, 0);
+    Arrays.fill(this.slot_key, 0);
+    Arrays.fill(this.slot_state, EG_OFF);
+    Arrays.fill(this.slot_volume, MAX_ATT_INDEX);
+    Arrays.fill(this.channel_op1_out_0, 0);
+    Arrays.fill(this.channel_op1_out_1, 0);
+
+    this.eg_timer = 0;
+    this.eg_count = 0;
+    this.lfo_am_count = 0L;
+    this.lfo_pm_count = 0L;
+    this.lfo_am = 0;
+    this.lfo_pm = 0;
+    this.noise_position = 0;
+    this.noise_rng = 1;
+    this.rhythm = false;
+    this.synchronize();
+  }
+
+  /**
+   * Write {@code value} to {@code register}.
+   *
+   * @param register The register (in the range {@code [0x0, 0xff]})
+   * @param value    The value (in the range {@code [0x0, 0xff]})
+   */
+
+  public void writeRegister(
+    final int register,
+    final int value)
+  {
+    this.interpreter.writeRegister(register, value);
+
+    final int address = register & 0xff;
+    if (address == RHYTHM) {
+      this.rhythm = (value & RHYTHM_MODE) != 0;
+      this.synchronize();
+      this.setRhythmKeys(value);
+      return;
+    }
+
+    this.synchronize();
+
+    final int channel = address & 0xf;
+    if (channel >= CHANNELS) {
+      return;
+    }
+
+    switch (address & 0xf0) {
+      case CHANNEL_FREQUENCY_LSB: {
+        this.refreshChannel(channel);
+        break;
+      }
+      case CHANNEL_FREQUENCY_MSB: {
+        this.refreshChannel(channel);
+        this.setChannelKey(channel, (value & 0b1_0000) != 0);
+        break;
+      }
+      default: {
+        break;
+      }
+    }
+  }
+
+  private void setChannelKey(
+    final int channel,
+    final boolean on)
+  {
+    final int slot = channel * 2;
+    this.setKey(slot, KEY_CHANNEL, on);
+    this.setKey(slot + 1, KEY_CHANNEL, on);
+  }
+
+  private void setRhythmKeys(
+    final int value)
+  {
+    final boolean enabled = (value & RHYTHM_MODE) != 0;
+    final boolean bass_drum =
+      enabled && (value & VGMYM2413Interpreter.RHYTHM_BASS_DRUM) != 0;
+
+    this.setKey(SLOT_BASS_DRUM_MODULATOR, KEY_RHYTHM, bass_drum);
+    this.setKey(SLOT_BASS_DRUM_CARRIER, KEY_RHYTHM, bass_drum);
+    this.setKey(SLOT_HIGH_HAT, KEY_RHYTHM,
+                enabled && (value & VGMYM2413Interpreter.RHYTHM_HIGH_HAT) != 0);
+    this.setKey(SLOT_SNARE_DRUM, KEY_RHYTHM,
+                enabled && (value & VGMYM2413Interpreter.RHYTHM_SNARE_DRUM) != 0);
+    this.setKey(SLOT_TOM_TOM, KEY_RHYTHM,
+                enabled && (value & VGMYM2413Interpreter.RHYTHM_TOM_TOM) != 0);
+    this.setKey(SLOT_TOP_CYMBAL, KEY_RHYTHM,
+                enabled && (value & VGMYM2413Interpreter.RHYTHM_TOP_CYMBAL) != 0);
+  }
+
+  /*
+   * A slot that is keyed on from the released state first "dumps" its
+   * envelope to maximum attenuation at a fixed rate, and only then restarts
+   * its phase and begins the attack.
+   */
+
+  private void setKey(
+    final int slot,
+    final int bit,
+    final boolean on)
+  {
+    final int key = this.slot_key[slot];
+    if (on) {
+      if (key == 0) {
+        this.slot_state[slot] = EG_DMP;
+      }
+      this.slot_key[slot] = key | bit;
+    } else if (key != 0) {
+      final int remaining = key & ~bit;
+      this.slot_key[slot] = remaining;
+      if (remaining == 0 && this.slot_state[slot] > EG_REL) {
+        this.slot_state[slot] = EG_REL;
+      }
+    }
+  }
+
+  /**
+   * Decode the patch of every channel that the interpreter reports as
+   * changed.
+   */
+
+  private void synchronize()
+  {
+    int dirty = this.interpreter.dirtyChannels();
+    while (dirty != 0) {
+      final int channel = Integer.numberOfTrailingZeros(dirty);
+      this.loadChannel(channel);
+      this.interpreter.acknowledge(channel);
+      dirty &= dirty - 1;
+    }
+  }
+
+  private void loadChannel(
+    final int channel)
+  {
+    final VGMYM2413Channel view = this.interpreter.channel(channel);
+    final long patch = view.patch();
+    final int slot = channel * 2;
+
+    this.loadSlot(slot, patch, 0);
+    this.loadSlot(slot + 1, patch, 1);
+    this.slot_tl[slot] = view.modulatorTotalLevel() << 1;
+    this.slot_tl[slot + 1] = view.volume() << 3;
+
+    final int feedback = VGMYM2413Instruments.patchByte(patch, 3) & 0b111;
+    this.channel_fb_shift[channel] = feedback != 0 ? feedback + 8 : 0;
+    this.refreshChannel(channel);
+  }
+
+  private void loadSlot(
+    final int slot,
+    final long patch,
+    final int operator)
+  {
+    final int mode = VGMYM2413Instruments.patchByte(patch, operator);
+    final int ksl = VGMYM2413Instruments.patchByte(patch, 2 + operator);
+    final int wave = VGMYM2413Instruments.patchByte(patch, 3);
+    final int rates = VGMYM2413Instruments.patchByte(patch, 4 + operator);
+    final int levels = VGMYM2413Instruments.patchByte(patch, 6 + operator);
+
+    this.slot_am_mask[slot] = (mode & 0b1000_0000) != 0 ? ~0 : 0;
+    this.slot_vibrato[slot] = (mode & 0b0100_0000) != 0;
+    this.slot_sustained[slot] = (mode & 0b0010_0000) != 0;
+    this.slot_ksr_shift[slot] = (mode & 0b0001_0000) != 0 ? 0 : 2;
+    this.slot_mul[slot] = MUL_TAB[mode & 0b1111];
+    this.slot_ksl_shift[slot] = KSL_SHIFT[(ksl >>> 6) & 0b11];
+    this.slot_wave[slot] = (wave & (0b1000 << operator)) != 0 ? SIN_LEN : 0;
+    this.slot_ar[slot] = rate(rates >>> 4);
+    this.slot_dr[slot] = rate(rates);
+    this.slot_sl[slot] = ((levels >>> 4) & 0b1111) << 3;
+    this.slot_rr[slot] = rate(levels);
+  }
+
+  private void refreshChannel(
+    final int channel)
+  {
+    final VGMYM2413Channel view = this.interpreter.channel(channel);
+    final int block = view.block();
+    final int block_fnum = (block << 9) | view.frequencyNumber();
+    final boolean sustain = view.isSustainOn();
+
+    this.channel_block_fnum[channel] = block_fnum;
+    this.channel_sustain[channel] = sustain;
+
+    final int fc = this.fn_table[block_fnum & 0x1ff] >> (7 - block);
+    final int ksl_base = KSL_TAB[block_fnum >>> 5];
+    final int key_code = block_fnum >>> 8;
+    final int release_sustain = 16 + ((sustain ? 5 : 7) << 2);
+
+    final int slot = channel * 2;
+    this.refreshSlot(slot, fc, ksl_base, key_code, release_sustain);
+    this.refreshSlot(slot + 1, fc, ksl_base, key_code, release_sustain);
+  }
+
+  private void refreshSlot(
+    final int slot,
+    final int fc,
+    final int ksl_base,
+    final int key_code,
+    final int release_sustain)
+  {
+    this.slot_incr[slot] = fc * this.slot_mul[slot];
+    this.slot_tll[slot] = this.slot_tl[slot] + (ksl_base >> this.slot_ksl_shift[slot]);
+
+    final int ksr = key_code >>> this.slot_ksr_shift[slot];
+    final int ar = this.slot_ar[slot] + ksr;
+    if (ar < EG_ATTACK_INSTANT) {
+      this.slot_eg_sh_ar[slot] = EG_RATE_SHIFT[ar];
+      this.slot_eg_sel_ar[slot] = EG_RATE_SELECT[ar];
+    } else {
+      this.slot_eg_sh_ar[slot] = 0;
+      this.slot_eg_sel_ar[slot] = EG_INC_ATTACK_INSTANT;
+    }
+
+    final int dr = this.slot_dr[slot] + ksr;
+    this.slot_eg_sh_dr[slot] = EG_RATE_SHIFT[dr];
+    this.slot_eg_sel_dr[slot] = EG_RATE_SELECT[dr];
+    final int rr = this.slot_rr[slot] + ksr;
+    this.slot_eg_sh_rr[slot] = EG_RATE_SHIFT[rr];
+    this.slot_eg_sel_rr[slot] = EG_RATE_SELECT[rr];
+    final int rs = release_sustain + ksr;
+    this.slot_eg_sh_rs[slot] = EG_RATE_SHIFT[rs];
+    this.slot_eg_sel_rs[slot] = EG_RATE_SELECT[rs];
+    final int dp = 16 + (13 << 2) + ksr;
+    this.slot_eg_sh_dp[slot] = EG_RATE_SHIFT[dp];
+    this.slot_eg_sel_dp[slot] = EG_RATE_SELECT[dp];
+  }
+
+  /**
+   * Render {@code frames} stereo frames into {@code output}, starting at
+   * {@code offset}. Each frame consists of a left and then a right signed
+   * 16-bit sample.
+   *
+   * @param output The output buffer
+   * @param offset The offset of the first sample in {@code output}
+   * @param frames The number of frames to render
+   */
+
+  public void render(
+    final short[] output,
+    final int offset,
+    final int frames)
+  {
+    Objects.requireNonNull(output, "output");
+    Objects.checkFromIndexSize(offset, frames * 2, output.length);
+
+    this.synchronize();
+
+    final int melodic =
+      this.rhythm ? VGMYM2413Interpreter.RHYTHM_CHANNEL_FIRST : CHANNELS;
+
+    int position = offset;
+    for (int frame = 0; frame < frames; ++frame) {
+      this.advanceLFO();
+
+      int mix = 0;
+      for (int channel = 0; channel < melodic; ++channel) {
+        mix += this.renderChannel(channel);
+      }
+      if (this.rhythm) {
+        mix += this.renderRhythm() * 2;
+      }
+
+      final short sample = clampOutput(mix);
+      output[position] = sample;
+      output[position + 1] = sample;
+      position += 2;
+
+      this.advanceEnvelopes();
+      this.advancePhases();
+      this.advanceNoise();
+    }
+  }
+
+  private static short clampOutput(
+    final int value)
+  {
+    return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+  }
+
+  private static int operator(
+    final int phase,
+    final int envelope,
+    final int modulation,
+    final int wave)
+  {
+    final int index = (((phase & ~FREQ_MASK) + modulation) >> FREQ_SH) & SIN_MASK;
+    final int p = (envelope << 5) + SIN_TAB[wave + index];
+    if (p >= TL_TAB_LEN) {
+      return 0;
+    }
+    return TL_TAB[p];
+  }
+
+  private int envelope(
+    final int slot)
+  {
+    return this.slot_tll[slot]
+      + this.slot_volume[slot]
+      + (this.lfo_am & this.slot_am_mask[slot]);
+  }
+
+  private int renderChannel(
+    final int channel)
+  {
+    final int modulator = channel * 2;
+    final int carrier = modulator + 1;
+
+    final int feedback =
+      this.channel_op1_out_0[channel] + this.channel_op1_out_1[channel];
+    final int modulation = this.channel_op1_out_1[channel];
+    this.channel_op1_out_0[channel] = modulation;
+    this.channel_op1_out_1[channel] = 0;
+
+    final int envelope_modulator = this.envelope(modulator);
+    if (envelope_modulator < ENV_QUIET) {
+      final int shift = this.channel_fb_shift[channel];
+      this.channel_op1_out_1[channel] = operator(
+        this.slot_phase[modulator],
+        envelope_modulator,
+        shift != 0 ? feedback << shift : 0,
+        this.slot_wave[modulator]);
+    }
+
+    final int envelope_carrier = this.envelope(carrier);
+    if (envelope_carrier < ENV_QUIET) {
+      return operator(
+        this.slot_phase[carrier],
+        envelope_carrier,
+        modulation << 17,
+        this.slot_wave[carrier]);
+    }
+    return 0;
+  }
+
+  /*
+   * The bass drum is an ordinary two operator channel. The remaining rhythm
+   * instruments are single slots: The tom-tom plays its own phase, and the
+   * high hat, snare drum, and top cymbal derive their phases from bits of
+   * the high hat and top cymbal slot phases combined with the noise
+   * generator.
+   */
+
+  private int renderRhythm()
+  {
+    final int noise = this.noise_rng & 1;
+    return this.renderChannel(VGMYM2413Interpreter.RHYTHM_CHANNEL_FIRST)
+      + this.renderHighHat(SLOT_HIGH_HAT, SLOT_TOP_CYMBAL, noise)
+      + this.renderSnareDrum(SLOT_HIGH_HAT, SLOT_SNARE_DRUM, noise)
+      + this.renderTomTom(SLOT_TOM_TOM)
+      + this.renderTopCymbal(SLOT_HIGH_HAT, SLOT_TOP_CYMBAL);
+  }
+
+  private boolean cymbalPhaseBit(
+    final int high_hat,
+    final int top_cymbal)
+  {
+    final int hh = this.slot_phase[high_hat] >>> FREQ_SH;
+    final int bit7 = (hh >>> 7) & 1;
+    final int bit3 = (hh >>> 3) & 1;
+    final int bit2 = (hh >>> 2) & 1;
+
+    final int tc = this.slot_phase[top_cymbal] >>> FREQ_SH;
+    final int bit5e = (tc >>> 5) & 1;
+    final int bit3e = (tc >>> 3) & 1;
+    final int frequency = (bit2 ^ bit7) | bit3;
+    return (frequency | (bit3e ^ bit5e)) != 0;
+  }
+
+  private int renderHighHat(
+    final int high_hat,
+    final int top_cymbal,
+    final int noise)
+  {
+    final int envelope = this.envelope(high_hat);
+    if (envelope >= ENV_QUIET) {
+      return 0;
+    }
+
+    final int phase;
+    if (this.cymbalPhaseBit(high_hat, top_cymbal)) {
+      phase = noise != 0 ? 0x200 | 0xd0 : 0x200 | (0xd0 >> 2);
+    } else {
+      phase = noise != 0 ? 0xd0 >> 2 : 0xd0;
+    }
+    return operator(phase << FREQ_SH, envelope, 0, this.slot_wave[high_hat]);
+  }
+
+  private int renderSnareDrum(
+    final int high_hat,
+    final int snare_drum,
+    final int noise)
+  {
+    final int envelope = this.envelope(snare_drum);
+    if (envelope >= ENV_QUIET) {
+      return 0;
+    }
+
+    final int bit8 = (this.slot_phase[high_hat] >>> (FREQ_SH + 8)) & 1;
+    final int phase = (bit8 != 0 ? 0x200 : 0x100) ^ (noise << 8);
+    return operator(phase << FREQ_SH, envelope, 0, this.slot_wave[snare_drum]);
+  }
+
+  private int renderTomTom(
+    final int tom_tom)
+  {
+    final int envelope = this.envelope(tom_tom);
+    if (envelope >= ENV_QUIET) {
+      return 0;
+    }
+    return operator(this.slot_phase[tom_tom], envelope, 0, this.slot_wave[tom_tom]);
+  }
+
+  private int renderTopCymbal(
+    final int high_hat,
+    final int top_cymbal)
+  {
+    final int envelope = this.envelope(top_cymbal);
+    if (envelope >= ENV_QUIET) {
+      return 0;
+    }
+
+    final int phase = this.cymbalPhaseBit(high_hat, top_cymbal) ? 0x300 : 0x100;
+    return operator(phase << FREQ_SH, envelope, 0, this.slot_wave[top_cymbal]);
+  }
+
+  private void advanceLFO()
+  {
+    this.lfo_am_count += this.lfo_am_add;
+    if (this.lfo_am_count >= LFO_AM_OVERFLOW) {
+      this.lfo_am_count -= LFO_AM_OVERFLOW;
+    }
+    this.lfo_am = LFO_AM_TABLE[(int) (this.lfo_am_count >>> LFO_SH)] >> 1;
+
+    this.lfo_pm_count += this.lfo_pm_add;
+    this.lfo_pm = (int) (this.lfo_pm_count >>> LFO_SH) & 0b111;
+  }
+
+  private void advanceNoise()
+  {
+    this.noise_position += this.noise_add;
+    int steps = this.noise_position >>> FREQ_SH;
+    this.noise_position &= FREQ_MASK;
+
+    while (steps > 0) {
+      if ((this.noise_rng & 1) != 0) {
+        this.noise_rng ^= NOISE_FEEDBACK;
+      }
+      this.noise_rng >>>= 1;
+      --steps;
+    }
+  }
+
+  private void advancePhases()
+  {
+    for (int slot = 0; slot < SLOTS; ++slot) {
+      if (this.slot_vibrato[slot]) {
+        this.slot_phase[slot] += this.vibratoIncrement(slot);
+      } else {
+        this.slot_phase[slot] += this.slot_incr[slot];
+      }
+    }
+  }
+
+  private int vibratoIncrement(
+    final int slot)
+  {
+    final int block_fnum = this.channel_block_fnum[slot >>> 1];
+    final int offset = LFO_PM_TABLE[this.lfo_pm + ((block_fnum & 0x1c0) >>> 3)];
+    if (offset == 0) {
+      return this.slot_incr[slot];
+    }
+
+    final int modulated = block_fnum + offset;
+    final int block = (modulated >>> 9) & 0b111;
+    return (this.fn_table[modulated & 0x1ff] >> (7 - block)) * this.slot_mul[slot];
+  }
+
+  private void advanceEnvelopes()
+  {
+    this.eg_timer += this.eg_timer_add;
+    while (this.eg_timer >= EG_TIMER_OVERFLOW) {
+      this.eg_timer -= EG_TIMER_OVERFLOW;
+      ++this.eg_count;
+      for (int slot = 0; slot < SLOTS; ++slot) {
+        this.advanceEnvelope(slot);
+      }
+    }
+  }
+
+  private void advanceEnvelope(
+    final int slot)
+  {
+    switch (this.slot_state[slot]) {
+      case EG_DMP: {
+        this.envelopeDump(slot);
+        break;
+      }
+      case EG_ATT: {
+        this.envelopeAttack(slot);
+        break;
+      }
+      case EG_DEC: {
+        this.envelopeDecay(slot);
+        break;
+      }
+      case EG_SUS: {
+        if (!this.slot_sustained[slot]) {
+          this.envelopeStep(slot, this.slot_eg_sh_rr[slot], this.slot_eg_sel_rr[slot], false);
+        }
+        break;
+      }
+      case EG_REL: {
+        this.envelopeRelease(slot);
+        break;
+      }
+      default: {
+        break;
+      }
+    }
+  }
+
+  private boolean envelopeTick(
+    final int shift)
+  {
+    return (this.eg_count & ((1 << shift) - 1)) == 0;
+  }
+
+  private int envelopeIncrement(
+    final int shift,
+    final int select)
+  {
+    return EG_INC[select + ((this.eg_count >>> shift) & 0b111)];
+  }
+
+  private void envelopeDump(
+    final int slot)
+  {
+    final int shift = this.slot_eg_sh_dp[slot];
+    if (this.envelopeTick(shift)) {
+      final int volume =
+        this.slot_volume[slot] + this.envelopeIncrement(shift, this.slot_eg_sel_dp[slot]);
+      if (volume >= MAX_ATT_INDEX) {
+        this.slot_volume[slot] = MAX_ATT_INDEX;
+        this.slot_state[slot] = EG_ATT;
+        this.slot_phase[slot] = 0;
+      } else {
+        this.slot_volume[slot] = volume;
+      }
+    }
+  }
+
+  private void envelopeAttack(
+    final int slot)
+  {
+    final int shift = this.slot_eg_sh_ar[slot];
+    if (this.envelopeTick(shift)) {
+      final int current = this.slot_volume[slot];
+      final int volume =
+        current + ((~current * this.envelopeIncrement(shift, this.slot_eg_sel_ar[slot])) >> 2);
+      if (volume <= MIN_ATT_INDEX) {
+        this.slot_volume[slot] = MIN_ATT_INDEX;
+        this.slot_state[slot] = EG_DEC;
+      } else {
+        this.slot_volume[slot] = volume;
+      }
+    }
+  }
+
+  private void envelopeDecay(
+    final int slot)
+  {
+    final int shift = this.slot_eg_sh_dr[slot];
+    if (this.envelopeTick(shift)) {
+      final int volume =
+        this.slot_volume[slot] + this.envelopeIncrement(shift, this.slot_eg_sel_dr[slot]);
+      this.slot_volume[slot] = volume;
+      if (volume >= this.slot_sl[slot]) {
+        this.slot_state[slot] = EG_SUS;
+      }
+    }
+  }
+
+  /*
+   * Only carriers release, except in rhythm mode where every rhythm slot
+   * releases. A sustained tone releases at the release rate, or at the
+   * slower sustain rate if the channel sustain flag is set. A percussive
+   * tone has already used its release rate while keyed on, and so always
+   * releases at the sustain rate.
+   */
+
+  private void envelopeRelease(
+    final int slot)
+  {
+    final boolean carrier = (slot & 1) != 0;
+    if (!carrier && !(this.rhythm && slot >= SLOT_RHYTHM_FIRST)) {
+      return;
+    }
+
+    if (this.slot_sustained[slot] && !this.channel_sustain[slot >>> 1]) {
+      this.envelopeStep(slot, this.slot_eg_sh_rr[slot], this.slot_eg_sel_rr[slot], true);
+    } else {
+      this.envelopeStep(slot, this.slot_eg_sh_rs[slot], this.slot_eg_sel_rs[slot], true);
+    }
+  }
+
+  private void envelopeStep(
+    final int slot,
+    final int shift,
+    final int select,
+    final boolean release)
+  {
+    if (this.envelopeTick(shift)) {
+      final int volume = this.slot_volume[slot] + this.envelopeIncrement(shift, select);
+      if (volume >= MAX_ATT_INDEX) {
+        this.slot_volume[slot] = MAX_ATT_INDEX;
+        if (release) {
+          this.slot_state[slot] = EG_OFF;
+        }
+      } else {
+        this.slot_volume[slot] = volume;
+      }
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.jvgm.synth.ym2612.vector;
+
+import com.io7m.jvgm.synth.ym2612.VGMYM2612OperatorKernelType;
+import com.io7m.jvgm.synth.ym2612.VGMYM2612OperatorTables;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612OperatorTables.ENVELOPE_QUIET;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612OperatorTables.MODULATION_SHIFT;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612OperatorTables.PHASE_INTEGER_MASK;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612OperatorTables.PHASE_SHIFT;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612OperatorTables.SINE_MASK;
+
+/**
+ * An operator kernel that evaluates one sample per vector lane. The sine
+ * and attenuation table lookups are performed with gathers: Attenuation
+ * indices are clamped to the table so that every lane can be gathered,
+ * and inaudible lanes are then cleared. Samples that do not fill a
+ * complete vector are evaluated with scalar code.
+ *
+ * Vectors are limited to 256 bits: 512-bit gathers were observed to crash
+ * C2-compiled code on JDK 21.0.1, and were no faster for this workload.
+ */
+
+final class VGMYM2612OperatorKernelVector
+  implements VGMYM2612OperatorKernelType
+{
+  private static final VectorSpecies<Integer> SPECIES =
+    IntVector.SPECIES_PREFERRED.vectorBitSize() > 256
+      ? IntVector.SPECIES_256
+      : IntVector.SPECIES_PREFERRED;
+
+  private final int[] sine;
+  private final int[] attenuation;
+  private final int[] indices;
+
+  VGMYM2612OperatorKernelVector()
+  {
+    this.sine = VGMYM2612OperatorTables.sineTable();
+    this.attenuation = VGMYM2612OperatorTables.attenuationTable();
+    this.indices = new int[SPECIES.length()];
+  }
+
+  /**
+   * @return {@code true} iff the selected vector shape holds more than one
+   * lane
+   */
+
+  static boolean isUseful()
+  {
+    return SPECIES.length() > 1;
+  }
+
+  private int operator(
+    final int phase,
+    final int envelope,
+    final int modulation)
+  {
+    if (envelope >= ENVELOPE_QUIET) {
+      return 0;
+    }
+
+    final int index =
+      (((phase & PHASE_INTEGER_MASK) + (modulation << MODULATION_SHIFT)) >>> PHASE_SHIFT)
+        & SINE_MASK;
+    final int p = (envelope << 3) + this.sine[index];
+    if (p >= this.attenuation.length) {
+      return 0;
+    }
+    return this.attenuation[p];
+  }
+
+  @Override
+  public String name()
+  {
+    return "vector-" + SPECIES.vectorBitSize();
+  }
+
+  @Override
+  public void evaluate(
+    final int[] phase,
+    final int[] envelope,
+    final int[] modulation,
+    final int modulation_offset,
+    final int[] output,
+    final int output_offset,
+    final int count)
+  {
+    final int bound = SPECIES.loopBound(count);
+
+    int index = 0;
+    for (; index < bound; index += SPECIES.length()) {
+      final IntVector phases =
+        IntVector.fromArray(SPECIES, phase, index);
+      final IntVector envelopes =
+        IntVector.fromArray(SPECIES, envelope, index);
+      final IntVector modulations =
+        IntVector.fromArray(SPECIES, modulation, modulation_offset + index);
+
+      phases.and(PHASE_INTEGER_MASK)
+        .add(modulations.lanewise(VectorOperators.LSHL, MODULATION_SHIFT))
+        .lanewise(VectorOperators.LSHR, PHASE_SHIFT)
+        .and(SINE_MASK)
+        .intoArray(this.indices, 0);
+
+      final IntVector levels =
+        envelopes.lanewise(VectorOperators.LSHL, 3)
+          .add(IntVector.fromArray(SPECIES, this.sine, 0, this.indices, 0));
+
+      final VectorMask<Integer> audible =
+        envelopes.lt(ENVELOPE_QUIET)
+          .and(levels.lt(this.attenuation.length));
+
+      levels.min(this.attenuation.length - 1).intoArray(this.indices, 0);
+      IntVector.fromArray(SPECIES, this.attenuation, 0, this.indices, 0)
+        .blend(0, audible.not())
+        .intoArray(output, output_offset + index);
+    }
+
+    for (; index < count; ++index) {
+      output[output_offset + index] =
+        this.operator(phase[index], envelope[index], modulation[modulation_offset + index]);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.jvgm.synth.ym2612.vector;
+
+import com.io7m.jvgm.synth.ym2612.VGMYM2612OperatorKernelProviderType;
+import com.io7m.jvgm.synth.ym2612.VGMYM2612OperatorKernelType;
+
+/**
+ * A provider of operator kernels that use the incubating Vector API. The
+ * provider is only supported if the {@code jdk.incubator.vector} module
+ * has been added to the module graph (with
+ * {@code --add-modules jdk.incubator.vector}).
+ */
+
+public final class VGMYM2612OperatorKernelVectorProvider
+  implements VGMYM2612OperatorKernelProviderType
+{
+  private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+  /**
+   * Construct a provider.
+   */
+
+  public VGMYM2612OperatorKernelVectorProvider()
+  {
+
+  }
+
+  @Override
+  public String name()
+  {
+    return "vector";
+  }
+
+  @Override
+  public boolean isSupported()
+  {
+    return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()
+      && VGMYM2612OperatorKernelVector.isUseful();
+  }
+
+  @Override
+  public VGMYM2612OperatorKernelType create()
+  {
+    if (!this.isSupported()) {
+      throw new UnsupportedOperationException(
+        "The module " + VECTOR_MODULE + " is not available");
+    }
+    return new VGMYM2612OperatorKernelVector();
+  }
+}
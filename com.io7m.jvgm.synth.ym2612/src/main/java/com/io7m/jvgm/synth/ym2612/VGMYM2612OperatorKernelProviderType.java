@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.jvgm.synth.ym2612;
+
+/**
+ * The type of providers of operator kernels. Providers are discovered with
+ * {@link java.util.ServiceLoader}.
+ *
+ * @see VGMYM2612OperatorKernels#preferred()
+ */
+
+public interface VGMYM2612OperatorKernelProviderType
+{
+  /**
+   * @return A humanly-readable name for the provided kernels
+   */
+
+  String name();
+
+  /**
+   * @return {@code true} iff the provider can create kernels on the current
+   * platform
+   */
+
+  boolean isSupported();
+
+  /**
+   * Create a new kernel. This method must only be called if
+   * {@link #isSupported()} returns {@code true}.
+   *
+   * @return A new kernel
+   */
+
+  VGMYM2612OperatorKernelType create();
+}
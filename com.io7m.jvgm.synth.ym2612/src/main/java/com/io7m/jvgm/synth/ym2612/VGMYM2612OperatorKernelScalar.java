@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.jvgm.synth.ym2612;
+
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.ENV_QUIET;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.FREQ_MASK;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.FREQ_SH;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.SIN_MASK;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.SIN_TAB;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.TL_TAB;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.TL_TAB_LEN;
+
+/**
+ * The reference operator kernel.
+ */
+
+final class VGMYM2612OperatorKernelScalar
+  implements VGMYM2612OperatorKernelType
+{
+  VGMYM2612OperatorKernelScalar()
+  {
+
+  }
+
+  static int operator(
+    final int phase,
+    final int envelope,
+    final int modulation)
+  {
+    if (envelope >= ENV_QUIET) {
+      return 0;
+    }
+
+    final int p =
+      (envelope << 3)
+        + SIN_TAB[(((phase & ~FREQ_MASK) + (modulation << 15)) >>> FREQ_SH) & SIN_MASK];
+    if (p >= TL_TAB_LEN) {
+      return 0;
+    }
+    return TL_TAB[p];
+  }
+
+  @Override
+  public String name()
+  {
+    return "scalar";
+  }
+
+  @Override
+  public void evaluate(
+    final int[] phase,
+    final int[] envelope,
+    final int[] modulation,
+    final int modulation_offset,
+    final int[] output,
+    final int output_offset,
+    final int count)
+  {
+    for (int index = 0; index < count; ++index) {
+      output[output_offset + index] =
+        operator(phase[index], envelope[index], modulation[modulation_offset + index]);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.jvgm.synth.ym2612;
+
+/**
+ * <p>The type of operator kernels.</p>
+ *
+ * <p>A kernel evaluates a single operator for a block of samples, given the
+ * phase, attenuation, and phase modulation of the operator for each sample.
+ * The synthesizer arranges the evaluation of the operators of a channel
+ * according to the channel's algorithm, and so a kernel only needs to
+ * implement the arithmetic of one operator. All kernels must produce
+ * exactly the output of {@link VGMYM2612OperatorKernels#scalar()}.</p>
+ *
+ * <p>Kernels are not required to be thread-safe.</p>
+ *
+ * @see VGMYM2612OperatorTables
+ */
+
+public interface VGMYM2612OperatorKernelType
+{
+  /**
+   * @return A humanly-readable name for the kernel
+   */
+
+  String name();
+
+  /**
+   * Evaluate an operator for {@code count} samples. For each sample
+   * {@code i} in {@code [0, count)}, the output of the operator with phase
+   * {@code phase[i]}, attenuation {@code envelope[i]}, and phase modulation
+   * {@code modulation[modulation_offset + i]} is written to
+   * {@code output[output_offset + i]}.
+   *
+   * @param phase             The phase of the operator for each sample
+   * @param envelope          The attenuation of the operator for each sample
+   * @param modulation        The phase modulation for each sample
+   * @param modulation_offset The offset of the first modulation value
+   * @param output            The output array
+   * @param output_offset     The offset of the first output value
+   * @param count             The number of samples
+   */
+
+  void evaluate(
+    int[] phase,
+    int[] envelope,
+    int[] modulation,
+    int modulation_offset,
+    int[] output,
+    int output_offset,
+    int count);
+}
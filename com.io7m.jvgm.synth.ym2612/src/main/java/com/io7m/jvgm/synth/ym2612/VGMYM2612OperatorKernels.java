@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.jvgm.synth.ym2612;
+
+import com.io7m.junreachable.UnreachableCodeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Functions to obtain operator kernels.
+ */
+
+public final class VGMYM2612OperatorKernels
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(VGMYM2612OperatorKernels.class);
+
+  private VGMYM2612OperatorKernels()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @return A new instance of the scalar reference kernel
+   */
+
+  public static VGMYM2612OperatorKernelType scalar()
+  {
+    return new VGMYM2612OperatorKernelScalar();
+  }
+
+  /**
+   * Obtain a kernel from the first provider available via
+   * {@link ServiceLoader} that reports that it is supported on the current
+   * platform. If no such provider exists, or if providers cannot be loaded
+   * (for example, because they require a newer JVM or a module that has not
+   * been added to the module graph), the scalar kernel is returned.
+   *
+   * @return A new kernel
+   */
+
+  public static VGMYM2612OperatorKernelType preferred()
+  {
+    try {
+      final ServiceLoader<VGMYM2612OperatorKernelProviderType> loader =
+        ServiceLoader.load(VGMYM2612OperatorKernelProviderType.class);
+
+      for (final VGMYM2612OperatorKernelProviderType provider : loader) {
+        if (provider.isSupported()) {
+          LOG.debug("using operator kernel: {}", provider.name());
+          return provider.create();
+        }
+        LOG.debug("operator kernel not supported: {}", provider.name());
+      }
+    } catch (final ServiceConfigurationError | LinkageError e) {
+      LOG.debug("operator kernels could not be loaded: ", e);
+    }
+    return scalar();
+  }
+}
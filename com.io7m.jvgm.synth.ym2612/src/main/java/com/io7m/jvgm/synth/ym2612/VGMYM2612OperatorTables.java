@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.jvgm.synth.ym2612;
+
+import com.io7m.junreachable.UnreachableCodeException;
+
+/**
+ * <p>The tables and constants required to implement an operator kernel.</p>
+ *
+ * <p>The output of an operator with phase {@code p}, attenuation {@code e},
+ * and modulation {@code m} is {@code 0} if {@code e >= ENVELOPE_QUIET}.
+ * Otherwise, let {@code s} be the element of the sine table at index
+ * {@code (((p & PHASE_INTEGER_MASK) + (m << MODULATION_SHIFT)) >>> PHASE_SHIFT) & SINE_MASK}
+ * and let {@code t = (e << 3) + s}. The output is {@code 0} if {@code t}
+ * is not less than the length of the attenuation table, and is otherwise
+ * the element of the attenuation table at index {@code t}.</p>
+ *
+ * @see VGMYM2612OperatorKernelType
+ */
+
+public final class VGMYM2612OperatorTables
+{
+  /**
+   * The number of fractional bits in a phase value.
+   */
+
+  public static final int PHASE_SHIFT = VGMYM2612SynthTables.FREQ_SH;
+
+  /**
+   * The mask that selects the integer part of a phase value.
+   */
+
+  public static final int PHASE_INTEGER_MASK = ~VGMYM2612SynthTables.FREQ_MASK;
+
+  /**
+   * The shift applied to phase modulation values.
+   */
+
+  public static final int MODULATION_SHIFT = 15;
+
+  /**
+   * The mask applied to indices into the sine table.
+   */
+
+  public static final int SINE_MASK = VGMYM2612SynthTables.SIN_MASK;
+
+  /**
+   * The attenuation at and above which an operator produces no output.
+   */
+
+  public static final int ENVELOPE_QUIET = VGMYM2612SynthTables.ENV_QUIET;
+
+  private VGMYM2612OperatorTables()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @return A fresh copy of the logarithmic sine table
+   */
+
+  public static int[] sineTable()
+  {
+    return VGMYM2612SynthTables.SIN_TAB.clone();
+  }
+
+  /**
+   * @return A fresh copy of the attenuation table
+   */
+
+  public static int[] attenuationTable()
+  {
+    return VGMYM2612SynthTables.TL_TAB.clone();
+  }
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.synth.ym2612;
+
+import com.io7m.junreachable.UnreachableCodeException;
+
+/**
+ * Constant tables for the synthesizer. The tables and the fixed-point
+ * arithmetic that uses them follow the MAME OPN core, so that output is
+ * bit-exact across platforms for a given clock and sample rate.
+ */
+
+final class VGMYM2612SynthTables
+{
+  static final int FREQ_SH = 16;
+  static final int EG_SH = 16;
+  static final int LFO_SH = 24;
+  static final int FREQ_MASK = (1 << FREQ_SH) - 1;
+
+  static final int ENV_BITS = 10;
+  static final int ENV_LEN = 1 << ENV_BITS;
+  static final double ENV_STEP = 128.0 / ENV_LEN;
+  static final int MAX_ATT_INDEX = ENV_LEN - 1;
+  static final int MIN_ATT_INDEX = 0;
+
+  static final int SIN_BITS = 10;
+  static final int SIN_LEN = 1 << SIN_BITS;
+  static final int SIN_MASK = SIN_LEN - 1;
+
+  static final int TL_RES_LEN = 256;
+  static final int TL_TAB_LEN = 13 * 2 * TL_RES_LEN;
+  static final int ENV_QUIET = TL_TAB_LEN >> 3;
+
+  static final int RATE_STEPS = 8;
+
+  static final int EG_OFF = 0;
+  static final int EG_REL = 1;
+  static final int EG_SUS = 2;
+  static final int EG_DEC = 3;
+  static final int EG_ATT = 4;
+
+  /**
+   * The attenuation table: {@code 2^(-x)} in 13 octaves of
+   * {@link #TL_RES_LEN} steps, with alternating positive and negative
+   * entries.
+   */
+
+  static final int[] TL_TAB = makeTLTable();
+
+  /**
+   * The logarithmic sine table. Each entry is an index into
+   * {@link #TL_TAB}.
+   */
+
+  static final int[] SIN_TAB = makeSinTable();
+
+  /**
+   * The key code for the top four bits of an 11-bit frequency number.
+   */
+
+  static final int[] FK_TABLE = {
+    0, 0, 0, 0, 0, 0, 0, 1, 2, 3, 3, 3, 3, 3, 3, 3,
+  };
+
+  /**
+   * The sustain levels, in envelope units.
+   */
+
+  static final int[] SL_TABLE = makeSLTable();
+
+  /**
+   * The envelope increments for each rate, for each of eight cycles.
+   */
+
+  static final int[] EG_INC = {
+    0, 1, 0, 1, 0, 1, 0, 1,
+    0, 1, 0, 1, 1, 1, 0, 1,
+    0, 1, 1, 1, 0, 1, 1, 1,
+    0, 1, 1, 1, 1, 1, 1, 1,
+
+    1, 1, 1, 1, 1, 1, 1, 1,
+    1, 1, 1, 2, 1, 1, 1, 2,
+    1, 2, 1, 2, 1, 2, 1, 2,
+    1, 2, 2, 2, 1, 2, 2, 2,
+
+    2, 2, 2, 2, 2, 2, 2, 2,
+    2, 2, 2, 4, 2, 2, 2, 4,
+    2, 4, 2, 4, 2, 4, 2, 4,
+    2, 4, 4, 4, 2, 4, 4, 4,
+
+    4, 4, 4, 4, 4, 4, 4, 4,
+    4, 4, 4, 8, 4, 4, 4, 8,
+    4, 8, 4, 8, 4, 8, 4, 8,
+    4, 8, 8, 8, 4, 8, 8, 8,
+
+    8, 8, 8, 8, 8, 8, 8, 8,
+    16, 16, 16, 16, 16, 16, 16, 16,
+    0, 0, 0, 0, 0, 0, 0, 0,
+  };
+
+  /**
+   * The offset into {@link #EG_INC} for each of the 128 effective rates.
+   */
+
+  static final int[] EG_RATE_SELECT = makeRateSelect();
+
+  /**
+   * The envelope counter shift for each of the 128 effective rates.
+   */
+
+  static final int[] EG_RATE_SHIFT = makeRateShift();
+
+  /**
+   * The detune amounts, in frequency number units, for each detune value
+   * and key code.
+   */
+
+  static final int[] DT_TAB = {
+    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+
+    0, 0, 0, 0, 1, 1, 1, 1, 1, 1, 1, 1, 2, 2, 2, 2,
+    2, 3, 3, 3, 4, 4, 4, 5, 5, 6, 6, 7, 8, 8, 8, 8,
+
+    1, 1, 1, 1, 2, 2, 2, 2, 2, 3, 3, 3, 4, 4, 4, 5,
+    5, 6, 6, 7, 8, 8, 9, 10, 11, 12, 13, 14, 16, 16, 16, 16,
+
+    2, 2, 2, 2, 2, 3, 3, 3, 4, 4, 4, 5, 5, 6, 6, 7,
+    8, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 20, 22, 22, 22, 22,
+  };
+
+  /**
+   * The number of samples (at the native rate) per LFO step, for each LFO
+   * frequency.
+   */
+
+  static final int[] LFO_SAMPLES_PER_STEP = {
+    108, 77, 71, 67, 62, 44, 8, 5,
+  };
+
+  /**
+   * The amplitude modulation depth shifts for each AMS value.
+   */
+
+  static final int[] LFO_AMS_DEPTH_SHIFT = {
+    8, 3, 1, 0,
+  };
+
+  /**
+   * The phase modulation outputs for each frequency number bit (4 to 10),
+   * each PMS depth, and each of eight LFO steps.
+   */
+
+  private static final int[] LFO_PM_OUTPUT = {
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 1, 1, 1, 1,
+
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 1, 1, 1, 1,
+    0, 0, 1, 1, 2, 2, 2, 3,
+
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 1,
+    0, 0, 0, 0, 1, 1, 1, 1,
+    0, 0, 1, 1, 2, 2, 2, 3,
+    0, 0, 2, 3, 4, 4, 5, 6,
+
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 1, 1,
+    0, 0, 0, 0, 1, 1, 1, 1,
+    0, 0, 0, 1, 1, 1, 1, 2,
+    0, 0, 1, 1, 2, 2, 2, 3,
+    0, 0, 2, 3, 4, 4, 5, 6,
+    0, 0, 4, 6, 8, 8, 0xa, 0xc,
+
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 1, 1, 1, 1,
+    0, 0, 0, 1, 1, 1, 2, 2,
+    0, 0, 1, 1, 2, 2, 3, 3,
+    0, 0, 1, 2, 2, 2, 3, 4,
+    0, 0, 2, 3, 4, 4, 5, 6,
+    0, 0, 4, 6, 8, 8, 0xa, 0xc,
+    0, 0, 8, 0xc, 0x10, 0x10, 0x14, 0x18,
+
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 2, 2, 2, 2,
+    0, 0, 0, 2, 2, 2, 4, 4,
+    0, 0, 2, 2, 4, 4, 6, 6,
+    0, 0, 2, 4, 4, 4, 6, 8,
+    0, 0, 4, 6, 8, 8, 0xa, 0xc,
+    0, 0, 8, 0xc, 0x10, 0x10, 0x14, 0x18,
+    0, 0, 0x10, 0x18, 0x20, 0x20, 0x28, 0x30,
+
+    0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 4, 4, 4, 4,
+    0, 0, 0, 4, 4, 4, 8, 8,
+    0, 0, 4, 4, 8, 8, 0xc, 0xc,
+    0, 0, 4, 8, 8, 8, 0xc, 0x10,
+    0, 0, 8, 0xc, 0x10, 0x10, 0x14, 0x18,
+    0, 0, 0x10, 0x18, 0x20, 0x20, 0x28, 0x30,
+    0, 0, 0x20, 0x30, 0x40, 0x40, 0x50, 0x60,
+  };
+
+  /**
+   * The phase modulation offsets, indexed by
+   * {@code (fnum_bits_4_10 * 256) + (pms * 32) + lfo_pm}.
+   */
+
+  static final int[] LFO_PM_TABLE = makePMTable();
+
+  private VGMYM2612SynthTables()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  private static int[] makeTLTable()
+  {
+    final int[] table = new int[TL_TAB_LEN];
+
+    for (int x = 0; x < TL_RES_LEN; ++x) {
+      final double m =
+        StrictMath.floor(
+          (double) (1 << 16)
+            / StrictMath.pow(2.0, (double) (x + 1) * (ENV_STEP / 4.0) / 8.0));
+
+      int n = (int) m;
+      n >>= 4;
+      if ((n & 1) != 0) {
+        n = (n >> 1) + 1;
+      } else {
+        n >>= 1;
+      }
+      n <<= 2;
+
+      table[x * 2] = n;
+      table[(x * 2) + 1] = -n;
+
+      for (int i = 1; i < 13; ++i) {
+        final int base = (x * 2) + (i * 2 * TL_RES_LEN);
+        table[base] = n >> i;
+        table[base + 1] = -(n >> i);
+      }
+    }
+    return table;
+  }
+
+  private static int[] makeSinTable()
+  {
+    final int[] table = new int[SIN_LEN];
+
+    for (int i = 0; i < SIN_LEN; ++i) {
+      final double m =
+        StrictMath.sin((double) ((i * 2) + 1) * StrictMath.PI / (double) SIN_LEN);
+
+      final double o;
+      if (m > 0.0) {
+        o = 8.0 * StrictMath.log(1.0 / m) / StrictMath.log(2.0);
+      } else {
+        o = 8.0 * StrictMath.log(-1.0 / m) / StrictMath.log(2.0);
+      }
+
+      int n = (int) (2.0 * (o / (ENV_STEP / 4.0)));
+      if ((n & 1) != 0) {
+        n = (n >> 1) + 1;
+      } else {
+        n >>= 1;
+      }
+
+      table[i] = (n * 2) + (m >= 0.0 ? 0 : 1);
+    }
+    return table;
+  }
+
+  private static int[] makeSLTable()
+  {
+    final int[] table = new int[16];
+    for (int i = 0; i < 16; ++i) {
+      final double decibels = i == 15 ? 31.0 : (double) i;
+      table[i] = (int) (decibels * (4.0 / ENV_STEP));
+    }
+    return table;
+  }
+
+  private static int[] makeRateSelect()
+  {
+    final int[] table = new int[128];
+    for (int rate = 0; rate < 128; ++rate) {
+      final int group;
+      if (rate < 32) {
+        group = 18;
+      } else if (rate < 80) {
+        group = rate & 3;
+      } else if (rate < 96) {
+        group = Math.min(16, 4 + (rate - 80));
+      } else {
+        group = 16;
+      }
+      table[rate] = group * RATE_STEPS;
+    }
+    return table;
+  }
+
+  private static int[] makeRateShift()
+  {
+    final int[] table = new int[128];
+    for (int rate = 0; rate < 128; ++rate) {
+      if (rate >= 32 && rate < 80) {
+        table[rate] = 11 - ((rate - 32) >> 2);
+      } else {
+        table[rate] = 0;
+      }
+    }
+    return table;
+  }
+
+  private static int pmOutput(
+    final int fnum,
+    final int depth,
+    final int step)
+  {
+    int value = 0;
+    for (int bit = 0; bit < 7; ++bit) {
+      if ((fnum & (1 << bit)) != 0) {
+        value += LFO_PM_OUTPUT[(((bit * 8) + depth) * 8) + step];
+      }
+    }
+    return value;
+  }
+
+  private static int[] makePMTable()
+  {
+    final int[] table = new int[128 * 8 * 32];
+
+    for (int depth = 0; depth < 8; ++depth) {
+      for (int fnum = 0; fnum < 128; ++fnum) {
+        for (int step = 0; step < 8; ++step) {
+          final int value = pmOutput(fnum, depth, step);
+          final int base = (fnum * 32 * 8) + (depth * 32);
+          table[base + step] = value;
+          table[base + (step ^ 7) + 8] = value;
+          table[base + step + 16] = -value;
+          table[base + (step ^ 7) + 24] = -value;
+        }
+      }
+    }
+    return table;
+  }
+}
@@ -0,0 +1,1346 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.synth.ym2612;
+
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612Callbacks;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612Interpreter;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612State;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.DT_TAB;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.EG_ATT;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.EG_DEC;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.EG_INC;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.EG_OFF;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.EG_RATE_SELECT;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.EG_RATE_SHIFT;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.EG_REL;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.EG_SH;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.EG_SUS;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.ENV_QUIET;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.FK_TABLE;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.FREQ_MASK;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.FREQ_SH;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.LFO_AMS_DEPTH_SHIFT;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.LFO_PM_TABLE;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.LFO_SAMPLES_PER_STEP;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.LFO_SH;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.MAX_ATT_INDEX;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.MIN_ATT_INDEX;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.RATE_STEPS;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.SIN_LEN;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.SIN_MASK;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.SIN_TAB;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.SL_TABLE;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.TL_TAB;
+import static com.io7m.jvgm.synth.ym2612.VGMYM2612SynthTables.TL_TAB_LEN;
+
+/**
+ * <p>A YM2612 FM synthesizer.</p>
+ *
+ * <p>The synthesizer owns a {@link VGMYM2612Interpreter}, and all register
+ * writes must be made through {@link #writeRegister(int, int, int)} so that
+ * key on/off events and global registers are observed at the correct time.
+ * Channel and operator parameters are decoded from the interpreter's
+ * register shadow when the interpreter reports that a channel has changed,
+ * and so the synthesizer consumes the interpreter's dirty tracking.</p>
+ *
+ * <p>Rendering is performed with integer arithmetic only, and the output
+ * for a given sequence of register writes, clock, and sample rate is
+ * identical on all platforms. Rendering does not allocate.</p>
+ */
+
+public final class VGMYM2612Synthesizer
+{
+  /**
+   * The usual clock rate of the YM2612 in NTSC systems.
+   */
+
+  public static final int CLOCK_NTSC = VGMYM2612Interpreter.CLOCK_NTSC;
+
+  private static final int SLOTS = VGMYM2612State.CHANNELS * VGMYM2612State.OPERATORS;
+  private static final int EG_TIMER_OVERFLOW = 3 * (1 << EG_SH);
+  private static final int DAC_CHANNEL = 5;
+  private static final int CSM_CHANNEL = 2;
+  private static final int BLOCK_SIZE = 256;
+  private static final int OPERATOR_S1 = 0;
+  private static final int OPERATOR_S3 = 1;
+  private static final int OPERATOR_S2 = 2;
+  private static final int OPERATOR_S4 = 3;
+
+  /*
+   * Operator slots are stored in register order: For channel {@code c},
+   * slot {@code c * 4 + 0} is S1, {@code + 1} is S3, {@code + 2} is S2, and
+   * {@code + 3} is S4.
+   */
+
+  private final VGMYM2612Interpreter interpreter;
+  private final VGMYM2612OperatorKernelType kernel;
+  private final VGMYM2612State state;
+  private final int clock;
+  private final int sample_rate;
+
+  private final int[] fn_table;
+  private final int[] dt_table;
+  private final int fn_max;
+  private final int eg_timer_add;
+  private final int lfo_timer_add;
+  private final long timer_divisor;
+
+  private final int[] slot_phase = new int[SLOTS];
+  private final int[] slot_incr = new int[SLOTS];
+  private final int[] slot_block_fnum = new int[SLOTS];
+  private final int[] slot_dt = new int[SLOTS];
+  private final int[] slot_mul = new int[SLOTS];
+  private final int[] slot_tl = new int[SLOTS];
+  private final int[] slot_ksr_shift = new int[SLOTS];
+  private final int[] slot_ar = new int[SLOTS];
+  private final int[] slot_d1r = new int[SLOTS];
+  private final int[] slot_d2r = new int[SLOTS];
+  private final int[] slot_rr = new int[SLOTS];
+  private final int[] slot_sl = new int[SLOTS];
+  private final int[] slot_am_mask = new int[SLOTS];
+  private final int[] slot_key = new int[SLOTS];
+  private final int[] slot_ksr = new int[SLOTS];
+  private final int[] slot_state = new int[SLOTS];
+  private final int[] slot_volume = new int[SLOTS];
+  private final int[] slot_eg_sh_ar = new int[SLOTS];
+  private final int[] slot_eg_sel_ar = new int[SLOTS];
+  private final int[] slot_eg_sh_d1r = new int[SLOTS];
+  private final int[] slot_eg_sel_d1r = new int[SLOTS];
+  private final int[] slot_eg_sh_d2r = new int[SLOTS];
+  private final int[] slot_eg_sel_d2r = new int[SLOTS];
+  private final int[] slot_eg_sh_rr = new int[SLOTS];
+  private final int[] slot_eg_sel_rr = new int[SLOTS];
+
+  private final int[] channel_algorithm = new int[VGMYM2612State.CHANNELS];
+  private final int[] channel_feedback = new int[VGMYM2612State.CHANNELS];
+  private final int[] channel_ams = new int[VGMYM2612State.CHANNELS];
+  private final int[] channel_pms = new int[VGMYM2612State.CHANNELS];
+  private final int[] channel_pan_left = new int[VGMYM2612State.CHANNELS];
+  private final int[] channel_pan_right = new int[VGMYM2612State.CHANNELS];
+  private final int[] channel_op1_out_0 = new int[VGMYM2612State.CHANNELS];
+  private final int[] channel_op1_out_1 = new int[VGMYM2612State.CHANNELS];
+  private final int[] channel_mem = new int[VGMYM2612State.CHANNELS];
+
+  private final int[] block_lfo_am = new int[BLOCK_SIZE];
+  private final int[] block_lfo_pm = new int[BLOCK_SIZE];
+  private final int[] block_eg_ticks;
+  private final int[][] block_phase =
+    new int[VGMYM2612State.OPERATORS][BLOCK_SIZE];
+  private final int[][] block_envelope =
+    new int[VGMYM2612State.OPERATORS][BLOCK_SIZE];
+  private final int[] block_op1 = new int[BLOCK_SIZE];
+  private final int[] block_memory = new int[BLOCK_SIZE + 1];
+  private final int[] block_carrier = new int[BLOCK_SIZE];
+  private final int[] block_temporary = new int[BLOCK_SIZE];
+  private final int[] block_zero = new int[BLOCK_SIZE];
+  private final int[] block_output =
+    new int[BLOCK_SIZE * VGMYM2612State.CHANNELS];
+
+  private int block_eg_tick_count;
+  private int eg_timer;
+  private int eg_count;
+  private int lfo_timer;
+  private int lfo_timer_overflow;
+  private int lfo_count;
+  private int lfo_am;
+  private int lfo_pm;
+  private boolean dac_enabled;
+  private int dac_output;
+  private long timer_remainder;
+  private boolean csm_key_off_pending;
+
+  /**
+   * Construct a synthesizer using the preferred operator kernel.
+   *
+   * @param in_clock       The chip clock rate in Hz (such as {@link #CLOCK_NTSC})
+   * @param in_sample_rate The output sample rate in Hz
+   *
+   * @see VGMYM2612OperatorKernels#preferred()
+   */
+
+  public VGMYM2612Synthesizer(
+    final int in_clock,
+    final int in_sample_rate)
+  {
+    this(in_clock, in_sample_rate, VGMYM2612OperatorKernels.preferred());
+  }
+
+  /**
+   * Construct a synthesizer.
+   *
+   * @param in_clock       The chip clock rate in Hz (such as {@link #CLOCK_NTSC})
+   * @param in_sample_rate The output sample rate in Hz
+   * @param in_kernel      The operator kernel
+   */
+
+  public VGMYM2612Synthesizer(
+    final int in_clock,
+    final int in_sample_rate,
+    final VGMYM2612OperatorKernelType in_kernel)
+  {
+    this.kernel = Objects.requireNonNull(in_kernel, "kernel");
+    if (in_clock <= 0) {
+      throw new IllegalArgumentException("Clock must be positive: " + in_clock);
+    }
+    if (in_sample_rate <= 0) {
+      throw new IllegalArgumentException(
+        "Sample rate must be positive: " + in_sample_rate);
+    }
+
+    this.clock = in_clock;
+    this.sample_rate = in_sample_rate;
+    this.interpreter =
+      new VGMYM2612Interpreter(VGMYM2612Callbacks.builder().build(), in_clock);
+    this.state = this.interpreter.state();
+
+    final double freqbase =
+      ((double) in_clock / (double) in_sample_rate) / 144.0;
+
+    this.fn_table = makeFnTable(freqbase);
+    this.dt_table = makeDTTable(freqbase);
+    this.fn_max =
+      (int) ((double) 0x20000 * freqbase * (double) (1 << (FREQ_SH - 10)));
+
+    this.eg_timer_add = (int) ((double) (1 << EG_SH) * freqbase);
+    this.block_eg_ticks =
+      new int[BLOCK_SIZE * ((this.eg_timer_add / EG_TIMER_OVERFLOW) + 1)];
+    this.lfo_timer_add = (int) ((double) (1 << LFO_SH) * freqbase);
+    this.timer_divisor =
+      (long) VGMYM2612Interpreter.CLOCKS_PER_TICK * (long) in_sample_rate;
+    this.reset();
+  }
+
+  private static int[] makeFnTable(
+    final double freqbase)
+  {
+    final int[] table = new int[4096];
+    for (int index = 0; index < 4096; ++index) {
+      table[index] =
+        (int) ((double) index * 32.0 * freqbase * (double) (1 << (FREQ_SH - 10)));
+    }
+    return table;
+  }
+
+  private static int[] makeDTTable(
+    final double freqbase)
+  {
+    final int[] table = new int[8 * 32];
+    for (int detune = 0; detune < 4; ++detune) {
+      for (int key = 0; key < 32; ++key) {
+        final int rate =
+          (int) ((double) DT_TAB[(detune * 32) + key]
+            * (double) SIN_LEN
+            * freqbase
+            * (double) (1 << FREQ_SH)
+            / (double) (1 << 20));
+        table[(detune * 32) + key] = rate;
+        table[((detune + 4) * 32) + key] = -rate;
+      }
+    }
+    return table;
+  }
+
+  /**
+   * @return The chip clock rate in Hz
+   */
+
+  public int clock()
+  {
+    return this.clock;
+  }
+
+  /**
+   * @return The name of the operator kernel used by the synthesizer
+   */
+
+  public String kernelName()
+  {
+    return this.kernel.name();
+  }
+
+  /**
+   * @return The output sample rate in Hz
+   */
+
+  public int sampleRate()
+  {
+    return this.sample_rate;
+  }
+
+  /**
+   * Access the interpreter that holds the register state of the synthesizer.
+   * Register writes must not be made directly to the returned interpreter.
+   *
+   * @return The interpreter
+   */
+
+  public VGMYM2612Interpreter interpreter()
+  {
+    return this.interpreter;
+  }
+
+  /**
+   * Reset the synthesizer to its power-on state: All operators are silent,
+   * all registers are zero, and all channels are panned to both outputs.
+   */
+
+  public void reset()
+  {
+    this.state.clear();
+    this.interpreter.markAllDirty();
+
+    Arrays.fill(this.slot_phase, 0);
+    Arrays.fill(this.slot_key, 0);
+    Arrays.fill(this.slot_ksr, 0);
+    Arrays.fill(this.slot_state, EG_OFF);
+    Arrays.fill(this.slot_volume, MAX_ATT_INDEX);
+    Arrays.fill(this.channel_op1_out_0, 0);
+    Arrays.fill(this.channel_op1_out_1, 0);
+    Arrays.fill(this.channel_mem, 0);
+
+    this.eg_timer = 0;
+    this.eg_count = 0;
+    this.setLFO(0);
+    this.dac_enabled = false;
+    this.dac_output = 0;
+    this.timer_remainder = 0L;
+    this.csm_key_off_pending = false;
+
+    for (int port = 0; port < 2; ++port) {
+      for (int register = 0xb4; register <= 0xb6; ++register) {
+        this.writeRegister(port, register, 0xc0);
+      }
+    }
+    this.synchronize();
+  }
+
+  /**
+   * Write {@code value} to {@code register} in port 0.
+   *
+   * @param register The register (in the range {@code [0x0, 0xff]})
+   * @param value    The value (in the range {@code [0x0, 0xff]})
+   */
+
+  public void writeRegisterPort0(
+    final int register,
+    final int value)
+  {
+    this.writeRegister(0, register, value);
+  }
+
+  /**
+   * Write {@code value} to {@code register} in port 1.
+   *
+   * @param register The register (in the range {@code [0x0, 0xff]})
+   * @param value    The value (in the range {@code [0x0, 0xff]})
+   */
+
+  public void writeRegisterPort1(
+    final int register,
+    final int value)
+  {
+    this.writeRegister(1, register, value);
+  }
+
+  /**
+   * Write {@code value} to {@code register} in {@code port}.
+   *
+   * @param port     The port (in the range {@code [0, 1]})
+   * @param register The register (in the range {@code [0x0, 0xff]})
+   * @param value    The value (in the range {@code [0x0, 0xff]})
+   */
+
+  public void writeRegister(
+    final int port,
+    final int register,
+    final int value)
+  {
+    this.interpreter.writeRegister(port, register, value);
+
+    if ((port & 0b1) != 0) {
+      return;
+    }
+
+    switch (register & 0xff) {
+      case 0x22: {
+        this.setLFO(value);
+        break;
+      }
+      case 0x28: {
+        this.synchronize();
+        this.setKeyOnOff(value);
+        break;
+      }
+      case 0x2a: {
+        this.dac_output = ((value & 0xff) - 0x80) << 6;
+        break;
+      }
+      case 0x2b: {
+        this.dac_enabled = (value & 0x80) != 0;
+        break;
+      }
+      default: {
+        break;
+      }
+    }
+  }
+
+  private void setLFO(
+    final int value)
+  {
+    if ((value & 0b1000) != 0) {
+      this.lfo_timer_overflow = LFO_SAMPLES_PER_STEP[value & 0b111] << LFO_SH;
+    } else {
+      this.lfo_timer_overflow = 0;
+      this.lfo_timer = 0;
+      this.lfo_count = 0;
+      this.lfo_pm = 0;
+      this.lfo_am = 126;
+    }
+  }
+
+  private void setKeyOnOff(
+    final int value)
+  {
+    final int code = value & 0b111;
+    if (code == 0b011 || code == 0b111) {
+      return;
+    }
+
+    final int channel = code >= 0b100 ? code - 1 : code;
+    final int base = channel * VGMYM2612State.OPERATORS;
+    this.setKey(base, (value & 0x10) != 0);
+    this.setKey(base + 2, (value & 0x20) != 0);
+    this.setKey(base + 1, (value & 0x40) != 0);
+    this.setKey(base + 3, (value & 0x80) != 0);
+  }
+
+  private void setKey(
+    final int slot,
+    final boolean on)
+  {
+    if (on) {
+      if (this.slot_key[slot] == 0) {
+        this.keyOn(slot);
+      }
+      this.slot_key[slot] = 1;
+    } else {
+      if (this.slot_key[slot] != 0 && this.slot_state[slot] > EG_REL) {
+        this.slot_state[slot] = EG_REL;
+      }
+      this.slot_key[slot] = 0;
+    }
+  }
+
+  private void keyOn(
+    final int slot)
+  {
+    this.slot_phase[slot] = 0;
+
+    final int decay_state =
+      this.slot_sl[slot] == MIN_ATT_INDEX ? EG_SUS : EG_DEC;
+
+    if (this.slot_ar[slot] + this.slot_ksr[slot] < 32 + 62) {
+      if (this.slot_volume[slot] <= MIN_ATT_INDEX) {
+        this.slot_state[slot] = decay_state;
+      } else {
+        this.slot_state[slot] = EG_ATT;
+      }
+    } else {
+      this.slot_volume[slot] = MIN_ATT_INDEX;
+      this.slot_state[slot] = decay_state;
+    }
+  }
+
+  /**
+   * Decode the parameters of every channel that the interpreter reports as
+   * changed.
+   */
+
+  private void synchronize()
+  {
+    int dirty = this.interpreter.dirtyChannels();
+    while (dirty != 0) {
+      final int channel = Integer.numberOfTrailingZeros(dirty);
+      this.synchronizeChannel(channel);
+      this.interpreter.acknowledge(channel);
+      dirty &= dirty - 1;
+    }
+  }
+
+  private void synchronizeChannel(
+    final int channel)
+  {
+    final int port = channel / 3;
+    final int index = channel % 3;
+
+    final int b0 = this.state.register(port, 0xb0 + index);
+    final int b4 = this.state.register(port, 0xb4 + index);
+    final int feedback = (b0 >>> 3) & 0b111;
+    this.channel_algorithm[channel] = b0 & 0b111;
+    this.channel_feedback[channel] = feedback != 0 ? feedback + 6 : 0;
+    this.channel_pan_left[channel] = (b4 & 0x80) != 0 ? -1 : 0;
+    this.channel_pan_right[channel] = (b4 & 0x40) != 0 ? -1 : 0;
+    this.channel_ams[channel] = LFO_AMS_DEPTH_SHIFT[(b4 >>> 4) & 0b11];
+    this.channel_pms[channel] = (b4 & 0b111) * 32;
+
+    final int block_fnum =
+      blockFnum(
+        this.state.register(port, 0xa4 + index),
+        this.state.register(port, 0xa0 + index));
+
+    final boolean special =
+      channel == 2 && (this.state.register(0, 0x27) & 0xc0) != 0;
+
+    final int base = channel * VGMYM2612State.OPERATORS;
+    for (int op = 0; op < VGMYM2612State.OPERATORS; ++op) {
+      final int slot = base + op;
+      final int offset = index + (op * 4);
+
+      final int r30 = this.state.register(port, 0x30 + offset);
+      final int r40 = this.state.register(port, 0x40 + offset);
+      final int r50 = this.state.register(port, 0x50 + offset);
+      final int r60 = this.state.register(port, 0x60 + offset);
+      final int r70 = this.state.register(port, 0x70 + offset);
+      final int r80 = this.state.register(port, 0x80 + offset);
+
+      this.slot_dt[slot] = ((r30 >>> 4) & 0b111) * 32;
+      this.slot_mul[slot] = (r30 & 0x0f) != 0 ? (r30 & 0x0f) * 2 : 1;
+      this.slot_tl[slot] = (r40 & 0x7f) << 3;
+      this.slot_ksr_shift[slot] = 3 - (r50 >>> 6);
+      this.slot_ar[slot] = rate(r50);
+      this.slot_am_mask[slot] = (r60 & 0x80) != 0 ? -1 : 0;
+      this.slot_d1r[slot] = rate(r60);
+      this.slot_d2r[slot] = rate(r70);
+      this.slot_sl[slot] = SL_TABLE[(r80 >>> 4) & 0x0f];
+      this.slot_rr[slot] = 34 + ((r80 & 0x0f) << 2);
+
+      if (special) {
+        this.slot_block_fnum[slot] = this.specialBlockFnum(op, block_fnum);
+      } else {
+        this.slot_block_fnum[slot] = block_fnum;
+      }
+
+      this.refreshSlot(slot);
+    }
+  }
+
+  /*
+   * In special mode, the third channel takes the frequency of S1 from
+   * 0xA9/0xAD, S2 from 0xAA/0xAE, S3 from 0xA8/0xAC, and S4 from the
+   * channel frequency registers.
+   */
+
+  private int specialBlockFnum(
+    final int op,
+    final int channel_block_fnum)
+  {
+    final int register;
+    switch (op) {
+      case 0: {
+        register = 1;
+        break;
+      }
+      case 1: {
+        register = 0;
+        break;
+      }
+      case 2: {
+        register = 2;
+        break;
+      }
+      default: {
+        return channel_block_fnum;
+      }
+    }
+
+    return blockFnum(
+      this.state.register(0, 0xac + register),
+      this.state.register(0, 0xa8 + register));
+  }
+
+  private static int blockFnum(
+    final int msb,
+    final int lsb)
+  {
+    return ((msb & 0x3f) << 8) | (lsb & 0xff);
+  }
+
+  private static int rate(
+    final int value)
+  {
+    final int rate = value & 0x1f;
+    return rate != 0 ? 32 + (rate << 1) : 0;
+  }
+
+  private void refreshSlot(
+    final int slot)
+  {
+    final int block_fnum = this.slot_block_fnum[slot];
+    final int block = (block_fnum >>> 11) & 0b111;
+    final int fnum = block_fnum & 0x7ff;
+    final int key_code = (block << 2) | FK_TABLE[fnum >>> 7];
+
+    int fc = (this.fn_table[fnum * 2] >> (7 - block)) + this.dt_table[this.slot_dt[slot] + key_code];
+    if (fc < 0) {
+      fc += this.fn_max;
+    }
+    this.slot_incr[slot] = (fc * this.slot_mul[slot]) >> 1;
+
+    final int ksr = key_code >>> this.slot_ksr_shift[slot];
+    this.slot_ksr[slot] = ksr;
+
+    final int ar = this.slot_ar[slot] + ksr;
+    if (ar < 32 + 62) {
+      this.slot_eg_sh_ar[slot] = EG_RATE_SHIFT[ar];
+      this.slot_eg_sel_ar[slot] = EG_RATE_SELECT[ar];
+    } else {
+      this.slot_eg_sh_ar[slot] = 0;
+      this.slot_eg_sel_ar[slot] = 17 * RATE_STEPS;
+    }
+
+    final int d1r = this.slot_d1r[slot] + ksr;
+    this.slot_eg_sh_d1r[slot] = EG_RATE_SHIFT[d1r];
+    this.slot_eg_sel_d1r[slot] = EG_RATE_SELECT[d1r];
+    final int d2r = this.slot_d2r[slot] + ksr;
+    this.slot_eg_sh_d2r[slot] = EG_RATE_SHIFT[d2r];
+    this.slot_eg_sel_d2r[slot] = EG_RATE_SELECT[d2r];
+    final int rr = this.slot_rr[slot] + ksr;
+    this.slot_eg_sh_rr[slot] = EG_RATE_SHIFT[rr];
+    this.slot_eg_sel_rr[slot] = EG_RATE_SELECT[rr];
+  }
+
+  /**
+   * Render {@code frames} stereo frames into {@code output}, starting at
+   * {@code offset}. Each frame consists of a left and then a right signed
+   * 16-bit sample.
+   *
+   * @param output The output buffer
+   * @param offset The offset of the first sample in {@code output}
+   * @param frames The number of frames to render
+   */
+
+  public void render(
+    final short[] output,
+    final int offset,
+    final int frames)
+  {
+    Objects.requireNonNull(output, "output");
+    Objects.checkFromIndexSize(offset, frames * 2, output.length);
+
+    this.renderFrames(output, offset, frames, null, 0);
+  }
+
+  /**
+   * Render {@code frames} frames of stereo output into {@code output}
+   * starting at {@code offset}, taking the DAC value for each frame from
+   * {@code dac} starting at {@code dac_offset}. Each element of {@code dac}
+   * is an unsigned 8-bit DAC value, and the values replace the output of
+   * channel 6 for as long as the DAC is enabled. This is equivalent to
+   * writing each value to register {@code 0x2a} and rendering a single
+   * frame, but does not pass each value through the interpreter: Only the
+   * final value is written to the interpreter.
+   *
+   * @param output     The output buffer
+   * @param offset     The offset of the first sample in {@code output}
+   * @param frames     The number of frames to render
+   * @param dac        The DAC values, one per frame
+   * @param dac_offset The offset of the first value in {@code dac}
+   */
+
+  public void renderDAC(
+    final short[] output,
+    final int offset,
+    final int frames,
+    final byte[] dac,
+    final int dac_offset)
+  {
+    Objects.requireNonNull(output, "output");
+    Objects.requireNonNull(dac, "dac");
+    Objects.checkFromIndexSize(offset, frames * 2, output.length);
+    Objects.checkFromIndexSize(dac_offset, frames, dac.length);
+
+    if (frames == 0) {
+      return;
+    }
+
+    this.renderFrames(output, offset, frames, dac, dac_offset);
+
+    final int last = (int) dac[dac_offset + frames - 1] & 0xff;
+    this.writeRegister(0, 0x2a, last);
+  }
+
+  private void renderFrames(
+    final short[] output,
+    final int offset,
+    final int frames,
+    final byte[] dac,
+    final int dac_offset)
+  {
+    this.synchronize();
+
+    int dac_position = dac_offset;
+    int position = offset;
+    int remaining = frames;
+    while (remaining > 0) {
+      final int count =
+        Math.min(Math.min(BLOCK_SIZE, remaining), this.framesUntilCSM());
+      this.renderBlock(count, dac, dac_position);
+      this.mixBlock(output, position, count);
+      position += count * 2;
+      remaining -= count;
+      dac_position += count;
+
+      if (this.csm_key_off_pending) {
+        this.csmKeyOff();
+      }
+      if (this.advanceTimers(count) > 0) {
+        this.csmKeyOn();
+      }
+    }
+  }
+
+  /*
+   * The timers are advanced by the number of chip timer ticks that elapse
+   * during the rendered frames. Blocks are split at the frame at which timer
+   * A overflows in CSM mode, so that channel 3 is keyed on at the same
+   * frame regardless of how rendering is divided into calls. As on the
+   * chip, a CSM key-on lasts for a single sample.
+   */
+
+  private int framesUntilCSM()
+  {
+    if (this.csm_key_off_pending) {
+      return 1;
+    }
+    if (!this.interpreter.isCSMMode() || !this.interpreter.isTimerARunning()) {
+      return Integer.MAX_VALUE;
+    }
+
+    final long needed =
+      ((long) this.interpreter.timerARemaining() * this.timer_divisor)
+        - this.timer_remainder;
+    final long frames = (needed + this.clock - 1L) / this.clock;
+    return (int) Math.max(1L, Math.min(frames, (long) BLOCK_SIZE));
+  }
+
+  private int advanceTimers(
+    final int count)
+  {
+    final long total = ((long) count * this.clock) + this.timer_remainder;
+    this.timer_remainder = total % this.timer_divisor;
+    return this.interpreter.advanceTicks(total / this.timer_divisor);
+  }
+
+  private void csmKeyOn()
+  {
+    final int base = CSM_CHANNEL * VGMYM2612State.OPERATORS;
+    for (int slot = base; slot < base + VGMYM2612State.OPERATORS; ++slot) {
+      if (this.slot_key[slot] == 0) {
+        this.keyOn(slot);
+      }
+    }
+    this.csm_key_off_pending = true;
+  }
+
+  private void csmKeyOff()
+  {
+    final int base = CSM_CHANNEL * VGMYM2612State.OPERATORS;
+    for (int slot = base; slot < base + VGMYM2612State.OPERATORS; ++slot) {
+      if (this.slot_key[slot] == 0 && this.slot_state[slot] > EG_REL) {
+        this.slot_state[slot] = EG_REL;
+      }
+    }
+    this.csm_key_off_pending = false;
+  }
+
+  /*
+   * Render a block of samples. The LFO and the envelope generator clock are
+   * shared by all channels and do not depend on channel state, so their
+   * values for each sample of the block are computed first, and each
+   * channel is then rendered for the whole block in turn. This produces
+   * exactly the same output as rendering each sample for all channels.
+   */
+
+  private void renderBlock(
+    final int count,
+    final byte[] dac,
+    final int dac_offset)
+  {
+    final int eg_count_start = this.eg_count;
+    this.prepareBlock(count);
+
+    for (int channel = 0; channel < VGMYM2612State.CHANNELS; ++channel) {
+      if (this.dac_enabled && channel == DAC_CHANNEL) {
+        this.fillDAC(count, dac, dac_offset);
+      } else if (this.isChannelSilent(channel)) {
+        Arrays.fill(
+          this.block_output,
+          channel * BLOCK_SIZE,
+          (channel * BLOCK_SIZE) + count,
+          0);
+        this.advanceSilentChannel(channel, count);
+      } else {
+        this.renderChannel(channel, count, eg_count_start);
+      }
+    }
+  }
+
+  private void fillDAC(
+    final int count,
+    final byte[] dac,
+    final int dac_offset)
+  {
+    final int base = DAC_CHANNEL * BLOCK_SIZE;
+    if (dac == null) {
+      Arrays.fill(this.block_output, base, base + count, this.dac_output);
+      return;
+    }
+
+    for (int index = 0; index < count; ++index) {
+      this.block_output[base + index] =
+        (((int) dac[dac_offset + index] & 0xff) - 0x80) << 6;
+    }
+  }
+
+  /*
+   * A channel is silent if all of its operators have finished their release
+   * phase and no output remains in the feedback or memory paths. The
+   * envelope generator does nothing in the off state, so only the phases
+   * of a silent channel need to be advanced.
+   */
+
+  private boolean isChannelSilent(
+    final int channel)
+  {
+    final int base = channel * VGMYM2612State.OPERATORS;
+    for (int slot = base; slot < base + VGMYM2612State.OPERATORS; ++slot) {
+      if (this.slot_state[slot] != EG_OFF) {
+        return false;
+      }
+    }
+
+    return this.channel_op1_out_0[channel] == 0
+      && this.channel_op1_out_1[channel] == 0
+      && this.channel_mem[channel] == 0;
+  }
+
+  private void advanceSilentChannel(
+    final int channel,
+    final int count)
+  {
+    final int base = channel * VGMYM2612State.OPERATORS;
+    final int pms = this.channel_pms[channel];
+
+    for (int slot = base; slot < base + VGMYM2612State.OPERATORS; ++slot) {
+      if (pms == 0) {
+        this.slot_phase[slot] += this.slot_incr[slot] * count;
+      } else {
+        int phase = this.slot_phase[slot];
+        for (int index = 0; index < count; ++index) {
+          phase += this.modulatedIncrement(slot, pms, this.block_lfo_pm[index]);
+        }
+        this.slot_phase[slot] = phase;
+      }
+    }
+  }
+
+  /*
+   * Compute the LFO values for each sample of the block, and record the
+   * index of the sample at the end of which each envelope generator clock
+   * tick occurs.
+   */
+
+  private void prepareBlock(
+    final int count)
+  {
+    int ticks = 0;
+    for (int index = 0; index < count; ++index) {
+      this.block_lfo_am[index] = this.lfo_am;
+      this.block_lfo_pm[index] = this.lfo_pm;
+      this.advanceLFO();
+
+      this.eg_timer += this.eg_timer_add;
+      while (this.eg_timer >= EG_TIMER_OVERFLOW) {
+        this.eg_timer -= EG_TIMER_OVERFLOW;
+        this.block_eg_ticks[ticks] = index;
+        ++ticks;
+      }
+    }
+    this.block_eg_tick_count = ticks;
+    this.eg_count += ticks;
+  }
+
+  private void mixBlock(
+    final short[] output,
+    final int offset,
+    final int count)
+  {
+    int position = offset;
+    for (int index = 0; index < count; ++index) {
+      int left = 0;
+      int right = 0;
+      int source = index;
+      for (int channel = 0; channel < VGMYM2612State.CHANNELS; ++channel) {
+        final int value = clampChannel(this.block_output[source]);
+        left += value & this.channel_pan_left[channel];
+        right += value & this.channel_pan_right[channel];
+        source += BLOCK_SIZE;
+      }
+      output[position] = clampOutput(left);
+      output[position + 1] = clampOutput(right);
+      position += 2;
+    }
+  }
+
+  private static int clampChannel(
+    final int value)
+  {
+    return Math.max(-8192, Math.min(8191, value));
+  }
+
+  private static short clampOutput(
+    final int value)
+  {
+    return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+  }
+
+  private void advanceLFO()
+  {
+    if (this.lfo_timer_overflow != 0) {
+      this.lfo_timer += this.lfo_timer_add;
+      while (this.lfo_timer >= this.lfo_timer_overflow) {
+        this.lfo_timer -= this.lfo_timer_overflow;
+        this.lfo_count = (this.lfo_count + 1) & 127;
+        if (this.lfo_count < 64) {
+          this.lfo_am = (this.lfo_count ^ 63) << 1;
+        } else {
+          this.lfo_am = (this.lfo_count & 63) << 1;
+        }
+        this.lfo_pm = this.lfo_count >>> 2;
+      }
+    }
+  }
+
+  private static int operatorFeedback(
+    final int phase,
+    final int envelope,
+    final int modulation)
+  {
+    if (envelope >= ENV_QUIET) {
+      return 0;
+    }
+
+    final int p =
+      (envelope << 3)
+        + SIN_TAB[(((phase & ~FREQ_MASK) + modulation) >>> FREQ_SH) & SIN_MASK];
+    if (p >= TL_TAB_LEN) {
+      return 0;
+    }
+    return TL_TAB[p];
+  }
+
+  /*
+   * Render a channel for a block of samples. The phase and attenuation of
+   * each operator for each sample of the block do not depend on the output
+   * of any operator, and so are computed first. S1 is then evaluated
+   * sample by sample, because it modulates itself, and the remaining
+   * operators are evaluated for the whole block at once, one operator at a
+   * time, in the order given by the algorithm. The output of S1 is delayed
+   * by one sample, and some algorithms route S1 or S2 through a one sample
+   * memory before it modulates S3 or S4: The memory is represented by an
+   * array of the memory value at the start of each sample, followed by the
+   * value at the end of the block.
+   */
+
+  private void renderChannel(
+    final int channel,
+    final int count,
+    final int eg_count_start)
+  {
+    final int base = channel * VGMYM2612State.OPERATORS;
+    for (int operator = 0; operator < VGMYM2612State.OPERATORS; ++operator) {
+      this.preparePhases(channel, operator, base + operator, count);
+      this.prepareEnvelopes(channel, operator, base + operator, count, eg_count_start);
+    }
+
+    this.renderFeedback(channel, count);
+    this.block_memory[0] = this.channel_mem[channel];
+    this.renderAlgorithm(channel, count);
+    this.channel_mem[channel] = this.block_memory[count];
+  }
+
+  private void preparePhases(
+    final int channel,
+    final int operator,
+    final int slot,
+    final int count)
+  {
+    final int[] phases = this.block_phase[operator];
+    final int pms = this.channel_pms[channel];
+
+    int phase = this.slot_phase[slot];
+    if (pms == 0) {
+      final int incr = this.slot_incr[slot];
+      for (int index = 0; index < count; ++index) {
+        phases[index] = phase;
+        phase += incr;
+      }
+    } else {
+      int incr = 0;
+      int pm_previous = -1;
+      for (int index = 0; index < count; ++index) {
+        final int pm = this.block_lfo_pm[index];
+        if (pm != pm_previous) {
+          pm_previous = pm;
+          incr = this.modulatedIncrement(slot, pms, pm);
+        }
+        phases[index] = phase;
+        phase += incr;
+      }
+    }
+    this.slot_phase[slot] = phase;
+  }
+
+  /*
+   * The attenuation of a slot only changes on envelope generator clock
+   * ticks (and with the LFO). In each envelope state, the attenuation is
+   * only adjusted on ticks that are multiples of {@code 2^shift}, so the
+   * envelope generator skips directly to each such tick in the block, and
+   * the attenuation is written for each run of samples between them.
+   */
+
+  private void prepareEnvelopes(
+    final int channel,
+    final int operator,
+    final int slot,
+    final int count,
+    final int eg_count_start)
+  {
+    final int[] envelopes = this.block_envelope[operator];
+    final int ams = this.channel_ams[channel];
+    final int tl = this.slot_tl[slot];
+    final int am_mask = this.slot_am_mask[slot];
+    final int eg_count_end = eg_count_start + this.block_eg_tick_count;
+
+    int eg_state = this.slot_state[slot];
+    int eg_shift = this.envelopeShift(slot, eg_state);
+    int eg_select = this.envelopeSelect(slot, eg_state);
+    int volume = this.slot_volume[slot];
+    int eg_count_now = eg_count_start + 1;
+    int start = 0;
+
+    while (eg_state != EG_OFF) {
+      final int mask = (1 << eg_shift) - 1;
+      eg_count_now = (eg_count_now + mask) & ~mask;
+      if (eg_count_now - eg_count_end > 0) {
+        break;
+      }
+
+      final int end = this.block_eg_ticks[eg_count_now - eg_count_start - 1] + 1;
+      this.fillEnvelopes(envelopes, start, end, volume + tl, ams, am_mask);
+      start = end;
+
+      final int increment = EG_INC[eg_select + ((eg_count_now >> eg_shift) & 7)];
+      if (eg_state == EG_ATT) {
+        volume += (~volume * increment) >> 4;
+      } else {
+        volume += increment;
+      }
+
+      final int eg_state_next = this.envelopeNext(slot, eg_state, volume);
+      volume = envelopeClamp(eg_state, volume);
+      if (eg_state_next != eg_state) {
+        eg_state = eg_state_next;
+        eg_shift = this.envelopeShift(slot, eg_state);
+        eg_select = this.envelopeSelect(slot, eg_state);
+      }
+      ++eg_count_now;
+    }
+
+    this.fillEnvelopes(envelopes, start, count, volume + tl, ams, am_mask);
+    this.slot_state[slot] = eg_state;
+    this.slot_volume[slot] = volume;
+  }
+
+  private void fillEnvelopes(
+    final int[] envelopes,
+    final int start,
+    final int end,
+    final int attenuation,
+    final int ams,
+    final int am_mask)
+  {
+    if (am_mask == 0) {
+      for (int index = start; index < end; ++index) {
+        envelopes[index] = attenuation;
+      }
+    } else {
+      for (int index = start; index < end; ++index) {
+        envelopes[index] = attenuation + ((this.block_lfo_am[index] >> ams) & am_mask);
+      }
+    }
+  }
+
+  /*
+   * Evaluate S1 for each sample of the block, recording the (delayed)
+   * output of S1 that is used as the input to the other operators.
+   */
+
+  private void renderFeedback(
+    final int channel,
+    final int count)
+  {
+    final int[] phases = this.block_phase[OPERATOR_S1];
+    final int[] envelopes = this.block_envelope[OPERATOR_S1];
+    final int feedback = this.channel_feedback[channel];
+
+    int op1_out_0 = this.channel_op1_out_0[channel];
+    int op1_out_1 = this.channel_op1_out_1[channel];
+    for (int index = 0; index < count; ++index) {
+      final int feedback_input = op1_out_0 + op1_out_1;
+      this.block_op1[index] = op1_out_1;
+      op1_out_0 = op1_out_1;
+      op1_out_1 = operatorFeedback(
+        phases[index],
+        envelopes[index],
+        feedback != 0 ? feedback_input << feedback : 0);
+    }
+
+    this.channel_op1_out_0[channel] = op1_out_0;
+    this.channel_op1_out_1[channel] = op1_out_1;
+  }
+
+  // CHECKSTYLE:OFF
+  private void renderAlgorithm(
+    final int channel,
+    final int count)
+  {
+    final int[] out = this.block_output;
+    final int out_base = channel * BLOCK_SIZE;
+    final int[] op1 = this.block_op1;
+    final int[] mem = this.block_memory;
+    final int[] c2 = this.block_carrier;
+    final int[] temp = this.block_temporary;
+    final int[] zero = this.block_zero;
+
+    switch (this.channel_algorithm[channel]) {
+      case 0: {
+        this.evaluate(OPERATOR_S2, op1, 0, mem, 1, count);
+        this.evaluate(OPERATOR_S3, mem, 0, c2, 0, count);
+        this.evaluate(OPERATOR_S4, c2, 0, out, out_base, count);
+        break;
+      }
+      case 1: {
+        this.evaluate(OPERATOR_S2, zero, 0, mem, 1, count);
+        accumulate(mem, 1, op1, count);
+        this.evaluate(OPERATOR_S3, mem, 0, c2, 0, count);
+        this.evaluate(OPERATOR_S4, c2, 0, out, out_base, count);
+        break;
+      }
+      case 2: {
+        this.evaluate(OPERATOR_S2, zero, 0, mem, 1, count);
+        this.evaluate(OPERATOR_S3, mem, 0, c2, 0, count);
+        accumulate(c2, 0, op1, count);
+        this.evaluate(OPERATOR_S4, c2, 0, out, out_base, count);
+        break;
+      }
+      case 3: {
+        this.evaluate(OPERATOR_S2, op1, 0, mem, 1, count);
+        this.evaluate(OPERATOR_S3, zero, 0, c2, 0, count);
+        accumulate(c2, 0, mem, count);
+        this.evaluate(OPERATOR_S4, c2, 0, out, out_base, count);
+        break;
+      }
+      case 4: {
+        this.evaluate(OPERATOR_S3, zero, 0, c2, 0, count);
+        this.evaluate(OPERATOR_S4, c2, 0, out, out_base, count);
+        this.evaluate(OPERATOR_S2, op1, 0, temp, 0, count);
+        accumulate(out, out_base, temp, count);
+        mem[count] = mem[0];
+        break;
+      }
+      case 5: {
+        System.arraycopy(op1, 0, mem, 1, count);
+        this.evaluate(OPERATOR_S3, mem, 0, out, out_base, count);
+        this.evaluate(OPERATOR_S2, op1, 0, temp, 0, count);
+        accumulate(out, out_base, temp, count);
+        this.evaluate(OPERATOR_S4, op1, 0, temp, 0, count);
+        accumulate(out, out_base, temp, count);
+        break;
+      }
+      case 6: {
+        this.evaluate(OPERATOR_S3, zero, 0, out, out_base, count);
+        this.evaluate(OPERATOR_S2, op1, 0, temp, 0, count);
+        accumulate(out, out_base, temp, count);
+        this.evaluate(OPERATOR_S4, zero, 0, temp, 0, count);
+        accumulate(out, out_base, temp, count);
+        mem[count] = mem[0];
+        break;
+      }
+      default: {
+        this.evaluate(OPERATOR_S3, zero, 0, out, out_base, count);
+        this.evaluate(OPERATOR_S2, zero, 0, temp, 0, count);
+        accumulate(out, out_base, temp, count);
+        this.evaluate(OPERATOR_S4, zero, 0, temp, 0, count);
+        accumulate(out, out_base, temp, count);
+        accumulate(out, out_base, op1, count);
+        mem[count] = mem[0];
+        break;
+      }
+    }
+  }
+  // CHECKSTYLE:ON
+
+  private void evaluate(
+    final int operator,
+    final int[] modulation,
+    final int modulation_offset,
+    final int[] output,
+    final int output_offset,
+    final int count)
+  {
+    this.kernel.evaluate(
+      this.block_phase[operator],
+      this.block_envelope[operator],
+      modulation,
+      modulation_offset,
+      output,
+      output_offset,
+      count);
+  }
+
+  private static void accumulate(
+    final int[] target,
+    final int target_offset,
+    final int[] source,
+    final int count)
+  {
+    for (int index = 0; index < count; ++index) {
+      target[target_offset + index] += source[index];
+    }
+  }
+
+  /*
+   * Calculate the phase increment of a slot under LFO phase modulation.
+   */
+
+  private int modulatedIncrement(
+    final int slot,
+    final int pms,
+    final int pm)
+  {
+    final int block_fnum = this.slot_block_fnum[slot];
+    final int pm_offset =
+      LFO_PM_TABLE[(((block_fnum & 0x7f0) >>> 4) * 32 * 8) + pms + pm];
+
+    if (pm_offset == 0) {
+      return this.slot_incr[slot];
+    }
+
+    final int modulated = (block_fnum * 2) + pm_offset;
+    final int block = (modulated & 0x7000) >>> 12;
+    final int fnum = modulated & 0xfff;
+    final int key_code = (block << 2) | FK_TABLE[fnum >>> 8];
+
+    int fc = (this.fn_table[fnum] >> (7 - block)) + this.dt_table[this.slot_dt[slot] + key_code];
+    if (fc < 0) {
+      fc += this.fn_max;
+    }
+    return (fc * this.slot_mul[slot]) >> 1;
+  }
+
+  /*
+   * The envelope generator. In each state, the attenuation is adjusted
+   * once every {@code 2^shift} envelope clock ticks, by an increment that
+   * depends on the rate of the state. The attack state moves exponentially
+   * towards minimum attenuation, and the other states move linearly
+   * towards maximum attenuation.
+   */
+
+  private int envelopeShift(
+    final int slot,
+    final int eg_state)
+  {
+    switch (eg_state) {
+      case EG_ATT:
+        return this.slot_eg_sh_ar[slot];
+      case EG_DEC:
+        return this.slot_eg_sh_d1r[slot];
+      case EG_SUS:
+        return this.slot_eg_sh_d2r[slot];
+      case EG_REL:
+        return this.slot_eg_sh_rr[slot];
+      default:
+        return 0;
+    }
+  }
+
+  private int envelopeSelect(
+    final int slot,
+    final int eg_state)
+  {
+    switch (eg_state) {
+      case EG_ATT:
+        return this.slot_eg_sel_ar[slot];
+      case EG_DEC:
+        return this.slot_eg_sel_d1r[slot];
+      case EG_SUS:
+        return this.slot_eg_sel_d2r[slot];
+      case EG_REL:
+        return this.slot_eg_sel_rr[slot];
+      default:
+        return 0;
+    }
+  }
+
+  private int envelopeNext(
+    final int slot,
+    final int eg_state,
+    final int volume)
+  {
+    switch (eg_state) {
+      case EG_ATT:
+        return volume <= MIN_ATT_INDEX ? EG_DEC : EG_ATT;
+      case EG_DEC:
+        return volume >= this.slot_sl[slot] ? EG_SUS : EG_DEC;
+      case EG_REL:
+        return volume >= MAX_ATT_INDEX ? EG_OFF : EG_REL;
+      default:
+        return eg_state;
+    }
+  }
+
+  private static int envelopeClamp(
+    final int eg_state,
+    final int volume)
+  {
+    switch (eg_state) {
+      case EG_ATT:
+        return Math.max(MIN_ATT_INDEX, volume);
+      case EG_SUS:
+      case EG_REL:
+        return Math.min(MAX_ATT_INDEX, volume);
+      default:
+        return volume;
+    }
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A trivial builder for constructing VGM files in memory.
+ */
+
+public final class VGMTestFileBuilder
+{
+  private final ByteArrayOutputStream commands;
+  private final int version;
+  private int header_size;
+  private long samples;
+  private long loop_offset;
+  private long loop_samples;
+  private byte[] gd3;
+  private final Map<Integer, Integer> header_ints;
+
+  /**
+   * Construct a builder.
+   *
+   * @param in_version The format version
+   */
+
+  public VGMTestFileBuilder(
+    final int in_version)
+  {
+    this.version = in_version;
+    this.header_size = 0x40;
+    this.commands = new ByteArrayOutputStream();
+    this.header_ints = new TreeMap<>();
+  }
+
+  /**
+   * Construct a version 1.50 file containing {@code seed} repetitions of
+   * a pair of YM2612 register writes followed by a 735 sample wait. The
+   * written values depend on the repetition, and so the file produces
+   * preset changes when interpreted.
+   *
+   * @param seed The number of repetitions
+   *
+   * @return A complete file
+   */
+
+  public static byte[] ym2612File(
+    final int seed)
+  {
+    final VGMTestFileBuilder builder =
+      new VGMTestFileBuilder(0x150).samples((long) seed * 735L);
+    for (int index = 0; index < seed; ++index) {
+      builder.bytes(0x52, 0xb0, index & 0x7);
+      builder.bytes(0x53, 0x40, index & 0x7f);
+      builder.bytes(0x62);
+    }
+    return builder.bytes(0x66).build();
+  }
+
+  /**
+   * Set a 32-bit header field. Fields set in this manner take precedence
+   * over the fields set by the builder itself.
+   *
+   * @param offset The offset of the field
+   * @param value  The value
+   *
+   * @return this
+   */
+
+  public VGMTestFileBuilder headerInt(
+    final int offset,
+    final int value)
+  {
+    this.header_ints.put(Integer.valueOf(offset), Integer.valueOf(value));
+    return this;
+  }
+
+  /**
+   * Set the size of the header (the offset of the command data).
+   *
+   * @param size The size
+   *
+   * @return this
+   */
+
+  public VGMTestFileBuilder headerSize(
+    final int size)
+  {
+    this.header_size = size;
+    return this;
+  }
+
+  /**
+   * Mark the current position as the loop point.
+   *
+   * @param in_loop_samples The number of samples in the loop
+   *
+   * @return this
+   */
+
+  public VGMTestFileBuilder loopHere(
+    final long in_loop_samples)
+  {
+    this.loop_offset = (long) (this.header_size + this.commands.size());
+    this.loop_samples = in_loop_samples;
+    return this;
+  }
+
+  /**
+   * Set the total sample count.
+   *
+   * @param in_samples The sample count
+   *
+   * @return this
+   */
+
+  public VGMTestFileBuilder samples(
+    final long in_samples)
+  {
+    this.samples = in_samples;
+    return this;
+  }
+
+  /**
+   * Append raw bytes to the command stream.
+   *
+   * @param data The bytes
+   *
+   * @return this
+   */
+
+  public VGMTestFileBuilder bytes(
+    final int... data)
+  {
+    for (final int x : data) {
+      this.commands.write(x);
+    }
+    return this;
+  }
+
+  /**
+   * Append a GD3 tag containing the given strings to the end of the file.
+   *
+   * @param strings The tag strings
+   *
+   * @return this
+   */
+
+  public VGMTestFileBuilder gd3(
+    final String... strings)
+  {
+    final ByteArrayOutputStream text = new ByteArrayOutputStream();
+    for (final String string : strings) {
+      final byte[] bytes = string.getBytes(StandardCharsets.UTF_16LE);
+      text.write(bytes, 0, bytes.length);
+      text.write(0);
+      text.write(0);
+    }
+
+    final byte[] data = text.toByteArray();
+    final ByteBuffer tag =
+      ByteBuffer.allocate(12 + data.length)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    tag.put(0, (byte) 0x47);
+    tag.put(1, (byte) 0x64);
+    tag.put(2, (byte) 0x33);
+    tag.put(3, (byte) 0x20);
+    tag.putInt(4, 0x100);
+    tag.putInt(8, data.length);
+    for (int index = 0; index < data.length; ++index) {
+      tag.put(12 + index, data[index]);
+    }
+    this.gd3 = tag.array();
+    return this;
+  }
+
+  /**
+   * @return The current size of the command stream
+   */
+
+  public int commandSize()
+  {
+    return this.commands.size();
+  }
+
+  /**
+   * @return A complete file
+   */
+
+  public byte[] build()
+  {
+    final byte[] body = this.commands.toByteArray();
+    final int gd3_size = this.gd3 == null ? 0 : this.gd3.length;
+    final ByteBuffer buffer =
+      ByteBuffer.allocate(this.header_size + body.length + gd3_size)
+        .order(ByteOrder.LITTLE_ENDIAN);
+
+    buffer.put(0, (byte) 0x56);
+    buffer.put(1, (byte) 0x67);
+    buffer.put(2, (byte) 0x6d);
+    buffer.put(3, (byte) 0x20);
+    buffer.putInt(0x04, buffer.capacity() - 0x04);
+    buffer.putInt(0x08, this.version);
+    buffer.putInt(0x0c, 3579545);
+    buffer.putInt(0x18, (int) this.samples);
+    if (this.loop_offset > 0L) {
+      buffer.putInt(0x1c, (int) (this.loop_offset - 0x1cL));
+    }
+    buffer.putInt(0x20, (int) this.loop_samples);
+    buffer.putInt(0x24, 60);
+    buffer.putShort(0x28, (short) 9);
+    buffer.put(0x2a, (byte) 16);
+    buffer.putInt(0x2c, 7670453);
+    buffer.putInt(0x34, this.header_size - 0x34);
+    this.header_ints.forEach(
+      (offset, value) -> buffer.putInt(offset.intValue(), value.intValue()));
+
+    for (int index = 0; index < body.length; ++index) {
+      buffer.put(this.header_size + index, body[index]);
+    }
+
+    if (this.gd3 != null) {
+      final int gd3_offset = this.header_size + body.length;
+      buffer.putInt(0x14, gd3_offset - 0x14);
+      for (int index = 0; index < this.gd3.length; ++index) {
+        buffer.put(gd3_offset + index, this.gd3[index]);
+      }
+    }
+    return buffer.array();
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.cmdline;
+
+import com.io7m.jvgm.cmdline.JVGMBatch;
+import com.io7m.jvgm.cmdline.JVGMBatchFileResult;
+import com.io7m.jvgm.cmdline.JVGMBatchSummary;
+import com.io7m.jvgm.cmdline.JVGMStats;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import static com.io7m.jvgm.tests.VGMTestFileBuilder.ym2612File;
+
+public final class JVGMBatchTest
+{
+  @Test
+  public void testBatch(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final List<Path> files = new ArrayList<>();
+    for (int index = 0; index < 40; ++index) {
+      final Path path = directory.resolve(String.format("f%02d.vgm", index));
+      Files.write(path, ym2612File(index));
+      files.add(path);
+    }
+
+    final Path compressed = directory.resolve("compressed.vgz");
+    try (OutputStream out =
+           new GZIPOutputStream(Files.newOutputStream(compressed))) {
+      out.write(ym2612File(10));
+    }
+    files.add(compressed);
+
+    final Path broken = directory.resolve("broken.vgm");
+    Files.write(broken, new byte[]{0x1, 0x2, 0x3, 0x4});
+    files.add(broken);
+
+    final Path missing = directory.resolve("missing.vgm");
+    files.add(missing);
+
+    final Map<Path, JVGMBatchFileResult> received = new ConcurrentHashMap<>();
+    final JVGMBatchSummary summary =
+      new JVGMBatch(3, 2, false)
+        .run(files.iterator(), result -> received.put(result.path(), result));
+
+    Assertions.assertEquals(43L, summary.files());
+    Assertions.assertEquals(2L, summary.failed());
+    Assertions.assertEquals(43, received.size());
+
+    Assertions.assertFalse(received.get(broken).succeeded());
+    Assertions.assertFalse(received.get(broken).errors().isEmpty());
+    Assertions.assertFalse(received.get(missing).succeeded());
+
+    final JVGMBatchFileResult f10 = received.get(directory.resolve("f10.vgm"));
+    Assertions.assertTrue(f10.succeeded());
+    Assertions.assertEquals(7350L, f10.samples());
+    Assertions.assertEquals(31L, f10.commands());
+    Assertions.assertEquals(20L, f10.registerWrites());
+
+    final JVGMBatchFileResult gz = received.get(compressed);
+    Assertions.assertTrue(gz.succeeded());
+    Assertions.assertEquals(f10.commands(), gz.commands());
+    Assertions.assertEquals(f10.registerWrites(), gz.registerWrites());
+    Assertions.assertEquals(f10.presetChanges(), gz.presetChanges());
+
+    long writes = 0L;
+    for (int index = 0; index < 40; ++index) {
+      writes += 2L * (long) index;
+    }
+    Assertions.assertEquals(writes + 20L, summary.registerWrites());
+  }
+
+  @Test
+  public void testReuseIsIndependent(
+    final @TempDir Path directory)
+    throws IOException, InterruptedException
+  {
+    final Path path = directory.resolve("f.vgm");
+    Files.write(path, ym2612File(16));
+
+    final List<Path> files = new ArrayList<>();
+    for (int index = 0; index < 8; ++index) {
+      files.add(path);
+    }
+
+    final List<JVGMBatchFileResult> received = new ArrayList<>();
+    new JVGMBatch(1, 1, false).run(files.iterator(), received::add);
+
+    Assertions.assertEquals(8, received.size());
+    for (final JVGMBatchFileResult result : received) {
+      Assertions.assertTrue(result.succeeded());
+      Assertions.assertEquals(
+        received.get(0).presetChanges(), result.presetChanges());
+    }
+    Assertions.assertTrue(received.get(0).presetChanges() > 0L);
+  }
+
+  @Test
+  public void testJobExceptionRecordedAsFailure(
+    final @TempDir Path directory)
+    throws IOException, InterruptedException
+  {
+    final Path good = directory.resolve("good.vgm");
+    final Path bad = directory.resolve("bad.vgm");
+    Files.write(good, ym2612File(4));
+    Files.write(bad, ym2612File(4));
+
+    final Map<Path, JVGMBatchFileResult> received = new ConcurrentHashMap<>();
+    final JVGMBatchSummary summary =
+      new JVGMBatch(1, 1, false)
+        .run(List.of(good, bad).iterator(), result -> {
+          if (result.path().equals(bad) && result.succeeded()) {
+            throw new IllegalStateException("Receiver failed");
+          }
+          received.put(result.path(), result);
+        });
+
+    Assertions.assertEquals(2L, summary.files());
+    Assertions.assertEquals(1L, summary.failed());
+    Assertions.assertTrue(received.get(good).succeeded());
+    Assertions.assertFalse(received.get(bad).succeeded());
+    Assertions.assertEquals(
+      List.of("Receiver failed"), received.get(bad).errors());
+    Assertions.assertEquals(
+      List.of("Receiver failed"), summary.failures().get(0).errors());
+  }
+
+  @Test
+  public void testStatsReceiverExceptionNotMerged(
+    final @TempDir Path directory)
+    throws IOException, InterruptedException
+  {
+    final Path good = directory.resolve("good.vgm");
+    final Path bad = directory.resolve("bad.vgm");
+    Files.write(good, ym2612File(4));
+    Files.write(bad, ym2612File(4));
+
+    final JVGMStats total = new JVGMStats();
+    final JVGMBatchSummary summary =
+      new JVGMBatch(1, 1, false)
+        .stats(List.of(good, bad).iterator(), total, (result, stats) -> {
+          if (result.path().equals(bad) && result.succeeded()) {
+            throw new IllegalStateException("Receiver failed");
+          }
+        });
+
+    final JVGMStats single = new JVGMStats();
+    new JVGMBatch(1, 1, false)
+      .stats(List.of(good).iterator(), single, (result, stats) -> {
+      });
+
+    Assertions.assertEquals(1L, summary.failed());
+    Assertions.assertEquals(single.files(), total.files());
+    Assertions.assertEquals(single.commands(), total.commands());
+    Assertions.assertEquals(single.waitSamples(), total.waitSamples());
+  }
+
+  @Test
+  public void testInvalidLimits()
+  {
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> new JVGMBatch(0, 1, false));
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> new JVGMBatch(1, 0, false));
+  }
+}
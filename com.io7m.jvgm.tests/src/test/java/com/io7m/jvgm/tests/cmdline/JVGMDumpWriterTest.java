@@ -0,0 +1,168 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.cmdline;
+
+import com.io7m.jvgm.cmdline.JVGMDumpFormat;
+import com.io7m.jvgm.cmdline.JVGMDumpWriter;
+import com.io7m.jvgm.parser.api.VGMCommandBuffer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+public final class JVGMDumpWriterTest
+{
+  private static VGMCommandBuffer commands()
+  {
+    final VGMCommandBuffer commands = new VGMCommandBuffer(16);
+    commands.append(0x67, 0x40L, (0x01L << 32) | 0x10L);
+    commands.append(0x52, 0x50L, 0x28f0L);
+    commands.append(0x50, 0x53L, 0x9fL);
+    commands.append(0x62, 0x55L, 735L);
+    commands.append(0x83, 0x56L, 3L);
+    commands.append(0xe0, 0x57L, 0x1234L);
+    commands.append(0x66, 0x5cL, 0L);
+    return commands;
+  }
+
+  private static byte[] dump(
+    final JVGMDumpFormat format,
+    final VGMCommandBuffer commands,
+    final int size)
+    throws IOException
+  {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    final JVGMDumpWriter writer =
+      new JVGMDumpWriter(format, Channels.newChannel(output), size);
+    writer.write(commands);
+    writer.flush();
+    return output.toByteArray();
+  }
+
+  private static String dumpText(
+    final JVGMDumpFormat format)
+    throws IOException
+  {
+    return new String(
+      dump(format, commands(), JVGMDumpWriter.DEFAULT_BUFFER_SIZE),
+      StandardCharsets.US_ASCII);
+  }
+
+  @Test
+  public void testText()
+    throws IOException
+  {
+    Assertions.assertEquals(
+      "00000040 DATA_BLOCK 0x01 16\n"
+        + "00000050 YM2612_WRITE_PORT_0 0x28 0xf0\n"
+        + "00000053 PSG_WRITE 0x9f\n"
+        + "00000055 WAIT_735 735\n"
+        + "00000056 YM2612_PCM_WRITE_WAIT_3 3\n"
+        + "00000057 YM2612_SEEK_PCM 0x1234\n"
+        + "0000005c END_OF_SOUND_DATA\n",
+      dumpText(JVGMDumpFormat.TEXT));
+  }
+
+  @Test
+  public void testCSV()
+    throws IOException
+  {
+    Assertions.assertEquals(
+      "offset,opcode,type,register,value,samples\n"
+        + "64,103,DATA_BLOCK,1,16,\n"
+        + "80,82,YM2612_WRITE_PORT_0,40,240,\n"
+        + "83,80,PSG_WRITE,,159,\n"
+        + "85,98,WAIT_735,,,735\n"
+        + "86,131,YM2612_PCM_WRITE_WAIT_3,,,3\n"
+        + "87,224,YM2612_SEEK_PCM,,4660,\n"
+        + "92,102,END_OF_SOUND_DATA,,,\n",
+      dumpText(JVGMDumpFormat.CSV));
+  }
+
+  @Test
+  public void testJSONL()
+    throws IOException
+  {
+    final String[] lines = dumpText(JVGMDumpFormat.JSONL).split("\n");
+    Assertions.assertEquals(7, lines.length);
+    Assertions.assertEquals(
+      "{\"offset\":80,\"opcode\":82,\"type\":\"YM2612_WRITE_PORT_0\",\"register\":40,\"value\":240}",
+      lines[1]);
+    Assertions.assertEquals(
+      "{\"offset\":85,\"opcode\":98,\"type\":\"WAIT_735\",\"samples\":735}",
+      lines[3]);
+    Assertions.assertEquals(
+      "{\"offset\":92,\"opcode\":102,\"type\":\"END_OF_SOUND_DATA\"}",
+      lines[6]);
+  }
+
+  @Test
+  public void testBinary()
+    throws IOException
+  {
+    final ByteBuffer data =
+      ByteBuffer.wrap(dump(JVGMDumpFormat.BINARY, commands(), 256))
+        .order(ByteOrder.LITTLE_ENDIAN);
+
+    Assertions.assertEquals(7 * 16, data.capacity());
+
+    Assertions.assertEquals(0x40, data.getInt(0));
+    Assertions.assertEquals(0x67, data.get(4) & 0xff);
+    Assertions.assertEquals(0x01, data.get(5) & 0xff);
+    Assertions.assertEquals(16, data.getInt(8));
+
+    Assertions.assertEquals(0x50, data.getInt(16));
+    Assertions.assertEquals(0x52, data.get(20) & 0xff);
+    Assertions.assertEquals(0x28, data.get(21) & 0xff);
+    Assertions.assertEquals(0xf0, data.getInt(24));
+    Assertions.assertEquals(0, data.getInt(28));
+
+    Assertions.assertEquals(0x62, data.get(52) & 0xff);
+    Assertions.assertEquals(735, data.getInt(60));
+  }
+
+  @Test
+  public void testSmallBufferDrains()
+    throws IOException
+  {
+    final VGMCommandBuffer commands = new VGMCommandBuffer(1000);
+    for (int index = 0; index < 1000; ++index) {
+      commands.append(0x53, (long) index * 3L, 0x4000L | (long) (index & 0x7f));
+    }
+
+    for (final JVGMDumpFormat format : JVGMDumpFormat.values()) {
+      Assertions.assertArrayEquals(
+        dump(format, commands, JVGMDumpWriter.DEFAULT_BUFFER_SIZE),
+        dump(format, commands, 256),
+        format.name());
+    }
+  }
+
+  @Test
+  public void testBufferTooSmall()
+  {
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> new JVGMDumpWriter(
+        JVGMDumpFormat.TEXT, Channels.newChannel(new ByteArrayOutputStream()), 16));
+  }
+}
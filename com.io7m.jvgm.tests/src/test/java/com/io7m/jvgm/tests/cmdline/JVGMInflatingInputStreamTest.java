@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.cmdline;
+
+import com.io7m.jvgm.cmdline.JVGMInflatingInputStream;
+import com.io7m.jvgm.cmdline.JVGMInputStreams;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+public final class JVGMInflatingInputStreamTest
+{
+  private static byte[] data(
+    final int size)
+  {
+    final byte[] data = new byte[size];
+    final Random random = new Random(0x5eedL);
+    for (int index = 0; index < size; ++index) {
+      data[index] = (byte) (random.nextInt(16) + (index & 0x3));
+    }
+    return data;
+  }
+
+  private static byte[] compress(
+    final byte[] data)
+    throws IOException
+  {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+      gzip.write(data);
+    }
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testRoundTrip()
+    throws IOException
+  {
+    final byte[] data = data(300000);
+
+    try (InputStream stream = new JVGMInflatingInputStream(
+      new ByteArrayInputStream(compress(data)), 2, 1000)) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      out.write(stream.read());
+      out.write(stream.read());
+      final byte[] buffer = new byte[777];
+      while (true) {
+        final int r = stream.read(buffer, 0, buffer.length);
+        if (r == -1) {
+          break;
+        }
+        out.write(buffer, 0, r);
+      }
+      Assertions.assertArrayEquals(data, out.toByteArray());
+      Assertions.assertEquals(-1, stream.read());
+    }
+  }
+
+  @Test
+  public void testExactBufferMultiple()
+    throws IOException
+  {
+    final byte[] data = data(4096);
+
+    try (InputStream stream = new JVGMInflatingInputStream(
+      new ByteArrayInputStream(compress(data)), 2, 1024)) {
+      Assertions.assertArrayEquals(data, stream.readAllBytes());
+    }
+  }
+
+  @Test
+  public void testTruncated()
+    throws IOException
+  {
+    final byte[] compressed = compress(data(100000));
+    final byte[] truncated =
+      Arrays.copyOf(compressed, compressed.length / 2);
+
+    try (InputStream stream = new JVGMInflatingInputStream(
+      new ByteArrayInputStream(truncated))) {
+      Assertions.assertThrows(IOException.class, stream::readAllBytes);
+    }
+  }
+
+  @Test
+  public void testCloseEarly()
+    throws IOException
+  {
+    final byte[] data = data(1000000);
+
+    final InputStream stream = new JVGMInflatingInputStream(
+      new ByteArrayInputStream(compress(data)), 2, 1024);
+    Assertions.assertEquals((int) data[0] & 0xff, stream.read());
+    stream.close();
+  }
+
+  @Test
+  public void testOpenDetectsCompression()
+    throws IOException
+  {
+    final byte[] data = data(10000);
+    final Path plain = Files.createTempFile("jvgm-", ".vgm");
+    final Path packed = Files.createTempFile("jvgm-", ".vgz");
+
+    try {
+      Files.write(plain, data);
+      Files.write(packed, compress(data));
+
+      try (InputStream stream = JVGMInputStreams.open(plain, false)) {
+        Assertions.assertArrayEquals(data, stream.readAllBytes());
+      }
+      try (InputStream stream = JVGMInputStreams.open(packed, false)) {
+        Assertions.assertArrayEquals(data, stream.readAllBytes());
+      }
+      try (InputStream stream = JVGMInputStreams.open(packed, true)) {
+        Assertions.assertArrayEquals(data, stream.readAllBytes());
+      }
+    } finally {
+      Files.deleteIfExists(plain);
+      Files.deleteIfExists(packed);
+    }
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.cmdline;
+
+import com.io7m.jvgm.cmdline.JVGMBatch;
+import com.io7m.jvgm.cmdline.JVGMBatchSummary;
+import com.io7m.jvgm.cmdline.JVGMPresetStore;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612Callbacks;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612Interpreter;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612PackedSnapshot;
+import com.io7m.jvgm.tests.VGMTestFileBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.io7m.jvgm.tests.VGMTestFileBuilder.ym2612File;
+
+public final class JVGMPresetStoreTest
+{
+  private static VGMYM2612PackedSnapshot snapshot(
+    final int algorithm)
+  {
+    final VGMYM2612Interpreter interp =
+      new VGMYM2612Interpreter(VGMYM2612Callbacks.builder().build());
+    final VGMYM2612PackedSnapshot packed = new VGMYM2612PackedSnapshot();
+    for (int channel = 0; channel < 3; ++channel) {
+      interp.writeRegisterPort0(0xb0 + channel, algorithm);
+      interp.writeRegisterPort0(0x30 + channel, 0x71);
+      interp.channel(channel).snapshotInto(packed);
+    }
+    return packed;
+  }
+
+  @Test
+  public void testDeduplicates(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    final Path path = directory.resolve("presets.bin");
+    final VGMYM2612PackedSnapshot s0 = snapshot(0x32);
+    final VGMYM2612PackedSnapshot s1 = snapshot(0x33);
+
+    try (JVGMPresetStore store = JVGMPresetStore.open(path)) {
+      final int a = store.source("a.vgm");
+      final int b = store.source("b.vgm");
+      Assertions.assertEquals(a, store.source("a.vgm"));
+      Assertions.assertNotEquals(a, b);
+
+      final int p0 = store.add(a, 0, 0L, s0);
+      Assertions.assertEquals(p0, store.add(a, 1, 100L, s0));
+      Assertions.assertEquals(p0, store.add(b, 2, 200L, s0));
+      final int p1 = store.add(b, 0, 300L, s1);
+      Assertions.assertNotEquals(p0, p1);
+
+      Assertions.assertEquals(2, store.presetCount());
+      Assertions.assertEquals(2, store.sourceCount());
+      Assertions.assertEquals(4L, store.occurrenceCount());
+    }
+
+    try (JVGMPresetStore store = JVGMPresetStore.open(path)) {
+      Assertions.assertEquals(2, store.presetCount());
+      Assertions.assertEquals(2, store.sourceCount());
+      Assertions.assertEquals(4L, store.occurrenceCount());
+
+      final int c = store.source("c.vgm");
+      Assertions.assertEquals(2, c);
+      Assertions.assertEquals(1, store.source("b.vgm"));
+      Assertions.assertEquals(1, store.add(c, 1, 0L, s1));
+      Assertions.assertEquals(2, store.presetCount());
+      Assertions.assertEquals(5L, store.occurrenceCount());
+    }
+  }
+
+  @Test
+  public void testManyPresets(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    final Path path = directory.resolve("presets.bin");
+    final VGMYM2612Interpreter interp =
+      new VGMYM2612Interpreter(VGMYM2612Callbacks.builder().build());
+    final VGMYM2612PackedSnapshot packed = new VGMYM2612PackedSnapshot();
+
+    try (JVGMPresetStore store = JVGMPresetStore.open(path)) {
+      final int source = store.source("a.vgm");
+      for (int round = 0; round < 2; ++round) {
+        for (int value = 0; value < 0x1000; ++value) {
+          interp.writeRegisterPort0(0x30, value & 0x7f);
+          interp.writeRegisterPort0(0x40, (value >>> 7) & 0x7f);
+          interp.channel(0).snapshotInto(packed);
+          Assertions.assertEquals(value, store.add(source, 0, value, packed));
+        }
+      }
+      Assertions.assertEquals(0x1000, store.presetCount());
+      Assertions.assertEquals(0x2000L, store.occurrenceCount());
+    }
+
+    try (JVGMPresetStore store = JVGMPresetStore.open(path)) {
+      Assertions.assertEquals(0x1000, store.presetCount());
+      Assertions.assertEquals(0x2000L, store.occurrenceCount());
+    }
+  }
+
+  @Test
+  public void testIncompleteRecordDiscarded(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    final Path path = directory.resolve("presets.bin");
+    try (JVGMPresetStore store = JVGMPresetStore.open(path)) {
+      store.add(store.source("a.vgm"), 0, 0L, snapshot(0x32));
+    }
+
+    final long size = Files.size(path);
+    Files.write(
+      path, new byte[]{0x3, 0x0, 0x0}, StandardOpenOption.APPEND);
+
+    try (JVGMPresetStore store = JVGMPresetStore.open(path)) {
+      Assertions.assertEquals(1, store.presetCount());
+      Assertions.assertEquals(1L, store.occurrenceCount());
+    }
+    Assertions.assertEquals(size, Files.size(path));
+  }
+
+  @Test
+  public void testNotAStore(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    final Path path = directory.resolve("presets.bin");
+    Files.write(path, new byte[32]);
+    Assertions.assertThrows(IOException.class, () -> JVGMPresetStore.open(path));
+  }
+
+  /**
+   * Read the source and time of every occurrence record in a store.
+   */
+
+  private static List<long[]> occurrences(
+    final Path path)
+    throws IOException
+  {
+    final ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+    data.position(16);
+
+    final List<long[]> out = new ArrayList<>();
+    while (data.hasRemaining()) {
+      switch (data.get()) {
+        case 1: {
+          final int length = data.getInt();
+          data.position(data.position() + length);
+          break;
+        }
+        case 2:
+          data.position(data.position() + (8 * VGMYM2612PackedSnapshot.WORDS_PER_CHANNEL));
+          break;
+        case 3: {
+          data.getInt();
+          final int source = data.getInt();
+          data.getInt();
+          out.add(new long[]{source, data.getLong()});
+          break;
+        }
+        default:
+          throw new IllegalStateException("Unrecognized record");
+      }
+    }
+    return out;
+  }
+
+  @Test
+  public void testBatchTimesPerFile(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final Path f0 = directory.resolve("f0.vgm");
+    final Path f1 = directory.resolve("f1.vgm");
+    Files.write(f0, ym2612File(8));
+    Files.write(f1, ym2612File(8));
+
+    final Path path = directory.resolve("presets.bin");
+    try (JVGMPresetStore store = JVGMPresetStore.open(path)) {
+      final JVGMBatchSummary summary =
+        new JVGMBatch(1, 1, false, Optional.of(store))
+          .run(List.of(f0, f1).iterator(), result -> {
+            // Checked below
+          });
+      Assertions.assertEquals(0L, summary.failed());
+    }
+
+    final List<Long> times0 = new ArrayList<>();
+    final List<Long> times1 = new ArrayList<>();
+    for (final long[] occurrence : occurrences(path)) {
+      final List<Long> times = occurrence[0] == 0L ? times0 : times1;
+      times.add(Long.valueOf(occurrence[1]));
+    }
+
+    Assertions.assertFalse(times0.isEmpty());
+    Assertions.assertEquals(times0, times1);
+    for (final Long time : times1) {
+      Assertions.assertTrue(time.longValue() <= 8L * 735L);
+    }
+  }
+
+  @Test
+  public void testBatch(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final List<Path> files = new ArrayList<>();
+    for (int index = 0; index < 8; ++index) {
+      final VGMTestFileBuilder builder =
+        new VGMTestFileBuilder(0x150).samples(735L * 8L);
+      for (int step = 0; step < 8; ++step) {
+        builder.bytes(0x52, 0xb0, step & 0x7);
+        builder.bytes(0x62);
+      }
+      final Path path = directory.resolve(String.format("f%02d.vgm", index));
+      Files.write(path, builder.bytes(0x66).build());
+      files.add(path);
+    }
+
+    final Path path = directory.resolve("presets.bin");
+    try (JVGMPresetStore store = JVGMPresetStore.open(path)) {
+      final JVGMBatchSummary summary =
+        new JVGMBatch(3, 2, false, Optional.of(store))
+          .run(files.iterator(), result -> {
+            // Checked below
+          });
+
+      Assertions.assertEquals(0L, summary.failed());
+      Assertions.assertEquals(8, store.sourceCount());
+      Assertions.assertEquals(summary.presetChanges(), store.occurrenceCount());
+      Assertions.assertTrue(store.presetCount() > 0);
+      Assertions.assertTrue((long) store.presetCount() < store.occurrenceCount());
+    }
+  }
+}
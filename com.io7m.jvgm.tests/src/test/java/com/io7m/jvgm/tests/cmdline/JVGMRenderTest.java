@@ -0,0 +1,273 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.cmdline;
+
+import com.io7m.jvgm.cmdline.JVGMRender;
+import com.io7m.jvgm.tests.VGMTestFileBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+public final class JVGMRenderTest
+{
+  private static final int CLOCK_YM2612 = 7670453;
+  private static final int CLOCK_SN76489 = 3579545;
+
+  /*
+   * A sustained tone on YM2612 channel 1, with a loop of five frames
+   * following five frames of introduction.
+   */
+
+  private static byte[] fmFile()
+  {
+    final VGMTestFileBuilder builder =
+      new VGMTestFileBuilder(0x150)
+        .headerInt(0x2c, CLOCK_YM2612)
+        .samples(735L * 10L);
+
+    builder.bytes(0x52, 0xb0, 0x07);
+    builder.bytes(0x52, 0xb4, 0xc0);
+    for (int op = 0; op < 4; ++op) {
+      final int offset = op * 4;
+      builder.bytes(0x52, 0x30 + offset, 0x01);
+      builder.bytes(0x52, 0x40 + offset, 0x00);
+      builder.bytes(0x52, 0x50 + offset, 0x1f);
+      builder.bytes(0x52, 0x80 + offset, 0x0f);
+    }
+    builder.bytes(0x52, 0xa4, 0x22);
+    builder.bytes(0x52, 0xa0, 0x69);
+    builder.bytes(0x52, 0x28, 0xf0);
+
+    for (int index = 0; index < 5; ++index) {
+      builder.bytes(0x62);
+    }
+    builder.loopHere(735L * 5L);
+    for (int index = 0; index < 5; ++index) {
+      builder.bytes(0x62);
+    }
+    return builder.bytes(0x66).build();
+  }
+
+  private static ByteBuffer wav(
+    final Path path)
+    throws IOException
+  {
+    final ByteBuffer data =
+      ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+
+    Assertions.assertEquals(0x4646_4952, data.getInt(0));
+    Assertions.assertEquals(data.capacity() - 8, data.getInt(4));
+    Assertions.assertEquals(0x4556_4157, data.getInt(8));
+    Assertions.assertEquals(2, (int) data.getShort(22));
+    Assertions.assertEquals(0x6174_6164, data.getInt(36));
+    Assertions.assertEquals(data.capacity() - 44, data.getInt(40));
+    return data;
+  }
+
+  private static int peak(
+    final ByteBuffer data,
+    final int frame_start,
+    final int frame_end)
+  {
+    int peak = 0;
+    for (int frame = frame_start; frame < frame_end; ++frame) {
+      final int offset = 44 + (frame * 4);
+      peak = Math.max(peak, Math.abs((int) data.getShort(offset)));
+      peak = Math.max(peak, Math.abs((int) data.getShort(offset + 2)));
+    }
+    return peak;
+  }
+
+  @Test
+  public void testRender(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    final Path input = directory.resolve("in.vgm");
+    final Path output = directory.resolve("out.wav");
+    Files.write(input, fmFile());
+
+    final long frames =
+      new JVGMRender(44100, 1, 0.0).render(input, false, output).get().longValue();
+
+    Assertions.assertEquals(7350L, frames);
+    final ByteBuffer data = wav(output);
+    Assertions.assertEquals(44100, data.getInt(24));
+    Assertions.assertEquals(7350 * 4, data.getInt(40));
+    Assertions.assertTrue(peak(data, 0, 7350) > 1000);
+  }
+
+  @Test
+  public void testRenderNoFollowLinks(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    final Path input = directory.resolve("in.vgm");
+    final Path victim = directory.resolve("victim.txt");
+    final Path output = directory.resolve("out.wav");
+    Files.write(input, fmFile());
+    Files.writeString(victim, "victim");
+    Files.createSymbolicLink(output, victim);
+
+    Assertions.assertThrows(
+      IOException.class,
+      () -> new JVGMRender(44100, 1, 0.0)
+        .render(input, false, output, LinkOption.NOFOLLOW_LINKS));
+    Assertions.assertEquals("victim", Files.readString(victim));
+  }
+
+  @Test
+  public void testRenderCompressedMatchesMapped(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    final Path input = directory.resolve("in.vgm");
+    final Path compressed = directory.resolve("in.vgz");
+    Files.write(input, fmFile());
+    try (OutputStream out =
+           new GZIPOutputStream(Files.newOutputStream(compressed))) {
+      out.write(fmFile());
+    }
+
+    final JVGMRender render = new JVGMRender(44100, 2, 0.0);
+    final Path output0 = directory.resolve("out0.wav");
+    final Path output1 = directory.resolve("out1.wav");
+    Assertions.assertEquals(
+      render.render(input, false, output0).get(),
+      render.render(compressed, false, output1).get());
+    Assertions.assertArrayEquals(
+      Files.readAllBytes(output0), Files.readAllBytes(output1));
+  }
+
+  @Test
+  public void testRenderSampleRate(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    final Path input = directory.resolve("in.vgm");
+    final Path output = directory.resolve("out.wav");
+    Files.write(input, fmFile());
+
+    final long frames =
+      new JVGMRender(22050, 1, 0.0).render(input, false, output).get().longValue();
+
+    Assertions.assertEquals(3675L, frames);
+    final ByteBuffer data = wav(output);
+    Assertions.assertEquals(22050, data.getInt(24));
+    Assertions.assertEquals(3675 * 4, data.getInt(40));
+  }
+
+  @Test
+  public void testRenderLoops(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    final Path input = directory.resolve("in.vgm");
+    final Path output = directory.resolve("out.wav");
+    Files.write(input, fmFile());
+
+    final long frames =
+      new JVGMRender(44100, 3, 0.0).render(input, false, output).get().longValue();
+
+    Assertions.assertEquals(7350L + (2L * 3675L), frames);
+    final ByteBuffer data = wav(output);
+    Assertions.assertTrue(peak(data, 10000, 11025) > 1000);
+  }
+
+  @Test
+  public void testRenderFade(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    final Path input = directory.resolve("in.vgm");
+    final Path output = directory.resolve("out.wav");
+    Files.write(input, fmFile());
+
+    final long frames =
+      new JVGMRender(44100, 2, 0.1).render(input, false, output).get().longValue();
+
+    Assertions.assertEquals(7350L + 3675L + 4410L, frames);
+    final ByteBuffer data = wav(output);
+    final int full = peak(data, 9000, 11025);
+    final int faded = peak(data, 14000, 15435);
+    Assertions.assertTrue(full > 1000);
+    Assertions.assertTrue(faded < full / 2);
+    Assertions.assertTrue(peak(data, 15430, 15435) < 100);
+  }
+
+  @Test
+  public void testRenderPSG(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    final Path input = directory.resolve("in.vgm");
+    final Path output = directory.resolve("out.wav");
+    Files.write(
+      input,
+      new VGMTestFileBuilder(0x150)
+        .headerInt(0x0c, CLOCK_SN76489)
+        .samples(735L * 2L)
+        .bytes(0x50, 0x8e)
+        .bytes(0x50, 0x0f)
+        .bytes(0x50, 0x90)
+        .bytes(0x62, 0x62, 0x66)
+        .build());
+
+    final long frames =
+      new JVGMRender(44100, 4, 1.0).render(input, false, output).get().longValue();
+
+    Assertions.assertEquals(1470L, frames);
+    final ByteBuffer data = wav(output);
+    Assertions.assertTrue(peak(data, 0, 100) > 1000);
+  }
+
+  @Test
+  public void testRenderBroken(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    final Path input = directory.resolve("in.vgm");
+    Files.write(input, new byte[]{0x1, 0x2, 0x3, 0x4});
+
+    Assertions.assertTrue(
+      new JVGMRender(44100, 1, 0.0)
+        .render(input, false, directory.resolve("out.wav"))
+        .isInvalid());
+  }
+
+  @Test
+  public void testInvalidParameters()
+  {
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> new JVGMRender(0, 1, 0.0));
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> new JVGMRender(44100, 0, 0.0));
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> new JVGMRender(44100, 1, -1.0));
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> new JVGMRender(44100, 1, Double.NaN));
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.cmdline;
+
+import com.io7m.jvgm.cmdline.JVGMServer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.io7m.jvgm.tests.VGMTestFileBuilder.ym2612File;
+
+public final class JVGMServerTest
+{
+  private static Map<String, List<String>> send(
+    final JVGMServer server,
+    final String requests)
+    throws Exception
+  {
+    final Map<String, List<String>> replies = new HashMap<>();
+    try (Socket socket = new Socket()) {
+      socket.connect(server.address());
+
+      final Writer writer =
+        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+      writer.write(requests);
+      writer.flush();
+      socket.shutdownOutput();
+
+      final BufferedReader reader =
+        new BufferedReader(new InputStreamReader(
+          socket.getInputStream(), StandardCharsets.UTF_8));
+      while (true) {
+        final String line = reader.readLine();
+        if (line == null) {
+          break;
+        }
+        final int tab = line.indexOf('\t');
+        replies.computeIfAbsent(line.substring(0, tab), k -> new ArrayList<>())
+          .add(line.substring(tab + 1));
+      }
+    }
+    return replies;
+  }
+
+  @Test
+  public void testServe(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final Path f10 = directory.resolve("f10.vgm");
+    Files.write(f10, ym2612File(10));
+    final Path f3 = directory.resolve("f3.vgm");
+    Files.write(f3, ym2612File(3));
+    final Path missing = directory.resolve("missing.vgm");
+
+    try (JVGMServer server =
+           new JVGMServer(
+             new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+             directory,
+             2,
+             2)) {
+      final Thread thread = new Thread(() -> {
+        try {
+          server.run();
+        } catch (final Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      thread.start();
+
+      final Map<String, List<String>> replies =
+        send(server, String.join(
+          "\n",
+          "a\tinterpret\t" + f10,
+          "b\tdump\t" + f3,
+          "c\tinterpret\t" + missing,
+          "d\tfrobnicate\t" + f3,
+          "e",
+          ""));
+
+      Assertions.assertEquals(5, replies.size());
+      Assertions.assertEquals(List.of("ok\t7350\t31\t20\t24"), replies.get("a"));
+
+      final List<String> dump = replies.get("b");
+      Assertions.assertEquals(11, dump.size());
+      Assertions.assertEquals(
+        "command\t00000040 YM2612_WRITE_PORT_0 0xb0 0x00", dump.get(0));
+      Assertions.assertEquals("command\t00000046 WAIT_735 735", dump.get(2));
+      Assertions.assertEquals(
+        "command\t00000055 END_OF_SOUND_DATA", dump.get(9));
+      Assertions.assertEquals("ok\t2205\t10", dump.get(10));
+
+      Assertions.assertEquals(1, replies.get("c").size());
+      Assertions.assertTrue(replies.get("c").get(0).startsWith("error\t"));
+      Assertions.assertEquals(
+        List.of("error\tUnrecognized job: frobnicate"), replies.get("d"));
+      Assertions.assertTrue(replies.get("e").get(0).startsWith("error\t"));
+
+      final Map<String, List<String>> again =
+        send(server, "a\tinterpret\t" + f10 + "\n");
+      Assertions.assertEquals(replies.get("a"), again.get("a"));
+
+      server.close();
+      thread.join();
+    }
+  }
+
+  @Test
+  public void testRejectsPathsOutsideRoot(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final Path root = directory.resolve("root");
+    Files.createDirectories(root);
+    Files.write(root.resolve("inside.vgm"), ym2612File(3));
+    final Path outside = directory.resolve("outside.vgm");
+    Files.write(outside, ym2612File(3));
+    final Path link = root.resolve("link.vgm");
+    Files.createSymbolicLink(link, outside);
+
+    try (JVGMServer server =
+           new JVGMServer(
+             new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+             root,
+             1,
+             1)) {
+      final Thread thread = new Thread(() -> {
+        try {
+          server.run();
+        } catch (final Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      thread.start();
+
+      final Map<String, List<String>> replies =
+        send(server, String.join(
+          "\n",
+          "a\tinterpret\tinside.vgm",
+          "b\tinterpret\t../outside.vgm",
+          "c\tinterpret\t" + outside,
+          "d\tdump\tlink.vgm",
+          ""));
+
+      Assertions.assertEquals(List.of("ok\t2205\t10\t6\t10"), replies.get("a"));
+      for (final String id : List.of("b", "c", "d")) {
+        Assertions.assertEquals(1, replies.get(id).size());
+        Assertions.assertTrue(replies.get(id).get(0).startsWith("error\t"));
+      }
+
+      server.close();
+      thread.join();
+    }
+  }
+
+  @Test
+  public void testRender(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final Path root = directory.resolve("root");
+    Files.createDirectories(root);
+    Files.write(root.resolve("f3.vgm"), ym2612File(3));
+    final Path victim = directory.resolve("victim.txt");
+    Files.writeString(victim, "victim");
+    Files.createSymbolicLink(root.resolve("link.wav"), victim);
+
+    try (JVGMServer server =
+           new JVGMServer(
+             new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+             root,
+             2,
+             2)) {
+      final Thread thread = new Thread(() -> {
+        try {
+          server.run();
+        } catch (final Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      thread.start();
+
+      final Map<String, List<String>> replies =
+        send(server, String.join(
+          "\n",
+          "a\trender\tf3.vgm\tf3.wav",
+          "b\trender\tf3.vgm\t../f3.wav",
+          "c\trender\tf3.vgm",
+          "d\trender\tf3.vgm\tlink.wav",
+          ""));
+
+      Assertions.assertEquals(List.of("ok\t2205"), replies.get("a"));
+      final byte[] wav = Files.readAllBytes(root.resolve("f3.wav"));
+      Assertions.assertEquals(44 + 2205 * 4, wav.length);
+      Assertions.assertEquals(
+        "RIFF",
+        new String(wav, 0, 4, StandardCharsets.US_ASCII));
+
+      for (final String id : List.of("b", "c", "d")) {
+        Assertions.assertEquals(1, replies.get(id).size());
+        Assertions.assertTrue(replies.get(id).get(0).startsWith("error\t"));
+      }
+      Assertions.assertFalse(Files.exists(directory.resolve("f3.wav")));
+      Assertions.assertEquals("victim", Files.readString(victim));
+
+      server.close();
+      thread.join();
+    }
+  }
+
+  @Test
+  public void testRejectsNonLoopbackAddress(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final InetSocketAddress address =
+      new InetSocketAddress(InetAddress.getByAddress(new byte[]{0, 0, 0, 0}), 0);
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> new JVGMServer(address, directory, 1, 1));
+  }
+
+  @Test
+  public void testInvalidLimits(
+    final @TempDir Path directory)
+  {
+    final InetSocketAddress address =
+      new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> new JVGMServer(address, directory, 0, 1));
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> new JVGMServer(address, directory, 1, 0));
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.cmdline;
+
+import com.io7m.jvgm.cmdline.JVGMBatch;
+import com.io7m.jvgm.cmdline.JVGMBatchSummary;
+import com.io7m.jvgm.cmdline.JVGMStats;
+import com.io7m.jvgm.cmdline.JVGMStatsFormat;
+import com.io7m.jvgm.cmdline.JVGMStatsWriter;
+import com.io7m.jvgm.core.VGMCommandType;
+import com.io7m.jvgm.tests.VGMTestFileBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class JVGMStatsTest
+{
+  private static byte[] file()
+  {
+    return new VGMTestFileBuilder(0x150)
+      .samples(740L)
+      .bytes(0x67, 0x66, 0x00, 0x04, 0x00, 0x00, 0x00, 0x10, 0x20, 0x30, 0x40)
+      .bytes(0x52, 0x28, 0xf0)
+      .bytes(0x52, 0x28, 0x00)
+      .bytes(0x52, 0xb0, 0x07)
+      .bytes(0x53, 0x40, 0x7f)
+      .bytes(0x50, 0x9f)
+      .bytes(0x62)
+      .bytes(0x81)
+      .bytes(0x80)
+      .bytes(0x73)
+      .bytes(0x66)
+      .build();
+  }
+
+  private static Map<Path, JVGMStats> profile(
+    final List<Path> files,
+    final JVGMStats total)
+    throws InterruptedException
+  {
+    final Map<Path, JVGMStats> received = new ConcurrentHashMap<>();
+    final JVGMBatchSummary summary =
+      new JVGMBatch(2, 2, false)
+        .stats(files.iterator(), total, (result, stats) -> {
+          Assertions.assertTrue(result.succeeded());
+          received.put(result.path(), stats);
+        });
+    Assertions.assertEquals(0L, summary.failed());
+    return received;
+  }
+
+  @Test
+  public void testFile(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final Path path = directory.resolve("f.vgm");
+    Files.write(path, file());
+
+    final JVGMStats total = new JVGMStats();
+    final JVGMStats stats = profile(List.of(path), total).get(path);
+
+    Assertions.assertEquals(1L, stats.files());
+    Assertions.assertEquals(11L, stats.commands());
+    Assertions.assertEquals(3L, stats.commands(VGMCommandType.Type.YM2612_WRITE_PORT_0));
+    Assertions.assertEquals(1L, stats.commands(VGMCommandType.Type.YM2612_WRITE_PORT_1));
+    Assertions.assertEquals(1L, stats.commands(VGMCommandType.Type.PSG_WRITE));
+    Assertions.assertEquals(1L, stats.commands(VGMCommandType.Type.DATA_BLOCK));
+    Assertions.assertEquals(1L, stats.commands(VGMCommandType.Type.END_OF_SOUND_DATA));
+    Assertions.assertEquals(2L, stats.ym2612Writes(0, 0x28));
+    Assertions.assertEquals(1L, stats.ym2612Writes(0, 0xb0));
+    Assertions.assertEquals(1L, stats.ym2612Writes(1, 0x40));
+    Assertions.assertEquals(0L, stats.ym2612Writes(1, 0x28));
+    Assertions.assertEquals(735L + 1L + 0L + 4L, stats.waitSamples());
+    Assertions.assertEquals(2L, stats.dacBytes());
+    Assertions.assertEquals(4L, stats.dataBlockBytes());
+    Assertions.assertEquals(7L, stats.writes());
+    Assertions.assertEquals(7.0 * 44100.0 / 740.0, stats.writesPerSecond(), 0.0001);
+  }
+
+  @Test
+  public void testMerge(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final List<Path> files = new ArrayList<>();
+    for (int index = 0; index < 12; ++index) {
+      final Path path = directory.resolve(String.format("f%02d.vgm", index));
+      Files.write(path, file());
+      files.add(path);
+    }
+
+    final JVGMStats total = new JVGMStats();
+    final Map<Path, JVGMStats> received = profile(files, total);
+    Assertions.assertEquals(12, received.size());
+
+    final JVGMStats merged = new JVGMStats();
+    received.values().forEach(merged::merge);
+
+    for (final JVGMStats stats : List.of(total, merged)) {
+      Assertions.assertEquals(12L, stats.files());
+      Assertions.assertEquals(12L * 11L, stats.commands());
+      Assertions.assertEquals(24L, stats.ym2612Writes(0, 0x28));
+      Assertions.assertEquals(12L * 740L, stats.waitSamples());
+      Assertions.assertEquals(24L, stats.dacBytes());
+      Assertions.assertEquals(48L, stats.dataBlockBytes());
+    }
+  }
+
+  @Test
+  public void testWriteJSON(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final Path path = directory.resolve("f.vgm");
+    Files.write(path, file());
+
+    final JVGMStats total = new JVGMStats();
+    final JVGMStats stats = profile(List.of(path), total).get(path);
+
+    final StringWriter output = new StringWriter();
+    final JVGMStatsWriter writer =
+      new JVGMStatsWriter(JVGMStatsFormat.JSON, output);
+    writer.file("a \"quoted\" name", true, stats);
+    writer.finish(total);
+
+    final String text = output.toString();
+    Assertions.assertTrue(text.startsWith("{\"files\":["));
+    Assertions.assertTrue(text.contains("\"file\":\"a \\\"quoted\\\" name\""));
+    Assertions.assertTrue(text.contains("\"ym2612_port_0\":{\"0x28\":2,\"0xb0\":1}"));
+    Assertions.assertTrue(text.contains("\"YM2612_WRITE_PORT_1\":1"));
+    Assertions.assertTrue(text.contains("\"total\":{\"files\":1,"));
+    Assertions.assertTrue(text.endsWith("}}\n"));
+  }
+
+  @Test
+  public void testWriteCSV(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final Path path = directory.resolve("f.vgm");
+    Files.write(path, file());
+
+    final JVGMStats total = new JVGMStats();
+    final JVGMStats stats = profile(List.of(path), total).get(path);
+
+    final StringWriter output = new StringWriter();
+    final JVGMStatsWriter writer =
+      new JVGMStatsWriter(JVGMStatsFormat.CSV, output);
+    writer.file("a,b", true, stats);
+    writer.finish(total);
+
+    final String text = output.toString();
+    Assertions.assertTrue(text.startsWith("scope,file,category,key,value\n"));
+    Assertions.assertTrue(text.contains("file,\"a,b\",ym2612_port_0,0x28,2\n"));
+    Assertions.assertTrue(text.contains("file,\"a,b\",summary,dac_bytes,2\n"));
+    Assertions.assertTrue(text.contains("corpus,,summary,files,1\n"));
+    Assertions.assertTrue(text.contains("corpus,,command_type,PSG_WRITE,1\n"));
+  }
+}
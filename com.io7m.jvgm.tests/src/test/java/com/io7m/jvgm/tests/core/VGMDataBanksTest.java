@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.core;
+
+import com.io7m.jvgm.core.VGMDataBanks;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+public final class VGMDataBanksTest
+{
+  private static ByteBuffer bytes(
+    final int... values)
+  {
+    final ByteBuffer buffer = ByteBuffer.allocate(values.length);
+    for (final int v : values) {
+      buffer.put((byte) v);
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  @Test
+  public void testEmpty()
+  {
+    final VGMDataBanks banks = new VGMDataBanks();
+    Assertions.assertEquals(0L, banks.bankSize(0));
+    Assertions.assertEquals(0, banks.blockCount(0));
+    Assertions.assertEquals(-1, banks.byteAt(0, 0L));
+  }
+
+  @Test
+  public void testConcatenated()
+  {
+    final VGMDataBanks banks = new VGMDataBanks();
+    banks.addBlock(0, bytes(0x10, 0x11, 0x12));
+    banks.addBlock(1, bytes(0xff));
+    banks.addBlock(0, bytes());
+    banks.addBlock(0, bytes(0x13, 0x14));
+    banks.addBlock(0, bytes(0x15));
+
+    Assertions.assertEquals(6L, banks.bankSize(0));
+    Assertions.assertEquals(4, banks.blockCount(0));
+    Assertions.assertEquals(1L, banks.bankSize(1));
+
+    for (int index = 0; index < 6; ++index) {
+      Assertions.assertEquals(0x10 + index, banks.byteAt(0, (long) index));
+    }
+    for (int index = 5; index >= 0; --index) {
+      Assertions.assertEquals(0x10 + index, banks.byteAt(0, (long) index));
+    }
+
+    Assertions.assertEquals(0x14, banks.byteAt(0, 4L));
+    Assertions.assertEquals(0x10, banks.byteAt(0, 0L));
+    Assertions.assertEquals(0x15, banks.byteAt(0, 5L));
+    Assertions.assertEquals(-1, banks.byteAt(0, 6L));
+    Assertions.assertEquals(-1, banks.byteAt(0, -1L));
+    Assertions.assertEquals(0xff, banks.byteAt(1, 0L));
+  }
+
+  @Test
+  public void testBlockIsView()
+  {
+    final ByteBuffer data = bytes(0x10, 0x11, 0x12);
+    final VGMDataBanks banks = new VGMDataBanks();
+    banks.addBlock(0, data);
+
+    data.put(1, (byte) 0x20);
+    Assertions.assertEquals(0x20, banks.byteAt(0, 1L));
+    Assertions.assertTrue(banks.block(0, 0).isReadOnly());
+  }
+
+  @Test
+  public void testBadType()
+  {
+    final VGMDataBanks banks = new VGMDataBanks();
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> banks.addBlock(256, bytes()));
+    Assertions.assertThrows(
+      IndexOutOfBoundsException.class,
+      () -> banks.block(0, 0));
+  }
+}
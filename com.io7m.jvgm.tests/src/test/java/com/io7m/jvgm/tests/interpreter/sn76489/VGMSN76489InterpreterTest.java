@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.interpreter.sn76489;
+
+import com.io7m.jvgm.interpreter.sn76489.VGMSN76489Interpreter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class VGMSN76489InterpreterTest
+{
+  @Test
+  public void testPowerOn()
+  {
+    final VGMSN76489Interpreter interp = new VGMSN76489Interpreter();
+    for (int channel = 0; channel < VGMSN76489Interpreter.CHANNELS; ++channel) {
+      Assertions.assertEquals(0xf, interp.attenuation(channel));
+    }
+    Assertions.assertEquals(0, interp.tonePeriod(0));
+    Assertions.assertEquals(0xff, interp.stereo());
+  }
+
+  @Test
+  public void testTonePeriod()
+  {
+    final VGMSN76489Interpreter interp = new VGMSN76489Interpreter();
+
+    Assertions.assertEquals(2, interp.write(0xae));
+    Assertions.assertEquals(2, interp.write(0x3f));
+    Assertions.assertEquals(0x3fe, interp.tonePeriod(1));
+    Assertions.assertEquals(2, interp.latchedRegister());
+
+    Assertions.assertEquals(2, interp.write(0x01));
+    Assertions.assertEquals(0x01e, interp.tonePeriod(1));
+
+    Assertions.assertEquals(2, interp.write(0xa3));
+    Assertions.assertEquals(0x013, interp.tonePeriod(1));
+    Assertions.assertEquals(0, interp.tonePeriod(0));
+    Assertions.assertEquals(0, interp.tonePeriod(2));
+  }
+
+  @Test
+  public void testAttenuationAndNoise()
+  {
+    final VGMSN76489Interpreter interp = new VGMSN76489Interpreter();
+
+    Assertions.assertEquals(1, interp.write(0x94));
+    Assertions.assertEquals(0x4, interp.attenuation(0));
+    Assertions.assertEquals(1, interp.write(0x0a));
+    Assertions.assertEquals(0xa, interp.attenuation(0));
+
+    Assertions.assertEquals(7, interp.write(0xf2));
+    Assertions.assertEquals(0x2, interp.attenuation(3));
+
+    Assertions.assertEquals(6, interp.write(0xe5));
+    Assertions.assertEquals(0x5, interp.noiseControl());
+    Assertions.assertEquals(6, interp.write(0x0f));
+    Assertions.assertEquals(0x7, interp.noiseControl());
+
+    interp.writeStereo(0x3c);
+    Assertions.assertEquals(0x3c, interp.stereo());
+
+    interp.reset();
+    Assertions.assertEquals(0xf, interp.attenuation(0));
+    Assertions.assertEquals(0, interp.noiseControl());
+    Assertions.assertEquals(0xff, interp.stereo());
+  }
+
+  @Test
+  public void testChannelIndexInvalid()
+  {
+    final VGMSN76489Interpreter interp = new VGMSN76489Interpreter();
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> interp.attenuation(4));
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> interp.tonePeriod(3));
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.interpreter.sn76489;
+
+import com.io7m.jvgm.interpreter.sn76489.VGMSN76489Configuration;
+import com.io7m.jvgm.interpreter.sn76489.VGMSN76489ConfigurationType;
+import com.io7m.jvgm.interpreter.sn76489.VGMSN76489Synthesizer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public final class VGMSN76489SynthesizerTest
+{
+  private static final int RATE = 44100;
+
+  private static VGMSN76489Synthesizer synth()
+  {
+    return new VGMSN76489Synthesizer(
+      VGMSN76489Configuration.builder().build(), RATE);
+  }
+
+  /*
+   * Play a 440Hz tone on channel 0 at full volume.
+   */
+
+  private static void tone(
+    final VGMSN76489Synthesizer synth)
+  {
+    final int period = VGMSN76489ConfigurationType.CLOCK_NTSC / (32 * 440);
+    synth.write(0x80 | (period & 0xf));
+    synth.write(period >>> 4);
+    synth.write(0x90);
+  }
+
+  @Test
+  public void testSilence()
+  {
+    final VGMSN76489Synthesizer synth = synth();
+    final short[] output = new short[RATE];
+    synth.render(output, 0, RATE / 2);
+    for (final short sample : output) {
+      Assertions.assertEquals(0, sample);
+    }
+  }
+
+  @Test
+  public void testPitch()
+  {
+    final VGMSN76489Synthesizer synth = synth();
+    tone(synth);
+
+    final short[] output = new short[RATE * 2];
+    synth.render(output, 0, RATE);
+
+    int crossings = 0;
+    int peak = 0;
+    for (int index = 2; index < output.length; index += 2) {
+      if (output[index - 2] < 0 && output[index] >= 0) {
+        ++crossings;
+      }
+      peak = Math.max(peak, Math.abs(output[index]));
+      Assertions.assertEquals(output[index], output[index + 1]);
+    }
+
+    Assertions.assertTrue(
+      Math.abs(crossings - 440) <= 2, "Crossings " + crossings);
+    Assertions.assertEquals(8191, peak);
+  }
+
+  @Test
+  public void testConstantOutput()
+  {
+    final VGMSN76489Synthesizer synth = synth();
+    synth.write(0x81);
+    synth.write(0x00);
+    synth.write(0x92);
+
+    final short[] output = new short[200];
+    synth.render(output, 0, 100);
+    for (final short sample : output) {
+      Assertions.assertEquals(5168, sample);
+    }
+  }
+
+  @Test
+  public void testStereo()
+  {
+    final VGMSN76489Synthesizer synth = synth();
+    tone(synth);
+    synth.writeStereo(0x01);
+
+    final short[] output = new short[RATE / 5];
+    synth.render(output, 0, RATE / 10);
+
+    int right = 0;
+    for (int index = 0; index < output.length; index += 2) {
+      Assertions.assertEquals(0, output[index]);
+      right = Math.max(right, Math.abs(output[index + 1]));
+    }
+    Assertions.assertEquals(8191, right);
+  }
+
+  @Test
+  public void testStereoDisabled()
+  {
+    final VGMSN76489Synthesizer synth =
+      new VGMSN76489Synthesizer(
+        VGMSN76489Configuration.builder()
+          .setFlags(VGMSN76489ConfigurationType.FLAG_STEREO_DISABLED)
+          .build(),
+        RATE);
+
+    tone(synth);
+    synth.writeStereo(0x01);
+    Assertions.assertEquals(0xff, synth.interpreter().stereo());
+  }
+
+  @Test
+  public void testNoiseWhite()
+  {
+    final VGMSN76489Synthesizer synth = synth();
+    synth.write(0xe4);
+    synth.write(0xf0);
+
+    final short[] output = new short[2000];
+    synth.render(output, 0, 1000);
+
+    boolean varied = false;
+    for (int index = 2; index < output.length; index += 2) {
+      varied |= output[index] != output[0];
+    }
+    Assertions.assertTrue(varied);
+  }
+
+  /*
+   * Periodic noise with a 16-bit shift register produces one pulse every
+   * 16 shifts, and the shift register is shifted every 32 chip cycles.
+   */
+
+  @Test
+  public void testNoisePeriodic()
+  {
+    final VGMSN76489Synthesizer synth = synth();
+    synth.write(0xe0);
+    synth.write(0xf0);
+
+    final short[] output = new short[RATE * 2];
+    synth.render(output, 0, RATE);
+
+    int pulses = 0;
+    for (int index = 2; index < output.length; index += 2) {
+      if (output[index - 2] < 0 && output[index] >= 0) {
+        ++pulses;
+      }
+    }
+
+    final int expected = VGMSN76489ConfigurationType.CLOCK_NTSC / (16 * 32 * 16);
+    Assertions.assertTrue(
+      Math.abs(pulses - expected) <= 2, "Pulses " + pulses);
+  }
+
+  @Test
+  public void testBlockSizeIndependent()
+  {
+    final VGMSN76489Synthesizer synth0 = synth();
+    final VGMSN76489Synthesizer synth1 = synth();
+
+    final Random random = new Random(0x76489L);
+    final short[] output0 = new short[RATE * 2];
+    final short[] output1 = new short[RATE * 2];
+
+    int position = 0;
+    while (position < RATE) {
+      final int value = random.nextInt(0x100);
+      synth0.write(value);
+      synth1.write(value);
+
+      final int frames = Math.min(RATE - position, random.nextInt(700));
+      synth0.render(output0, position * 2, frames);
+      for (int index = 0; index < frames; ++index) {
+        synth1.render(output1, (position + index) * 2, 1);
+      }
+      position += frames;
+    }
+
+    Assertions.assertTrue(Arrays.equals(output0, output1));
+  }
+
+  @Test
+  public void testInvalidConfiguration()
+  {
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> VGMSN76489Configuration.builder().setShiftRegisterWidth(0).build());
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> new VGMSN76489Synthesizer(
+        VGMSN76489Configuration.builder().build(), 0));
+  }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.interpreter.ym2413;
+
+import com.io7m.jvgm.interpreter.ym2413.VGMYM2413Callbacks;
+import com.io7m.jvgm.interpreter.ym2413.VGMYM2413ChannelSnapshot;
+import com.io7m.jvgm.interpreter.ym2413.VGMYM2413Instruments;
+import com.io7m.jvgm.interpreter.ym2413.VGMYM2413Interpreter;
+import com.io7m.jvgm.interpreter.ym2413.VGMYM2413OperatorSnapshot;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class VGMYM2413InterpreterTest
+{
+  private static VGMYM2413Interpreter interpreter()
+  {
+    return new VGMYM2413Interpreter(VGMYM2413Callbacks.builder().build());
+  }
+
+  @Test
+  public void testExhaustive()
+  {
+    final VGMYM2413Interpreter interp = interpreter();
+
+    for (int register = 0; register < 0x100; ++register) {
+      for (int value = 0; value < 0x100; ++value) {
+        interp.writeRegister(register, value);
+      }
+    }
+
+    for (int channel = 0; channel < VGMYM2413Interpreter.CHANNELS; ++channel) {
+      interp.channel(channel).snapshot();
+    }
+  }
+
+  private static final class Recorder
+  {
+    private final AtomicInteger count = new AtomicInteger();
+    private boolean preset_changed;
+
+    Recorder()
+    {
+
+    }
+
+    VGMYM2413Callbacks callbacks()
+    {
+      return VGMYM2413Callbacks.of((interpreter, changed) -> {
+        this.count.incrementAndGet();
+        this.preset_changed = changed;
+      });
+    }
+  }
+
+  @Test
+  public void testPresetChanged()
+  {
+    final Recorder recorder = new Recorder();
+    final VGMYM2413Interpreter interp =
+      new VGMYM2413Interpreter(recorder.callbacks());
+
+    interp.writeRegister(0x03, 0x07);
+    Assertions.assertTrue(recorder.preset_changed);
+    interp.writeRegister(0x10, 0x22);
+    Assertions.assertFalse(recorder.preset_changed);
+    interp.writeRegister(0x20, 0x19);
+    Assertions.assertFalse(recorder.preset_changed);
+    interp.writeRegister(0x30, 0x40);
+    Assertions.assertTrue(recorder.preset_changed);
+    interp.writeRegister(0x0e, 0x20);
+    Assertions.assertTrue(recorder.preset_changed);
+    interp.writeRegister(0x0e, 0x3f);
+    Assertions.assertFalse(recorder.preset_changed);
+    interp.writeRegister(0x0e, 0x00);
+    Assertions.assertTrue(recorder.preset_changed);
+    interp.writeRegister(0x39, 0x00);
+    Assertions.assertFalse(recorder.preset_changed);
+    interp.writeRegister(0x40, 0x00);
+    Assertions.assertFalse(recorder.preset_changed);
+
+    Assertions.assertEquals(9, recorder.count.get());
+  }
+
+  @Test
+  public void testChannel()
+  {
+    final VGMYM2413Interpreter interp = interpreter();
+
+    interp.writeRegister(0x14, 0x22);
+    interp.writeRegister(0x24, 0x39);
+    interp.writeRegister(0x34, 0x45);
+
+    Assertions.assertEquals(0x122, interp.channel(4).frequencyNumber());
+    Assertions.assertEquals(4, interp.channel(4).block());
+    Assertions.assertTrue(interp.channel(4).isKeyOn());
+    Assertions.assertTrue(interp.channel(4).isSustainOn());
+    Assertions.assertEquals(4, interp.channel(4).instrument());
+    Assertions.assertEquals(5, interp.channel(4).volume());
+    Assertions.assertEquals(
+      VGMYM2413Instruments.patch(4), interp.channel(4).patch());
+
+    final VGMYM2413ChannelSnapshot snapshot = interp.channel(4).snapshot();
+    Assertions.assertEquals(4, snapshot.index());
+    Assertions.assertEquals(4, snapshot.instrument());
+    Assertions.assertEquals(5, snapshot.volume());
+    Assertions.assertEquals(7, snapshot.feedback());
+
+    final VGMYM2413OperatorSnapshot modulator = snapshot.modulator();
+    Assertions.assertEquals(1, modulator.pitchMultiply());
+    Assertions.assertTrue(modulator.keyScaleRate());
+    Assertions.assertFalse(modulator.sustained());
+    Assertions.assertEquals(0x0e, modulator.totalLevel());
+    Assertions.assertEquals(0x8, modulator.envelopeAttackRate());
+    Assertions.assertEquals(0xd, modulator.envelopeDecayRate());
+    Assertions.assertEquals(0x7, modulator.envelopeSustainLevel());
+    Assertions.assertEquals(0x0, modulator.envelopeReleaseRate());
+
+    final VGMYM2413OperatorSnapshot carrier = snapshot.carrier();
+    Assertions.assertEquals(1, carrier.pitchMultiply());
+    Assertions.assertTrue(carrier.sustained());
+    Assertions.assertTrue(carrier.vibrato());
+    Assertions.assertEquals(5 << 2, carrier.totalLevel());
+    Assertions.assertEquals(0x6, carrier.envelopeAttackRate());
+    Assertions.assertEquals(0x4, carrier.envelopeDecayRate());
+    Assertions.assertEquals(0x2, carrier.envelopeSustainLevel());
+    Assertions.assertEquals(0x7, carrier.envelopeReleaseRate());
+  }
+
+  @Test
+  public void testKeyedChannels()
+  {
+    final VGMYM2413Interpreter interp = interpreter();
+    Assertions.assertEquals(0, interp.keyedChannels());
+
+    interp.writeRegister(0x24, 0x10);
+    interp.writeRegister(0x24, 0x00);
+    interp.writeRegister(0x21, 0x0f);
+    Assertions.assertEquals(0b000_010_000, interp.keyedChannels());
+
+    interp.writeRegister(0x0e, 0x20);
+    Assertions.assertEquals(0b111_010_000, interp.keyedChannels());
+
+    interp.reset();
+    Assertions.assertEquals(0, interp.keyedChannels());
+  }
+
+  @Test
+  public void testUserPatch()
+  {
+    final VGMYM2413Interpreter interp = interpreter();
+
+    final int[] patch = {0xa3, 0x51, 0xc5, 0x1d, 0xf2, 0x3a, 0x68, 0x9b};
+    for (int index = 0; index < patch.length; ++index) {
+      interp.writeRegister(index, patch[index]);
+    }
+
+    Assertions.assertEquals(0x9b683af21dc551a3L, interp.userPatch());
+    Assertions.assertEquals(interp.userPatch(), interp.channel(0).patch());
+
+    final VGMYM2413ChannelSnapshot snapshot = interp.channel(0).snapshot();
+    Assertions.assertEquals(0, snapshot.instrument());
+    Assertions.assertEquals(5, snapshot.feedback());
+
+    final VGMYM2413OperatorSnapshot modulator = snapshot.modulator();
+    Assertions.assertTrue(modulator.amplitudeModulation());
+    Assertions.assertFalse(modulator.vibrato());
+    Assertions.assertTrue(modulator.sustained());
+    Assertions.assertFalse(modulator.keyScaleRate());
+    Assertions.assertEquals(3, modulator.pitchMultiply());
+    Assertions.assertEquals(3, modulator.keyScaleLevel());
+    Assertions.assertEquals(5, modulator.totalLevel());
+    Assertions.assertTrue(modulator.rectified());
+    Assertions.assertEquals(0xf, modulator.envelopeAttackRate());
+    Assertions.assertEquals(0x2, modulator.envelopeDecayRate());
+    Assertions.assertEquals(0x6, modulator.envelopeSustainLevel());
+    Assertions.assertEquals(0x8, modulator.envelopeReleaseRate());
+
+    final VGMYM2413OperatorSnapshot carrier = snapshot.carrier();
+    Assertions.assertFalse(carrier.amplitudeModulation());
+    Assertions.assertTrue(carrier.vibrato());
+    Assertions.assertTrue(carrier.keyScaleRate());
+    Assertions.assertEquals(1, carrier.pitchMultiply());
+    Assertions.assertEquals(0, carrier.keyScaleLevel());
+    Assertions.assertTrue(carrier.rectified());
+    Assertions.assertEquals(0x3, carrier.envelopeAttackRate());
+    Assertions.assertEquals(0xa, carrier.envelopeDecayRate());
+    Assertions.assertEquals(0x9, carrier.envelopeSustainLevel());
+    Assertions.assertEquals(0xb, carrier.envelopeReleaseRate());
+  }
+
+  @Test
+  public void testRhythmMode()
+  {
+    final VGMYM2413Interpreter interp = interpreter();
+
+    interp.writeRegister(0x36, 0x13);
+    interp.writeRegister(0x37, 0x9a);
+    interp.writeRegister(0x38, 0x4c);
+    Assertions.assertFalse(interp.channel(7).isRhythm());
+    Assertions.assertEquals(9, interp.channel(7).instrument());
+
+    interp.writeRegister(0x0e, 0x31);
+    Assertions.assertTrue(interp.isRhythmMode());
+    Assertions.assertEquals(
+      VGMYM2413Interpreter.RHYTHM_BASS_DRUM | VGMYM2413Interpreter.RHYTHM_HIGH_HAT,
+      interp.rhythmKeys());
+    Assertions.assertFalse(interp.channel(5).isRhythm());
+
+    final VGMYM2413ChannelSnapshot bass = interp.channel(6).snapshot();
+    Assertions.assertEquals(VGMYM2413Instruments.RHYTHM_BASS_DRUM, bass.instrument());
+    Assertions.assertEquals(3, bass.volume());
+    Assertions.assertEquals(0x18, bass.modulator().totalLevel());
+
+    final VGMYM2413ChannelSnapshot hh_sd = interp.channel(7).snapshot();
+    Assertions.assertEquals(
+      VGMYM2413Instruments.RHYTHM_HIGH_HAT_SNARE_DRUM, hh_sd.instrument());
+    Assertions.assertEquals(0x9 << 2, hh_sd.modulator().totalLevel());
+    Assertions.assertEquals(0xa << 2, hh_sd.carrier().totalLevel());
+
+    final VGMYM2413ChannelSnapshot tom_tc = interp.channel(8).snapshot();
+    Assertions.assertEquals(
+      VGMYM2413Instruments.RHYTHM_TOM_TOM_TOP_CYMBAL, tom_tc.instrument());
+    Assertions.assertEquals(0x4 << 2, tom_tc.modulator().totalLevel());
+    Assertions.assertEquals(0xc << 2, tom_tc.carrier().totalLevel());
+  }
+
+  @Test
+  public void testDirtyTracking()
+  {
+    final VGMYM2413Interpreter interp = interpreter();
+
+    Assertions.assertEquals(0b1_1111_1111, interp.dirtyChannels());
+    interp.acknowledgeAll();
+    Assertions.assertEquals(0, interp.dirtyChannels());
+
+    interp.writeRegister(0x31, 0x20);
+    interp.writeRegister(0x33, 0x30);
+    Assertions.assertEquals(0b0_0000_1010, interp.dirtyChannels());
+    interp.acknowledge(1);
+    Assertions.assertEquals(0b0_0000_1000, interp.dirtyChannels());
+    interp.acknowledgeAll();
+
+    interp.writeRegister(0x31, 0x20);
+    interp.writeRegister(0x11, 0x20);
+    interp.writeRegister(0x21, 0x10);
+    Assertions.assertEquals(0, interp.dirtyChannels());
+
+    interp.writeRegister(0x05, 0x44);
+    Assertions.assertEquals(0b1_1111_0101, interp.dirtyChannels());
+    interp.acknowledgeAll();
+
+    interp.writeRegister(0x0e, 0x20);
+    Assertions.assertEquals(0b1_1100_0000, interp.dirtyChannels());
+    interp.acknowledgeAll();
+
+    interp.writeRegister(0x05, 0x45);
+    Assertions.assertEquals(0b0_0011_0101, interp.dirtyChannels());
+
+    interp.reset();
+    Assertions.assertEquals(0b1_1111_1111, interp.dirtyChannels());
+    Assertions.assertEquals(0, interp.register(0x31));
+  }
+
+  @Test
+  public void testChannelIndexInvalid()
+  {
+    final VGMYM2413Interpreter interp = interpreter();
+
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> interp.channel(9));
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> interp.acknowledge(-1));
+  }
+
+  @Test
+  public void testInstruments()
+  {
+    Assertions.assertEquals(0L, VGMYM2413Instruments.patch(VGMYM2413Instruments.USER));
+    Assertions.assertEquals("Violin", VGMYM2413Instruments.name(1));
+    Assertions.assertEquals("Electric Guitar", VGMYM2413Instruments.name(15));
+    Assertions.assertEquals(0x71, VGMYM2413Instruments.patchByte(VGMYM2413Instruments.patch(1), 0));
+    Assertions.assertEquals(0x17, VGMYM2413Instruments.patchByte(VGMYM2413Instruments.patch(1), 7));
+
+    for (int index = 1; index < VGMYM2413Instruments.PATCHES; ++index) {
+      Assertions.assertNotEquals(0L, VGMYM2413Instruments.patch(index));
+    }
+
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> VGMYM2413Instruments.patch(VGMYM2413Instruments.PATCHES));
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> VGMYM2413Instruments.name(-1));
+  }
+}
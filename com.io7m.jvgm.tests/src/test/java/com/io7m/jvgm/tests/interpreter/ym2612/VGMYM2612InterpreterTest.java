@@ -16,10 +16,19 @@
 
 package com.io7m.jvgm.tests.interpreter.ym2612;
 
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612CallbackMode;
 import com.io7m.jvgm.interpreter.ym2612.VGMYM2612Callbacks;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612ChannelSnapshot;
 import com.io7m.jvgm.interpreter.ym2612.VGMYM2612Interpreter;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612OperatorSnapshot;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612ParameterGroup;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public final class VGMYM2612InterpreterTest
 {
   @Test
@@ -47,4 +56,323 @@ public final class VGMYM2612InterpreterTest
       }
     }
   }
+
+  private static final class Recorder
+  {
+    private final AtomicInteger count = new AtomicInteger();
+    private boolean preset_changed;
+
+    Recorder()
+    {
+
+    }
+
+    VGMYM2612Callbacks callbacks()
+    {
+      return VGMYM2612Callbacks.of((interpreter, changed) -> {
+        this.count.incrementAndGet();
+        this.preset_changed = changed;
+      });
+    }
+  }
+
+  @Test
+  public void testPresetChanged()
+  {
+    final Recorder recorder = new Recorder();
+    final VGMYM2612Interpreter interp =
+      new VGMYM2612Interpreter(recorder.callbacks());
+
+    interp.writeRegisterPort0(0xb0, 0x32);
+    Assertions.assertTrue(recorder.preset_changed);
+    interp.writeRegisterPort0(0xa0, 0x32);
+    Assertions.assertFalse(recorder.preset_changed);
+    interp.writeRegisterPort0(0xa4, 0x32);
+    Assertions.assertFalse(recorder.preset_changed);
+    interp.writeRegisterPort0(0x28, 0xf0);
+    Assertions.assertFalse(recorder.preset_changed);
+    interp.writeRegisterPort0(0x4c, 0x7f);
+    Assertions.assertTrue(recorder.preset_changed);
+    interp.writeRegisterPort0(0x33, 0x7f);
+    Assertions.assertFalse(recorder.preset_changed);
+    interp.writeRegisterPort1(0x28, 0xf0);
+    Assertions.assertFalse(recorder.preset_changed);
+    interp.writeRegisterPort1(0x92, 0x00);
+    Assertions.assertTrue(recorder.preset_changed);
+    interp.writeRegisterPort1(0xa8, 0x00);
+    Assertions.assertFalse(recorder.preset_changed);
+
+    interp.writeRegisterPort0(0xa2, 0x10);
+    Assertions.assertFalse(recorder.preset_changed);
+    interp.writeRegisterPort0(0x27, 0x40);
+    Assertions.assertTrue(recorder.preset_changed);
+    interp.writeRegisterPort0(0xa2, 0x10);
+    Assertions.assertTrue(recorder.preset_changed);
+    interp.writeRegisterPort1(0xa6, 0x10);
+    Assertions.assertTrue(recorder.preset_changed);
+
+    Assertions.assertEquals(13, recorder.count.get());
+  }
+
+  @Test
+  public void testRouting()
+  {
+    final VGMYM2612Interpreter interp =
+      new VGMYM2612Interpreter(VGMYM2612Callbacks.builder().build());
+
+    interp.writeRegisterPort0(0x3d, 0x25);
+    interp.writeRegisterPort1(0x36, 0x73);
+    interp.writeRegisterPort1(0x4e, 0x11);
+    interp.writeRegisterPort1(0x5a, 0x1f);
+    interp.writeRegisterPort1(0x69, 0x0a);
+    interp.writeRegisterPort1(0x71, 0x03);
+    interp.writeRegisterPort1(0x84, 0xa7);
+    interp.writeRegisterPort1(0xb2, 0x3d);
+
+    final VGMYM2612OperatorSnapshot op_1_3 =
+      interp.channel(1).operator(3).snapshot();
+    Assertions.assertEquals(5, op_1_3.pitchMultiply());
+    Assertions.assertEquals(2, op_1_3.pitchDetune());
+
+    final VGMYM2612ChannelSnapshot ch_5 = interp.channel(5).snapshot();
+    Assertions.assertEquals(3, ch_5.operator(1).pitchMultiply());
+    Assertions.assertEquals(7, ch_5.operator(1).pitchDetune());
+    Assertions.assertEquals(0x11, ch_5.operator(3).volumeInverse());
+    Assertions.assertEquals(0x1f, ch_5.operator(2).envelopeRateAttack());
+    Assertions.assertEquals(7, ch_5.feedback());
+    Assertions.assertEquals(5, ch_5.algorithm());
+
+    final VGMYM2612ChannelSnapshot ch_4 = interp.channel(4).snapshot();
+    Assertions.assertEquals(0x0a, ch_4.operator(2).envelopeDecay1Rate());
+    Assertions.assertEquals(0x03, ch_4.operator(0).envelopeDecay2Rate());
+
+    final VGMYM2612ChannelSnapshot ch_3 = interp.channel(3).snapshot();
+    Assertions.assertEquals(0xa, ch_3.operator(1).envelopeDecay1Level());
+    Assertions.assertEquals(0x7, ch_3.operator(1).envelopeReleaseRate());
+  }
+
+  @Test
+  public void testChannelIndexInvalid()
+  {
+    final VGMYM2612Interpreter interp =
+      new VGMYM2612Interpreter(VGMYM2612Callbacks.builder().build());
+
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> interp.channel(6));
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> interp.channel(0).operator(4));
+  }
+
+  @Test
+  public void testDirtyTracking()
+  {
+    final VGMYM2612Interpreter interp =
+      new VGMYM2612Interpreter(VGMYM2612Callbacks.builder().build());
+
+    Assertions.assertEquals(0b111111, interp.dirtyChannels());
+    interp.acknowledgeAll();
+    Assertions.assertEquals(0, interp.dirtyChannels());
+
+    interp.writeRegisterPort1(0x4d, 0x20);
+    Assertions.assertEquals(0b010000, interp.dirtyChannels());
+    Assertions.assertEquals(
+      VGMYM2612ParameterGroup.LEVEL.mask(), interp.dirtyGroups(4));
+    Assertions.assertEquals(
+      VGMYM2612ParameterGroup.LEVEL.mask(), interp.dirtyOperatorGroups(4, 3));
+    Assertions.assertEquals(0, interp.dirtyOperatorGroups(4, 0));
+
+    interp.writeRegisterPort1(0xb1, 0x07);
+    interp.writeRegisterPort1(0x55, 0x1f);
+    final int groups = interp.dirtyGroups(4);
+    Assertions.assertTrue(VGMYM2612ParameterGroup.LEVEL.isIn(groups));
+    Assertions.assertTrue(VGMYM2612ParameterGroup.ALGORITHM_FEEDBACK.isIn(groups));
+    Assertions.assertTrue(VGMYM2612ParameterGroup.ENVELOPE.isIn(groups));
+    Assertions.assertFalse(VGMYM2612ParameterGroup.PITCH.isIn(groups));
+
+    interp.acknowledge(4);
+    Assertions.assertEquals(0, interp.dirtyChannels());
+    Assertions.assertEquals(0, interp.dirtyGroups(4));
+
+    interp.writeRegisterPort1(0x4d, 0x20);
+    Assertions.assertEquals(0, interp.dirtyChannels());
+
+    interp.writeRegisterPort0(0x28, 0x31);
+    Assertions.assertEquals(0b000010, interp.dirtyChannels());
+    Assertions.assertEquals(
+      VGMYM2612ParameterGroup.KEY.mask(), interp.dirtyOperatorGroups(1, 1));
+    Assertions.assertEquals(0, interp.dirtyOperatorGroups(1, 2));
+    interp.acknowledgeAll();
+
+    interp.writeRegisterPort0(0x28, 0x31);
+    Assertions.assertEquals(0, interp.dirtyChannels());
+
+    interp.writeRegisterPort0(0x27, 0x40);
+    Assertions.assertEquals(0b100100, interp.dirtyChannels());
+    Assertions.assertEquals(
+      VGMYM2612ParameterGroup.FREQUENCY.mask(), interp.dirtyGroups(2));
+  }
+
+  @Test
+  public void testTimerA()
+  {
+    final VGMYM2612Interpreter interp =
+      new VGMYM2612Interpreter(VGMYM2612Callbacks.builder().build());
+
+    interp.writeRegisterPort0(0x24, 0xff);
+    interp.writeRegisterPort0(0x25, 0x01);
+    interp.advanceTicks(1000L);
+    Assertions.assertEquals(0, interp.status());
+    Assertions.assertFalse(interp.isTimerARunning());
+
+    interp.writeRegisterPort0(0x27, 0x05);
+    Assertions.assertTrue(interp.isTimerARunning());
+    Assertions.assertEquals(3, interp.timerARemaining());
+
+    Assertions.assertEquals(0, interp.advanceTicks(2L));
+    Assertions.assertEquals(0, interp.status());
+    Assertions.assertEquals(1, interp.timerARemaining());
+    interp.advanceTicks(1L);
+    Assertions.assertEquals(VGMYM2612Interpreter.STATUS_TIMER_A, interp.status());
+    Assertions.assertEquals(3, interp.timerARemaining());
+
+    interp.advanceTicks(7L);
+    Assertions.assertEquals(2, interp.timerARemaining());
+
+    interp.writeRegisterPort0(0x27, 0x15);
+    Assertions.assertEquals(0, interp.status());
+    Assertions.assertEquals(2, interp.timerARemaining());
+  }
+
+  @Test
+  public void testTimerAFlagDisabled()
+  {
+    final VGMYM2612Interpreter interp =
+      new VGMYM2612Interpreter(VGMYM2612Callbacks.builder().build());
+
+    interp.writeRegisterPort0(0x24, 0xff);
+    interp.writeRegisterPort0(0x27, 0x01);
+    interp.advanceTicks(100L);
+    Assertions.assertEquals(0, interp.status());
+    Assertions.assertTrue(interp.isTimerARunning());
+  }
+
+  @Test
+  public void testTimerB()
+  {
+    final VGMYM2612Interpreter interp =
+      new VGMYM2612Interpreter(VGMYM2612Callbacks.builder().build());
+
+    interp.writeRegisterPort0(0x26, 0xfe);
+    interp.writeRegisterPort0(0x27, 0x0a);
+    Assertions.assertTrue(interp.isTimerBRunning());
+    Assertions.assertEquals(32, interp.timerBRemaining());
+
+    interp.advanceTicks(31L);
+    Assertions.assertEquals(0, interp.status());
+    interp.advanceTicks(1L);
+    Assertions.assertEquals(VGMYM2612Interpreter.STATUS_TIMER_B, interp.status());
+    Assertions.assertEquals(32, interp.timerBRemaining());
+
+    interp.writeRegisterPort0(0x27, 0x2a);
+    Assertions.assertEquals(0, interp.status());
+    interp.writeRegisterPort0(0x27, 0x00);
+    Assertions.assertFalse(interp.isTimerBRunning());
+  }
+
+  @Test
+  public void testTimerVGMSamples()
+  {
+    final VGMYM2612Interpreter interp =
+      new VGMYM2612Interpreter(VGMYM2612Callbacks.builder().build());
+
+    /*
+     * Timer B with a value of 0 overflows every 4096 ticks, which is
+     * 4096 * 144 / 7670453 seconds, or roughly 3391.2 VGM samples.
+     */
+
+    interp.writeRegisterPort0(0x27, 0x0a);
+    interp.advance(3391L);
+    Assertions.assertEquals(0, interp.status());
+    interp.advance(1L);
+    Assertions.assertEquals(VGMYM2612Interpreter.STATUS_TIMER_B, interp.status());
+
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> interp.advance(-1L));
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> interp.advanceTicks(-1L));
+  }
+
+  @Test
+  public void testCSM()
+  {
+    final Recorder recorder = new Recorder();
+    final VGMYM2612Interpreter interp =
+      new VGMYM2612Interpreter(recorder.callbacks());
+
+    interp.writeRegisterPort0(0x24, 0xff);
+    interp.writeRegisterPort0(0x25, 0x00);
+    interp.writeRegisterPort0(0x27, 0x45);
+    Assertions.assertTrue(recorder.preset_changed);
+    Assertions.assertFalse(interp.isCSMMode());
+    Assertions.assertEquals(0, interp.advanceTicks(40L));
+
+    interp.writeRegisterPort0(0x27, 0x85);
+    Assertions.assertFalse(recorder.preset_changed);
+    Assertions.assertTrue(interp.isCSMMode());
+    Assertions.assertEquals(10, interp.advanceTicks(40L));
+
+    interp.writeRegisterPort0(0x27, 0x95);
+    Assertions.assertFalse(recorder.preset_changed);
+    Assertions.assertEquals(0, interp.status());
+    Assertions.assertEquals(1, interp.advanceTicks(4L));
+
+    interp.writeRegisterPort0(0x27, 0x05);
+    Assertions.assertTrue(recorder.preset_changed);
+    Assertions.assertFalse(interp.isCSMMode());
+    Assertions.assertEquals(0b100100, interp.dirtyChannels() & 0b100100);
+  }
+
+  @Test
+  public void testTimeSteps()
+  {
+    final AtomicInteger instructions = new AtomicInteger();
+    final List<String> steps = new ArrayList<>();
+    final VGMYM2612Interpreter interp =
+      new VGMYM2612Interpreter(
+        VGMYM2612Callbacks.builder()
+          .setMode(VGMYM2612CallbackMode.PER_TIME_STEP)
+          .setOnInstructionReceived(
+            (inter, changed) -> instructions.incrementAndGet())
+          .setOnTimeStep(
+            (inter, step) -> steps.add(String.format(
+              "%d %d %s 0x%x 0x%x",
+              Long.valueOf(step.time()),
+              Integer.valueOf(step.writes()),
+              Boolean.valueOf(step.isPresetChanged()),
+              Integer.valueOf(step.channels()),
+              Integer.valueOf(step.groups(4)))))
+          .build());
+
+    interp.writeRegisterPort1(0x4d, 0x20);
+    interp.writeRegisterPort1(0xa5, 0x22);
+    interp.writeRegisterPort1(0xa1, 0x69);
+    interp.advance(735L);
+    interp.advance(735L);
+    interp.writeRegisterPort0(0x28, 0xf5);
+    interp.advance(0L);
+    interp.writeRegisterPort0(0x28, 0x05);
+    interp.advance(100L);
+    interp.writeRegisterPort0(0x2a, 0x80);
+    interp.flushTimeStep();
+    interp.flushTimeStep();
+
+    Assertions.assertEquals(0, instructions.get());
+    Assertions.assertEquals(
+      List.of(
+        "0 3 true 0x10 0x22",
+        "1470 2 false 0x10 0x40",
+        "1570 1 false 0x0 0x0"),
+      steps);
+    Assertions.assertEquals(1570L, interp.time());
+  }
 }
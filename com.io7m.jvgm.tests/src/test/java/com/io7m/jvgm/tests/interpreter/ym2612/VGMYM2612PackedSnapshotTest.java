@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.interpreter.ym2612;
+
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612Callbacks;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612Interpreter;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612PackedSnapshot;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class VGMYM2612PackedSnapshotTest
+{
+  private static VGMYM2612Interpreter interpreter()
+  {
+    return new VGMYM2612Interpreter(VGMYM2612Callbacks.builder().build());
+  }
+
+  @Test
+  public void testMaterializeMatchesSnapshot()
+  {
+    final VGMYM2612Interpreter interp = interpreter();
+    for (int register = 0x30; register < 0xa0; ++register) {
+      interp.writeRegisterPort0(register, (register * 37) & 0xff);
+      interp.writeRegisterPort1(register, (register * 91) & 0xff);
+    }
+    interp.writeRegisterPort0(0xb0, 0x3d);
+    interp.writeRegisterPort1(0xb2, 0x2a);
+
+    final VGMYM2612PackedSnapshot packed = new VGMYM2612PackedSnapshot();
+    interp.snapshotInto(packed);
+
+    for (int index = 0; index < 6; ++index) {
+      Assertions.assertEquals(
+        interp.channel(index).snapshot(),
+        packed.toChannelSnapshot(index));
+    }
+  }
+
+  @Test
+  public void testFingerprintChanges()
+  {
+    final VGMYM2612Interpreter interp = interpreter();
+    final VGMYM2612PackedSnapshot previous = new VGMYM2612PackedSnapshot();
+    final VGMYM2612PackedSnapshot current = new VGMYM2612PackedSnapshot();
+
+    interp.writeRegisterPort0(0x40, 0x10);
+    interp.snapshotInto(previous);
+
+    interp.writeRegisterPort0(0xa0, 0x44);
+    interp.writeRegisterPort0(0x28, 0xf0);
+    interp.snapshotInto(current);
+    Assertions.assertEquals(previous.fingerprint(0), current.fingerprint(0));
+    Assertions.assertTrue(current.channelEquals(0, previous));
+    Assertions.assertEquals(previous, current);
+
+    interp.writeRegisterPort0(0x40, 0x11);
+    interp.snapshotInto(current);
+    Assertions.assertNotEquals(previous.fingerprint(0), current.fingerprint(0));
+    Assertions.assertFalse(current.channelEquals(0, previous));
+    Assertions.assertTrue(current.channelEquals(1, previous));
+
+    previous.copyChannelFrom(0, current);
+    Assertions.assertTrue(current.channelEquals(0, previous));
+    Assertions.assertEquals(previous.fingerprint(0), current.fingerprint(0));
+  }
+
+  @Test
+  public void testChannelIndexInvalid()
+  {
+    final VGMYM2612PackedSnapshot packed = new VGMYM2612PackedSnapshot();
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> packed.fingerprint(6));
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> packed.toChannelSnapshot(-1));
+  }
+}
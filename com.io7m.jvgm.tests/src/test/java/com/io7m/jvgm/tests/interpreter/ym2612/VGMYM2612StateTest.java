@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.interpreter.ym2612;
+
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612Callbacks;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612Interpreter;
+import com.io7m.jvgm.interpreter.ym2612.VGMYM2612State;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class VGMYM2612StateTest
+{
+  private static VGMYM2612Interpreter interpreter()
+  {
+    return new VGMYM2612Interpreter(VGMYM2612Callbacks.builder().build());
+  }
+
+  @Test
+  public void testRegisterShadow()
+  {
+    final VGMYM2612Interpreter interp = interpreter();
+    interp.writeRegisterPort0(0x30, 0x71);
+    interp.writeRegisterPort1(0x30, 0x12);
+    interp.writeRegisterPort1(0x03, 0x99);
+
+    final VGMYM2612State state = interp.state();
+    Assertions.assertEquals(0x71, state.register(0, 0x30));
+    Assertions.assertEquals(0x12, state.register(1, 0x30));
+    Assertions.assertEquals(0x99, state.register(1, 0x03));
+    Assertions.assertEquals(0x00, state.register(0, 0x03));
+  }
+
+  @Test
+  public void testCheckpointRestore()
+  {
+    final VGMYM2612Interpreter interp = interpreter();
+    interp.writeRegisterPort0(0xb0, 0x32);
+    interp.writeRegisterPort0(0x40, 0x10);
+    interp.writeRegisterPort0(0x28, 0xf0);
+
+    final VGMYM2612State saved = new VGMYM2612State();
+    saved.copyFrom(interp.state());
+    Assertions.assertEquals(saved, interp.state());
+    Assertions.assertEquals(saved.hashCode(), interp.state().hashCode());
+
+    interp.writeRegisterPort0(0xb0, 0x07);
+    interp.writeRegisterPort0(0x40, 0x7f);
+    interp.writeRegisterPort0(0x28, 0x00);
+    Assertions.assertNotEquals(saved, interp.state());
+    Assertions.assertEquals(7, interp.channel(0).snapshot().algorithm());
+    Assertions.assertFalse(interp.channel(0).operator(0).isEnabled());
+
+    interp.state().copyFrom(saved);
+    Assertions.assertEquals(saved, interp.state());
+    Assertions.assertEquals(2, interp.channel(0).snapshot().algorithm());
+    Assertions.assertEquals(6, interp.channel(0).snapshot().feedback());
+    Assertions.assertEquals(0x10, interp.channel(0).operator(0).snapshot().volumeInverse());
+    Assertions.assertTrue(interp.channel(0).operator(0).isEnabled());
+  }
+
+  @Test
+  public void testSpecialModeRestored()
+  {
+    final VGMYM2612Interpreter interp = interpreter();
+    final VGMYM2612State normal = new VGMYM2612State();
+    normal.copyFrom(interp.state());
+
+    interp.writeRegisterPort0(0x27, 0x40);
+    interp.writeRegisterPort0(0xa2, 0x10);
+
+    interp.state().copyFrom(normal);
+    interp.writeRegisterPort0(0xa2, 0x10);
+    Assertions.assertEquals(0x10, interp.state().register(0, 0xa2));
+  }
+
+  @Test
+  public void testClear()
+  {
+    final VGMYM2612Interpreter interp = interpreter();
+    interp.writeRegisterPort0(0xb0, 0x32);
+    interp.state().clear();
+    Assertions.assertEquals(new VGMYM2612State(), interp.state());
+    Assertions.assertEquals(0, interp.channel(0).snapshot().algorithm());
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.parser.api;
+
+import com.io7m.jvgm.core.VGMDataBanks;
+import com.io7m.jvgm.parser.api.VGMCommandBuffer;
+import com.io7m.jvgm.parser.api.VGMYM2612DACStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+public final class VGMYM2612DACStreamTest
+{
+  private static VGMDataBanks banks()
+  {
+    final VGMDataBanks banks = new VGMDataBanks();
+    banks.addBlock(
+      VGMDataBanks.TYPE_YM2612_PCM,
+      ByteBuffer.wrap(new byte[]{0x10, 0x20, 0x30}));
+    banks.addBlock(
+      VGMDataBanks.TYPE_YM2612_PCM,
+      ByteBuffer.wrap(new byte[]{0x40, (byte) 0xff}));
+    return banks;
+  }
+
+  @Test
+  public void testRun()
+  {
+    final VGMCommandBuffer commands = new VGMCommandBuffer(16);
+    commands.append(0x52, 0L, 0x2b80L);
+    commands.append(0xe0, 1L, 1L);
+    commands.append(0x82, 2L, 2L);
+    commands.append(0x80, 3L, 0L);
+    commands.append(0x81, 4L, 1L);
+    commands.append(0x83, 5L, 3L);
+    commands.append(0x61, 6L, 100L);
+
+    final VGMYM2612DACStream dac = new VGMYM2612DACStream(2);
+    Assertions.assertEquals(0, dac.collect(commands, 0, banks()));
+    Assertions.assertEquals(5, dac.collect(commands, 1, banks()));
+
+    Assertions.assertEquals(4, dac.writes());
+    Assertions.assertEquals(6, dac.size());
+    Assertions.assertEquals(5L, dac.position());
+    Assertions.assertEquals(0xff, dac.value());
+
+    final int[] expected = {0x20, 0x20, 0x40, 0xff, 0xff, 0xff};
+    for (int index = 0; index < expected.length; ++index) {
+      Assertions.assertEquals(expected[index], dac.sample(index));
+    }
+    Assertions.assertThrows(
+      IndexOutOfBoundsException.class, () -> dac.sample(6));
+  }
+
+  @Test
+  public void testOutsideBank()
+  {
+    final VGMCommandBuffer commands = new VGMCommandBuffer(4);
+    commands.append(0xe0, 0L, 4L);
+    commands.append(0x81, 1L, 1L);
+    commands.append(0x81, 2L, 1L);
+
+    final VGMYM2612DACStream dac = new VGMYM2612DACStream(16);
+    Assertions.assertEquals(3, dac.collect(commands, 0, banks()));
+    Assertions.assertEquals(0xff, dac.sample(0));
+    Assertions.assertEquals(0x80, dac.sample(1));
+    Assertions.assertEquals(0x80, dac.value());
+  }
+
+  @Test
+  public void testInvalid()
+  {
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> new VGMYM2612DACStream(0));
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> new VGMYM2612DACStream(1).seek(-1L));
+    Assertions.assertTrue(VGMYM2612DACStream.isDACCommand(0x8f));
+    Assertions.assertTrue(VGMYM2612DACStream.isDACCommand(0xe0));
+    Assertions.assertFalse(VGMYM2612DACStream.isDACCommand(0x7f));
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.parser.vanilla;
+
+import com.io7m.jvgm.core.VGMHeader;
+import com.io7m.jvgm.parser.api.VGMCommandBuffer;
+import com.io7m.jvgm.parser.api.VGMParseError;
+import com.io7m.jvgm.parser.api.VGMParserBodyType;
+import com.io7m.jvgm.parser.api.VGMParserProviderType;
+import com.io7m.jvgm.parser.vanilla.VGMParserVanilla;
+import com.io7m.jvgm.parser.vanilla.VGMParserVanillaMapped;
+import com.io7m.jvgm.tests.VGMTestFileBuilder;
+import io.vavr.Tuple2;
+import io.vavr.collection.Seq;
+import io.vavr.control.Validation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class VGMParserVanillaBatchTest
+{
+  private static byte[] exampleFile()
+  {
+    return new VGMTestFileBuilder(0x150)
+      .bytes(0x50, 0x9f)
+      .bytes(0x52, 0x28, 0xf0)
+      .bytes(0x53, 0xb0, 0x07)
+      .bytes(0x67, 0x66, 0x01, 0x04, 0x00, 0x00, 0x00, 0x01, 0x02, 0x03, 0x04)
+      .bytes(0xe0, 0x02, 0x00, 0x00, 0x00)
+      .bytes(0x30, 0x00)
+      .bytes(0x61, 0x00, 0x01)
+      .bytes(0x62, 0x63, 0x70, 0x7f, 0x80, 0x8f)
+      .bytes(0x66)
+      .build();
+  }
+
+  private static VGMParserBodyType body(
+    final VGMParserProviderType provider,
+    final byte[] data)
+  {
+    final Validation<Seq<VGMParseError>, Tuple2<VGMParserBodyType, VGMHeader>> r =
+      provider.open(Paths.get("example.vgm"), new ByteArrayInputStream(data))
+        .parse();
+    Assertions.assertTrue(r.isValid(), () -> r.getError().toString());
+    return r.get()._1;
+  }
+
+  private static List<String> batches(
+    final VGMParserBodyType body,
+    final int capacity)
+  {
+    final VGMCommandBuffer buffer = new VGMCommandBuffer(capacity);
+    final List<String> out = new ArrayList<>();
+    while (true) {
+      final Validation<Seq<VGMParseError>, Integer> r = body.parseBatch(buffer);
+      Assertions.assertTrue(r.isValid(), () -> r.getError().toString());
+      Assertions.assertEquals(buffer.size(), r.get().intValue());
+      if (buffer.size() == 0) {
+        return out;
+      }
+      for (int index = 0; index < buffer.size(); ++index) {
+        out.add(String.format(
+          "%02x %d %x",
+          Integer.valueOf(buffer.opcode(index)),
+          Long.valueOf(buffer.offset(index)),
+          Long.valueOf(buffer.operands(index))));
+      }
+    }
+  }
+
+  @Test
+  public void testBatch()
+  {
+    final List<String> expected = List.of(
+      "50 64 9f",
+      "52 66 28f0",
+      "53 69 b007",
+      "67 72 100000004",
+      "e0 83 2",
+      "61 90 100",
+      "62 93 2df",
+      "63 94 372",
+      "70 95 1",
+      "7f 96 10",
+      "80 97 0",
+      "8f 98 f",
+      "66 99 0"
+    );
+
+    for (final VGMParserProviderType p : List.of(
+      new VGMParserVanilla(), new VGMParserVanillaMapped())) {
+      for (int capacity = 1; capacity <= 16; ++capacity) {
+        Assertions.assertEquals(
+          expected,
+          batches(body(p, exampleFile()), capacity),
+          p + " capacity " + capacity);
+      }
+    }
+  }
+
+  @Test
+  public void testBatchError()
+  {
+    final byte[] data =
+      new VGMTestFileBuilder(0x150)
+        .bytes(0x50, 0x00, 0x01)
+        .build();
+
+    for (final VGMParserProviderType p : List.of(
+      new VGMParserVanilla(), new VGMParserVanillaMapped())) {
+      final VGMCommandBuffer buffer = new VGMCommandBuffer(8);
+      final Validation<Seq<VGMParseError>, Integer> r =
+        body(p, data).parseBatch(buffer);
+      Assertions.assertTrue(r.isInvalid());
+      Assertions.assertEquals(1, buffer.size());
+      Assertions.assertEquals(0x50, buffer.opcode(0));
+    }
+  }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.parser.vanilla;
+
+import com.io7m.jvgm.core.VGMCommandType;
+import com.io7m.jvgm.core.VGMHeader;
+import com.io7m.jvgm.parser.api.VGMParseError;
+import com.io7m.jvgm.parser.api.VGMParserBodyType;
+import com.io7m.jvgm.parser.api.VGMParserHeaderType;
+import com.io7m.jvgm.parser.vanilla.VGMParserVanilla;
+import com.io7m.jvgm.parser.vanilla.VGMParserVanillaMapped;
+import com.io7m.jvgm.tests.VGMTestFileBuilder;
+import io.vavr.Tuple2;
+import io.vavr.collection.Seq;
+import io.vavr.control.Validation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.io7m.jvgm.core.VGMCommandType.Type.END_OF_SOUND_DATA;
+import static com.io7m.jvgm.core.VGMCommandType.Type.EOF;
+import static com.io7m.jvgm.core.VGMCommandType.Type.PSG_WRITE;
+import static com.io7m.jvgm.core.VGMCommandType.Type.WAIT_735;
+
+public final class VGMParserVanillaHeaderTest
+{
+  private static final Path PATH = Paths.get("file.vgm");
+
+  /**
+   * Parse the given file with both the stream and the mapped parsers, and
+   * check that both parsers agree.
+   */
+
+  private static Tuple2<VGMHeader, List<VGMCommandType.Type>> parse(
+    final byte[] data)
+  {
+    final Tuple2<VGMHeader, List<VGMCommandType.Type>> stream =
+      parseWith(new VGMParserVanilla().open(PATH, new ByteArrayInputStream(data)));
+    final Tuple2<VGMHeader, List<VGMCommandType.Type>> mapped =
+      parseWith(new VGMParserVanillaMapped().open(PATH, new ByteArrayInputStream(data)));
+
+    Assertions.assertEquals(stream, mapped);
+    return stream;
+  }
+
+  private static Tuple2<VGMHeader, List<VGMCommandType.Type>> parseWith(
+    final VGMParserHeaderType parser)
+  {
+    final Validation<Seq<VGMParseError>, Tuple2<VGMParserBodyType, VGMHeader>> r =
+      parser.parse();
+    Assertions.assertTrue(r.isValid(), () -> r.getError().toString());
+
+    final VGMParserBodyType body = r.get()._1;
+    final List<VGMCommandType.Type> types = new ArrayList<>();
+    while (true) {
+      final Validation<Seq<VGMParseError>, VGMCommandType> c = body.parse();
+      Assertions.assertTrue(c.isValid(), () -> c.getError().toString());
+      types.add(c.get().type());
+      if (c.get().type() == EOF) {
+        break;
+      }
+    }
+    return new Tuple2<>(r.get()._2, types);
+  }
+
+  @Test
+  public void testVersion100()
+  {
+    final Tuple2<VGMHeader, List<VGMCommandType.Type>> r = parse(
+      new VGMTestFileBuilder(0x100)
+        .headerInt(0x10, 3579545)
+        .headerInt(0x24, 60)
+        .headerInt(0x34, 0)
+        .bytes(0x62, 0x66)
+        .build());
+
+    final VGMHeader header = r._1;
+    Assertions.assertEquals(0x100L, header.version());
+    Assertions.assertEquals(0L, header.rate());
+    Assertions.assertEquals(0x40L, header.dataOffset());
+    Assertions.assertEquals(3579545L, header.chipYM2612Clock().getAsLong());
+    Assertions.assertEquals(3579545L, header.chipYM2151Clock().getAsLong());
+    Assertions.assertEquals(0x0009, header.chipSN76489Feedback());
+    Assertions.assertEquals(16, header.chipSN76489ShiftRegisterWidth());
+    Assertions.assertEquals(List.of(WAIT_735, END_OF_SOUND_DATA, EOF), r._2);
+  }
+
+  @Test
+  public void testVersion101()
+  {
+    final Tuple2<VGMHeader, List<VGMCommandType.Type>> r = parse(
+      new VGMTestFileBuilder(0x101)
+        .headerInt(0x10, 3579545)
+        .headerInt(0x34, 0)
+        .bytes(0x62, 0x66)
+        .build());
+
+    final VGMHeader header = r._1;
+    Assertions.assertEquals(60L, header.rate());
+    Assertions.assertEquals(0x40L, header.dataOffset());
+    Assertions.assertEquals(3579545L, header.chipYM2612Clock().getAsLong());
+  }
+
+  @Test
+  public void testVersion110()
+  {
+    final Tuple2<VGMHeader, List<VGMCommandType.Type>> r = parse(
+      new VGMTestFileBuilder(0x110)
+        .headerInt(0x10, 3579545)
+        .headerInt(0x34, 0)
+        .bytes(0x62, 0x66)
+        .build());
+
+    final VGMHeader header = r._1;
+    Assertions.assertEquals(7670453L, header.chipYM2612Clock().getAsLong());
+    Assertions.assertEquals(0L, header.chipYM2151Clock().getAsLong());
+    Assertions.assertEquals(0x40L, header.dataOffset());
+  }
+
+  @Test
+  public void testVersion150ZeroDataOffset()
+  {
+    final Tuple2<VGMHeader, List<VGMCommandType.Type>> r = parse(
+      new VGMTestFileBuilder(0x150)
+        .headerInt(0x34, 0)
+        .bytes(0x50, 0x9f, 0x66)
+        .build());
+
+    Assertions.assertEquals(0x40L, r._1.dataOffset());
+    Assertions.assertEquals(List.of(PSG_WRITE, END_OF_SOUND_DATA, EOF), r._2);
+  }
+
+  @Test
+  public void testVersion171Extended()
+  {
+    final Tuple2<VGMHeader, List<VGMCommandType.Type>> r = parse(
+      new VGMTestFileBuilder(0x171)
+        .headerSize(0x100)
+        .headerInt(0x44, 4000000)
+        .headerInt(0x74, 1789772)
+        .headerInt(0x78, 0x00010100)
+        .headerInt(0x7c, 0x40000000)
+        .headerInt(0x80, 4194304)
+        .headerInt(0xb8, 22579200)
+        .headerInt(0xbc, 0x30)
+        .headerInt(0xd4, 0x00000201)
+        .headerInt(0xe0, 3579545)
+        .bytes(0x55, 0x28, 0x00)
+        .bytes(0xb3, 0x12, 0x34)
+        .bytes(0x66)
+        .build());
+
+    final VGMHeader header = r._1;
+    Assertions.assertEquals(0x100L, header.dataOffset());
+    Assertions.assertEquals(4000000L, header.chipYM2203Clock().getAsLong());
+    Assertions.assertEquals(1789772L, header.chipAY8910Clock().getAsLong());
+    Assertions.assertEquals(0x00, header.chipAY8910Type());
+    Assertions.assertEquals(0x01, header.chipAY8910Flags());
+    Assertions.assertEquals(0x01, header.chipYM2203AY8910Flags());
+    Assertions.assertEquals(0x40, header.loopModifier());
+    Assertions.assertEquals(4194304L, header.chipGameBoyDMGClock().getAsLong());
+    Assertions.assertEquals(22579200L, header.chipSCSPClock().getAsLong());
+    Assertions.assertEquals(0xbcL + 0x30L, header.extraHeaderOffset().getAsLong());
+    Assertions.assertEquals(1, header.chipES5503Channels());
+    Assertions.assertEquals(2, header.chipES5506Channels());
+    Assertions.assertEquals(3579545L, header.chipGA20Clock().getAsLong());
+    Assertions.assertFalse(header.chipYM2608Clock().isPresent());
+    Assertions.assertFalse(header.chipMikeyClock().isPresent());
+    Assertions.assertEquals(List.of(END_OF_SOUND_DATA, EOF), r._2);
+  }
+
+  @Test
+  public void testShortHeaderZeroFilled()
+  {
+    final Tuple2<VGMHeader, List<VGMCommandType.Type>> r = parse(
+      new VGMTestFileBuilder(0x161)
+        .headerSize(0x80)
+        .headerInt(0x40, 12500000)
+        .bytes(0xff, 0x01, 0x02, 0x03, 0x04, 0x62, 0x66)
+        .build());
+
+    final VGMHeader header = r._1;
+    Assertions.assertEquals(0x80L, header.dataOffset());
+    Assertions.assertEquals(12500000L, header.chipRF5C68Clock().getAsLong());
+    Assertions.assertFalse(header.chipGameBoyDMGClock().isPresent());
+    Assertions.assertEquals(List.of(WAIT_735, END_OF_SOUND_DATA, EOF), r._2);
+  }
+
+  @Test
+  public void testVersion150IgnoresExtendedFields()
+  {
+    final Tuple2<VGMHeader, List<VGMCommandType.Type>> r = parse(
+      new VGMTestFileBuilder(0x150)
+        .headerSize(0x80)
+        .headerInt(0x40, 12500000)
+        .bytes(0x66)
+        .build());
+
+    Assertions.assertEquals(0x80L, r._1.dataOffset());
+    Assertions.assertFalse(r._1.chipRF5C68Clock().isPresent());
+  }
+
+  @Test
+  public void testExtendedChipCommandsSkipped()
+  {
+    final Tuple2<VGMHeader, List<VGMCommandType.Type>> r = parse(
+      new VGMTestFileBuilder(0x161)
+        .bytes(0x5e, 0x01, 0x02)
+        .bytes(0x68, 0x66, 0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09)
+        .bytes(0x90, 0x00, 0x02, 0x00, 0x2a)
+        .bytes(0x93, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00)
+        .bytes(0xa0, 0x07, 0x38)
+        .bytes(0xb4, 0x00, 0x10)
+        .bytes(0xc0, 0x00, 0x10, 0x20)
+        .bytes(0xd2, 0x00, 0x10, 0x20)
+        .bytes(0xe1, 0x00, 0x10, 0x20, 0x30)
+        .bytes(0x62, 0x66)
+        .build());
+
+    Assertions.assertEquals(List.of(WAIT_735, END_OF_SOUND_DATA, EOF), r._2);
+  }
+
+  @Test
+  public void testTruncatedHeader()
+  {
+    final byte[] data = new VGMTestFileBuilder(0x150).bytes(0x66).build();
+    final byte[] truncated = new byte[0x30];
+    System.arraycopy(data, 0, truncated, 0, truncated.length);
+
+    Assertions.assertFalse(
+      new VGMParserVanilla()
+        .open(PATH, new ByteArrayInputStream(truncated))
+        .parse()
+        .isValid());
+    Assertions.assertFalse(
+      new VGMParserVanillaMapped()
+        .open(PATH, new ByteArrayInputStream(truncated))
+        .parse()
+        .isValid());
+  }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.parser.vanilla;
+
+import com.io7m.jvgm.core.VGMCommandDataBlock;
+import com.io7m.jvgm.core.VGMCommandType;
+import com.io7m.jvgm.core.VGMDataBanks;
+import com.io7m.jvgm.core.VGMHeader;
+import com.io7m.jvgm.parser.api.VGMParseError;
+import com.io7m.jvgm.parser.api.VGMParserBodyType;
+import com.io7m.jvgm.parser.api.VGMParserBodyVisitorType;
+import com.io7m.jvgm.parser.api.VGMParserHeaderType;
+import com.io7m.jvgm.parser.api.VGMParserProviderType;
+import com.io7m.jvgm.parser.vanilla.VGMParserVanilla;
+import com.io7m.jvgm.parser.vanilla.VGMParserVanillaMapped;
+import com.io7m.jvgm.tests.VGMTestFileBuilder;
+import io.vavr.Tuple2;
+import io.vavr.collection.Seq;
+import io.vavr.control.Validation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class VGMParserVanillaMappedTest
+{
+  private static byte[] exampleFile()
+  {
+    return new VGMTestFileBuilder(0x150)
+      .bytes(0x50, 0x9f)
+      .bytes(0x4f, 0x03)
+      .bytes(0x51, 0x10, 0x20)
+      .bytes(0x52, 0x28, 0xf0)
+      .bytes(0x53, 0xb0, 0x07)
+      .bytes(0x67, 0x66, 0x00, 0x04, 0x00, 0x00, 0x00, 0x01, 0x02, 0x03, 0x04)
+      .bytes(0xe0, 0x02, 0x00, 0x00, 0x00)
+      .bytes(0x61, 0x00, 0x01)
+      .bytes(0x62, 0x63, 0x70, 0x7f, 0x80, 0x8f)
+      .bytes(0x30, 0x00)
+      .bytes(0xa1, 0x00, 0x00)
+      .bytes(0xe2, 0x00, 0x00, 0x00, 0x00)
+      .bytes(0x66)
+      .build();
+  }
+
+  private static List<VGMCommandType> parseAll(
+    final VGMParserHeaderType parser)
+  {
+    final Validation<Seq<VGMParseError>, Tuple2<VGMParserBodyType, VGMHeader>> r =
+      parser.parse();
+    Assertions.assertTrue(r.isValid(), () -> r.getError().toString());
+
+    final VGMParserBodyType body = r.get()._1;
+    final List<VGMCommandType> commands = new ArrayList<>();
+    while (true) {
+      final Validation<Seq<VGMParseError>, VGMCommandType> c = body.parse();
+      Assertions.assertTrue(c.isValid(), () -> c.getError().toString());
+      commands.add(c.get());
+      if (c.get().type() == VGMCommandType.Type.EOF) {
+        return commands;
+      }
+    }
+  }
+
+  private static List<VGMCommandType> parseWith(
+    final VGMParserProviderType provider,
+    final byte[] data)
+  {
+    return parseAll(provider.open(
+      Paths.get("example.vgm"),
+      new ByteArrayInputStream(data)));
+  }
+
+  /**
+   * Parse commands until the end of the input or the first error, and
+   * describe the result. Errors are described by their offset and message,
+   * so that the results of different parsers can be compared.
+   */
+
+  private static List<Object> outcomeWith(
+    final VGMParserProviderType provider,
+    final byte[] data)
+  {
+    final Validation<Seq<VGMParseError>, Tuple2<VGMParserBodyType, VGMHeader>> r =
+      provider.open(Paths.get("example.vgm"), new ByteArrayInputStream(data))
+        .parse();
+    Assertions.assertTrue(r.isValid(), () -> r.getError().toString());
+
+    final VGMParserBodyType body = r.get()._1;
+    final List<Object> outcome = new ArrayList<>();
+    while (true) {
+      final Validation<Seq<VGMParseError>, VGMCommandType> c = body.parse();
+      if (c.isInvalid()) {
+        final VGMParseError error = c.getError().get(0);
+        outcome.add(Long.valueOf(error.offset()));
+        outcome.add(error.message());
+        return outcome;
+      }
+      outcome.add(c.get());
+      if (c.get().type() == VGMCommandType.Type.EOF) {
+        return outcome;
+      }
+    }
+  }
+
+  @Test
+  public void testSameAsStreamParser()
+  {
+    final byte[] data = exampleFile();
+    final List<VGMCommandType> expected =
+      parseWith(new VGMParserVanilla(), data);
+    final List<VGMCommandType> received =
+      parseWith(new VGMParserVanillaMapped(), data);
+
+    Assertions.assertEquals(16, expected.size());
+    Assertions.assertEquals(expected, received);
+  }
+
+  @Test
+  public void testSameAsStreamParserTruncated()
+  {
+    final byte[] full = exampleFile();
+    for (int size = 0x41; size < full.length; ++size) {
+      final byte[] data = new byte[size];
+      System.arraycopy(full, 0, data, 0, size);
+      Assertions.assertEquals(
+        outcomeWith(new VGMParserVanilla(), data),
+        outcomeWith(new VGMParserVanillaMapped(), data),
+        "Truncated at " + size);
+    }
+  }
+
+  @Test
+  public void testSameAsStreamParserTruncatedDataBlock()
+  {
+    final byte[] data =
+      new VGMTestFileBuilder(0x150)
+        .bytes(0x62)
+        .bytes(0x67, 0x66, 0x00, 0x10, 0x00, 0x00, 0x00, 0x01, 0x02)
+        .bytes(0x66)
+        .build();
+
+    final List<Object> expected = outcomeWith(new VGMParserVanilla(), data);
+    Assertions.assertEquals(3, expected.size());
+    Assertions.assertEquals(Long.valueOf(0x48L), expected.get(1));
+    Assertions.assertEquals(
+      expected, outcomeWith(new VGMParserVanillaMapped(), data));
+
+    for (final VGMParserProviderType provider : List.of(
+      new VGMParserVanilla(), new VGMParserVanillaMapped())) {
+      final Validation<Seq<VGMParseError>, Void> v =
+        provider.open(Paths.get("example.vgm"), new ByteArrayInputStream(data))
+          .parse()
+          .get()
+          ._1
+          .parseAll(new VGMParserBodyVisitorType()
+          {
+          });
+      Assertions.assertTrue(v.isInvalid());
+      Assertions.assertEquals(0x48L, v.getError().get(0).offset());
+      Assertions.assertEquals(expected.get(2), v.getError().get(0).message());
+    }
+  }
+
+  @Test
+  public void testMappedFile(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    final Path file = directory.resolve("example.vgm");
+    final byte[] data = exampleFile();
+    Files.write(file, data);
+
+    final List<VGMCommandType> expected =
+      parseWith(new VGMParserVanilla(), data);
+    try (VGMParserHeaderType parser =
+           new VGMParserVanillaMapped().openMapped(file)) {
+      Assertions.assertEquals(expected, parseAll(parser));
+    }
+  }
+
+  @Test
+  public void testMappedDataBlocksAreViews(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    final Path file = directory.resolve("example.vgm");
+    Files.write(file, exampleFile());
+
+    try (VGMParserHeaderType parser =
+           new VGMParserVanillaMapped().openMapped(file)) {
+      final VGMParserBodyType body = parser.parse().get()._1;
+      body.parseAll(new VGMParserBodyVisitorType() { });
+
+      final VGMDataBanks banks = body.dataBanks();
+      Assertions.assertEquals(4L, banks.bankSize(0));
+      Assertions.assertTrue(banks.block(0, 0).isDirect());
+      Assertions.assertTrue(banks.block(0, 0).isReadOnly());
+      for (int index = 0; index < 4; ++index) {
+        Assertions.assertEquals(index + 1, banks.byteAt(0, (long) index));
+      }
+    }
+  }
+
+  @Test
+  public void testDataBlocksRetained()
+  {
+    final byte[] data = exampleFile();
+    for (final VGMParserProviderType provider : List.of(
+      new VGMParserVanilla(), new VGMParserVanillaMapped())) {
+      final List<VGMCommandType> commands = parseWith(provider, data);
+      final VGMCommandDataBlock block = (VGMCommandDataBlock) commands.get(5);
+      final ByteBuffer buffer = block.data().orElseThrow();
+      Assertions.assertEquals(4, buffer.remaining());
+      Assertions.assertTrue(buffer.isReadOnly());
+      for (int index = 0; index < 4; ++index) {
+        Assertions.assertEquals((byte) (index + 1), buffer.get(index));
+      }
+    }
+  }
+
+  @Test
+  public void testBadMagic()
+  {
+    final byte[] data = exampleFile();
+    data[0] = (byte) 0x00;
+
+    final VGMParserHeaderType parser =
+      new VGMParserVanillaMapped().open(
+        Paths.get("example.vgm"),
+        new ByteArrayInputStream(data));
+
+    final Validation<Seq<VGMParseError>, Tuple2<VGMParserBodyType, VGMHeader>> r =
+      parser.parse();
+    Assertions.assertTrue(r.isInvalid());
+    Assertions.assertEquals(4L, r.getError().get(0).offset());
+  }
+
+  @Test
+  public void testTruncatedHeader()
+  {
+    final byte[] data = new byte[0x20];
+    System.arraycopy(exampleFile(), 0, data, 0, data.length);
+
+    final VGMParserHeaderType parser =
+      new VGMParserVanillaMapped().open(
+        Paths.get("example.vgm"),
+        new ByteArrayInputStream(data));
+
+    final Validation<Seq<VGMParseError>, Tuple2<VGMParserBodyType, VGMHeader>> r =
+      parser.parse();
+    Assertions.assertTrue(r.isInvalid());
+    Assertions.assertEquals(0x20L, r.getError().get(0).offset());
+  }
+}
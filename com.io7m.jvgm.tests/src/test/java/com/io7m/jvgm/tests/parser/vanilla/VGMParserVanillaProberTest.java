@@ -0,0 +1,204 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.parser.vanilla;
+
+import com.io7m.jvgm.core.VGMGD3Tag;
+import com.io7m.jvgm.parser.api.VGMParseError;
+import com.io7m.jvgm.parser.api.VGMProbe;
+import com.io7m.jvgm.parser.api.VGMProberType;
+import com.io7m.jvgm.parser.vanilla.VGMParserVanillaProber;
+import com.io7m.jvgm.tests.VGMTestFileBuilder;
+import io.vavr.collection.Seq;
+import io.vavr.control.Validation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.ServiceLoader;
+
+public final class VGMParserVanillaProberTest
+{
+  @TempDir
+  public Path directory;
+
+  private Path write(
+    final byte[] data)
+    throws IOException
+  {
+    final Path file = this.directory.resolve("file.vgm");
+    Files.write(file, data);
+    return file;
+  }
+
+  @Test
+  public void testProbeGD3()
+    throws IOException
+  {
+    final Path file = this.write(
+      new VGMTestFileBuilder(0x150)
+        .samples(735L)
+        .bytes(0x62, 0x66)
+        .gd3(
+          "Green Hill Zone",
+          "グリーンヒルゾーン",
+          "Sonic the Hedgehog",
+          "",
+          "Sega Mega Drive",
+          "",
+          "Masato Nakamura",
+          "中村正人",
+          "1991/06/23",
+          "someone",
+          "Some notes")
+        .build());
+
+    final VGMProberType prober = new VGMParserVanillaProber();
+    final Validation<Seq<VGMParseError>, VGMProbe> r = prober.probe(file);
+    Assertions.assertTrue(r.isValid(), () -> r.getError().toString());
+
+    final VGMProbe probe = r.get();
+    Assertions.assertEquals(file, probe.path());
+    Assertions.assertEquals(0x150L, probe.header().version());
+    Assertions.assertEquals(735L, probe.header().sampleCount());
+
+    final VGMGD3Tag tag = probe.gd3().get();
+    Assertions.assertEquals(0x100L, tag.version());
+    Assertions.assertEquals("Green Hill Zone", tag.trackNameEnglish());
+    Assertions.assertEquals("グリーンヒルゾーン", tag.trackNameJapanese());
+    Assertions.assertEquals("Sonic the Hedgehog", tag.gameNameEnglish());
+    Assertions.assertEquals("", tag.gameNameJapanese());
+    Assertions.assertEquals("Sega Mega Drive", tag.systemNameEnglish());
+    Assertions.assertEquals("", tag.systemNameJapanese());
+    Assertions.assertEquals("Masato Nakamura", tag.authorNameEnglish());
+    Assertions.assertEquals("中村正人", tag.authorNameJapanese());
+    Assertions.assertEquals("1991/06/23", tag.releaseDate());
+    Assertions.assertEquals("someone", tag.convertedBy());
+    Assertions.assertEquals("Some notes", tag.notes());
+  }
+
+  @Test
+  public void testProbeNoGD3()
+    throws IOException
+  {
+    final Path file = this.write(
+      new VGMTestFileBuilder(0x150)
+        .bytes(0x66)
+        .build());
+
+    final Validation<Seq<VGMParseError>, VGMProbe> r =
+      new VGMParserVanillaProber().probe(file);
+    Assertions.assertTrue(r.isValid(), () -> r.getError().toString());
+    Assertions.assertFalse(r.get().gd3().isPresent());
+  }
+
+  @Test
+  public void testProbeShortGD3()
+    throws IOException
+  {
+    final Path file = this.write(
+      new VGMTestFileBuilder(0x150)
+        .bytes(0x66)
+        .gd3("Title", "", "Game")
+        .build());
+
+    final Validation<Seq<VGMParseError>, VGMProbe> r =
+      new VGMParserVanillaProber().probe(file);
+    Assertions.assertTrue(r.isValid(), () -> r.getError().toString());
+
+    final VGMGD3Tag tag = r.get().gd3().get();
+    Assertions.assertEquals("Title", tag.trackNameEnglish());
+    Assertions.assertEquals("Game", tag.gameNameEnglish());
+    Assertions.assertEquals("", tag.notes());
+  }
+
+  @Test
+  public void testProbeIgnoresCommands()
+    throws IOException
+  {
+    final Path file = this.write(
+      new VGMTestFileBuilder(0x150)
+        .bytes(0xff, 0xff, 0xff, 0x01)
+        .gd3("Title")
+        .build());
+
+    final VGMProberType prober = new VGMParserVanillaProber();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      channel.position(3L);
+      final Validation<Seq<VGMParseError>, VGMProbe> r =
+        prober.probe(file, channel);
+      Assertions.assertTrue(r.isValid(), () -> r.getError().toString());
+      Assertions.assertEquals("Title", r.get().gd3().get().trackNameEnglish());
+      Assertions.assertEquals(3L, channel.position());
+    }
+  }
+
+  @Test
+  public void testProbeTruncatedGD3()
+    throws IOException
+  {
+    final byte[] data =
+      new VGMTestFileBuilder(0x150)
+        .bytes(0x66)
+        .gd3("A fairly long title")
+        .build();
+
+    final Path file = this.write(Arrays.copyOf(data, data.length - 8));
+    final Validation<Seq<VGMParseError>, VGMProbe> r =
+      new VGMParserVanillaProber().probe(file);
+    Assertions.assertFalse(r.isValid());
+  }
+
+  @Test
+  public void testProbeBadGD3Magic()
+    throws IOException
+  {
+    final byte[] data =
+      new VGMTestFileBuilder(0x150)
+        .bytes(0x66)
+        .gd3("Title")
+        .build();
+
+    data[0x41] = (byte) 'X';
+    final Path file = this.write(data);
+    final Validation<Seq<VGMParseError>, VGMProbe> r =
+      new VGMParserVanillaProber().probe(file);
+    Assertions.assertFalse(r.isValid());
+  }
+
+  @Test
+  public void testProbeBadMagic()
+    throws IOException
+  {
+    final Path file = this.write(new byte[]{0x01, 0x02, 0x03, 0x04});
+    final Validation<Seq<VGMParseError>, VGMProbe> r =
+      new VGMParserVanillaProber().probe(file);
+    Assertions.assertFalse(r.isValid());
+  }
+
+  @Test
+  public void testServiceLoader()
+  {
+    Assertions.assertTrue(
+      ServiceLoader.load(VGMProberType.class).findFirst().isPresent());
+  }
+}
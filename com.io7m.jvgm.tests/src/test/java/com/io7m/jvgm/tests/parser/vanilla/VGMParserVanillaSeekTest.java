@@ -0,0 +1,262 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.parser.vanilla;
+
+import com.io7m.jvgm.parser.api.VGMCheckpointIndex;
+import com.io7m.jvgm.parser.api.VGMParseError;
+import com.io7m.jvgm.parser.api.VGMParserBodyType;
+import com.io7m.jvgm.parser.api.VGMParserBodyVisitorType;
+import com.io7m.jvgm.parser.api.VGMParserSeekableBodyType;
+import com.io7m.jvgm.parser.api.VGMYM2612RegisterShadow;
+import com.io7m.jvgm.parser.vanilla.VGMParserVanillaMapped;
+import com.io7m.jvgm.tests.VGMTestFileBuilder;
+import io.vavr.collection.Seq;
+import io.vavr.control.Validation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class VGMParserVanillaSeekTest
+{
+  private static final int COMMANDS = 100;
+  private static final int WAIT = 100;
+
+  private static byte[] exampleFile()
+  {
+    final VGMTestFileBuilder b = new VGMTestFileBuilder(0x150);
+    b.bytes(0x67, 0x66, 0x00, 0x02, 0x00, 0x00, 0x00, 0x10, 0x11);
+    for (int index = 0; index < COMMANDS; ++index) {
+      if (index == COMMANDS / 2) {
+        b.loopHere((long) (COMMANDS / 2) * (long) WAIT);
+      }
+      b.bytes(0x52, 0x30 + index % 16, index);
+      b.bytes(0x53, 0x40 + index % 8, (index * 3) & 0xff);
+      b.bytes(0x52, 0xa4 + index % 3, index % 8);
+      b.bytes(0x52, 0xa0 + index % 3, index);
+      b.bytes(0x52, 0x28, ((index % 2) * 0xf0) | (index % 3));
+      b.bytes(0xe0, index, 0x00, 0x00, 0x00);
+      b.bytes(0x61, WAIT, 0x00);
+    }
+    b.bytes(0x66);
+    b.samples((long) COMMANDS * (long) WAIT);
+    return b.build();
+  }
+
+  private static VGMParserSeekableBodyType body(
+    final byte[] data)
+  {
+    final Validation<Seq<VGMParseError>, ? extends VGMParserBodyType> r =
+      new VGMParserVanillaMapped()
+        .openBuffer(Paths.get("example.vgm"), ByteBuffer.wrap(data))
+        .parse()
+        .map(pair -> pair._1);
+    Assertions.assertTrue(r.isValid(), () -> r.getError().toString());
+    return (VGMParserSeekableBodyType) r.get();
+  }
+
+  private static List<String> replayed(
+    final VGMYM2612RegisterShadow shadow)
+  {
+    final List<String> out = new ArrayList<>();
+    shadow.replay(new VGMParserBodyVisitorType()
+    {
+      @Override
+      public void onYM2612Write(
+        final int port,
+        final int register,
+        final int value)
+      {
+        out.add(port + " " + register + " " + value);
+      }
+    });
+    return out;
+  }
+
+  @Test
+  public void testIndex()
+  {
+    final VGMParserSeekableBodyType body = body(exampleFile());
+    final Validation<Seq<VGMParseError>, VGMCheckpointIndex> r =
+      body.buildIndex(1000L);
+    Assertions.assertTrue(r.isValid());
+
+    final VGMCheckpointIndex index = r.get();
+    Assertions.assertEquals(11, index.size());
+    for (int i = 0; i < index.size(); ++i) {
+      Assertions.assertEquals(1000L * (long) i, index.checkpoint(i).sample());
+    }
+    Assertions.assertEquals(5000L, index.loop().orElseThrow().sample());
+    Assertions.assertEquals(1000L, index.nearest(1999L).sample());
+    Assertions.assertEquals(2000L, index.nearest(2000L).sample());
+    Assertions.assertEquals(10000L, index.nearest(100000L).sample());
+  }
+
+  @Test
+  public void testSeekMatchesLinear()
+  {
+    final byte[] data = exampleFile();
+    final VGMParserSeekableBodyType seekable = body(data);
+    final VGMCheckpointIndex index = seekable.buildIndex(1000L).get();
+
+    for (final long target : new long[]{0L, 1L, 999L, 1000L, 2550L, 9999L, 20000L}) {
+      final Shadowing linear = new Shadowing();
+      final VGMParserSeekableBodyType linear_body = body(data);
+      linear_body.seek(
+        new VGMCheckpointIndex(
+          1L << 40, List.of(index.checkpoint(0)), index.loop()),
+        target,
+        linear);
+
+      final Shadowing seeked = new Shadowing();
+      final Validation<Seq<VGMParseError>, Long> r =
+        seekable.seek(index, target, seeked);
+      Assertions.assertTrue(r.isValid());
+
+      final long expected = Math.min(
+        (target + WAIT - 1L) / WAIT * WAIT,
+        (long) COMMANDS * (long) WAIT);
+      Assertions.assertEquals(expected, r.get().longValue());
+      Assertions.assertEquals(
+        replayed(linear.shadow), replayed(seeked.shadow), "Target " + target);
+      Assertions.assertEquals(linear.pcm, seeked.pcm);
+
+      final Shadowing rest = new Shadowing();
+      seekable.parseAll(rest);
+      Assertions.assertEquals(
+        (long) COMMANDS * (long) WAIT - expected, rest.samples);
+    }
+
+    Assertions.assertEquals(1, seekable.dataBanks().blockCount(0));
+  }
+
+  @Test
+  public void testSeekBackwardMatchesLinear()
+  {
+    final byte[] data = exampleFile();
+    final VGMParserSeekableBodyType seekable = body(data);
+    final VGMCheckpointIndex index = seekable.buildIndex(1000L).get();
+
+    final Shadowing seeked = new Shadowing();
+    Assertions.assertTrue(seekable.seek(index, 9000L, seeked).isValid());
+    Assertions.assertTrue(seekable.seek(index, 1000L, seeked).isValid());
+
+    final Shadowing linear = new Shadowing();
+    body(data).seek(
+      new VGMCheckpointIndex(
+        1L << 40, List.of(index.checkpoint(0)), index.loop()),
+      1000L,
+      linear);
+
+    Assertions.assertEquals(replayed(linear.shadow), replayed(seeked.shadow));
+    Assertions.assertEquals(linear.pcm, seeked.pcm);
+  }
+
+  @Test
+  public void testReplayTimerControl()
+  {
+    final VGMYM2612RegisterShadow shadow = new VGMYM2612RegisterShadow();
+    shadow.write(0, 0x24, 0xc0);
+    shadow.write(0, 0x25, 0x02);
+    shadow.write(0, 0x26, 0x80);
+    shadow.write(0, 0x27, 0b1011_1111);
+    shadow.write(1, 0x27, 0x3f);
+
+    Assertions.assertEquals(
+      List.of("0 36 192", "0 37 2", "0 38 128", "0 39 128", "1 39 63"),
+      replayed(shadow));
+  }
+
+  @Test
+  public void testSeekLoop()
+  {
+    final byte[] data = exampleFile();
+    final VGMParserSeekableBodyType seekable = body(data);
+    final VGMCheckpointIndex index = seekable.buildIndex(3000L).get();
+
+    final Shadowing seeked = new Shadowing();
+    final Validation<Seq<VGMParseError>, Long> r =
+      seekable.seekLoop(index, seeked);
+    Assertions.assertTrue(r.isValid());
+    Assertions.assertEquals(5000L, r.get().longValue());
+
+    final Shadowing linear = new Shadowing();
+    body(data).seek(index, 5000L, linear);
+    Assertions.assertEquals(replayed(linear.shadow), replayed(seeked.shadow));
+  }
+
+  @Test
+  public void testSeekLoopMissing()
+  {
+    final byte[] data =
+      new VGMTestFileBuilder(0x150)
+        .bytes(0x62, 0x66)
+        .build();
+
+    final VGMParserSeekableBodyType seekable = body(data);
+    final VGMCheckpointIndex index = seekable.buildIndex(100L).get();
+    Assertions.assertEquals(2, index.size());
+    Assertions.assertTrue(
+      seekable.seekLoop(index, new Shadowing()).isInvalid());
+  }
+
+  private static final class Shadowing implements VGMParserBodyVisitorType
+  {
+    private final VGMYM2612RegisterShadow shadow =
+      new VGMYM2612RegisterShadow();
+    private long pcm;
+    private long samples;
+
+    Shadowing()
+    {
+
+    }
+
+    @Override
+    public void onYM2612Write(
+      final int port,
+      final int register,
+      final int value)
+    {
+      this.shadow.write(port, register, value);
+    }
+
+    @Override
+    public void onYM2612SeekPCM(
+      final long position)
+    {
+      this.pcm = position;
+    }
+
+    @Override
+    public void onReset()
+    {
+      this.shadow.clear();
+      this.pcm = 0L;
+    }
+
+    @Override
+    public void onWait(
+      final int in_samples)
+    {
+      this.samples += (long) in_samples;
+    }
+  }
+}
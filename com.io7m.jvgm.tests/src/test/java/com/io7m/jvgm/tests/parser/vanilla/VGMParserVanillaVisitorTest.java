@@ -0,0 +1,348 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.parser.vanilla;
+
+import com.io7m.jvgm.core.VGMCommandDataBlock;
+import com.io7m.jvgm.core.VGMCommandGameGearPSGStereoWrite;
+import com.io7m.jvgm.core.VGMCommandPSGWrite;
+import com.io7m.jvgm.core.VGMCommandType;
+import com.io7m.jvgm.core.VGMCommandWaitLong;
+import com.io7m.jvgm.core.VGMCommandYM2413Write;
+import com.io7m.jvgm.core.VGMCommandYM2612SeekPCM;
+import com.io7m.jvgm.core.VGMCommandYM2612WritePort0;
+import com.io7m.jvgm.core.VGMCommandYM2612WritePort1;
+import com.io7m.jvgm.core.VGMHeader;
+import com.io7m.jvgm.parser.api.VGMParseError;
+import com.io7m.jvgm.parser.api.VGMParserBodyType;
+import com.io7m.jvgm.parser.api.VGMParserBodyVisitorType;
+import com.io7m.jvgm.parser.api.VGMParserProviderType;
+import com.io7m.jvgm.parser.vanilla.VGMParserVanilla;
+import com.io7m.jvgm.parser.vanilla.VGMParserVanillaMapped;
+import com.io7m.jvgm.tests.VGMTestFileBuilder;
+import io.vavr.Tuple2;
+import io.vavr.collection.Seq;
+import io.vavr.control.Validation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class VGMParserVanillaVisitorTest
+{
+  private static byte[] exampleFile()
+  {
+    return new VGMTestFileBuilder(0x150)
+      .bytes(0x50, 0x9f)
+      .bytes(0x4f, 0x03)
+      .bytes(0x51, 0x10, 0x20)
+      .bytes(0x52, 0x28, 0xf0)
+      .bytes(0x53, 0xb0, 0x07)
+      .bytes(0x67, 0x66, 0x00, 0x04, 0x00, 0x00, 0x00, 0x01, 0x02, 0x03, 0x04)
+      .bytes(0xe0, 0x02, 0x00, 0x00, 0x00)
+      .bytes(0x61, 0x00, 0x01)
+      .bytes(0x62, 0x63, 0x70, 0x7f, 0x80, 0x8f)
+      .bytes(0x30, 0x00)
+      .bytes(0x66)
+      .bytes(0x50, 0x00)
+      .build();
+  }
+
+  private static VGMParserBodyType body(
+    final VGMParserProviderType provider,
+    final byte[] data)
+  {
+    final Validation<Seq<VGMParseError>, Tuple2<VGMParserBodyType, VGMHeader>> r =
+      provider.open(Paths.get("example.vgm"), new ByteArrayInputStream(data))
+        .parse();
+    Assertions.assertTrue(r.isValid(), () -> r.getError().toString());
+    return r.get()._1;
+  }
+
+  // CHECKSTYLE:OFF
+  private static String describe(
+    final VGMCommandType c)
+  {
+    final int tag = c.type().tag();
+    switch (c.type()) {
+      case GAME_GEAR_PSG_STEREO_WRITE:
+        return "gg " + ((VGMCommandGameGearPSGStereoWrite) c).value();
+      case PSG_WRITE:
+        return "psg " + ((VGMCommandPSGWrite) c).value();
+      case YM2413_WRITE: {
+        final VGMCommandYM2413Write w = (VGMCommandYM2413Write) c;
+        return "opll " + w.register() + " " + w.value();
+      }
+      case YM2612_WRITE_PORT_0: {
+        final VGMCommandYM2612WritePort0 w = (VGMCommandYM2612WritePort0) c;
+        return "opn 0 " + w.register() + " " + w.value();
+      }
+      case YM2612_WRITE_PORT_1: {
+        final VGMCommandYM2612WritePort1 w = (VGMCommandYM2612WritePort1) c;
+        return "opn 1 " + w.register() + " " + w.value();
+      }
+      case YM2612_SEEK_PCM:
+        return "seek " + ((VGMCommandYM2612SeekPCM) c).position();
+      case WAIT_LONG:
+        return "wait " + ((VGMCommandWaitLong) c).samples();
+      case WAIT_735:
+        return "wait 735";
+      case WAIT_882:
+        return "wait 882";
+      case END_OF_SOUND_DATA:
+        return "end";
+      case DATA_BLOCK: {
+        final VGMCommandDataBlock d = (VGMCommandDataBlock) c;
+        return "data " + d.dataType() + " " + d.dataSize();
+      }
+      default:
+        break;
+    }
+    if (tag >= 0x70 && tag <= 0x7f) {
+      return "wait " + ((tag & 0xf) + 1);
+    }
+    return "pcm " + (tag & 0xf);
+  }
+  // CHECKSTYLE:ON
+
+  private static List<String> viaParse(
+    final VGMParserBodyType body)
+  {
+    final List<String> out = new ArrayList<>();
+    while (true) {
+      final VGMCommandType c = body.parse().get();
+      if (c.type() == VGMCommandType.Type.EOF) {
+        return out;
+      }
+      out.add(describe(c));
+    }
+  }
+
+  private static List<String> viaVisitor(
+    final VGMParserBodyType body)
+  {
+    final Recorder recorder = new Recorder();
+    final Validation<Seq<VGMParseError>, Void> r = body.parseAll(recorder);
+    Assertions.assertTrue(r.isValid(), () -> r.getError().toString());
+    return recorder.out;
+  }
+
+  @Test
+  public void testVisitorStream()
+  {
+    final byte[] data = exampleFile();
+    final VGMParserProviderType p = new VGMParserVanilla();
+    final List<String> expected = viaParse(body(p, data));
+    Assertions.assertEquals(15, expected.size());
+    Assertions.assertEquals(expected, viaVisitor(body(p, data)));
+  }
+
+  @Test
+  public void testVisitorMapped()
+  {
+    final byte[] data = exampleFile();
+    final List<String> expected =
+      viaParse(body(new VGMParserVanilla(), data));
+    Assertions.assertEquals(
+      expected, viaVisitor(body(new VGMParserVanillaMapped(), data)));
+  }
+
+  @Test
+  public void testVisitorDataBlockOffset()
+  {
+    final byte[] data = exampleFile();
+    for (final VGMParserProviderType p : List.of(
+      new VGMParserVanilla(), new VGMParserVanillaMapped())) {
+      final long[] received = new long[1];
+      body(p, data).parseAll(new VGMParserBodyVisitorType()
+      {
+        @Override
+        public void onDataBlock(
+          final int type,
+          final long offset,
+          final long size)
+        {
+          received[0] = offset;
+        }
+      });
+      Assertions.assertEquals(0x40L + 13L + 7L, received[0]);
+    }
+  }
+
+  @Test
+  public void testVisitorUnrecognized()
+  {
+    final byte[] data =
+      new VGMTestFileBuilder(0x150)
+        .bytes(0x50, 0x00, 0x01)
+        .build();
+
+    for (final VGMParserProviderType p : List.of(
+      new VGMParserVanilla(), new VGMParserVanillaMapped())) {
+      final Validation<Seq<VGMParseError>, Void> r =
+        body(p, data).parseAll(new Recorder());
+      Assertions.assertTrue(r.isInvalid());
+      Assertions.assertEquals(0x43L, r.getError().get(0).offset());
+    }
+  }
+
+  @Test
+  public void testDataBlockLargerThanInput()
+  {
+    final byte[] data =
+      new VGMTestFileBuilder(0x150)
+        .bytes(0x67, 0x66, 0x00, 0xff, 0xff, 0xff, 0x7f, 0x01, 0x02)
+        .bytes(0x66)
+        .build();
+
+    final VGMParserProviderType p = new VGMParserVanilla();
+    final Validation<Seq<VGMParseError>, VGMCommandType> r =
+      body(p, data).parse();
+    Assertions.assertTrue(r.isInvalid());
+    Assertions.assertEquals(0x47L, r.getError().get(0).offset());
+
+    final Validation<Seq<VGMParseError>, Void> v =
+      body(p, data).parseAll(new Recorder());
+    Assertions.assertTrue(v.isInvalid());
+    Assertions.assertEquals(0x47L, v.getError().get(0).offset());
+  }
+
+  @Test
+  public void testDataBlockWithoutEOFOffset()
+  {
+    final int size = 200000;
+    final VGMTestFileBuilder builder =
+      new VGMTestFileBuilder(0x150)
+        .headerInt(0x04, 0)
+        .bytes(0x67, 0x66, 0x00)
+        .bytes(size & 0xff, (size >>> 8) & 0xff, (size >>> 16) & 0xff, 0x00);
+    for (int index = 0; index < size; ++index) {
+      builder.bytes(index * 7);
+    }
+    final byte[] data = builder.bytes(0x66).build();
+
+    final Validation<Seq<VGMParseError>, VGMCommandType> r =
+      body(new VGMParserVanilla(), data).parse();
+    Assertions.assertTrue(r.isValid(), () -> r.getError().toString());
+
+    final ByteBuffer block = ((VGMCommandDataBlock) r.get()).data().orElseThrow();
+    Assertions.assertEquals(size, block.remaining());
+    for (int index = 0; index < size; ++index) {
+      Assertions.assertEquals((byte) (index * 7), block.get(index));
+    }
+  }
+
+  @Test
+  public void testDataBlockTruncatedWithoutEOFOffset()
+  {
+    final byte[] data =
+      new VGMTestFileBuilder(0x150)
+        .headerInt(0x04, 0)
+        .bytes(0x67, 0x66, 0x00, 0x00, 0x00, 0x02, 0x00, 0x01, 0x02)
+        .build();
+
+    final Validation<Seq<VGMParseError>, VGMCommandType> r =
+      body(new VGMParserVanilla(), data).parse();
+    Assertions.assertTrue(r.isInvalid());
+    Assertions.assertEquals(0x47L, r.getError().get(0).offset());
+
+    final Validation<Seq<VGMParseError>, Void> v =
+      body(new VGMParserVanilla(), data).parseAll(new Recorder());
+    Assertions.assertTrue(v.isInvalid());
+    Assertions.assertEquals(0x47L, v.getError().get(0).offset());
+  }
+
+  private static final class Recorder implements VGMParserBodyVisitorType
+  {
+    private final List<String> out = new ArrayList<>();
+
+    Recorder()
+    {
+
+    }
+
+    @Override
+    public void onGameGearPSGStereoWrite(
+      final int value)
+    {
+      this.out.add("gg " + (byte) value);
+    }
+
+    @Override
+    public void onPSGWrite(
+      final int value)
+    {
+      this.out.add("psg " + (byte) value);
+    }
+
+    @Override
+    public void onYM2413Write(
+      final int register,
+      final int value)
+    {
+      this.out.add("opll " + (byte) register + " " + (byte) value);
+    }
+
+    @Override
+    public void onYM2612Write(
+      final int port,
+      final int register,
+      final int value)
+    {
+      this.out.add("opn " + port + " " + (byte) register + " " + (byte) value);
+    }
+
+    @Override
+    public void onYM2612SeekPCM(
+      final long position)
+    {
+      this.out.add("seek " + position);
+    }
+
+    @Override
+    public void onYM2612PCMWriteWait(
+      final int samples)
+    {
+      this.out.add("pcm " + samples);
+    }
+
+    @Override
+    public void onWait(
+      final int samples)
+    {
+      this.out.add("wait " + samples);
+    }
+
+    @Override
+    public void onDataBlock(
+      final int type,
+      final long offset,
+      final long size)
+    {
+      this.out.add("data " + (byte) type + " " + size);
+    }
+
+    @Override
+    public void onEndOfSoundData()
+    {
+      this.out.add("end");
+    }
+  }
+}
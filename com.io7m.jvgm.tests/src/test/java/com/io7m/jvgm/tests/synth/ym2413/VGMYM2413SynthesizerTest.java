@@ -0,0 +1,247 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.synth.ym2413;
+
+import com.io7m.jvgm.synth.ym2413.VGMYM2413Synthesizer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public final class VGMYM2413SynthesizerTest
+{
+  private static final int RATE = 44100;
+
+  private static VGMYM2413Synthesizer synth()
+  {
+    return new VGMYM2413Synthesizer(VGMYM2413Synthesizer.CLOCK_NTSC, RATE);
+  }
+
+  /*
+   * Define a user patch that is close to a pure sine wave: The modulator is
+   * at maximum attenuation, and the carrier attacks instantly, does not
+   * decay, and releases at the fastest rate.
+   */
+
+  private static void sinePatch(
+    final VGMYM2413Synthesizer synth)
+  {
+    synth.writeRegister(0x00, 0x21);
+    synth.writeRegister(0x01, 0x21);
+    synth.writeRegister(0x02, 0x3f);
+    synth.writeRegister(0x03, 0x00);
+    synth.writeRegister(0x04, 0xf0);
+    synth.writeRegister(0x05, 0xf0);
+    synth.writeRegister(0x06, 0x0f);
+    synth.writeRegister(0x07, 0x0f);
+  }
+
+  /*
+   * Play A4 (F-number 0x122 in block 4) on channel 0.
+   */
+
+  private static void keyOn(
+    final VGMYM2413Synthesizer synth)
+  {
+    synth.writeRegister(0x30, 0x00);
+    synth.writeRegister(0x10, 0x22);
+    synth.writeRegister(0x20, 0x19);
+  }
+
+  private static int peak(
+    final short[] output,
+    final int from,
+    final int to)
+  {
+    int peak = 0;
+    for (int index = from; index < to; ++index) {
+      peak = Math.max(peak, Math.abs(output[index]));
+    }
+    return peak;
+  }
+
+  @Test
+  public void testSilence()
+  {
+    final VGMYM2413Synthesizer synth = synth();
+    final short[] output = new short[RATE];
+    synth.render(output, 0, RATE / 2);
+    Assertions.assertEquals(0, peak(output, 0, output.length));
+  }
+
+  @Test
+  public void testPitch()
+  {
+    final VGMYM2413Synthesizer synth = synth();
+    sinePatch(synth);
+    keyOn(synth);
+
+    final short[] output = new short[RATE * 2];
+    synth.render(output, 0, RATE);
+
+    int crossings = 0;
+    for (int index = 2; index < output.length; index += 2) {
+      if (output[index - 2] < 0 && output[index] >= 0) {
+        ++crossings;
+      }
+      Assertions.assertEquals(output[index], output[index + 1]);
+    }
+
+    Assertions.assertTrue(
+      Math.abs(crossings - 440) <= 2, "Crossings " + crossings);
+    Assertions.assertTrue(peak(output, 0, output.length) > 1000);
+  }
+
+  @Test
+  public void testVolume()
+  {
+    final VGMYM2413Synthesizer synth0 = synth();
+    sinePatch(synth0);
+    keyOn(synth0);
+
+    final VGMYM2413Synthesizer synth1 = synth();
+    sinePatch(synth1);
+    keyOn(synth1);
+    synth1.writeRegister(0x30, 0x02);
+
+    final short[] output0 = new short[RATE / 5];
+    final short[] output1 = new short[RATE / 5];
+    synth0.render(output0, 0, RATE / 10);
+    synth1.render(output1, 0, RATE / 10);
+
+    final double ratio =
+      (double) peak(output1, 0, output1.length)
+        / (double) peak(output0, 0, output0.length);
+    Assertions.assertEquals(0.5, ratio, 0.05);
+  }
+
+  @Test
+  public void testRelease()
+  {
+    final VGMYM2413Synthesizer synth = synth();
+    sinePatch(synth);
+    keyOn(synth);
+
+    final short[] output = new short[RATE / 5];
+    synth.render(output, 0, RATE / 10);
+    Assertions.assertTrue(peak(output, 0, output.length) > 1000);
+
+    synth.writeRegister(0x20, 0x09);
+    synth.render(output, 0, RATE / 10);
+    Assertions.assertEquals(0, peak(output, output.length / 2, output.length));
+  }
+
+  @Test
+  public void testBuiltInInstruments()
+  {
+    for (int instrument = 1; instrument < 16; ++instrument) {
+      final VGMYM2413Synthesizer synth = synth();
+      synth.writeRegister(0x10, 0x22);
+      synth.writeRegister(0x30, instrument << 4);
+      synth.writeRegister(0x20, 0x19);
+
+      final short[] output = new short[RATE / 5];
+      synth.render(output, 0, RATE / 10);
+      Assertions.assertTrue(
+        peak(output, 0, output.length) > 0, "Instrument " + instrument);
+    }
+  }
+
+  @Test
+  public void testRhythm()
+  {
+    final int[] keys = {0x10, 0x08, 0x04, 0x02, 0x01};
+    for (final int key : keys) {
+      final VGMYM2413Synthesizer synth = synth();
+      synth.writeRegister(0x16, 0x20);
+      synth.writeRegister(0x26, 0x05);
+      synth.writeRegister(0x17, 0x50);
+      synth.writeRegister(0x27, 0x05);
+      synth.writeRegister(0x18, 0xc0);
+      synth.writeRegister(0x28, 0x01);
+      synth.writeRegister(0x36, 0x00);
+      synth.writeRegister(0x37, 0x00);
+      synth.writeRegister(0x38, 0x00);
+
+      final short[] output = new short[RATE / 5];
+      synth.writeRegister(0x0e, 0x20);
+      synth.render(output, 0, RATE / 10);
+      Assertions.assertEquals(0, peak(output, 0, output.length));
+
+      synth.writeRegister(0x0e, 0x20 | key);
+      synth.render(output, 0, RATE / 10);
+      Assertions.assertTrue(
+        peak(output, 0, output.length) > 0, "Rhythm key " + key);
+    }
+  }
+
+  @Test
+  public void testBlockSizeIndependent()
+  {
+    final VGMYM2413Synthesizer synth0 = synth();
+    final VGMYM2413Synthesizer synth1 = synth();
+
+    final Random random = new Random(0x2413L);
+    final short[] output0 = new short[RATE * 2];
+    final short[] output1 = new short[RATE * 2];
+
+    int position = 0;
+    while (position < RATE) {
+      final int register = random.nextInt(0x40);
+      final int value = random.nextInt(0x100);
+      synth0.writeRegister(register, value);
+      synth1.writeRegister(register, value);
+
+      final int frames = Math.min(RATE - position, random.nextInt(300));
+      synth0.render(output0, position * 2, frames);
+      for (int index = 0; index < frames; ++index) {
+        synth1.render(output1, (position + index) * 2, 1);
+      }
+      position += frames;
+    }
+
+    Assertions.assertTrue(Arrays.equals(output0, output1));
+    Assertions.assertTrue(peak(output0, 0, output0.length) > 0);
+  }
+
+  @Test
+  public void testReset()
+  {
+    final VGMYM2413Synthesizer synth = synth();
+    sinePatch(synth);
+    keyOn(synth);
+
+    final short[] output = new short[RATE / 5];
+    synth.render(output, 0, RATE / 10);
+    synth.reset();
+    synth.render(output, 0, RATE / 10);
+    Assertions.assertEquals(0, peak(output, 0, output.length));
+    Assertions.assertEquals(0, synth.interpreter().register(0x20));
+  }
+
+  @Test
+  public void testInvalid()
+  {
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> new VGMYM2413Synthesizer(VGMYM2413Synthesizer.CLOCK_NTSC, 0));
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> new VGMYM2413Synthesizer(0, RATE));
+  }
+}
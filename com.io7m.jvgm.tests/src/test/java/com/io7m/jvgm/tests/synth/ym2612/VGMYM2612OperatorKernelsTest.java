@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.io7m.jvgm.tests.synth.ym2612;
+
+import com.io7m.jvgm.synth.ym2612.VGMYM2612OperatorKernelType;
+import com.io7m.jvgm.synth.ym2612.VGMYM2612OperatorKernels;
+import com.io7m.jvgm.synth.ym2612.VGMYM2612Synthesizer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public final class VGMYM2612OperatorKernelsTest
+{
+  private static final int RATE = 44100;
+
+  @Test
+  public void testScalar()
+  {
+    final VGMYM2612OperatorKernelType kernel = VGMYM2612OperatorKernels.scalar();
+    Assertions.assertEquals("scalar", kernel.name());
+
+    final int[] phase = new int[1];
+    final int[] envelope = new int[1];
+    final int[] modulation = new int[1];
+    final int[] output = new int[1];
+
+    envelope[0] = 0x3ff;
+    output[0] = 1;
+    kernel.evaluate(phase, envelope, modulation, 0, output, 0, 1);
+    Assertions.assertEquals(0, output[0]);
+
+    envelope[0] = 0;
+    phase[0] = 0x100 << 16;
+    kernel.evaluate(phase, envelope, modulation, 0, output, 0, 1);
+    Assertions.assertTrue(output[0] > 8000);
+    phase[0] = 0x300 << 16;
+    kernel.evaluate(phase, envelope, modulation, 0, output, 0, 1);
+    Assertions.assertTrue(output[0] < -8000);
+  }
+
+  /**
+   * The preferred kernel (which is the vector kernel if the vector module
+   * is available) must agree exactly with the scalar kernel.
+   */
+
+  @Test
+  public void testPreferredAgrees()
+  {
+    final VGMYM2612OperatorKernelType scalar = VGMYM2612OperatorKernels.scalar();
+    final VGMYM2612OperatorKernelType preferred = VGMYM2612OperatorKernels.preferred();
+    final Random random = new Random(0x2612L);
+
+    final int[] phase = new int[256];
+    final int[] envelope = new int[256];
+    final int[] modulation = new int[257];
+    final int[] output_0 = new int[300];
+    final int[] output_1 = new int[300];
+
+    for (int iteration = 0; iteration < 1000; ++iteration) {
+      for (int index = 0; index < phase.length; ++index) {
+        phase[index] = random.nextInt();
+        envelope[index] = random.nextInt(1400);
+      }
+      for (int index = 0; index < modulation.length; ++index) {
+        modulation[index] = random.nextInt(0x10000) - 0x8000;
+      }
+
+      final int count = 1 + random.nextInt(256);
+      final int modulation_offset = random.nextInt(2);
+      final int output_offset = random.nextInt(300 - count + 1);
+      scalar.evaluate(
+        phase, envelope, modulation, modulation_offset, output_0, output_offset, count);
+      preferred.evaluate(
+        phase, envelope, modulation, modulation_offset, output_1, output_offset, count);
+      Assertions.assertArrayEquals(output_0, output_1, preferred.name());
+    }
+  }
+
+  @Test
+  public void testSynthesizerKernelsAgree()
+  {
+    final VGMYM2612Synthesizer synth_0 =
+      new VGMYM2612Synthesizer(
+        VGMYM2612Synthesizer.CLOCK_NTSC, RATE, VGMYM2612OperatorKernels.scalar());
+    final VGMYM2612Synthesizer synth_1 =
+      new VGMYM2612Synthesizer(
+        VGMYM2612Synthesizer.CLOCK_NTSC, RATE, VGMYM2612OperatorKernels.preferred());
+
+    final Random random = new Random(0x7612L);
+    final short[] output_0 = new short[2048];
+    final short[] output_1 = new short[2048];
+
+    for (int step = 0; step < 500; ++step) {
+      final int port = random.nextInt(2);
+      final int register = 0x30 + random.nextInt(0x88);
+      final int value = random.nextInt(0x100);
+      synth_0.writeRegister(port, register, value);
+      synth_1.writeRegister(port, register, value);
+
+      final int key = random.nextInt(0x100) & 0xf7;
+      synth_0.writeRegisterPort0(0x28, key);
+      synth_1.writeRegisterPort0(0x28, key);
+
+      final int frames = 1 + random.nextInt(1024);
+      synth_0.render(output_0, 0, frames);
+      synth_1.render(output_1, 0, frames);
+      Assertions.assertArrayEquals(output_0, output_1, synth_1.kernelName());
+    }
+  }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright © 2017 <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.jvgm.tests.synth.ym2612;
+
+import com.io7m.jvgm.synth.ym2612.VGMYM2612Synthesizer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class VGMYM2612SynthesizerTest
+{
+  private static final int RATE = 44100;
+
+  /**
+   * Configure channel 0 as a single sine wave on S4 (algorithm 7, with all
+   * other operators fully attenuated) at roughly 440Hz.
+   */
+
+  private static void sine(
+    final VGMYM2612Synthesizer synth)
+  {
+    synth.writeRegisterPort0(0xb0, 0x07);
+    for (int op = 0; op < 4; ++op) {
+      final int offset = op * 4;
+      synth.writeRegisterPort0(0x30 + offset, 0x01);
+      synth.writeRegisterPort0(0x40 + offset, op == 3 ? 0x00 : 0x7f);
+      synth.writeRegisterPort0(0x50 + offset, 0x1f);
+      synth.writeRegisterPort0(0x60 + offset, 0x00);
+      synth.writeRegisterPort0(0x70 + offset, 0x00);
+      synth.writeRegisterPort0(0x80 + offset, 0x0f);
+    }
+    synth.writeRegisterPort0(0xa4, (4 << 3) | (1083 >>> 8));
+    synth.writeRegisterPort0(0xa0, 1083 & 0xff);
+  }
+
+  private static void patch(
+    final VGMYM2612Synthesizer synth,
+    final int port,
+    final int channel)
+  {
+    synth.writeRegister(port, 0xb0 + channel, 0x32);
+    synth.writeRegister(port, 0xb4 + channel, 0xc3);
+    for (int op = 0; op < 4; ++op) {
+      final int offset = channel + (op * 4);
+      synth.writeRegister(port, 0x30 + offset, 0x71 - (op * 0x10));
+      synth.writeRegister(port, 0x40 + offset, op == 3 ? 0x08 : 0x20 + op);
+      synth.writeRegister(port, 0x50 + offset, 0x5f);
+      synth.writeRegister(port, 0x60 + offset, 0x85);
+      synth.writeRegister(port, 0x70 + offset, 0x02);
+      synth.writeRegister(port, 0x80 + offset, 0x27);
+    }
+    synth.writeRegister(port, 0xa4 + channel, 0x22 + channel);
+    synth.writeRegister(port, 0xa0 + channel, 0x69);
+  }
+
+  private static short[] song(
+    final VGMYM2612Synthesizer synth)
+  {
+    final short[] output = new short[RATE * 2];
+
+    synth.writeRegisterPort0(0x22, 0x0b);
+    for (int channel = 0; channel < 3; ++channel) {
+      patch(synth, 0, channel);
+      patch(synth, 1, channel);
+    }
+
+    int position = 0;
+    for (int step = 0; step < 10; ++step) {
+      for (final int key : new int[]{0, 1, 2, 4, 5, 6}) {
+        synth.writeRegisterPort0(0x28, ((step & 1) == 0 ? 0xf0 : 0x00) | key);
+      }
+      synth.render(output, position, RATE / 10);
+      position += (RATE / 10) * 2;
+    }
+    return output;
+  }
+
+  @Test
+  public void testSilence()
+  {
+    final VGMYM2612Synthesizer synth =
+      new VGMYM2612Synthesizer(VGMYM2612Synthesizer.CLOCK_NTSC, RATE);
+    sine(synth);
+
+    final short[] output = new short[RATE];
+    synth.render(output, 0, RATE / 2);
+    for (final short sample : output) {
+      Assertions.assertEquals(0, sample);
+    }
+  }
+
+  @Test
+  public void testPitch()
+  {
+    final VGMYM2612Synthesizer synth =
+      new VGMYM2612Synthesizer(VGMYM2612Synthesizer.CLOCK_NTSC, RATE);
+    sine(synth);
+    synth.writeRegisterPort0(0x28, 0xf0);
+
+    final short[] output = new short[RATE * 2];
+    synth.render(output, 0, RATE);
+
+    int crossings = 0;
+    int peak = 0;
+    for (int index = 2; index < output.length; index += 2) {
+      if (output[index - 2] < 0 && output[index] >= 0) {
+        ++crossings;
+      }
+      peak = Math.max(peak, Math.abs(output[index]));
+      Assertions.assertEquals(output[index], output[index + 1]);
+    }
+
+    Assertions.assertTrue(
+      Math.abs(crossings - 440) <= 2, "Crossings " + crossings);
+    Assertions.assertTrue(peak > 4000, "Peak " + peak);
+  }
+
+  @Test
+  public void testRelease()
+  {
+    final VGMYM2612Synthesizer synth =
+      new VGMYM2612Synthesizer(VGMYM2612Synthesizer.CLOCK_NTSC, RATE);
+    sine(synth);
+    synth.writeRegisterPort0(0x28, 0xf0);
+
+    final short[] output = new short[RATE * 2];
+    synth.render(output, 0, RATE / 4);
+    synth.writeRegisterPort0(0x28, 0x00);
+    synth.render(output, 0, RATE / 2);
+    synth.render(output, 0, RATE / 10);
+
+    for (int index = 0; index < (RATE / 10) * 2; ++index) {
+      Assertions.assertEquals(0, output[index]);
+    }
+  }
+
+  @Test
+  public void testPanning()
+  {
+    final VGMYM2612Synthesizer synth =
+      new VGMYM2612Synthesizer(VGMYM2612Synthesizer.CLOCK_NTSC, RATE);
+    sine(synth);
+    synth.writeRegisterPort0(0xb4, 0x80);
+    synth.writeRegisterPort0(0x28, 0xf0);
+
+    final short[] output = new short[RATE];
+    synth.render(output, 0, RATE / 2);
+
+    boolean any = false;
+    for (int index = 0; index < output.length; index += 2) {
+      any = any || output[index] != 0;
+      Assertions.assertEquals(0, output[index + 1]);
+    }
+    Assertions.assertTrue(any);
+  }
+
+  @Test
+  public void testDAC()
+  {
+    final VGMYM2612Synthesizer synth =
+      new VGMYM2612Synthesizer(VGMYM2612Synthesizer.CLOCK_NTSC, RATE);
+    synth.writeRegisterPort0(0x2b, 0x80);
+    synth.writeRegisterPort0(0x2a, 0xff);
+
+    final short[] output = new short[8];
+    synth.render(output, 0, 4);
+    for (final short sample : output) {
+      Assertions.assertEquals(0x7f << 6, sample);
+    }
+
+    synth.writeRegisterPort0(0x2a, 0x00);
+    synth.render(output, 0, 4);
+    for (final short sample : output) {
+      Assertions.assertEquals(-0x80 << 6, sample);
+    }
+  }
+
+  @Test
+  public void testDeterministic()
+  {
+    final VGMYM2612Synthesizer synth_0 =
+      new VGMYM2612Synthesizer(VGMYM2612Synthesizer.CLOCK_NTSC, RATE);
+    final VGMYM2612Synthesizer synth_1 =
+      new VGMYM2612Synthesizer(VGMYM2612Synthesizer.CLOCK_NTSC, RATE);
+
+    final short[] output_0 = song(synth_0);
+    final short[] output_1 = song(synth_1);
+    Assertions.assertArrayEquals(output_0, output_1);
+
+    synth_0.reset();
+    Assertions.assertArrayEquals(output_0, song(synth_0));
+
+    boolean any = false;
+    for (final short sample : output_0) {
+      any = any || sample != 0;
+    }
+    Assertions.assertTrue(any);
+  }
+
+  @Test
+  public void testBlockSizeIndependent()
+  {
+    final VGMYM2612Synthesizer synth_0 =
+      new VGMYM2612Synthesizer(VGMYM2612Synthesizer.CLOCK_NTSC, RATE);
+    final VGMYM2612Synthesizer synth_1 =
+      new VGMYM2612Synthesizer(VGMYM2612Synthesizer.CLOCK_NTSC, RATE);
+
+    for (final VGMYM2612Synthesizer synth : new VGMYM2612Synthesizer[]{synth_0, synth_1}) {
+      synth.writeRegisterPort0(0x22, 0x0f);
+      patch(synth, 0, 0);
+      patch(synth, 1, 2);
+      synth.writeRegisterPort0(0x28, 0xf0);
+      synth.writeRegisterPort0(0x28, 0xf6);
+    }
+
+    final short[] output_0 = new short[RATE];
+    final short[] output_1 = new short[RATE];
+    synth_0.render(output_0, 0, RATE / 2);
+    for (int frame = 0; frame < RATE / 2; frame += 7) {
+      synth_1.render(output_1, frame * 2, Math.min(7, (RATE / 2) - frame));
+    }
+    Assertions.assertArrayEquals(output_0, output_1);
+  }
+
+  @Test
+  public void testDACStream()
+  {
+    final VGMYM2612Synthesizer synth_0 =
+      new VGMYM2612Synthesizer(VGMYM2612Synthesizer.CLOCK_NTSC, RATE);
+    final VGMYM2612Synthesizer synth_1 =
+      new VGMYM2612Synthesizer(VGMYM2612Synthesizer.CLOCK_NTSC, RATE);
+    synth_0.writeRegisterPort0(0x2b, 0x80);
+    synth_1.writeRegisterPort0(0x2b, 0x80);
+
+    final byte[] dac = new byte[600];
+    for (int index = 0; index < dac.length; ++index) {
+      dac[index] = (byte) (index * 7);
+    }
+
+    final short[] output_0 = new short[dac.length * 2];
+    final short[] output_1 = new short[dac.length * 2];
+    synth_0.renderDAC(output_0, 0, dac.length, dac, 0);
+    for (int index = 0; index < dac.length; ++index) {
+      synth_1.writeRegisterPort0(0x2a, (int) dac[index] & 0xff);
+      synth_1.render(output_1, index * 2, 1);
+    }
+
+    Assertions.assertArrayEquals(output_0, output_1);
+    Assertions.assertEquals((((0x57 * 7) & 0xff) - 0x80) << 6, output_0[0x57 * 2]);
+    Assertions.assertEquals(
+      (int) dac[dac.length - 1] & 0xff,
+      synth_0.interpreter().dacData());
+    Assertions.assertThrows(
+      IndexOutOfBoundsException.class,
+      () -> synth_0.renderDAC(output_0, 0, 4, dac, dac.length - 2));
+  }
+
+  /**
+   * Configure channel 3 and timer A for CSM mode with the given mode bits.
+   */
+
+  private static void csm(
+    final VGMYM2612Synthesizer synth,
+    final int mode)
+  {
+    patch(synth, 0, 2);
+    synth.writeRegisterPort0(0x24, 0xf0);
+    synth.writeRegisterPort0(0x25, 0x00);
+    synth.writeRegisterPort0(0x27, mode | 0x05);
+  }
+
+  @Test
+  public void testCSM()
+  {
+    final VGMYM2612Synthesizer synth =
+      new VGMYM2612Synthesizer(VGMYM2612Synthesizer.CLOCK_NTSC, RATE);
+    csm(synth, 0x80);
+
+    final short[] output = new short[RATE];
+    synth.render(output, 0, RATE / 2);
+
+    boolean any = false;
+    for (final short sample : output) {
+      any = any || sample != 0;
+    }
+    Assertions.assertTrue(any);
+    Assertions.assertEquals(
+      0b01, synth.interpreter().status() & 0b01);
+  }
+
+  @Test
+  public void testCSMDisabled()
+  {
+    final VGMYM2612Synthesizer synth =
+      new VGMYM2612Synthesizer(VGMYM2612Synthesizer.CLOCK_NTSC, RATE);
+    csm(synth, 0x40);
+
+    final short[] output = new short[RATE];
+    synth.render(output, 0, RATE / 2);
+    for (final short sample : output) {
+      Assertions.assertEquals(0, sample);
+    }
+  }
+
+  @Test
+  public void testCSMBlockSizeIndependent()
+  {
+    final VGMYM2612Synthesizer synth_0 =
+      new VGMYM2612Synthesizer(VGMYM2612Synthesizer.CLOCK_NTSC, RATE);
+    final VGMYM2612Synthesizer synth_1 =
+      new VGMYM2612Synthesizer(VGMYM2612Synthesizer.CLOCK_NTSC, RATE);
+    csm(synth_0, 0x80);
+    csm(synth_1, 0x80);
+
+    final short[] output_0 = new short[RATE];
+    final short[] output_1 = new short[RATE];
+    synth_0.render(output_0, 0, RATE / 2);
+    for (int frame = 0; frame < RATE / 2; frame += 13) {
+      synth_1.render(output_1, frame * 2, Math.min(13, (RATE / 2) - frame));
+    }
+    Assertions.assertArrayEquals(output_0, output_1);
+  }
+
+  @Test
+  public void testBufferTooSmall()
+  {
+    final VGMYM2612Synthesizer synth =
+      new VGMYM2612Synthesizer(VGMYM2612Synthesizer.CLOCK_NTSC, RATE);
+    Assertions.assertThrows(
+      IndexOutOfBoundsException.class, () -> synth.render(new short[8], 2, 4));
+  }
+}